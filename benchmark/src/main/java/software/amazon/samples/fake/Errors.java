@@ -0,0 +1,53 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+// Exceptions thrown as the DynamoDB client throws them for the same errors.
+final class Errors {
+  private Errors() {
+  }
+
+  static DynamoDbException validation(String message) {
+    return (DynamoDbException) DynamoDbException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(AwsErrorDetails.builder()
+            .errorCode("ValidationException")
+            .errorMessage(message)
+            .serviceName("DynamoDb")
+            .build())
+        .build();
+  }
+
+  static ResourceNotFoundException tableNotFound(String tableName) {
+    String message = "Requested resource not found: Table: " + tableName + " not found";
+    return ResourceNotFoundException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(AwsErrorDetails.builder()
+            .errorCode("ResourceNotFoundException")
+            .errorMessage(message)
+            .serviceName("DynamoDb")
+            .build())
+        .build();
+  }
+
+  static ProvisionedThroughputExceededException throttled(String tableName) {
+    String message = "The level of configured provisioned throughput for the table " + tableName + " was exceeded";
+    return ProvisionedThroughputExceededException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(AwsErrorDetails.builder()
+            .errorCode("ProvisionedThroughputExceededException")
+            .errorMessage(message)
+            .serviceName("DynamoDb")
+            .build())
+        .build();
+  }
+}
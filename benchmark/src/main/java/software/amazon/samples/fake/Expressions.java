@@ -0,0 +1,650 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Parser and evaluator of the DynamoDB expression syntax: conditions with the comparators, BETWEEN,
+// IN, AND, OR, NOT, parentheses and the functions attribute_exists, attribute_not_exists,
+// attribute_type, begins_with, contains and size, key conditions and projections.
+// Document paths may be nested (a.b[0]), but projections keep whole top-level attributes.
+final class Expressions {
+  private Expressions() {
+  }
+
+  interface Condition {
+    boolean test(Map<String, AttributeValue> item);
+  }
+
+  interface Operand {
+    AttributeValue value(Map<String, AttributeValue> item);
+  }
+
+  // Condition of a Query on the keys of a table or an index
+  static final class KeyCondition {
+    KeyValue partition;
+    KeyValue low = KeyValue.MIN;
+    boolean lowInclusive = true;
+    KeyValue high = KeyValue.MAX;
+    boolean highInclusive = true;
+    KeyValue prefix;
+
+    boolean matchesSort(KeyValue sort) {
+      if (sort == null) {
+        return low == KeyValue.MIN && high == KeyValue.MAX && prefix == null;
+      }
+      int fromLow = sort.compareTo(low);
+      int fromHigh = sort.compareTo(high);
+      return (lowInclusive ? fromLow >= 0 : fromLow > 0)
+          && (highInclusive ? fromHigh <= 0 : fromHigh < 0)
+          && (prefix == null || sort.startsWith(prefix));
+    }
+  }
+
+  static Condition condition(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+    if (expression == null) {
+      return item -> true;
+    }
+    Parser parser = new Parser(expression, names, values);
+    Condition condition = parser.condition();
+    parser.expectEnd();
+    return condition;
+  }
+
+  static KeyCondition keyCondition(String expression, Map<String, String> names, Map<String, AttributeValue> values,
+                                   String partitionKeyName, String sortKeyName) {
+    if (expression == null) {
+      throw Errors.validation("Either the KeyConditions or KeyConditionExpression parameter must be specified");
+    }
+    Parser parser = new Parser(expression, names, values);
+    Condition condition = parser.condition();
+    parser.expectEnd();
+    List<Condition> conjuncts = new ArrayList<>();
+    flattenAnd(condition, conjuncts);
+    KeyCondition keyCondition = new KeyCondition();
+    for (Condition conjunct : conjuncts) {
+      if (conjunct instanceof Comparison) {
+        Comparison comparison = ((Comparison) conjunct).withPathFirst();
+        String name = keyName(comparison.left);
+        KeyValue value = keyValue(comparison.right);
+        if (name.equals(partitionKeyName) && comparison.operator.equals("=") && keyCondition.partition == null) {
+          keyCondition.partition = value;
+          continue;
+        }
+        if (name.equals(sortKeyName)) {
+          switch (comparison.operator) {
+            case "=":
+              keyCondition.low = value;
+              keyCondition.high = value;
+              continue;
+            case "<":
+              keyCondition.high = value;
+              keyCondition.highInclusive = false;
+              continue;
+            case "<=":
+              keyCondition.high = value;
+              continue;
+            case ">":
+              keyCondition.low = value;
+              keyCondition.lowInclusive = false;
+              continue;
+            case ">=":
+              keyCondition.low = value;
+              continue;
+            default:
+          }
+        }
+      } else if (conjunct instanceof Between && keyName(((Between) conjunct).operand).equals(sortKeyName)) {
+        keyCondition.low = keyValue(((Between) conjunct).low);
+        keyCondition.high = keyValue(((Between) conjunct).high);
+        continue;
+      } else if (conjunct instanceof BeginsWith && keyName(((BeginsWith) conjunct).operand).equals(sortKeyName)) {
+        keyCondition.prefix = keyValue(((BeginsWith) conjunct).prefix);
+        keyCondition.low = keyCondition.prefix;
+        continue;
+      }
+      throw Errors.validation("Invalid KeyConditionExpression: " + expression);
+    }
+    if (keyCondition.partition == null) {
+      throw Errors.validation("Query condition missed key schema element: " + partitionKeyName);
+    }
+    return keyCondition;
+  }
+
+  // Top-level attribute names of a projection expression, null to keep all the attributes
+  static Set<String> projection(String expression, Map<String, String> names) {
+    if (expression == null) {
+      return null;
+    }
+    Parser parser = new Parser(expression, names, Map.of());
+    Set<String> attributes = new LinkedHashSet<>();
+    do {
+      attributes.add(parser.path().topLevelName());
+    } while (parser.accept(","));
+    parser.expectEnd();
+    return attributes;
+  }
+
+  private static void flattenAnd(Condition condition, List<Condition> conjuncts) {
+    if (condition instanceof And) {
+      flattenAnd(((And) condition).left, conjuncts);
+      flattenAnd(((And) condition).right, conjuncts);
+    } else {
+      conjuncts.add(condition);
+    }
+  }
+
+  private static String keyName(Operand operand) {
+    if (!(operand instanceof Path) || ((Path) operand).elements.size() != 1) {
+      throw Errors.validation("Key conditions must be on key attributes");
+    }
+    return ((Path) operand).topLevelName();
+  }
+
+  private static KeyValue keyValue(Operand operand) {
+    if (!(operand instanceof Value)) {
+      throw Errors.validation("Key conditions must compare key attributes with values");
+    }
+    return KeyValue.of(((Value) operand).value);
+  }
+
+  private static final class Parser {
+    private final String expression;
+    private final List<String> tokens;
+    private final Map<String, String> names;
+    private final Map<String, AttributeValue> values;
+    private int position;
+
+    private Parser(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+      this.expression = expression;
+      this.tokens = tokenize(expression);
+      this.names = names == null ? Map.of() : names;
+      this.values = values == null ? Map.of() : values;
+    }
+
+    Condition condition() {
+      Condition left = and();
+      while (acceptKeyword("OR")) {
+        Condition current = left;
+        Condition right = and();
+        left = item -> current.test(item) || right.test(item);
+      }
+      return left;
+    }
+
+    private Condition and() {
+      Condition left = not();
+      while (acceptKeyword("AND")) {
+        left = new And(left, not());
+      }
+      return left;
+    }
+
+    private Condition not() {
+      if (acceptKeyword("NOT")) {
+        Condition negated = not();
+        return item -> !negated.test(item);
+      }
+      return primary();
+    }
+
+    private Condition primary() {
+      if (accept("(")) {
+        Condition condition = condition();
+        expect(")");
+        return condition;
+      }
+      String token = peek();
+      if (token != null && next(1).equals("(")) {
+        switch (token.toLowerCase()) {
+          case "attribute_exists":
+            return function(1, operands -> item -> operands.get(0).value(item) != null);
+          case "attribute_not_exists":
+            return function(1, operands -> item -> operands.get(0).value(item) == null);
+          case "attribute_type":
+            return function(2, operands -> item -> {
+              AttributeValue value = operands.get(0).value(item);
+              AttributeValue type = operands.get(1).value(item);
+              return value != null && type != null && typeName(value).equals(type.s());
+            });
+          case "begins_with":
+            return function(2, operands -> new BeginsWith(operands.get(0), operands.get(1)));
+          case "contains":
+            return function(2, operands -> item -> contains(operands.get(0).value(item), operands.get(1).value(item)));
+          default:
+        }
+      }
+      Operand left = operand();
+      if (acceptKeyword("BETWEEN")) {
+        Operand low = operand();
+        expectKeyword("AND");
+        return new Between(left, low, operand());
+      }
+      if (acceptKeyword("IN")) {
+        expect("(");
+        List<Operand> candidates = new ArrayList<>();
+        do {
+          candidates.add(operand());
+        } while (accept(","));
+        expect(")");
+        return item -> {
+          AttributeValue value = left.value(item);
+          return value != null && candidates.stream().anyMatch(candidate -> valueEquals(value, candidate.value(item)));
+        };
+      }
+      String operator = take();
+      if (!Set.of("=", "<>", "<", "<=", ">", ">=").contains(operator)) {
+        throw error("comparator expected, found " + operator);
+      }
+      return new Comparison(operator, left, operand());
+    }
+
+    private Condition function(int arity, java.util.function.Function<List<Operand>, Condition> factory) {
+      String name = take();
+      expect("(");
+      List<Operand> operands = new ArrayList<>();
+      do {
+        operands.add(operand());
+      } while (accept(","));
+      expect(")");
+      if (operands.size() != arity) {
+        throw error(name + " expects " + arity + " operand(s)");
+      }
+      return factory.apply(operands);
+    }
+
+    private Operand operand() {
+      String token = peek();
+      if (token == null) {
+        throw error("operand expected");
+      }
+      if (token.startsWith(":")) {
+        take();
+        AttributeValue value = values.get(token);
+        if (value == null) {
+          throw Errors.validation("An expression attribute value used in expression is not defined: " + token);
+        }
+        return new Value(value);
+      }
+      if (token.equalsIgnoreCase("size") && next(1).equals("(")) {
+        take();
+        expect("(");
+        Path path = path();
+        expect(")");
+        return item -> size(path.value(item));
+      }
+      return path();
+    }
+
+    Path path() {
+      List<Object> elements = new ArrayList<>();
+      elements.add(name(take()));
+      while (true) {
+        if (accept(".")) {
+          elements.add(name(take()));
+        } else if (accept("[")) {
+          elements.add(Integer.parseInt(take()));
+          expect("]");
+        } else {
+          return new Path(elements);
+        }
+      }
+    }
+
+    private String name(String token) {
+      if (token == null) {
+        throw error("attribute name expected");
+      }
+      if (token.startsWith("#")) {
+        String name = names.get(token);
+        if (name == null) {
+          throw Errors.validation("An expression attribute name used in expression is not defined: " + token);
+        }
+        return name;
+      }
+      if (!Character.isLetter(token.charAt(0)) && token.charAt(0) != '_') {
+        throw error("attribute name expected, found " + token);
+      }
+      return token;
+    }
+
+    boolean accept(String token) {
+      if (token.equals(peek())) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+      if (keyword.equalsIgnoreCase(peek())) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw error(token + " expected");
+      }
+    }
+
+    private void expectKeyword(String keyword) {
+      if (!acceptKeyword(keyword)) {
+        throw error(keyword + " expected");
+      }
+    }
+
+    void expectEnd() {
+      if (position < tokens.size()) {
+        throw error("unexpected " + tokens.get(position));
+      }
+    }
+
+    private String peek() {
+      return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private String next(int offset) {
+      return position + offset < tokens.size() ? tokens.get(position + offset) : "";
+    }
+
+    private String take() {
+      return position < tokens.size() ? tokens.get(position++) : null;
+    }
+
+    private RuntimeException error(String message) {
+      return Errors.validation("Invalid expression: " + message + ": " + expression);
+    }
+
+    private static List<String> tokenize(String expression) {
+      List<String> tokens = new ArrayList<>();
+      int i = 0;
+      while (i < expression.length()) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (Character.isLetterOrDigit(c) || c == '_' || c == '#' || c == ':') {
+          int start = i++;
+          while (i < expression.length()
+              && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+            i++;
+          }
+          tokens.add(expression.substring(start, i));
+        } else if ((c == '<' || c == '>') && i + 1 < expression.length()
+            && (expression.charAt(i + 1) == '=' || (c == '<' && expression.charAt(i + 1) == '>'))) {
+          tokens.add(expression.substring(i, i + 2));
+          i += 2;
+        } else {
+          tokens.add(String.valueOf(c));
+          i++;
+        }
+      }
+      return tokens;
+    }
+  }
+
+  static final class Path implements Operand {
+    private final List<Object> elements;
+
+    private Path(List<Object> elements) {
+      this.elements = elements;
+    }
+
+    String topLevelName() {
+      return (String) elements.get(0);
+    }
+
+    @Override
+    public AttributeValue value(Map<String, AttributeValue> item) {
+      AttributeValue value = item.get(topLevelName());
+      for (int i = 1; i < elements.size() && value != null; i++) {
+        Object element = elements.get(i);
+        if (element instanceof Integer) {
+          int index = (Integer) element;
+          value = value.hasL() && index < value.l().size() ? value.l().get(index) : null;
+        } else {
+          value = value.hasM() ? value.m().get(element) : null;
+        }
+      }
+      return value;
+    }
+  }
+
+  private static final class Value implements Operand {
+    private final AttributeValue value;
+
+    private Value(AttributeValue value) {
+      this.value = value;
+    }
+
+    @Override
+    public AttributeValue value(Map<String, AttributeValue> item) {
+      return value;
+    }
+  }
+
+  private static final class And implements Condition {
+    private final Condition left;
+    private final Condition right;
+
+    private And(Condition left, Condition right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean test(Map<String, AttributeValue> item) {
+      return left.test(item) && right.test(item);
+    }
+  }
+
+  private static final class Comparison implements Condition {
+    private final String operator;
+    private final Operand left;
+    private final Operand right;
+
+    private Comparison(String operator, Operand left, Operand right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    // ":value < attribute" is "attribute > :value"
+    Comparison withPathFirst() {
+      if (left instanceof Path || !(right instanceof Path)) {
+        return this;
+      }
+      switch (operator) {
+        case "<":
+          return new Comparison(">", right, left);
+        case "<=":
+          return new Comparison(">=", right, left);
+        case ">":
+          return new Comparison("<", right, left);
+        case ">=":
+          return new Comparison("<=", right, left);
+        default:
+          return new Comparison(operator, right, left);
+      }
+    }
+
+    @Override
+    public boolean test(Map<String, AttributeValue> item) {
+      AttributeValue leftValue = left.value(item);
+      AttributeValue rightValue = right.value(item);
+      if (leftValue == null || rightValue == null) {
+        return operator.equals("<>");
+      }
+      switch (operator) {
+        case "=":
+          return valueEquals(leftValue, rightValue);
+        case "<>":
+          return !valueEquals(leftValue, rightValue);
+        default:
+          Integer order = order(leftValue, rightValue);
+          if (order == null) {
+            return false;
+          }
+          switch (operator) {
+            case "<":
+              return order < 0;
+            case "<=":
+              return order <= 0;
+            case ">":
+              return order > 0;
+            default:
+              return order >= 0;
+          }
+      }
+    }
+  }
+
+  private static final class Between implements Condition {
+    private final Operand operand;
+    private final Operand low;
+    private final Operand high;
+
+    private Between(Operand operand, Operand low, Operand high) {
+      this.operand = operand;
+      this.low = low;
+      this.high = high;
+    }
+
+    @Override
+    public boolean test(Map<String, AttributeValue> item) {
+      AttributeValue value = operand.value(item);
+      if (value == null) {
+        return false;
+      }
+      Integer fromLow = order(value, low.value(item));
+      Integer fromHigh = order(value, high.value(item));
+      return fromLow != null && fromHigh != null && fromLow >= 0 && fromHigh <= 0;
+    }
+  }
+
+  private static final class BeginsWith implements Condition {
+    private final Operand operand;
+    private final Operand prefix;
+
+    private BeginsWith(Operand operand, Operand prefix) {
+      this.operand = operand;
+      this.prefix = prefix;
+    }
+
+    @Override
+    public boolean test(Map<String, AttributeValue> item) {
+      AttributeValue value = operand.value(item);
+      AttributeValue start = prefix.value(item);
+      if (value == null || start == null) {
+        return false;
+      }
+      if (value.s() != null && start.s() != null) {
+        return value.s().startsWith(start.s());
+      }
+      if (value.b() != null && start.b() != null) {
+        byte[] bytes = value.b().asByteArrayUnsafe();
+        byte[] startBytes = start.b().asByteArrayUnsafe();
+        return startBytes.length <= bytes.length
+            && Arrays.equals(bytes, 0, startBytes.length, startBytes, 0, startBytes.length);
+      }
+      return false;
+    }
+  }
+
+  private static boolean valueEquals(AttributeValue left, AttributeValue right) {
+    if (left == null || right == null) {
+      return false;
+    }
+    if (left.n() != null && right.n() != null) {
+      return new BigDecimal(left.n()).compareTo(new BigDecimal(right.n())) == 0;
+    }
+    return left.equals(right);
+  }
+
+  // Order of two scalar values of the same type, null if they cannot be compared
+  private static Integer order(AttributeValue left, AttributeValue right) {
+    if (left == null || right == null) {
+      return null;
+    }
+    if (left.n() != null && right.n() != null) {
+      return new BigDecimal(left.n()).compareTo(new BigDecimal(right.n()));
+    }
+    if (left.s() != null && right.s() != null) {
+      return Arrays.compareUnsigned(left.s().getBytes(StandardCharsets.UTF_8), right.s().getBytes(StandardCharsets.UTF_8));
+    }
+    if (left.b() != null && right.b() != null) {
+      return Arrays.compareUnsigned(left.b().asByteArrayUnsafe(), right.b().asByteArrayUnsafe());
+    }
+    return null;
+  }
+
+  private static boolean contains(AttributeValue value, AttributeValue operand) {
+    if (value == null || operand == null) {
+      return false;
+    }
+    if (value.s() != null) {
+      return operand.s() != null && value.s().contains(operand.s());
+    }
+    if (value.hasSs()) {
+      return operand.s() != null && value.ss().contains(operand.s());
+    }
+    if (value.hasNs()) {
+      return operand.n() != null && value.ns().stream().anyMatch(n -> valueEquals(AttributeValue.fromN(n), operand));
+    }
+    if (value.hasBs()) {
+      return operand.b() != null && value.bs().contains(operand.b());
+    }
+    if (value.hasL()) {
+      return value.l().stream().anyMatch(element -> valueEquals(element, operand));
+    }
+    return false;
+  }
+
+  private static AttributeValue size(AttributeValue value) {
+    if (value == null) {
+      return null;
+    }
+    int size;
+    if (value.s() != null) {
+      size = value.s().length();
+    } else if (value.b() != null) {
+      size = value.b().asByteArrayUnsafe().length;
+    } else if (value.hasSs()) {
+      size = value.ss().size();
+    } else if (value.hasNs()) {
+      size = value.ns().size();
+    } else if (value.hasBs()) {
+      size = value.bs().size();
+    } else if (value.hasL()) {
+      size = value.l().size();
+    } else if (value.hasM()) {
+      size = value.m().size();
+    } else {
+      return null;
+    }
+    return AttributeValue.fromN(Integer.toString(size));
+  }
+
+  private static String typeName(AttributeValue value) {
+    switch (value.type()) {
+      case NUL:
+        return "NULL";
+      case UNKNOWN_TO_SDK_VERSION:
+        return "";
+      default:
+        return value.type().name();
+    }
+  }
+}
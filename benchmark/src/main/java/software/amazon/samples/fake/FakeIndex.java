@@ -0,0 +1,144 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.samples.tools.ItemSizes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Global secondary index of a FakeTable. Its entries are updated with the items of the table,
+// but only the items that have the key attributes of the index are projected (sparse index).
+final class FakeIndex implements ItemSource {
+  private final GlobalSecondaryIndex definition;
+  private final String capacityName;
+  private final KeySchema keys;
+  private final KeySchema tableKeys;
+  private final Set<String> nonKeyAttributes;
+  private final ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> entries = new ConcurrentSkipListMap<>();
+  private final AtomicLong sizeBytes = new AtomicLong();
+
+  FakeIndex(String tableName, GlobalSecondaryIndex definition, KeySchema tableKeys) {
+    this.definition = definition;
+    this.capacityName = tableName + "/index/" + definition.indexName();
+    this.keys = new KeySchema(definition.keySchema());
+    this.tableKeys = tableKeys;
+    this.nonKeyAttributes = definition.projection().projectionType() == ProjectionType.INCLUDE
+        ? Set.copyOf(definition.projection().nonKeyAttributes())
+        : Set.of();
+  }
+
+  String name() {
+    return definition.indexName();
+  }
+
+  @Override
+  public String capacityName() {
+    return capacityName;
+  }
+
+  @Override
+  public KeySchema keys() {
+    return keys;
+  }
+
+  @Override
+  public ConcurrentNavigableMap<ItemKey, Map<String, AttributeValue>> entries() {
+    return entries;
+  }
+
+  @Override
+  public ItemKey keyOf(Map<String, AttributeValue> item) {
+    KeyValue partition = keys.partition(item);
+    if (partition == null || !tableKeys.hasKey(item) || (keys.sortKeyName != null && !item.containsKey(keys.sortKeyName))) {
+      throw Errors.validation("The provided starting key is invalid for index " + name());
+    }
+    return new ItemKey(partition.hash(), partition, keys.sort(item), tableKeys.partition(item), tableKeys.sort(item));
+  }
+
+  @Override
+  public Map<String, AttributeValue> lastEvaluatedKey(Map<String, AttributeValue> item) {
+    Map<String, AttributeValue> key = new HashMap<>();
+    tableKeys.copyKey(item, key);
+    keys.copyKey(item, key);
+    return key;
+  }
+
+  // Position of the entry of a table item, null if the item is not projected in the index
+  ItemKey entryKey(Map<String, AttributeValue> item) {
+    if (item == null || !keys.hasKey(item)) {
+      return null;
+    }
+    return keyOf(item);
+  }
+
+  Map<String, AttributeValue> project(Map<String, AttributeValue> item) {
+    if (definition.projection().projectionType() == ProjectionType.ALL) {
+      return item;
+    }
+    Map<String, AttributeValue> projected = new HashMap<>();
+    item.forEach((name, value) -> {
+      if (keys.isKeyAttribute(name) || tableKeys.isKeyAttribute(name) || nonKeyAttributes.contains(name)) {
+        projected.put(name, value);
+      }
+    });
+    return Map.copyOf(projected);
+  }
+
+  // Write units consumed by the index for a write of the table, known before the write is applied
+  int writeUnits(Map<String, AttributeValue> oldItem, Map<String, AttributeValue> newItem) {
+    ItemKey oldKey = entryKey(oldItem);
+    ItemKey newKey = entryKey(newItem);
+    Map<String, AttributeValue> oldEntry = oldKey == null ? null : project(oldItem);
+    Map<String, AttributeValue> newEntry = newKey == null ? null : project(newItem);
+    int units = 0;
+    if (oldEntry != null && (newEntry == null || !oldKey.equals(newKey))) {
+      // The entry is deleted, or moved to another key
+      units += ItemSizes.writeCapacityUnits(ItemSizes.itemSize(oldEntry));
+      oldEntry = null;
+    }
+    if (newEntry != null && !newEntry.equals(oldEntry)) {
+      units += ItemSizes.writeCapacityUnits(Math.max(ItemSizes.itemSize(newEntry),
+          oldEntry == null ? 0 : ItemSizes.itemSize(oldEntry)));
+    }
+    return units;
+  }
+
+  // Replaces the entry of oldItem with the entry of newItem
+  void update(Map<String, AttributeValue> oldItem, Map<String, AttributeValue> newItem) {
+    ItemKey oldKey = entryKey(oldItem);
+    ItemKey newKey = entryKey(newItem);
+    if (oldKey != null) {
+      Map<String, AttributeValue> oldEntry = entries.remove(oldKey);
+      if (oldEntry != null) {
+        sizeBytes.addAndGet(-ItemSizes.itemSize(oldEntry));
+      }
+    }
+    if (newKey != null) {
+      Map<String, AttributeValue> newEntry = project(newItem);
+      entries.put(newKey, newEntry);
+      sizeBytes.addAndGet(ItemSizes.itemSize(newEntry));
+    }
+  }
+
+  GlobalSecondaryIndexDescription describe() {
+    return GlobalSecondaryIndexDescription.builder()
+        .indexName(definition.indexName())
+        .keySchema(definition.keySchema())
+        .projection(definition.projection())
+        .indexStatus(IndexStatus.ACTIVE)
+        .itemCount((long) entries.size())
+        .indexSizeBytes(sizeBytes.get())
+        .build();
+  }
+}
@@ -0,0 +1,186 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.BillingModeSummary;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableStatus;
+import software.amazon.samples.tools.ItemSizes;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Items of a table of InMemoryDynamoDbClient, sorted by partition key hash, partition key and
+// sort key. The writes of an item and of its index entries are serialized by a lock striped on
+// the partition key, while the reads do not lock: like DynamoDB, an index may briefly miss the
+// last write of an item.
+final class FakeTable implements ItemSource {
+  private static final int LOCK_STRIPES = 256;
+
+  private final CreateTableRequest definition;
+  private final KeySchema keys;
+  private final Map<String, FakeIndex> indexes = new LinkedHashMap<>();
+  private final ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> items = new ConcurrentSkipListMap<>();
+  private final Object[] locks = new Object[LOCK_STRIPES];
+  private final AtomicLong itemCount = new AtomicLong();
+  private final AtomicLong sizeBytes = new AtomicLong();
+  private final Instant creationDateTime = Instant.now();
+
+  // Write units consumed by a write, and the item it replaced
+  static final class WriteResult {
+    final Map<String, AttributeValue> oldItem;
+    final double tableUnits;
+    final Map<String, Double> indexUnits;
+
+    private WriteResult(Map<String, AttributeValue> oldItem, double tableUnits, Map<String, Double> indexUnits) {
+      this.oldItem = oldItem;
+      this.tableUnits = tableUnits;
+      this.indexUnits = indexUnits;
+    }
+
+    double totalUnits() {
+      return tableUnits + sum(indexUnits);
+    }
+  }
+
+  // Decides whether a write is applied, once its old item and its consumed capacity are known
+  interface WriteAdmission {
+    void check(Map<String, AttributeValue> oldItem, double tableUnits, Map<String, Double> indexUnits);
+  }
+
+  FakeTable(CreateTableRequest definition) {
+    this.definition = definition;
+    this.keys = new KeySchema(definition.keySchema());
+    for (GlobalSecondaryIndex index : definition.globalSecondaryIndexes()) {
+      indexes.put(index.indexName(), new FakeIndex(definition.tableName(), index, keys));
+    }
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  String name() {
+    return definition.tableName();
+  }
+
+  @Override
+  public String capacityName() {
+    return definition.tableName();
+  }
+
+  @Override
+  public KeySchema keys() {
+    return keys;
+  }
+
+  @Override
+  public ConcurrentNavigableMap<ItemKey, Map<String, AttributeValue>> entries() {
+    return items;
+  }
+
+  @Override
+  public ItemKey keyOf(Map<String, AttributeValue> item) {
+    KeyValue partition = keys.partition(item);
+    if (partition == null || (keys.sortKeyName != null && !item.containsKey(keys.sortKeyName))) {
+      throw Errors.validation("The provided key element does not match the schema");
+    }
+    return new ItemKey(partition.hash(), partition, keys.sort(item), null, null);
+  }
+
+  @Override
+  public Map<String, AttributeValue> lastEvaluatedKey(Map<String, AttributeValue> item) {
+    Map<String, AttributeValue> key = new LinkedHashMap<>();
+    keys.copyKey(item, key);
+    return key;
+  }
+
+  FakeIndex index(String indexName) {
+    FakeIndex index = indexes.get(indexName);
+    if (index == null) {
+      throw Errors.validation("The table does not have the specified index: " + indexName);
+    }
+    return index;
+  }
+
+  Map<String, AttributeValue> get(Map<String, AttributeValue> key) {
+    checkKeyOnly(key);
+    return items.get(keyOf(key));
+  }
+
+  // Puts newItem, or deletes the item of the key if newItem is null
+  WriteResult write(Map<String, AttributeValue> key, Map<String, AttributeValue> newItem, WriteAdmission admission) {
+    ItemKey itemKey = keyOf(key);
+    synchronized (locks[(int) (itemKey.hash % LOCK_STRIPES)]) {
+      Map<String, AttributeValue> oldItem = items.get(itemKey);
+      int oldSize = oldItem == null ? 0 : ItemSizes.itemSize(oldItem);
+      int newSize = newItem == null ? 0 : ItemSizes.itemSize(newItem);
+      // A delete of a missing item still consumes one write unit
+      double tableUnits = ItemSizes.writeCapacityUnits(Math.max(oldSize, newSize));
+      Map<String, Double> indexUnits = new LinkedHashMap<>();
+      for (FakeIndex index : indexes.values()) {
+        indexUnits.put(index.name(), (double) index.writeUnits(oldItem, newItem));
+      }
+      admission.check(oldItem, tableUnits, indexUnits);
+
+      if (newItem == null) {
+        if (oldItem != null) {
+          items.remove(itemKey);
+          itemCount.decrementAndGet();
+        }
+      } else if (items.put(itemKey, newItem) == null) {
+        itemCount.incrementAndGet();
+      }
+      sizeBytes.addAndGet(newSize - oldSize);
+      for (FakeIndex index : indexes.values()) {
+        index.update(oldItem, newItem);
+      }
+      return new WriteResult(oldItem, tableUnits, indexUnits);
+    }
+  }
+
+  TableDescription describe() {
+    TableDescription.Builder description = TableDescription.builder()
+        .tableName(definition.tableName())
+        .tableArn("arn:aws:dynamodb:local:000000000000:table/" + definition.tableName())
+        .tableStatus(TableStatus.ACTIVE)
+        .creationDateTime(creationDateTime)
+        .keySchema(definition.keySchema())
+        .attributeDefinitions(definition.attributeDefinitions())
+        .itemCount(itemCount.get())
+        .tableSizeBytes(sizeBytes.get())
+        .billingModeSummary(BillingModeSummary.builder()
+            .billingMode(definition.billingMode() == null ? BillingMode.PROVISIONED : definition.billingMode())
+            .build());
+    if (definition.provisionedThroughput() != null) {
+      description.provisionedThroughput(ProvisionedThroughputDescription.builder()
+          .readCapacityUnits(definition.provisionedThroughput().readCapacityUnits())
+          .writeCapacityUnits(definition.provisionedThroughput().writeCapacityUnits())
+          .build());
+    }
+    if (!indexes.isEmpty()) {
+      description.globalSecondaryIndexes(indexes.values().stream().map(FakeIndex::describe).collect(Collectors.toList()));
+    }
+    return description.build();
+  }
+
+  static double sum(Map<String, Double> units) {
+    return units.values().stream().mapToDouble(Double::doubleValue).sum();
+  }
+
+  private void checkKeyOnly(Map<String, AttributeValue> key) {
+    if (key.size() != (keys.sortKeyName == null ? 1 : 2) || !keys.hasKey(key)) {
+      throw Errors.validation("The provided key element does not match the schema");
+    }
+  }
+}
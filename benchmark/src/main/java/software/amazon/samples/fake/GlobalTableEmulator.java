@@ -0,0 +1,455 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.ReplicaDescription;
+import software.amazon.awssdk.services.dynamodb.model.ReplicaStatus;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.StreamRecord;
+import software.amazon.awssdk.services.dynamodb.model.StreamViewType;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.samples.tools.ItemSizes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Global table emulated with one InMemoryDynamoDbClient per region, like the global tables
+// version 2017.11.29: every write of a region is stamped with aws:rep:updateregion and
+// aws:rep:updatetime, then replicated to the other regions after a delay, where the write with
+// the latest update time wins (the region name breaks the ties). Each region has a stream of
+// NEW_AND_OLD_IMAGES records, with the local writes and the replicated writes that were applied.
+//
+// A write replicated to a region that has a later write of the same item is discarded, and
+// counted as a conflict. Deletes leave no tombstone, so an older write replicated after a delete
+// recreates the item, as with the 2017.11.29 version.
+public class GlobalTableEmulator implements AutoCloseable {
+  // Same regions as the StepConfig of the stacks
+  public static final List<String> DEFAULT_AND_ONE_REPLICA_REGION = List.of("eu-west-1", "eu-north-1");
+  public static final List<String> DEFAULT_AND_TWO_REPLICA_REGIONS = List.of("eu-west-1", "eu-north-1", "eu-central-1");
+
+  public static final String UPDATE_REGION_ATTRIBUTE = "aws:rep:updateregion";
+  public static final String UPDATE_TIME_ATTRIBUTE = "aws:rep:updatetime";
+  // Last writer wins: applies a write if the item is missing, older, or as old from a lower region
+  private static final String LAST_WRITER_WINS = "attribute_not_exists(#time) OR #time < :time"
+      + " OR (#time = :time AND #region < :region)";
+
+  private final Map<String, Region> regions = new LinkedHashMap<>();
+  private final Map<String, Duration> delays;
+  private final Duration defaultDelay;
+  private final Duration jitter;
+  private final Map<String, List<String>> tableKeys = new ConcurrentHashMap<>();
+  private final AtomicLong pendingWrites = new AtomicLong();
+  private final AtomicLong replicatedWrites = new AtomicLong();
+  private final AtomicLong conflicts = new AtomicLong();
+
+  private GlobalTableEmulator(Builder builder) {
+    for (String region : builder.regions) {
+      regions.put(region, new Region(region));
+    }
+    this.delays = Map.copyOf(builder.delays);
+    this.defaultDelay = builder.delay;
+    this.jitter = builder.jitter;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public List<String> regions() {
+    return List.copyOf(regions.keySet());
+  }
+
+  // Client of the replica of a region, which replicates its writes to the other regions
+  public DynamoDbClient client(String region) {
+    return region(region).client;
+  }
+
+  // Creates the table in every region
+  public void createTable(CreateTableRequest request) {
+    for (Region region : regions.values()) {
+      region.store.createTable(request);
+    }
+    tableKeys.put(request.tableName(),
+        request.keySchema().stream().map(KeySchemaElement::attributeName).collect(Collectors.toList()));
+  }
+
+  // Called with the stream records of the region, on the thread that wrote the item
+  public void addStreamListener(String region, Consumer<Record> listener) {
+    region(region).listeners.add(listener);
+  }
+
+  public long replicatedWrites() {
+    return replicatedWrites.get();
+  }
+
+  // Replicated writes discarded because the replica had a later write of the item
+  public long conflicts() {
+    return conflicts.get();
+  }
+
+  // Waits until the writes made so far are replicated to every region
+  public void awaitReplication(Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    while (pendingWrites.get() > 0) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException(pendingWrites.get() + " write(s) still pending after " + timeout);
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Region region : regions.values()) {
+      region.replicator.shutdownNow();
+      region.store.close();
+    }
+  }
+
+  private Region region(String region) {
+    Region replica = regions.get(region);
+    if (replica == null) {
+      throw new IllegalArgumentException("Not a region of the global table: " + region);
+    }
+    return replica;
+  }
+
+  private Duration delay(String from, String to) {
+    Duration delay = delays.getOrDefault(from + ">" + to, defaultDelay);
+    return jitter.isZero() ? delay : delay.plusNanos(ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1));
+  }
+
+  private void replicate(Region source, String tableName, Map<String, AttributeValue> key,
+                         Map<String, AttributeValue> newItem, AttributeValue updateTime) {
+    for (Region target : regions.values()) {
+      if (target == source) {
+        continue;
+      }
+      pendingWrites.incrementAndGet();
+      target.replicator.schedule(() -> {
+        try {
+          target.applyReplicated(tableName, key, newItem, source.name, updateTime);
+        } finally {
+          pendingWrites.decrementAndGet();
+        }
+      }, delay(source.name, target.name).toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static AttributeValue now() {
+    Instant now = Instant.now();
+    return AttributeValue.builder()
+        .n(now.getEpochSecond() + "." + String.format("%06d", now.getNano() / 1000))
+        .build();
+  }
+
+  // Store, stream and replication queue of a region
+  private final class Region {
+    private final String name;
+    private final InMemoryDynamoDbClient store = InMemoryDynamoDbClient.create();
+    private final ReplicaClient client = new ReplicaClient(this);
+    private final List<Consumer<Record>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequenceNumber = new AtomicLong();
+    private final ScheduledExecutorService replicator;
+
+    private Region(String name) {
+      this.name = name;
+      this.replicator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replication-" + name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    private void applyReplicated(String tableName, Map<String, AttributeValue> key, Map<String, AttributeValue> newItem,
+                                 String sourceRegion, AttributeValue updateTime) {
+      Map<String, String> names = Map.of("#time", UPDATE_TIME_ATTRIBUTE, "#region", UPDATE_REGION_ATTRIBUTE);
+      Map<String, AttributeValue> values = Map.of(":time", updateTime,
+          ":region", AttributeValue.builder().s(sourceRegion).build());
+      try {
+        Map<String, AttributeValue> oldItem = newItem == null
+            ? store.deleteItem(DeleteItemRequest.builder()
+                .tableName(tableName).key(key).returnValues(ReturnValue.ALL_OLD)
+                .conditionExpression(LAST_WRITER_WINS).expressionAttributeNames(names).expressionAttributeValues(values)
+                .build()).attributes()
+            : store.putItem(PutItemRequest.builder()
+                .tableName(tableName).item(newItem).returnValues(ReturnValue.ALL_OLD)
+                .conditionExpression(LAST_WRITER_WINS).expressionAttributeNames(names).expressionAttributeValues(values)
+                .build()).attributes();
+        replicatedWrites.incrementAndGet();
+        publish(tableName, key, oldItem, newItem);
+      } catch (ConditionalCheckFailedException e) {
+        conflicts.incrementAndGet();
+      }
+    }
+
+    private void publish(String tableName, Map<String, AttributeValue> key, Map<String, AttributeValue> oldItem,
+                         Map<String, AttributeValue> newItem) {
+      boolean hasOldItem = oldItem != null && !oldItem.isEmpty();
+      if ((!hasOldItem && newItem == null) || listeners.isEmpty()) {
+        return;
+      }
+      Map<String, AttributeValue> keys = new HashMap<>();
+      for (String keyName : tableKeys.get(tableName)) {
+        keys.put(keyName, key.get(keyName));
+      }
+      long sequence = sequenceNumber.incrementAndGet();
+      Map<String, AttributeValue> image = newItem != null ? newItem : oldItem;
+      Record record = Record.builder()
+          .eventID(name + "-" + sequence)
+          .eventName(newItem == null ? OperationType.REMOVE : hasOldItem ? OperationType.MODIFY : OperationType.INSERT)
+          .eventVersion("1.1")
+          .eventSource("aws:dynamodb")
+          .awsRegion(name)
+          .dynamodb(StreamRecord.builder()
+              .approximateCreationDateTime(Instant.now())
+              .keys(keys)
+              .oldImage(hasOldItem ? oldItem : null)
+              .newImage(newItem)
+              .sequenceNumber(String.format("%021d", sequence))
+              .sizeBytes((long) ItemSizes.itemSize(image))
+              .streamViewType(StreamViewType.NEW_AND_OLD_IMAGES)
+              .build())
+          .build();
+      for (Consumer<Record> listener : listeners) {
+        listener.accept(record);
+      }
+    }
+  }
+
+  // Reads from the store of the region; stamps, stores, publishes and replicates the writes
+  private final class ReplicaClient implements DynamoDbClient {
+    private final Region region;
+
+    private ReplicaClient(Region region) {
+      this.region = region;
+    }
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public CreateTableResponse createTable(CreateTableRequest request) {
+      GlobalTableEmulator.this.createTable(request);
+      return CreateTableResponse.builder()
+          .tableDescription(describeTable(DescribeTableRequest.builder().tableName(request.tableName()).build()).table())
+          .build();
+    }
+
+    @Override
+    public DescribeTableResponse describeTable(DescribeTableRequest request) {
+      DescribeTableResponse response = region.store.describeTable(request);
+      List<ReplicaDescription> replicas = new ArrayList<>();
+      for (String replica : regions.keySet()) {
+        replicas.add(ReplicaDescription.builder().regionName(replica).replicaStatus(ReplicaStatus.ACTIVE).build());
+      }
+      return response.toBuilder().table(response.table().toBuilder().replicas(replicas).build()).build();
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+      return region.store.getItem(request);
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+      return region.store.batchGetItem(request);
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+      return region.store.query(request);
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+      return region.store.scan(request);
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+      return put(request, now());
+    }
+
+    private PutItemResponse put(PutItemRequest request, AttributeValue updateTime) {
+      Map<String, AttributeValue> item = stamp(request.item(), updateTime);
+      PutItemResponse response = region.store.putItem(request.toBuilder()
+          .item(item)
+          .returnValues(ReturnValue.ALL_OLD)
+          .build());
+      region.publish(request.tableName(), item, response.attributes(), item);
+      replicate(region, request.tableName(), item, item, updateTime);
+      return request.returnValues() == ReturnValue.ALL_OLD ? response : response.toBuilder().attributes(null).build();
+    }
+
+    private Map<String, AttributeValue> stamp(Map<String, AttributeValue> item, AttributeValue updateTime) {
+      Map<String, AttributeValue> stamped = new HashMap<>(item);
+      stamped.put(UPDATE_REGION_ATTRIBUTE, AttributeValue.builder().s(region.name).build());
+      stamped.put(UPDATE_TIME_ATTRIBUTE, updateTime);
+      return stamped;
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+      return delete(request, now());
+    }
+
+    private DeleteItemResponse delete(DeleteItemRequest request, AttributeValue updateTime) {
+      DeleteItemResponse response = region.store.deleteItem(request.toBuilder()
+          .returnValues(ReturnValue.ALL_OLD)
+          .build());
+      region.publish(request.tableName(), request.key(), response.attributes(), null);
+      replicate(region, request.tableName(), request.key(), null, updateTime);
+      return request.returnValues() == ReturnValue.ALL_OLD ? response : response.toBuilder().attributes(null).build();
+    }
+
+    // Checked as a whole by the store of the region first, with the stamped items, so an invalid batch
+    // writes nothing. Then applied one write at a time, so that each of them is published and replicated.
+    @Override
+    public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+      AttributeValue updateTime = now();
+      Map<String, List<WriteRequest>> stamped = new LinkedHashMap<>();
+      request.requestItems().forEach((tableName, writes) -> stamped.put(tableName, writes.stream()
+          .map(write -> write.putRequest() == null ? write : write.toBuilder()
+              .putRequest(write.putRequest().toBuilder().item(stamp(write.putRequest().item(), updateTime)).build())
+              .build())
+          .collect(Collectors.toList())));
+      region.store.checkBatchWrite(BatchWriteItemRequest.builder().requestItems(stamped).build());
+      int writes = 0;
+      Map<String, List<WriteRequest>> unprocessed = new LinkedHashMap<>();
+      Map<String, Double> consumed = new LinkedHashMap<>();
+      for (Map.Entry<String, List<WriteRequest>> tableRequests : request.requestItems().entrySet()) {
+        String tableName = tableRequests.getKey();
+        for (WriteRequest write : tableRequests.getValue()) {
+          writes++;
+          try {
+            ConsumedCapacity capacity = write.putRequest() != null
+                ? put(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(write.putRequest().item())
+                    .returnConsumedCapacity(request.returnConsumedCapacity())
+                    .build(), updateTime).consumedCapacity()
+                : delete(DeleteItemRequest.builder()
+                    .tableName(tableName)
+                    .key(write.deleteRequest().key())
+                    .returnConsumedCapacity(request.returnConsumedCapacity())
+                    .build(), updateTime).consumedCapacity();
+            if (capacity != null) {
+              consumed.merge(tableName, capacity.capacityUnits(), Double::sum);
+            }
+          } catch (ProvisionedThroughputExceededException e) {
+            unprocessed.computeIfAbsent(tableName, name -> new ArrayList<>()).add(write);
+          }
+        }
+      }
+      if (unprocessed.values().stream().mapToInt(List::size).sum() == writes) {
+        throw Errors.throttled(request.requestItems().keySet().iterator().next());
+      }
+      return BatchWriteItemResponse.builder()
+          .unprocessedItems(unprocessed)
+          .consumedCapacity(consumed.isEmpty() ? null : consumed.entrySet().stream()
+              .map(entry -> ConsumedCapacity.builder()
+                  .tableName(entry.getKey())
+                  .capacityUnits(entry.getValue())
+                  .writeCapacityUnits(entry.getValue())
+                  .build())
+              .collect(Collectors.toList()))
+          .build();
+    }
+  }
+
+  public static final class Builder {
+    private List<String> regions = DEFAULT_AND_ONE_REPLICA_REGION;
+    private Duration delay = Duration.ofSeconds(1);
+    private Duration jitter = Duration.ZERO;
+    private final Map<String, Duration> delays = new HashMap<>();
+
+    private Builder() {
+    }
+
+    public Builder regions(List<String> regions) {
+      if (regions.size() < 2 || regions.stream().distinct().count() != regions.size()) {
+        throw new IllegalArgumentException("A global table needs at least two distinct regions: " + regions);
+      }
+      this.regions = List.copyOf(regions);
+      return this;
+    }
+
+    // Replication delay between any two regions
+    public Builder replicationDelay(Duration delay) {
+      this.delay = checkDelay(delay);
+      return this;
+    }
+
+    // Replication delay of the writes of fromRegion to toRegion
+    public Builder replicationDelay(String fromRegion, String toRegion, Duration delay) {
+      delays.put(fromRegion + ">" + toRegion, checkDelay(delay));
+      return this;
+    }
+
+    // Random delay, from zero to jitter, added to each replicated write. The writes of an item may
+    // then be replicated out of order, the last writer still winning.
+    public Builder jitter(Duration jitter) {
+      this.jitter = checkDelay(jitter);
+      return this;
+    }
+
+    public GlobalTableEmulator build() {
+      return new GlobalTableEmulator(this);
+    }
+
+    private static Duration checkDelay(Duration delay) {
+      if (delay.isNegative()) {
+        throw new IllegalArgumentException("Delay must not be negative: " + delay);
+      }
+      return delay;
+    }
+  }
+}
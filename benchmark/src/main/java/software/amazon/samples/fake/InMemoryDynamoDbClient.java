@@ -0,0 +1,525 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.samples.tools.ItemSizes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// In-memory implementation of the DynamoDB client, to run the handler and the tools offline.
+// It implements CreateTable, DescribeTable, DeleteTable, PutItem, GetItem, DeleteItem, BatchWriteItem,
+// BatchGetItem, Query and Scan with the limits of DynamoDB: 1 MB pages, Limit, Segment/TotalSegments,
+// 25 writes and 100 reads per batch, 400 KB items. Global secondary indexes are maintained with the
+// items, the consumed capacity is computed as DynamoDB charges it, and requests are throttled by a
+// ThrottlingModel. The other operations throw UnsupportedOperationException.
+//
+// The SDK retries throttled requests, but this client is called directly: the callers see the
+// ProvisionedThroughputExceededException, and the UnprocessedItems/UnprocessedKeys of the batches.
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+  static final int MAX_PAGE_BYTES = 1024 * 1024;
+  static final int MAX_BATCH_WRITES = 25;
+  static final int MAX_BATCH_READS = 100;
+  static final int MAX_BATCH_READ_BYTES = 16 * 1024 * 1024;
+  static final int MAX_TOTAL_SEGMENTS = 1_000_000;
+
+  private final Map<String, FakeTable> tables = new ConcurrentHashMap<>();
+  private final ThrottlingModel throttling;
+  private final int pageBytes;
+
+  private InMemoryDynamoDbClient(Builder builder) {
+    this.throttling = builder.throttling;
+    this.pageBytes = builder.pageBytes;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static InMemoryDynamoDbClient create() {
+    return builder().build();
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public CreateTableResponse createTable(CreateTableRequest request) {
+    if (request.hasLocalSecondaryIndexes()) {
+      throw Errors.validation("Local secondary indexes are not supported");
+    }
+    FakeTable table = new FakeTable(request);
+    if (tables.putIfAbsent(request.tableName(), table) != null) {
+      String message = "Table already exists: " + request.tableName();
+      throw ResourceInUseException.builder()
+          .message(message)
+          .statusCode(400)
+          .awsErrorDetails(AwsErrorDetails.builder().errorCode("ResourceInUseException").errorMessage(message).build())
+          .build();
+    }
+    return CreateTableResponse.builder().tableDescription(table.describe()).build();
+  }
+
+  @Override
+  public DescribeTableResponse describeTable(DescribeTableRequest request) {
+    return DescribeTableResponse.builder().table(table(request.tableName()).describe()).build();
+  }
+
+  @Override
+  public DeleteTableResponse deleteTable(DeleteTableRequest request) {
+    FakeTable table = tables.remove(request.tableName());
+    if (table == null) {
+      throw Errors.tableNotFound(request.tableName());
+    }
+    return DeleteTableResponse.builder().tableDescription(table.describe()).build();
+  }
+
+  @Override
+  public PutItemResponse putItem(PutItemRequest request) {
+    FakeTable table = table(request.tableName());
+    Map<String, AttributeValue> item = checkItem(request.item());
+    Expressions.Condition condition = Expressions.condition(request.conditionExpression(),
+        request.expressionAttributeNames(), request.expressionAttributeValues());
+    FakeTable.WriteResult result = table.write(item, item, admission(table, condition, item, false));
+    return PutItemResponse.builder()
+        .attributes(request.returnValues() == ReturnValue.ALL_OLD ? result.oldItem : null)
+        .consumedCapacity(writeCapacity(table, result, request.returnConsumedCapacity()))
+        .build();
+  }
+
+  @Override
+  public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+    FakeTable table = table(request.tableName());
+    Expressions.Condition condition = Expressions.condition(request.conditionExpression(),
+        request.expressionAttributeNames(), request.expressionAttributeValues());
+    FakeTable.WriteResult result = table.write(request.key(), null, admission(table, condition, request.key(), false));
+    return DeleteItemResponse.builder()
+        .attributes(request.returnValues() == ReturnValue.ALL_OLD ? result.oldItem : null)
+        .consumedCapacity(writeCapacity(table, result, request.returnConsumedCapacity()))
+        .build();
+  }
+
+  @Override
+  public GetItemResponse getItem(GetItemRequest request) {
+    FakeTable table = table(request.tableName());
+    Map<String, AttributeValue> item = table.get(request.key());
+    boolean consistentRead = Boolean.TRUE.equals(request.consistentRead());
+    double readUnits = ItemSizes.readCapacityUnits(item == null ? 0 : ItemSizes.itemSize(item), consistentRead);
+    admitOrThrow(table, table.keyOf(request.key()).hash, readUnits, 0);
+    return GetItemResponse.builder()
+        .item(item == null ? null : project(item, Expressions.projection(request.projectionExpression(),
+            request.expressionAttributeNames())))
+        .consumedCapacity(readCapacity(table.capacityName(), readUnits, request.returnConsumedCapacity()))
+        .build();
+  }
+
+  @Override
+  public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+    Map<WriteRequest, Map<String, AttributeValue>> items = checkBatchWrite(request);
+    Map<String, List<WriteRequest>> unprocessed = new LinkedHashMap<>();
+    Map<String, Double> consumed = new LinkedHashMap<>();
+    for (Map.Entry<String, List<WriteRequest>> tableRequests : request.requestItems().entrySet()) {
+      FakeTable table = table(tableRequests.getKey());
+      for (WriteRequest write : tableRequests.getValue()) {
+        Map<String, AttributeValue> key = write.putRequest() != null ? write.putRequest().item() : write.deleteRequest().key();
+        try {
+          FakeTable.WriteResult result = table.write(key, items.get(write), admission(table, null, key, true));
+          consumed.merge(table.name(), result.totalUnits(), Double::sum);
+        } catch (ThrottledWrite e) {
+          unprocessed.computeIfAbsent(table.name(), name -> new ArrayList<>()).add(write);
+        }
+      }
+    }
+    if (unprocessed.values().stream().mapToInt(List::size).sum()
+        == request.requestItems().values().stream().mapToInt(List::size).sum()) {
+      throw Errors.throttled(request.requestItems().keySet().iterator().next());
+    }
+    return BatchWriteItemResponse.builder()
+        .unprocessedItems(unprocessed)
+        .consumedCapacity(batchCapacity(consumed, request.returnConsumedCapacity(), true))
+        .build();
+  }
+
+  @Override
+  public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+    int reads = request.requestItems().values().stream().mapToInt(keys -> keys.keys().size()).sum();
+    if (reads == 0 || reads > MAX_BATCH_READS) {
+      throw Errors.validation("Too many items requested for the BatchGetItem call: " + reads);
+    }
+    Map<String, List<Map<String, AttributeValue>>> responses = new LinkedHashMap<>();
+    Map<String, KeysAndAttributes> unprocessed = new LinkedHashMap<>();
+    Map<String, Double> consumed = new LinkedHashMap<>();
+    int responseBytes = 0;
+    for (Map.Entry<String, KeysAndAttributes> tableRequest : request.requestItems().entrySet()) {
+      FakeTable table = table(tableRequest.getKey());
+      KeysAndAttributes keysAndAttributes = tableRequest.getValue();
+      Set<String> projection = Expressions.projection(keysAndAttributes.projectionExpression(),
+          keysAndAttributes.expressionAttributeNames());
+      boolean consistentRead = Boolean.TRUE.equals(keysAndAttributes.consistentRead());
+      List<Map<String, AttributeValue>> items = responses.computeIfAbsent(table.name(), name -> new ArrayList<>());
+      List<Map<String, AttributeValue>> unprocessedKeys = new ArrayList<>();
+      for (Map<String, AttributeValue> key : keysAndAttributes.keys()) {
+        Map<String, AttributeValue> item = table.get(key);
+        int itemSize = item == null ? 0 : ItemSizes.itemSize(item);
+        double readUnits = ItemSizes.readCapacityUnits(itemSize, consistentRead);
+        if (responseBytes + itemSize > MAX_BATCH_READ_BYTES
+            || !throttling.admit(table.capacityName(), table.keyOf(key).hash, readUnits, 0)) {
+          unprocessedKeys.add(key);
+          continue;
+        }
+        responseBytes += itemSize;
+        consumed.merge(table.name(), readUnits, Double::sum);
+        if (item != null) {
+          items.add(project(item, projection));
+        }
+      }
+      if (!unprocessedKeys.isEmpty()) {
+        unprocessed.put(table.name(), keysAndAttributes.toBuilder().keys(unprocessedKeys).build());
+      }
+    }
+    if (consumed.isEmpty()) {
+      throw Errors.throttled(request.requestItems().keySet().iterator().next());
+    }
+    return BatchGetItemResponse.builder()
+        .responses(responses)
+        .unprocessedKeys(unprocessed)
+        .consumedCapacity(batchCapacity(consumed, request.returnConsumedCapacity(), false))
+        .build();
+  }
+
+  @Override
+  public QueryResponse query(QueryRequest request) {
+    FakeTable table = table(request.tableName());
+    ItemSource source = request.indexName() == null ? table : table.index(request.indexName());
+    checkConsistentRead(source, table, request.consistentRead());
+    KeySchema keys = source.keys();
+    Expressions.KeyCondition keyCondition = Expressions.keyCondition(request.keyConditionExpression(),
+        request.expressionAttributeNames(), request.expressionAttributeValues(), keys.partitionKeyName, keys.sortKeyName);
+    long hash = keyCondition.partition.hash();
+    NavigableMap<ItemKey, Map<String, AttributeValue>> partition = source.entries().subMap(
+        new ItemKey(hash, keyCondition.partition, keyCondition.low, KeyValue.MIN, KeyValue.MIN), true,
+        new ItemKey(hash, keyCondition.partition, keyCondition.high, KeyValue.MAX, KeyValue.MAX), true);
+    boolean forward = !Boolean.FALSE.equals(request.scanIndexForward());
+    if (request.hasExclusiveStartKey()) {
+      ItemKey start = source.keyOf(request.exclusiveStartKey());
+      partition = forward ? partition.tailMap(start, false) : partition.headMap(start, false);
+    }
+    Page page = readPage(source, forward ? partition : partition.descendingMap(),
+        entry -> keyCondition.matchesSort(keys.sort(entry)),
+        request.filterExpression(), request.expressionAttributeNames(), request.expressionAttributeValues(),
+        request.projectionExpression(), request.select(), request.limit(), Boolean.TRUE.equals(request.consistentRead()));
+    admitOrThrow(source, hash, page.readUnits, 0);
+    return QueryResponse.builder()
+        .items(page.items)
+        .count(page.count)
+        .scannedCount(page.scannedCount)
+        .lastEvaluatedKey(page.lastEvaluatedKey)
+        .consumedCapacity(readCapacity(source.capacityName(), page.readUnits, request.returnConsumedCapacity()))
+        .build();
+  }
+
+  @Override
+  public ScanResponse scan(ScanRequest request) {
+    FakeTable table = table(request.tableName());
+    ItemSource source = request.indexName() == null ? table : table.index(request.indexName());
+    checkConsistentRead(source, table, request.consistentRead());
+    NavigableMap<ItemKey, Map<String, AttributeValue>> entries = source.entries();
+    if (request.totalSegments() != null || request.segment() != null) {
+      entries = segment(entries, request.segment(), request.totalSegments());
+    }
+    if (request.hasExclusiveStartKey()) {
+      entries = entries.tailMap(source.keyOf(request.exclusiveStartKey()), false);
+    }
+    Page page = readPage(source, entries, entry -> true,
+        request.filterExpression(), request.expressionAttributeNames(), request.expressionAttributeValues(),
+        request.projectionExpression(), request.select(), request.limit(), Boolean.TRUE.equals(request.consistentRead()));
+    admitOrThrow(source, -1, page.readUnits, 0);
+    return ScanResponse.builder()
+        .items(page.items)
+        .count(page.count)
+        .scannedCount(page.scannedCount)
+        .lastEvaluatedKey(page.lastEvaluatedKey)
+        .consumedCapacity(readCapacity(source.capacityName(), page.readUnits, request.returnConsumedCapacity()))
+        .build();
+  }
+
+  private static final class Page {
+    private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+    private int count;
+    private int scannedCount;
+    private Map<String, AttributeValue> lastEvaluatedKey;
+    private double readUnits;
+  }
+
+  // Reads the entries in order until the end, Limit entries, or pageBytes of entries
+  private Page readPage(ItemSource source, NavigableMap<ItemKey, Map<String, AttributeValue>> entries,
+                       Expressions.Condition keyFilter, String filterExpression, Map<String, String> names,
+                       Map<String, AttributeValue> values, String projectionExpression, Select select,
+                       Integer limit, boolean consistentRead) {
+    if (limit != null && limit < 1) {
+      throw Errors.validation("Limit must be at least 1: " + limit);
+    }
+    Expressions.Condition filter = Expressions.condition(filterExpression, names, values);
+    Set<String> projection = Expressions.projection(projectionExpression, names);
+    boolean countOnly = select == Select.COUNT;
+    Page page = new Page();
+    long readBytes = 0;
+    Map.Entry<ItemKey, Map<String, AttributeValue>> last = null;
+    for (Map.Entry<ItemKey, Map<String, AttributeValue>> entry : entries.entrySet()) {
+      if ((limit != null && page.scannedCount == limit) || readBytes >= pageBytes) {
+        page.lastEvaluatedKey = source.lastEvaluatedKey(last.getValue());
+        break;
+      }
+      Map<String, AttributeValue> item = entry.getValue();
+      if (!keyFilter.test(item)) {
+        continue;
+      }
+      last = entry;
+      page.scannedCount++;
+      readBytes += ItemSizes.itemSize(item);
+      if (filter.test(item)) {
+        page.count++;
+        if (!countOnly) {
+          page.items.add(project(item, projection));
+        }
+      }
+    }
+    page.readUnits = ItemSizes.readCapacityUnits(readBytes, consistentRead);
+    return page;
+  }
+
+  // Entries whose partition key hash is in the range of the segment
+  private static NavigableMap<ItemKey, Map<String, AttributeValue>> segment(
+      NavigableMap<ItemKey, Map<String, AttributeValue>> entries, Integer segment, Integer totalSegments) {
+    if (segment == null || totalSegments == null || totalSegments < 1 || totalSegments > MAX_TOTAL_SEGMENTS
+        || segment < 0 || segment >= totalSegments) {
+      throw Errors.validation("Invalid Segment " + segment + " of TotalSegments " + totalSegments);
+    }
+    long from = ((long) segment << 32) / totalSegments + ((((long) segment << 32) % totalSegments) == 0 ? 0 : 1);
+    long to = ((long) (segment + 1) << 32) / totalSegments + ((((long) (segment + 1) << 32) % totalSegments) == 0 ? 0 : 1);
+    return segment == totalSegments - 1
+        ? entries.tailMap(ItemKey.firstOf(from), true)
+        : entries.subMap(ItemKey.firstOf(from), true, ItemKey.firstOf(to), false);
+  }
+
+  // Checks a batch before any of its writes is applied, since DynamoDB rejects an invalid batch as a
+  // whole: the number of writes, the tables, the keys and their duplicates, and the size of the items.
+  // Returns the copied items of the puts.
+  Map<WriteRequest, Map<String, AttributeValue>> checkBatchWrite(BatchWriteItemRequest request) {
+    int writes = request.requestItems().values().stream().mapToInt(List::size).sum();
+    if (writes == 0 || writes > MAX_BATCH_WRITES) {
+      throw Errors.validation("Too many items requested for the BatchWriteItem call: " + writes);
+    }
+    Map<WriteRequest, Map<String, AttributeValue>> items = new IdentityHashMap<>();
+    for (Map.Entry<String, List<WriteRequest>> tableRequests : request.requestItems().entrySet()) {
+      FakeTable table = table(tableRequests.getKey());
+      Set<ItemKey> keys = new HashSet<>();
+      for (WriteRequest write : tableRequests.getValue()) {
+        Map<String, AttributeValue> key = write.putRequest() != null ? write.putRequest().item() : write.deleteRequest().key();
+        if (!keys.add(table.keyOf(key))) {
+          throw Errors.validation("Provided list of item keys contains duplicates");
+        }
+        if (write.putRequest() != null) {
+          items.put(write, checkItem(write.putRequest().item()));
+        }
+      }
+    }
+    return items;
+  }
+
+  private FakeTable table(String tableName) {
+    FakeTable table = tables.get(tableName);
+    if (table == null) {
+      throw Errors.tableNotFound(tableName);
+    }
+    return table;
+  }
+
+  private static Map<String, AttributeValue> checkItem(Map<String, AttributeValue> item) {
+    if (ItemSizes.itemSize(item) > ItemSizes.MAX_ITEM_SIZE) {
+      throw Errors.validation("Item size has exceeded the maximum allowed size");
+    }
+    return Map.copyOf(item);
+  }
+
+  private static void checkConsistentRead(ItemSource source, FakeTable table, Boolean consistentRead) {
+    if (Boolean.TRUE.equals(consistentRead) && source != table) {
+      throw Errors.validation("Consistent reads are not supported on global secondary indexes");
+    }
+  }
+
+  // Checks the condition of a write, then its capacity
+  private FakeTable.WriteAdmission admission(FakeTable table, Expressions.Condition condition,
+                                             Map<String, AttributeValue> key, boolean batch) {
+    return (oldItem, tableUnits, indexUnits) -> {
+      if (condition != null && !condition.test(oldItem == null ? Map.of() : oldItem)) {
+        throw ConditionalCheckFailedException.builder()
+            .message("The conditional request failed")
+            .statusCode(400)
+            .awsErrorDetails(AwsErrorDetails.builder()
+                .errorCode("ConditionalCheckFailedException")
+                .errorMessage("The conditional request failed")
+                .build())
+            .build();
+      }
+      if (!throttling.admitWrite(table.name(), table.keyOf(key).hash, tableUnits, indexUnits)) {
+        throw batch ? new ThrottledWrite() : Errors.throttled(table.name());
+      }
+    };
+  }
+
+  private void admitOrThrow(ItemSource source, long hash, double readUnits, double writeUnits) {
+    if (!throttling.admit(source.capacityName(), hash, readUnits, writeUnits)) {
+      throw Errors.throttled(source.capacityName());
+    }
+  }
+
+  private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, Set<String> projection) {
+    if (projection == null) {
+      return item;
+    }
+    Map<String, AttributeValue> projected = new HashMap<>();
+    for (String name : projection) {
+      AttributeValue value = item.get(name);
+      if (value != null) {
+        projected.put(name, value);
+      }
+    }
+    return projected;
+  }
+
+  private static ConsumedCapacity readCapacity(String capacityName, double readUnits, ReturnConsumedCapacity mode) {
+    if (mode == null || mode == ReturnConsumedCapacity.NONE) {
+      return null;
+    }
+    int index = capacityName.indexOf("/index/");
+    ConsumedCapacity.Builder capacity = ConsumedCapacity.builder()
+        .tableName(index < 0 ? capacityName : capacityName.substring(0, index))
+        .capacityUnits(readUnits)
+        .readCapacityUnits(readUnits);
+    if (mode == ReturnConsumedCapacity.INDEXES) {
+      Capacity units = Capacity.builder().capacityUnits(readUnits).readCapacityUnits(readUnits).build();
+      if (index < 0) {
+        capacity.table(units);
+      } else {
+        capacity.globalSecondaryIndexes(Map.of(capacityName.substring(index + "/index/".length()), units));
+      }
+    }
+    return capacity.build();
+  }
+
+  private static ConsumedCapacity writeCapacity(FakeTable table, FakeTable.WriteResult result,
+                                                ReturnConsumedCapacity mode) {
+    if (mode == null || mode == ReturnConsumedCapacity.NONE) {
+      return null;
+    }
+    ConsumedCapacity.Builder capacity = ConsumedCapacity.builder()
+        .tableName(table.name())
+        .capacityUnits(result.totalUnits())
+        .writeCapacityUnits(result.totalUnits());
+    if (mode == ReturnConsumedCapacity.INDEXES) {
+      capacity.table(Capacity.builder().capacityUnits(result.tableUnits).writeCapacityUnits(result.tableUnits).build());
+      Map<String, Capacity> indexes = new LinkedHashMap<>();
+      result.indexUnits.forEach((name, units) ->
+          indexes.put(name, Capacity.builder().capacityUnits(units).writeCapacityUnits(units).build()));
+      capacity.globalSecondaryIndexes(indexes);
+    }
+    return capacity.build();
+  }
+
+  private static List<ConsumedCapacity> batchCapacity(Map<String, Double> consumed, ReturnConsumedCapacity mode,
+                                                      boolean writes) {
+    if (mode == null || mode == ReturnConsumedCapacity.NONE) {
+      return null;
+    }
+    List<ConsumedCapacity> capacities = new ArrayList<>();
+    consumed.forEach((tableName, units) -> {
+      ConsumedCapacity.Builder capacity = ConsumedCapacity.builder().tableName(tableName).capacityUnits(units);
+      capacities.add((writes ? capacity.writeCapacityUnits(units) : capacity.readCapacityUnits(units)).build());
+    });
+    return capacities;
+  }
+
+  // A throttled write of a batch, returned in UnprocessedItems
+  private static final class ThrottledWrite extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private ThrottledWrite() {
+      super(null, null, false, false);
+    }
+  }
+
+  public static final class Builder {
+    private ThrottlingModel throttling = ThrottlingModel.NONE;
+    private int pageBytes = MAX_PAGE_BYTES;
+
+    private Builder() {
+    }
+
+    public Builder throttling(ThrottlingModel throttling) {
+      this.throttling = throttling;
+      return this;
+    }
+
+    // Size of the items read per Query or Scan page, 1 MB like DynamoDB
+    public Builder pageBytes(int pageBytes) {
+      if (pageBytes < 1) {
+        throw new IllegalArgumentException("pageBytes must be at least 1: " + pageBytes);
+      }
+      this.pageBytes = pageBytes;
+      return this;
+    }
+
+    public InMemoryDynamoDbClient build() {
+      return new InMemoryDynamoDbClient(this);
+    }
+  }
+}
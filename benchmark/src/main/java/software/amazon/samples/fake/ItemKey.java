@@ -0,0 +1,71 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+// Position of an item in a table or an index: the hash of its partition key first, so a scan
+// reads the partitions in a stable pseudo-random order and a segment is a range of hashes, then
+// its partition key and its sort key. The entries of an index end with the key of the table item,
+// because several items may have the same index key.
+final class ItemKey implements Comparable<ItemKey> {
+  final long hash;
+  final KeyValue partition;
+  final KeyValue sort;
+  final KeyValue tablePartition;
+  final KeyValue tableSort;
+
+  ItemKey(long hash, KeyValue partition, KeyValue sort, KeyValue tablePartition, KeyValue tableSort) {
+    this.hash = hash;
+    this.partition = partition;
+    this.sort = sort;
+    this.tablePartition = tablePartition;
+    this.tableSort = tableSort;
+  }
+
+  // First key of the partition with the given hash
+  static ItemKey firstOf(long hash) {
+    return new ItemKey(hash, KeyValue.MIN, KeyValue.MIN, KeyValue.MIN, KeyValue.MIN);
+  }
+
+  @Override
+  public int compareTo(ItemKey other) {
+    int result = Long.compare(hash, other.hash);
+    if (result == 0) {
+      result = partition.compareTo(other.partition);
+    }
+    if (result == 0) {
+      result = compare(sort, other.sort);
+    }
+    if (result == 0) {
+      result = compare(tablePartition, other.tablePartition);
+    }
+    if (result == 0) {
+      result = compare(tableSort, other.tableSort);
+    }
+    return result;
+  }
+
+  // A missing sort key (hash-only key schema) is after MIN and before any value and MAX
+  private static int compare(KeyValue left, KeyValue right) {
+    if (left == right) {
+      return 0;
+    }
+    if (left == null) {
+      return right == KeyValue.MIN ? 1 : -1;
+    }
+    if (right == null) {
+      return left == KeyValue.MIN ? -1 : 1;
+    }
+    return left.compareTo(right);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ItemKey && compareTo((ItemKey) other) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(hash) * 31 + partition.hashCode();
+  }
+}
@@ -0,0 +1,24 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+
+// Items read by Query and Scan: the items of a table, or the entries of one of its indexes.
+interface ItemSource {
+  // Name used for the consumed capacity and the throttling: the table name, or <table>/index/<index>
+  String capacityName();
+
+  KeySchema keys();
+
+  ConcurrentNavigableMap<ItemKey, Map<String, AttributeValue>> entries();
+
+  // Position of an item, or of the LastEvaluatedKey of a previous page
+  ItemKey keyOf(Map<String, AttributeValue> item);
+
+  Map<String, AttributeValue> lastEvaluatedKey(Map<String, AttributeValue> item);
+}
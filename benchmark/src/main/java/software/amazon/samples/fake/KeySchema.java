@@ -0,0 +1,62 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+
+import java.util.List;
+import java.util.Map;
+
+// Partition key and optional sort key of a table or an index.
+final class KeySchema {
+  final String partitionKeyName;
+  final String sortKeyName;
+  final List<KeySchemaElement> elements;
+
+  KeySchema(List<KeySchemaElement> elements) {
+    String partition = null;
+    String sort = null;
+    for (KeySchemaElement element : elements) {
+      if (element.keyType() == KeyType.HASH && partition == null) {
+        partition = element.attributeName();
+      } else if (element.keyType() == KeyType.RANGE && sort == null) {
+        sort = element.attributeName();
+      } else {
+        throw Errors.validation("Invalid KeySchema: " + elements);
+      }
+    }
+    if (partition == null) {
+      throw Errors.validation("Invalid KeySchema: no HASH key: " + elements);
+    }
+    this.partitionKeyName = partition;
+    this.sortKeyName = sort;
+    this.elements = List.copyOf(elements);
+  }
+
+  KeyValue partition(Map<String, AttributeValue> item) {
+    return KeyValue.of(item.get(partitionKeyName));
+  }
+
+  KeyValue sort(Map<String, AttributeValue> item) {
+    return sortKeyName == null ? null : KeyValue.of(item.get(sortKeyName));
+  }
+
+  // True if the item has all the key attributes
+  boolean hasKey(Map<String, AttributeValue> item) {
+    return item.containsKey(partitionKeyName) && (sortKeyName == null || item.containsKey(sortKeyName));
+  }
+
+  boolean isKeyAttribute(String name) {
+    return name.equals(partitionKeyName) || name.equals(sortKeyName);
+  }
+
+  void copyKey(Map<String, AttributeValue> from, Map<String, AttributeValue> to) {
+    to.put(partitionKeyName, from.get(partitionKeyName));
+    if (sortKeyName != null) {
+      to.put(sortKeyName, from.get(sortKeyName));
+    }
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Value of a key attribute (S, N or B), ordered as DynamoDB orders sort keys: strings and
+// binaries by their unsigned bytes, numbers by their value. MIN and MAX bound all the values.
+final class KeyValue implements Comparable<KeyValue> {
+  static final KeyValue MIN = new KeyValue(null, null, null, -1);
+  static final KeyValue MAX = new KeyValue(null, null, null, 1);
+
+  private final AttributeValue value;
+  private final byte[] bytes;
+  private final BigDecimal number;
+  private final int bound;
+
+  private KeyValue(AttributeValue value, byte[] bytes, BigDecimal number, int bound) {
+    this.value = value;
+    this.bytes = bytes;
+    this.number = number;
+    this.bound = bound;
+  }
+
+  static KeyValue of(AttributeValue value) {
+    if (value == null) {
+      return null;
+    }
+    switch (value.type()) {
+      case S:
+        return new KeyValue(value, value.s().getBytes(StandardCharsets.UTF_8), null, 0);
+      case N:
+        return new KeyValue(value, null, new BigDecimal(value.n()), 0);
+      case B:
+        return new KeyValue(value, value.b().asByteArrayUnsafe(), null, 0);
+      default:
+        throw Errors.validation("Key attributes must be of type S, N or B: " + value);
+    }
+  }
+
+  AttributeValue value() {
+    return value;
+  }
+
+  boolean isNumber() {
+    return number != null;
+  }
+
+  boolean startsWith(KeyValue prefix) {
+    if (bytes == null || prefix.bytes == null || prefix.bytes.length > bytes.length) {
+      return false;
+    }
+    return Arrays.equals(bytes, 0, prefix.bytes.length, prefix.bytes, 0, prefix.bytes.length);
+  }
+
+  // Stable hash of a partition key, whose unsigned value orders the partitions like the scan of a table
+  long hash() {
+    int hash = number != null ? number.stripTrailingZeros().hashCode() : Arrays.hashCode(bytes);
+    // Finalizer of MurmurHash3, to spread the keys with a common prefix
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash & 0xffffffffL;
+  }
+
+  @Override
+  public int compareTo(KeyValue other) {
+    if (bound != 0 || other.bound != 0) {
+      return Integer.compare(bound, other.bound);
+    }
+    if (number != null && other.number != null) {
+      return number.compareTo(other.number);
+    }
+    if (bytes != null && other.bytes != null) {
+      return Arrays.compareUnsigned(bytes, other.bytes);
+    }
+    throw Errors.validation("Cannot compare key values of different types: " + value + " and " + other.value);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof KeyValue && compareTo((KeyValue) other) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return number != null ? number.stripTrailingZeros().hashCode() : Arrays.hashCode(bytes);
+  }
+}
@@ -0,0 +1,188 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Throttling of a table in provisioned capacity mode:
+// - the table has readCapacityUnits and writeCapacityUnits per second, plus a burst of up to
+//   300 seconds of unused capacity,
+// - the table is split into enough partitions to serve its capacity, each of them limited to
+//   3000 read units and 1000 write units per second, so a hot key is throttled before the table.
+// The indexes given a capacity with index() have buckets of their own, for their reads and for the
+// index units of the writes of the table: a write is throttled when the table or one of these
+// indexes has no capacity left, like the back pressure of a GSI on its table. The other indexes
+// share the capacity of their table, for their reads and their writes. The index buckets are not
+// split into partitions.
+// Consumed capacity is only known once a read completes, so a request is admitted while capacity
+// is available and may overdraw it, the following requests being throttled until it is paid back.
+public class ProvisionedThrottling implements ThrottlingModel {
+  static final double PARTITION_READ_UNITS = 3000;
+  static final double PARTITION_WRITE_UNITS = 1000;
+  private static final long BURST_SECONDS = 300;
+  private static final String INDEX_SEPARATOR = "/index/";
+
+  private final double readCapacityUnits;
+  private final double writeCapacityUnits;
+  private final LongSupplier nanoClock;
+  private final Map<String, double[]> indexCapacities = new HashMap<>();
+  // Guarded by this, so a write is admitted by its table and its indexes at once
+  private final Map<String, Capacity> capacities = new HashMap<>();
+
+  public ProvisionedThrottling(double readCapacityUnits, double writeCapacityUnits) {
+    this(readCapacityUnits, writeCapacityUnits, System::nanoTime);
+  }
+
+  ProvisionedThrottling(double readCapacityUnits, double writeCapacityUnits, LongSupplier nanoClock) {
+    checkCapacity(readCapacityUnits, writeCapacityUnits);
+    this.readCapacityUnits = readCapacityUnits;
+    this.writeCapacityUnits = writeCapacityUnits;
+    this.nanoClock = nanoClock;
+  }
+
+  // Gives the indexes named indexName, of any table, a capacity of their own
+  public synchronized ProvisionedThrottling index(String indexName, double readCapacityUnits,
+                                                  double writeCapacityUnits) {
+    checkCapacity(readCapacityUnits, writeCapacityUnits);
+    indexCapacities.put(indexName, new double[] {readCapacityUnits, writeCapacityUnits});
+    return this;
+  }
+
+  @Override
+  public synchronized boolean admit(String capacityName, long partitionHash, double readUnits, double writeUnits) {
+    long now = nanoClock.getAsLong();
+    Capacity capacity = capacity(capacityName);
+    // The partitions of an index sharing the capacity of its table are not the partitions of the table
+    long hash = capacity.name.equals(capacityName) ? partitionHash : -1;
+    if (!capacity.hasCapacity(now, hash, readUnits, writeUnits)) {
+      return false;
+    }
+    capacity.consume(hash, readUnits, writeUnits);
+    return true;
+  }
+
+  @Override
+  public synchronized boolean admitWrite(String tableName, long partitionHash, double tableUnits,
+                                         Map<String, Double> indexUnits) {
+    long now = nanoClock.getAsLong();
+    Capacity table = capacity(tableName);
+    double sharedUnits = tableUnits;
+    List<Capacity> indexes = new ArrayList<>();
+    List<Double> units = new ArrayList<>();
+    for (Map.Entry<String, Double> index : indexUnits.entrySet()) {
+      Capacity capacity = capacity(tableName + INDEX_SEPARATOR + index.getKey());
+      if (capacity == table) {
+        sharedUnits += index.getValue();
+      } else if (index.getValue() > 0) {
+        indexes.add(capacity);
+        units.add(index.getValue());
+      }
+    }
+    if (!table.hasCapacity(now, partitionHash, 0, sharedUnits)) {
+      return false;
+    }
+    for (int i = 0; i < indexes.size(); i++) {
+      if (!indexes.get(i).hasCapacity(now, -1, 0, units.get(i))) {
+        return false;
+      }
+    }
+    table.consume(partitionHash, 0, sharedUnits);
+    for (int i = 0; i < indexes.size(); i++) {
+      indexes.get(i).consume(-1, 0, units.get(i));
+    }
+    return true;
+  }
+
+  // Capacity of a table, of an index with its own capacity, or of the table of another index
+  private Capacity capacity(String capacityName) {
+    int separator = capacityName.indexOf(INDEX_SEPARATOR);
+    if (separator >= 0) {
+      double[] index = indexCapacities.get(capacityName.substring(separator + INDEX_SEPARATOR.length()));
+      if (index != null) {
+        return capacities.computeIfAbsent(capacityName, name -> new Capacity(name, index[0], index[1]));
+      }
+      capacityName = capacityName.substring(0, separator);
+    }
+    return capacities.computeIfAbsent(capacityName, name -> new Capacity(name, readCapacityUnits, writeCapacityUnits));
+  }
+
+  private static void checkCapacity(double readCapacityUnits, double writeCapacityUnits) {
+    if (readCapacityUnits <= 0 || writeCapacityUnits <= 0) {
+      throw new IllegalArgumentException("Capacity units must be positive: " + readCapacityUnits + ", " + writeCapacityUnits);
+    }
+  }
+
+  private final class Capacity {
+    private final String name;
+    private final Bucket reads;
+    private final Bucket writes;
+    private final Bucket[] partitionReads;
+    private final Bucket[] partitionWrites;
+
+    private Capacity(String name, double readCapacityUnits, double writeCapacityUnits) {
+      this.name = name;
+      long now = nanoClock.getAsLong();
+      reads = new Bucket(readCapacityUnits, readCapacityUnits * BURST_SECONDS, now);
+      writes = new Bucket(writeCapacityUnits, writeCapacityUnits * BURST_SECONDS, now);
+      int partitions = (int) Math.max(1,
+          Math.ceil(readCapacityUnits / PARTITION_READ_UNITS + writeCapacityUnits / PARTITION_WRITE_UNITS));
+      partitionReads = new Bucket[partitions];
+      partitionWrites = new Bucket[partitions];
+      for (int i = 0; i < partitions; i++) {
+        partitionReads[i] = new Bucket(PARTITION_READ_UNITS, PARTITION_READ_UNITS, now);
+        partitionWrites[i] = new Bucket(PARTITION_WRITE_UNITS, PARTITION_WRITE_UNITS, now);
+      }
+    }
+
+    private boolean hasCapacity(long now, long partitionHash, double readUnits, double writeUnits) {
+      int partition = partition(partitionHash);
+      return (readUnits == 0 || (reads.hasCapacity(now) && (partition < 0 || partitionReads[partition].hasCapacity(now))))
+          && (writeUnits == 0 || (writes.hasCapacity(now) && (partition < 0 || partitionWrites[partition].hasCapacity(now))));
+    }
+
+    private void consume(long partitionHash, double readUnits, double writeUnits) {
+      reads.consume(readUnits);
+      writes.consume(writeUnits);
+      int partition = partition(partitionHash);
+      if (partition >= 0) {
+        partitionReads[partition].consume(readUnits);
+        partitionWrites[partition].consume(writeUnits);
+      }
+    }
+
+    private int partition(long partitionHash) {
+      return partitionHash < 0 ? -1 : (int) ((partitionHash * partitionReads.length) >>> 32);
+    }
+  }
+
+  private static final class Bucket {
+    private final double unitsPerSecond;
+    private final double maxUnits;
+    private double available;
+    private long lastRefillNanos;
+
+    private Bucket(double unitsPerSecond, double maxUnits, long now) {
+      this.unitsPerSecond = unitsPerSecond;
+      this.maxUnits = maxUnits;
+      // A new table starts without burst capacity
+      this.available = unitsPerSecond;
+      this.lastRefillNanos = now;
+    }
+
+    private boolean hasCapacity(long now) {
+      available = Math.min(maxUnits, available + (now - lastRefillNanos) * unitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+      lastRefillNanos = now;
+      return available > 0;
+    }
+
+    private void consume(double units) {
+      available -= units;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Tables with the schema of the stacks: PK and SK strings, MyGsi (SK, PK) and, like the stacks
+// that add a second index, MySecondGsi (SK), both KEYS_ONLY.
+public final class SampleTables {
+  public static final String GSI_NAME = "MyGsi";
+  public static final String SECOND_GSI_NAME = "MySecondGsi";
+
+  private SampleTables() {
+  }
+
+  public static void create(DynamoDbClient ddbClient, String tableName, boolean secondGsi) {
+    List<GlobalSecondaryIndex> indexes = new ArrayList<>();
+    indexes.add(GlobalSecondaryIndex.builder()
+        .indexName(GSI_NAME)
+        .keySchema(key("SK", KeyType.HASH), key("PK", KeyType.RANGE))
+        .projection(Projection.builder().projectionType(ProjectionType.KEYS_ONLY).build())
+        .build());
+    if (secondGsi) {
+      indexes.add(GlobalSecondaryIndex.builder()
+          .indexName(SECOND_GSI_NAME)
+          .keySchema(key("SK", KeyType.HASH))
+          .projection(Projection.builder().projectionType(ProjectionType.KEYS_ONLY).build())
+          .build());
+    }
+    ddbClient.createTable(CreateTableRequest.builder()
+        .tableName(tableName)
+        .billingMode(BillingMode.PAY_PER_REQUEST)
+        .keySchema(key("PK", KeyType.HASH), key("SK", KeyType.RANGE))
+        .attributeDefinitions(
+            AttributeDefinition.builder().attributeName("PK").attributeType(ScalarAttributeType.S).build(),
+            AttributeDefinition.builder().attributeName("SK").attributeType(ScalarAttributeType.S).build())
+        .globalSecondaryIndexes(indexes)
+        .build());
+  }
+
+  private static KeySchemaElement key(String attributeName, KeyType keyType) {
+    return KeySchemaElement.builder().attributeName(attributeName).keyType(keyType).build();
+  }
+}
@@ -0,0 +1,24 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import java.util.Map;
+
+// Decides which requests of InMemoryDynamoDbClient are throttled, from the capacity they consume.
+public interface ThrottlingModel {
+  // Never throttles, like an on-demand table below its limits
+  ThrottlingModel NONE = (capacityName, partitionHash, readUnits, writeUnits) -> true;
+
+  // Returns false to throttle a read of the table, or of the index when capacityName is <table>/index/<index>,
+  // whose partition key has the given hash (from 0 to 2^32 - 1), or -1 for a scan. A throttled request
+  // consumes no capacity.
+  boolean admit(String capacityName, long partitionHash, double readUnits, double writeUnits);
+
+  // Returns false to throttle a write of the table, given the write units of the table and of each of its
+  // indexes. The write and its index entries are admitted or throttled together. By default, the index
+  // units are charged to the table.
+  default boolean admitWrite(String tableName, long partitionHash, double tableUnits, Map<String, Double> indexUnits) {
+    return admit(tableName, partitionHash, 0, tableUnits + FakeTable.sum(indexUnits));
+  }
+}
@@ -0,0 +1,153 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the operations of Handler, per call, against StandInEndpoint.
+// Run with the gc profiler to also get the allocation rate per operation:
+// java -jar target/benchmarks.jar -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HandlerBenchmark {
+  private static final String TABLE_NAME = "BenchmarkTable";
+  private static final String REGION = "eu-west-1";
+  private static final int COUNTER_SHARDS = CounterItemCounter.DEFAULT_SHARDS;
+  private static final int BATCH_SIZE = 25;
+
+  @Param({"SYNC", "ASYNC"})
+  public ExecutionMode executionMode;
+
+  private StandInEndpoint endpoint;
+  private DynamoDbClient ddbClient;
+  private DynamoDbAsyncClient ddbAsyncClient;
+  private Handler scanHandler;
+  private Handler counterHandler;
+  private BatchWriteItemRequest batchWriteItemRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    endpoint = new StandInEndpoint(TABLE_NAME, COUNTER_SHARDS, 1000);
+    StaticCredentialsProvider credentials = StaticCredentialsProvider.create(
+        AwsBasicCredentials.create("benchmark", "benchmark"));
+    // Same HTTP clients as DynamoDbClients, with the endpoint and the credentials of the benchmark
+    ddbClient = DynamoDbClient.builder()
+        .region(Region.of(REGION))
+        .endpointOverride(endpoint.uri())
+        .credentialsProvider(credentials)
+        .httpClient(UrlConnectionHttpClient.create())
+        .build();
+    ddbAsyncClient = executionMode == ExecutionMode.ASYNC
+        ? DynamoDbAsyncClient.builder()
+            .region(Region.of(REGION))
+            .endpointOverride(endpoint.uri())
+            .credentialsProvider(credentials)
+            .httpClientBuilder(NettyNioAsyncHttpClient.builder())
+            .build()
+        : null;
+    scanHandler = new Handler(executionMode, REGION, ddbClient, ddbAsyncClient, ItemCountStrategy.EXACT);
+    counterHandler = new Handler(executionMode, REGION, ddbClient, ddbAsyncClient, ItemCountStrategy.COUNTER);
+
+    List<WriteRequest> writeRequests = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      // The keys of a batch must be distinct
+      Map<String, AttributeValue> item = new HashMap<>(scanHandler.putItemRequest(TABLE_NAME).item());
+      item.put("PK", AttributeValue.builder().s("pk#batch#" + i).build());
+      writeRequests.add(WriteRequest.builder()
+          .putRequest(PutRequest.builder().item(item).build())
+          .build());
+    }
+    batchWriteItemRequest = BatchWriteItemRequest.builder()
+        .requestItems(Map.of(TABLE_NAME, writeRequests))
+        .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ddbClient.close();
+    if (ddbAsyncClient != null) {
+      ddbAsyncClient.close();
+    }
+    endpoint.close();
+  }
+
+  // Attribute map and request construction only, without any call
+  @Benchmark
+  public PutItemRequest putItemRequest() {
+    return scanHandler.putItemRequest(TABLE_NAME);
+  }
+
+  @Benchmark
+  public Object putItem() {
+    return scanHandler.addItem(TABLE_NAME).join();
+  }
+
+  // Parallel scan with Select.COUNT, see COUNT_SEGMENTS
+  @Benchmark
+  public long scanCount() {
+    return scanHandler.countItems(TABLE_NAME).join().getCount();
+  }
+
+  // BatchGetItem of the counter shards
+  @Benchmark
+  public long counterCount() {
+    return counterHandler.countItems(TABLE_NAME).join().getCount();
+  }
+
+  // Per item cost of writing the same items in one BatchWriteItem call, to compare with putItem
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public Object batchPutItems() {
+    if (ddbAsyncClient != null) {
+      return ddbAsyncClient.batchWriteItem(batchWriteItemRequest).join();
+    }
+    return ddbClient.batchWriteItem(batchWriteItemRequest);
+  }
+
+  // The put and the count of one invocation, concurrent in ASYNC mode
+  @Benchmark
+  public long putItemAndScanCount() {
+    CompletableFuture<?> put = scanHandler.addItem(TABLE_NAME);
+    return scanHandler.countItems(TABLE_NAME)
+        .thenCombine(put, (count, ignored) -> count.getCount())
+        .join();
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.samples.fake.InMemoryDynamoDbClient;
+import software.amazon.samples.fake.SampleTables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the operations of Handler against InMemoryDynamoDbClient, a table of tableItems items
+// with its global secondary indexes: the work of the handler and of the SDK above the HTTP client,
+// with the paging of a table of that size, but without any marshalling or network.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InMemoryHandlerBenchmark {
+  private static final String TABLE_NAME = "BenchmarkTable";
+  private static final String REGION = "eu-west-1";
+  private static final int BATCH_SIZE = 25;
+
+  @Param({"1000", "100000"})
+  public int tableItems;
+
+  // Each index adds the write of an index entry to every new item
+  @Param({"false", "true"})
+  public boolean secondGsi;
+
+  private InMemoryDynamoDbClient ddbClient;
+  private Handler handler;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, secondGsi);
+    List<WriteRequest> writeRequests = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < tableItems; i++) {
+      writeRequests.add(WriteRequest.builder()
+          .putRequest(PutRequest.builder().item(Map.of(
+              "PK", AttributeValue.builder().s("pk#prefill#" + i).build(),
+              "SK", AttributeValue.builder().s("sk#prefill#" + i).build())).build())
+          .build());
+      if (writeRequests.size() == BATCH_SIZE || i == tableItems - 1) {
+        ddbClient.batchWriteItem(BatchWriteItemRequest.builder()
+            .requestItems(Map.of(TABLE_NAME, writeRequests))
+            .build());
+        writeRequests = new ArrayList<>(BATCH_SIZE);
+      }
+    }
+    handler = new Handler(ExecutionMode.SYNC, REGION, ddbClient, null, ItemCountStrategy.EXACT);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ddbClient.close();
+  }
+
+  @Benchmark
+  public Object putItem() {
+    return handler.addItem(TABLE_NAME).join();
+  }
+
+  // Parallel scan with Select.COUNT, one 1 MB page per segment and per call
+  @Benchmark
+  public long scanCount() {
+    return handler.countItems(TABLE_NAME).join().getCount();
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Local HTTP endpoint answering the DynamoDB requests of the handler with fixed responses,
+// so the benchmarks measure the client side of a call: building the request, marshalling,
+// signing, the loopback round trip and parsing the response. The server cost is constant.
+final class StandInEndpoint implements AutoCloseable {
+  private static final String LOOPBACK = "127.0.0.1";
+
+  static {
+    // Without TCP_NODELAY, the response waits for the delayed ACK of the client (about 40 ms)
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final Map<String, byte[]> responses;
+
+  StandInEndpoint(String tableName, int counterShards, long scanCount) throws IOException {
+    this.responses = Map.of(
+        "PutItem", bytes("{}"),
+        "BatchWriteItem", bytes("{\"UnprocessedItems\":{}}"),
+        "Scan", bytes("{\"Count\":" + scanCount + ",\"ScannedCount\":" + scanCount + "}"),
+        "BatchGetItem", bytes(counterResponse(tableName, counterShards)),
+        "DescribeTable", bytes("{\"Table\":{\"TableName\":\"" + tableName + "\",\"TableStatus\":\"ACTIVE\",\"ItemCount\":"
+            + scanCount + "}}"));
+    this.server = HttpServer.create(new InetSocketAddress(LOOPBACK, 0), 0);
+    // The scan segments and the async client send concurrent requests
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "stand-in-endpoint");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.createContext("/", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      // X-Amz-Target: DynamoDB_20120810.<operation>
+      String target = String.valueOf(exchange.getRequestHeaders().getFirst("X-Amz-Target"));
+      byte[] body = responses.getOrDefault(target.substring(target.indexOf('.') + 1), bytes("{}"));
+      exchange.getResponseHeaders().add("Content-Type", "application/x-amz-json-1.0");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    server.start();
+  }
+
+  URI uri() {
+    return URI.create("http://" + LOOPBACK + ":" + server.getAddress().getPort());
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  // One counter item per shard, projected on its count as requested by CounterItemCounter
+  private static String counterResponse(String tableName, int shards) {
+    StringJoiner items = new StringJoiner(",");
+    for (int shard = 0; shard < shards; shard++) {
+      items.add("{\"" + ShardedCounter.COUNT_ATTRIBUTE + "\":{\"N\":\"" + (shard + 1) + "\"}}");
+    }
+    return "{\"Responses\":{\"" + tableName + "\":[" + items + "]},\"UnprocessedKeys\":{}}";
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
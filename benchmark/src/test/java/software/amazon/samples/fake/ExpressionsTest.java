@@ -0,0 +1,108 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpressionsTest {
+  private static final Map<String, AttributeValue> ITEM = Map.of(
+      "PK", s("pk#1"),
+      "SK", s("sk#1"),
+      "Count", n("12"),
+      "Tags", AttributeValue.builder().ss("a", "b").build(),
+      "Nested", AttributeValue.builder().m(Map.of("List", AttributeValue.builder().l(n("1"), n("2")).build())).build());
+
+  @Test
+  void notBindsTighterThanAnd() {
+    assertTrue(test("NOT begins_with(PK, :counter) AND NOT begins_with(PK, :probe)"));
+    assertFalse(test("NOT begins_with(PK, :pk) AND NOT begins_with(PK, :probe)"));
+    assertTrue(test("NOT (begins_with(PK, :pk) AND begins_with(PK, :probe))"));
+    assertTrue(test("NOT NOT begins_with(PK, :pk)"));
+  }
+
+  @Test
+  void andBindsTighterThanOr() {
+    assertTrue(test("begins_with(PK, :pk) OR begins_with(PK, :probe) AND begins_with(PK, :counter)"));
+    assertFalse(test("(begins_with(PK, :pk) OR begins_with(PK, :probe)) AND begins_with(PK, :counter)"));
+  }
+
+  @Test
+  void comparisonsOfNumbersUseTheirValue() {
+    assertTrue(test("#count > :nine"));
+    assertTrue(test("#count BETWEEN :nine AND :twelve AND PK = :pk1"));
+    assertFalse(test("#count < :nine"));
+    assertTrue(test("#count IN (:nine, :twelve)"));
+    assertTrue(test("#count <> :nine"));
+  }
+
+  @Test
+  void functionsAndNestedPaths() {
+    assertTrue(test("attribute_exists(Nested.List[1]) AND attribute_not_exists(Nested.List[2])"));
+    assertTrue(test("contains(Tags, :a) AND size(Tags) = :two"));
+    assertTrue(test("attribute_type(#count, :numberType)"));
+    // A missing attribute compares as false, not as an error
+    assertFalse(test("Missing = :pk1"));
+  }
+
+  @Test
+  void invalidExpressionsAreRejected() {
+    assertThrows(DynamoDbException.class, () -> test("PK = "));
+    assertThrows(DynamoDbException.class, () -> test("PK = :undefined"));
+    assertThrows(DynamoDbException.class, () -> test("begins_with(PK)"));
+    assertThrows(DynamoDbException.class, () -> test("(PK = :pk1"));
+  }
+
+  @Test
+  void projectionKeepsTopLevelAttributes() {
+    assertEquals(Set.of("PK", "Count", "Nested"),
+        Expressions.projection("PK, #count, Nested.List[0]", Map.of("#count", "Count")));
+  }
+
+  @Test
+  void keyConditionBoundsTheSortKey() {
+    Expressions.KeyCondition condition = Expressions.keyCondition("PK = :pk1 AND begins_with(SK, :sk)",
+        Map.of(), values(), "PK", "SK");
+
+    assertEquals(KeyValue.of(s("pk#1")), condition.partition);
+    assertTrue(condition.matchesSort(KeyValue.of(s("sk#1"))));
+    assertFalse(condition.matchesSort(KeyValue.of(s("other"))));
+    assertThrows(DynamoDbException.class, () -> Expressions.keyCondition("SK = :sk", Map.of(), values(), "PK", "SK"));
+  }
+
+  private static boolean test(String expression) {
+    return Expressions.condition(expression, Map.of("#count", "Count"), values()).test(ITEM);
+  }
+
+  private static Map<String, AttributeValue> values() {
+    return Map.of(
+        ":pk", s("pk#"),
+        ":pk1", s("pk#1"),
+        ":sk", s("sk#"),
+        ":counter", s("#counter#"),
+        ":probe", s("#probe#"),
+        ":nine", n("9"),
+        ":twelve", n("12.0"),
+        ":two", n("2"),
+        ":a", s("a"),
+        ":numberType", s("N"));
+  }
+
+  private static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+
+  private static AttributeValue n(String value) {
+    return AttributeValue.builder().n(value).build();
+  }
+}
@@ -0,0 +1,194 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobalTableEmulatorTest {
+  private static final String TABLE_NAME = "MyTable";
+  private static final String HOME = "eu-west-1";
+  private static final String REPLICA = "eu-north-1";
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @Test
+  void lastWriterWinsDespiteTheJitter() throws InterruptedException {
+    try (GlobalTableEmulator globalTable = GlobalTableEmulator.builder()
+        .regions(GlobalTableEmulator.DEFAULT_AND_TWO_REPLICA_REGIONS)
+        .replicationDelay(Duration.ofMillis(5))
+        .jitter(Duration.ofMillis(50))
+        .build()) {
+      SampleTables.create(globalTable.client(HOME), TABLE_NAME, false);
+
+      // Each item is written in every region in turn, the replicated writes arriving in random order
+      for (int version = 0; version < 6; version++) {
+        String region = globalTable.regions().get(version % 3);
+        for (int i = 0; i < 20; i++) {
+          put(globalTable.client(region), "pk#" + i, version);
+        }
+        Thread.sleep(2);
+      }
+      globalTable.awaitReplication(TIMEOUT);
+
+      for (String region : globalTable.regions()) {
+        for (int i = 0; i < 20; i++) {
+          Map<String, AttributeValue> item = get(globalTable.client(region), "pk#" + i).item();
+          assertEquals("5", item.get("Version").n(), region + " pk#" + i);
+          assertEquals(globalTable.regions().get(2), item.get(GlobalTableEmulator.UPDATE_REGION_ATTRIBUTE).s());
+        }
+      }
+      assertEquals(6 * 20 * 2, globalTable.replicatedWrites() + globalTable.conflicts());
+    }
+  }
+
+  @Test
+  void concurrentWritesAreCountedAsConflicts() throws InterruptedException {
+    try (GlobalTableEmulator globalTable = GlobalTableEmulator.builder()
+        .replicationDelay(Duration.ofMillis(200))
+        .build()) {
+      SampleTables.create(globalTable.client(HOME), TABLE_NAME, false);
+
+      put(globalTable.client(HOME), "pk#1", 1);
+      Thread.sleep(2);
+      put(globalTable.client(REPLICA), "pk#1", 2);
+      globalTable.awaitReplication(TIMEOUT);
+
+      // The older write of the home region is discarded by the replica, the later one is applied in the home region
+      assertEquals(1, globalTable.conflicts());
+      assertEquals(1, globalTable.replicatedWrites());
+      assertEquals("2", get(globalTable.client(HOME), "pk#1").item().get("Version").n());
+      assertEquals("2", get(globalTable.client(REPLICA), "pk#1").item().get("Version").n());
+    }
+  }
+
+  @Test
+  void putReplicatedAfterALaterDeleteRecreatesTheItem() throws InterruptedException {
+    try (GlobalTableEmulator globalTable = GlobalTableEmulator.builder()
+        .replicationDelay(Duration.ZERO)
+        .replicationDelay(HOME, REPLICA, Duration.ofMillis(300))
+        .build()) {
+      SampleTables.create(globalTable.client(HOME), TABLE_NAME, false);
+
+      put(globalTable.client(HOME), "pk#1", 1);
+      Thread.sleep(2);
+      // The replica does not have the item yet: the delete is replicated to the home region, which deletes it
+      globalTable.client(REPLICA).deleteItem(DeleteItemRequest.builder()
+          .tableName(TABLE_NAME)
+          .key(key("pk#1"))
+          .build());
+      globalTable.awaitReplication(TIMEOUT);
+
+      // No tombstone: the put arrives after the delete and recreates the item in the replica only
+      assertFalse(get(globalTable.client(HOME), "pk#1").hasItem());
+      assertEquals("1", get(globalTable.client(REPLICA), "pk#1").item().get("Version").n());
+      assertEquals(0, globalTable.conflicts());
+    }
+  }
+
+  @Test
+  void streamRecordsHaveTheEventNameAndImages() throws InterruptedException {
+    try (GlobalTableEmulator globalTable = GlobalTableEmulator.builder()
+        .replicationDelay(Duration.ZERO)
+        .build()) {
+      SampleTables.create(globalTable.client(HOME), TABLE_NAME, false);
+      List<Record> homeRecords = new CopyOnWriteArrayList<>();
+      List<Record> replicaRecords = new CopyOnWriteArrayList<>();
+      globalTable.addStreamListener(HOME, homeRecords::add);
+      globalTable.addStreamListener(REPLICA, replicaRecords::add);
+
+      put(globalTable.client(HOME), "pk#1", 1);
+      globalTable.awaitReplication(TIMEOUT);
+      put(globalTable.client(HOME), "pk#1", 2);
+      globalTable.awaitReplication(TIMEOUT);
+      globalTable.client(HOME).deleteItem(DeleteItemRequest.builder().tableName(TABLE_NAME).key(key("pk#1")).build());
+      globalTable.awaitReplication(TIMEOUT);
+
+      for (List<Record> records : List.of(homeRecords, replicaRecords)) {
+        assertEquals(3, records.size());
+        Record insert = records.get(0);
+        assertEquals(OperationType.INSERT, insert.eventName());
+        assertEquals(key("pk#1"), insert.dynamodb().keys());
+        assertFalse(insert.dynamodb().hasOldImage());
+        assertEquals("1", insert.dynamodb().newImage().get("Version").n());
+        assertEquals(HOME, insert.dynamodb().newImage().get(GlobalTableEmulator.UPDATE_REGION_ATTRIBUTE).s());
+
+        Record modify = records.get(1);
+        assertEquals(OperationType.MODIFY, modify.eventName());
+        assertEquals("1", modify.dynamodb().oldImage().get("Version").n());
+        assertEquals("2", modify.dynamodb().newImage().get("Version").n());
+
+        Record remove = records.get(2);
+        assertEquals(OperationType.REMOVE, remove.eventName());
+        assertEquals("2", remove.dynamodb().oldImage().get("Version").n());
+        assertFalse(remove.dynamodb().hasNewImage());
+      }
+      assertEquals(HOME, homeRecords.get(0).awsRegion());
+      assertEquals(REPLICA, replicaRecords.get(0).awsRegion());
+      assertTrue(homeRecords.get(0).dynamodb().sequenceNumber().compareTo(homeRecords.get(1).dynamodb().sequenceNumber()) < 0);
+    }
+  }
+
+  @Test
+  void invalidBatchIsNeitherWrittenNorReplicated() throws InterruptedException {
+    try (GlobalTableEmulator globalTable = GlobalTableEmulator.builder()
+        .replicationDelay(Duration.ZERO)
+        .build()) {
+      SampleTables.create(globalTable.client(HOME), TABLE_NAME, false);
+      Map<String, AttributeValue> tooLarge = new HashMap<>(key("pk#3"));
+      tooLarge.put("Data", AttributeValue.builder().s("x".repeat(401 * 1024)).build());
+      List<WriteRequest> invalid = List.of(write(key("pk#1")), write(key("pk#2")), write(tooLarge));
+      List<WriteRequest> duplicates = List.of(write(key("pk#1")), write(key("pk#1")));
+
+      for (List<WriteRequest> writes : List.of(invalid, duplicates)) {
+        assertThrows(DynamoDbException.class, () -> globalTable.client(HOME).batchWriteItem(
+            BatchWriteItemRequest.builder().requestItems(Map.of(TABLE_NAME, writes)).build()));
+      }
+      globalTable.awaitReplication(TIMEOUT);
+
+      assertFalse(get(globalTable.client(HOME), "pk#1").hasItem());
+      assertFalse(get(globalTable.client(REPLICA), "pk#1").hasItem());
+      assertEquals(0, globalTable.replicatedWrites());
+    }
+  }
+
+  private static void put(DynamoDbClient ddbClient, String pk, int version) {
+    Map<String, AttributeValue> item = new HashMap<>(key(pk));
+    item.put("Version", AttributeValue.builder().n(Integer.toString(version)).build());
+    ddbClient.putItem(PutItemRequest.builder().tableName(TABLE_NAME).item(item).build());
+  }
+
+  private static GetItemResponse get(DynamoDbClient ddbClient, String pk) {
+    return ddbClient.getItem(GetItemRequest.builder().tableName(TABLE_NAME).key(key(pk)).build());
+  }
+
+  private static WriteRequest write(Map<String, AttributeValue> item) {
+    return WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build();
+  }
+
+  private static Map<String, AttributeValue> key(String pk) {
+    return Map.of("PK", AttributeValue.builder().s(pk).build(), "SK", AttributeValue.builder().s("sk").build());
+  }
+}
@@ -0,0 +1,315 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryDynamoDbClientTest {
+  private static final String TABLE_NAME = "MyTable";
+  private static final String SPARSE_TABLE_NAME = "SparseTable";
+  private static final String SPARSE_GSI_NAME = "ByStatus";
+
+  @Test
+  void scanSegmentsPartitionTheTable() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+    putItems(ddbClient, 1000);
+
+    for (int totalSegments : new int[] {1, 7, 64}) {
+      Set<String> keys = new HashSet<>();
+      int count = 0;
+      for (int segment = 0; segment < totalSegments; segment++) {
+        for (Map<String, AttributeValue> item : scanAll(ddbClient, ScanRequest.builder()
+            .tableName(TABLE_NAME)
+            .segment(segment)
+            .totalSegments(totalSegments))) {
+          keys.add(item.get("PK").s());
+          count++;
+        }
+      }
+      assertEquals(1000, count, "items of " + totalSegments + " segments");
+      assertEquals(1000, keys.size(), "distinct items of " + totalSegments + " segments");
+    }
+  }
+
+  @Test
+  void invalidSegmentIsRejected() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+
+    assertThrows(DynamoDbException.class, () -> ddbClient.scan(ScanRequest.builder()
+        .tableName(TABLE_NAME).segment(4).totalSegments(4).build()));
+  }
+
+  @Test
+  void scanPagesFollowLastEvaluatedKey() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.builder().pageBytes(4096).build();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+    putItems(ddbClient, 500);
+
+    int pages = 0;
+    Set<String> keys = new HashSet<>();
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      ScanResponse response = ddbClient.scan(ScanRequest.builder()
+          .tableName(TABLE_NAME)
+          .exclusiveStartKey(exclusiveStartKey)
+          .build());
+      response.items().forEach(item -> assertTrue(keys.add(item.get("PK").s()), "item read twice"));
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+      if (exclusiveStartKey != null) {
+        assertEquals(Set.of("PK", "SK"), exclusiveStartKey.keySet());
+      }
+      pages++;
+    } while (exclusiveStartKey != null);
+
+    assertEquals(500, keys.size());
+    assertTrue(pages > 1, "pages: " + pages);
+  }
+
+  @Test
+  void queryLimitPagesAPartition() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+    for (int i = 0; i < 10; i++) {
+      ddbClient.putItem(PutItemRequest.builder().tableName(TABLE_NAME).item(item("pk#1", "sk#" + i)).build());
+    }
+
+    List<String> sortKeys = new ArrayList<>();
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      QueryResponse response = ddbClient.query(QueryRequest.builder()
+          .tableName(TABLE_NAME)
+          .keyConditionExpression("PK = :pk AND SK >= :from")
+          .expressionAttributeValues(Map.of(":pk", s("pk#1"), ":from", s("sk#3")))
+          .limit(3)
+          .exclusiveStartKey(exclusiveStartKey)
+          .build());
+      assertTrue(response.count() <= 3);
+      response.items().forEach(item -> sortKeys.add(item.get("SK").s()));
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+
+    assertEquals(List.of("sk#3", "sk#4", "sk#5", "sk#6", "sk#7", "sk#8", "sk#9"), sortKeys);
+  }
+
+  // The filter of ScanItemCounter, which leaves out the counter items and the probe markers
+  @Test
+  void countFilterWithNotBeginsWith() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+    putItems(ddbClient, 100);
+    ddbClient.putItem(PutItemRequest.builder().tableName(TABLE_NAME).item(item("#counter#eu-west-1", "shard#0")).build());
+    ddbClient.putItem(PutItemRequest.builder().tableName(TABLE_NAME).item(item("#probe#eu-west-1", "probe")).build());
+
+    ScanResponse response = ddbClient.scan(ScanRequest.builder()
+        .tableName(TABLE_NAME)
+        .select(Select.COUNT)
+        .filterExpression("NOT begins_with(PK, :counterPrefix) AND NOT begins_with(PK, :probePrefix)")
+        .expressionAttributeValues(Map.of(":counterPrefix", s("#counter#"), ":probePrefix", s("#probe#")))
+        .build());
+
+    assertEquals(100, response.count());
+    assertEquals(102, response.scannedCount());
+    assertTrue(response.items().isEmpty());
+  }
+
+  @Test
+  void conditionExpressionRejectsTheWrite() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+    PutItemRequest putIfAbsent = PutItemRequest.builder()
+        .tableName(TABLE_NAME)
+        .item(item("pk#1", "sk#1"))
+        .conditionExpression("attribute_not_exists(PK)")
+        .build();
+
+    ddbClient.putItem(putIfAbsent);
+
+    assertThrows(ConditionalCheckFailedException.class, () -> ddbClient.putItem(putIfAbsent));
+  }
+
+  @Test
+  void invalidBatchWritesNothing() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+    Map<String, AttributeValue> tooLarge = new HashMap<>(item("pk#3", "sk#3"));
+    tooLarge.put("Data", s("x".repeat(401 * 1024)));
+    List<WriteRequest> writes = List.of(put(item("pk#1", "sk#1")), put(item("pk#2", "sk#2")), put(tooLarge));
+
+    assertThrows(DynamoDbException.class, () -> ddbClient.batchWriteItem(BatchWriteItemRequest.builder()
+        .requestItems(Map.of(TABLE_NAME, writes))
+        .build()));
+
+    assertEquals(0, ddbClient.describeTable(DescribeTableRequest.builder().tableName(TABLE_NAME).build())
+        .table().itemCount());
+  }
+
+  @Test
+  void sparseIndexOnlyHoldsTheItemsWithItsKey() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    createSparseTable(ddbClient);
+
+    // Without the key of the index: no index entry, no index write unit
+    ConsumedCapacity capacity = putWithCapacity(ddbClient, sparseItem("pk#1", null));
+    assertEquals(1.0, capacity.table().capacityUnits());
+    assertEquals(0.0, capacity.globalSecondaryIndexes().get(SPARSE_GSI_NAME).capacityUnits());
+    assertEquals(0, queryStatus(ddbClient, "OPEN").count());
+
+    // The entry is added
+    capacity = putWithCapacity(ddbClient, sparseItem("pk#1", "OPEN"));
+    assertEquals(1.0, capacity.globalSecondaryIndexes().get(SPARSE_GSI_NAME).capacityUnits());
+    assertEquals(2.0, capacity.capacityUnits());
+    assertEquals(1, queryStatus(ddbClient, "OPEN").count());
+
+    // The entry moves to another key: a delete and a put
+    capacity = putWithCapacity(ddbClient, sparseItem("pk#1", "CLOSED"));
+    assertEquals(2.0, capacity.globalSecondaryIndexes().get(SPARSE_GSI_NAME).capacityUnits());
+    assertEquals(0, queryStatus(ddbClient, "OPEN").count());
+    assertEquals(1, queryStatus(ddbClient, "CLOSED").count());
+
+    // The same entry is written again: nothing changes in the index
+    capacity = putWithCapacity(ddbClient, sparseItem("pk#1", "CLOSED"));
+    assertEquals(0.0, capacity.globalSecondaryIndexes().get(SPARSE_GSI_NAME).capacityUnits());
+
+    // The item is deleted with its entry
+    capacity = ddbClient.deleteItem(DeleteItemRequest.builder()
+        .tableName(SPARSE_TABLE_NAME)
+        .key(Map.of("PK", s("pk#1")))
+        .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+        .build()).consumedCapacity();
+    assertEquals(1.0, capacity.globalSecondaryIndexes().get(SPARSE_GSI_NAME).capacityUnits());
+    assertEquals(0, queryStatus(ddbClient, "CLOSED").count());
+    assertEquals(0L, ddbClient.describeTable(DescribeTableRequest.builder().tableName(SPARSE_TABLE_NAME).build())
+        .table().globalSecondaryIndexes().get(0).itemCount());
+  }
+
+  @Test
+  void batchWithEveryWriteThrottledIsRejected() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.builder()
+        .throttling((capacityName, partitionHash, readUnits, writeUnits) -> writeUnits == 0)
+        .build();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+
+    assertThrows(ProvisionedThroughputExceededException.class,
+        () -> ddbClient.batchWriteItem(BatchWriteItemRequest.builder()
+            .requestItems(Map.of(TABLE_NAME, List.of(put(item("pk#1", "sk#1")))))
+            .build()));
+    assertFalse(ddbClient.getItem(GetItemRequest.builder()
+        .tableName(TABLE_NAME)
+        .key(item("pk#1", "sk#1"))
+        .build()).hasItem());
+  }
+
+  private static void putItems(DynamoDbClient ddbClient, int count) {
+    for (int i = 0; i < count; i++) {
+      ddbClient.putItem(PutItemRequest.builder().tableName(TABLE_NAME).item(item("pk#" + i, "sk#" + i)).build());
+    }
+  }
+
+  private static List<Map<String, AttributeValue>> scanAll(DynamoDbClient ddbClient, ScanRequest.Builder request) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      ScanResponse response = ddbClient.scan(request.exclusiveStartKey(exclusiveStartKey).build());
+      items.addAll(response.items());
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+    return items;
+  }
+
+  private static void createSparseTable(DynamoDbClient ddbClient) {
+    ddbClient.createTable(CreateTableRequest.builder()
+        .tableName(SPARSE_TABLE_NAME)
+        .keySchema(KeySchemaElement.builder().attributeName("PK").keyType(KeyType.HASH).build())
+        .attributeDefinitions(
+            AttributeDefinition.builder().attributeName("PK").attributeType(ScalarAttributeType.S).build(),
+            AttributeDefinition.builder().attributeName("Status").attributeType(ScalarAttributeType.S).build())
+        .globalSecondaryIndexes(GlobalSecondaryIndex.builder()
+            .indexName(SPARSE_GSI_NAME)
+            .keySchema(KeySchemaElement.builder().attributeName("Status").keyType(KeyType.HASH).build())
+            .projection(Projection.builder().projectionType(ProjectionType.KEYS_ONLY).build())
+            .build())
+        .build());
+  }
+
+  private static ConsumedCapacity putWithCapacity(DynamoDbClient ddbClient, Map<String, AttributeValue> item) {
+    return ddbClient.putItem(PutItemRequest.builder()
+        .tableName(SPARSE_TABLE_NAME)
+        .item(item)
+        .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+        .build()).consumedCapacity();
+  }
+
+  private static QueryResponse queryStatus(DynamoDbClient ddbClient, String status) {
+    return ddbClient.query(QueryRequest.builder()
+        .tableName(SPARSE_TABLE_NAME)
+        .indexName(SPARSE_GSI_NAME)
+        .keyConditionExpression("#status = :status")
+        .expressionAttributeNames(Map.of("#status", "Status"))
+        .expressionAttributeValues(Map.of(":status", s(status)))
+        .build());
+  }
+
+  private static Map<String, AttributeValue> sparseItem(String pk, String status) {
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("PK", s(pk));
+    item.put("Data", s("data"));
+    if (status != null) {
+      item.put("Status", s(status));
+    }
+    return item;
+  }
+
+  private static Map<String, AttributeValue> item(String pk, String sk) {
+    return Map.of("PK", s(pk), "SK", s(sk));
+  }
+
+  private static WriteRequest put(Map<String, AttributeValue> item) {
+    return WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build();
+  }
+
+  private static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+}
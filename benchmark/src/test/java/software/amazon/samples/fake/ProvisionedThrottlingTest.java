@@ -0,0 +1,95 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.fake;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProvisionedThrottlingTest {
+  private static final String TABLE_NAME = "MyTable";
+  private static final String INDEX_NAME = "MyGsi";
+  private static final String INDEX_CAPACITY_NAME = TABLE_NAME + "/index/" + INDEX_NAME;
+  private static final long HASH = 1L << 31;
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  @Test
+  void tableIsThrottledOnceItsCapacityIsConsumed() {
+    ProvisionedThrottling throttling = new ProvisionedThrottling(100, 10, nanos::get);
+
+    // A new table starts with one second of capacity, which a request may overdraw
+    assertTrue(throttling.admit(TABLE_NAME, HASH, 0, 15));
+    assertFalse(throttling.admit(TABLE_NAME, HASH, 0, 1));
+    // Reads have their own capacity
+    assertTrue(throttling.admit(TABLE_NAME, HASH, 50, 0));
+
+    // After one second, the debt of 5 units is paid back
+    advanceMillis(1000);
+    assertTrue(throttling.admit(TABLE_NAME, HASH, 0, 1));
+  }
+
+  @Test
+  void unusedCapacityIsKeptAsBurst() {
+    ProvisionedThrottling throttling = new ProvisionedThrottling(100, 10, nanos::get);
+    assertTrue(throttling.admit(TABLE_NAME, HASH, 0, 10));
+
+    // 60 seconds of unused capacity
+    advanceMillis(60_000);
+    for (int i = 0; i < 600; i++) {
+      assertTrue(throttling.admit(TABLE_NAME, HASH, 0, 1), "write " + i);
+    }
+    assertFalse(throttling.admit(TABLE_NAME, HASH, 0, 1));
+  }
+
+  @Test
+  void hotPartitionIsThrottledBeforeTheTable() {
+    // 5 partitions of 1000 write units per second
+    ProvisionedThrottling throttling = new ProvisionedThrottling(100, 5000, nanos::get);
+
+    assertTrue(throttling.admit(TABLE_NAME, HASH, 0, 1000));
+    assertFalse(throttling.admit(TABLE_NAME, HASH, 0, 1));
+    // Another partition, and a scan, still have capacity
+    assertTrue(throttling.admit(TABLE_NAME, 0, 0, 1000));
+    assertTrue(throttling.admit(TABLE_NAME, -1, 0, 1000));
+  }
+
+  @Test
+  void indexesShareTheCapacityOfTheirTableByDefault() {
+    ProvisionedThrottling throttling = new ProvisionedThrottling(10, 10, nanos::get);
+
+    // The write units of the index are charged to the table
+    assertTrue(throttling.admitWrite(TABLE_NAME, HASH, 5, Map.of(INDEX_NAME, 6.0)));
+    assertFalse(throttling.admit(TABLE_NAME, HASH, 0, 1));
+    // The reads of the index too
+    assertTrue(throttling.admit(INDEX_CAPACITY_NAME, HASH, 11, 0));
+    assertFalse(throttling.admit(TABLE_NAME, HASH, 1, 0));
+  }
+
+  @Test
+  void indexWithItsOwnCapacityThrottlesTheWritesOfItsTable() {
+    ProvisionedThrottling throttling = new ProvisionedThrottling(10, 10, nanos::get).index(INDEX_NAME, 10, 2);
+
+    assertTrue(throttling.admitWrite(TABLE_NAME, HASH, 1, Map.of(INDEX_NAME, 3.0)));
+    // The index has no write capacity left: the write is throttled and consumes nothing
+    assertFalse(throttling.admitWrite(TABLE_NAME, HASH, 8, Map.of(INDEX_NAME, 1.0)));
+    assertTrue(throttling.admit(TABLE_NAME, HASH, 0, 9));
+    // A write that does not change the index is not throttled by it
+    advanceMillis(1000);
+    assertTrue(throttling.admitWrite(TABLE_NAME, HASH, 1, Map.of(INDEX_NAME, 0.0)));
+    // The reads of the index use its own capacity, 20 units after the first second
+    assertTrue(throttling.admit(INDEX_CAPACITY_NAME, HASH, 21, 0));
+    assertFalse(throttling.admit(INDEX_CAPACITY_NAME, HASH, 1, 0));
+    assertTrue(throttling.admit(TABLE_NAME, HASH, 1, 0));
+  }
+
+  private void advanceMillis(long millis) {
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+}
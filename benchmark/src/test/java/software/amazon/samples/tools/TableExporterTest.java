@@ -0,0 +1,135 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.samples.fake.InMemoryDynamoDbClient;
+import software.amazon.samples.fake.SampleTables;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// In the benchmark module, whose in-memory DynamoDB serves the scans of the exporter
+class TableExporterTest {
+  private static final String TABLE_NAME = "MyTable";
+  private static final int ITEMS = 1000;
+  private static final int SEGMENTS = 4;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void resumedExportHasEveryItemOnce() throws Exception {
+    DynamoDbClient ddbClient = table();
+    // 10 items per page, and the 30th page fails: each segment has about 25 pages
+    FailingScans failing = new FailingScans(ddbClient, 30);
+
+    assertThrows(IllegalStateException.class, () -> exporter(failing, true).export(60));
+    exporter(new FailingScans(ddbClient, Integer.MAX_VALUE), true).export(60);
+
+    List<String> lines = lines(".ndjson.gz");
+    Set<String> keys = new HashSet<>(lines);
+    assertEquals(ITEMS, lines.size());
+    assertEquals(ITEMS, keys.size());
+  }
+
+  @Test
+  void resumeWithAnotherCompressionIsRejected() {
+    DynamoDbClient ddbClient = table();
+
+    assertThrows(IllegalStateException.class, () -> exporter(new FailingScans(ddbClient, 30), true).export(60));
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> exporter(new FailingScans(ddbClient, Integer.MAX_VALUE), false).export(60));
+    assertTrue(e.getMessage().endsWith("was written with --compression gzip"), e.getMessage());
+  }
+
+  private TableExporter exporter(DynamoDbClient ddbClient, boolean gzip) {
+    return new TableExporter(ddbClient, TABLE_NAME, directory, SEGMENTS, 2, 1, gzip, false);
+  }
+
+  private static DynamoDbClient table() {
+    DynamoDbClient ddbClient = InMemoryDynamoDbClient.create();
+    SampleTables.create(ddbClient, TABLE_NAME, false);
+    for (int i = 0; i < ITEMS; i++) {
+      ddbClient.putItem(PutItemRequest.builder()
+          .tableName(TABLE_NAME)
+          .item(Map.of(
+              "PK", AttributeValue.builder().s("pk#" + i).build(),
+              "SK", AttributeValue.builder().s("sk#" + i).build()))
+          .build());
+    }
+    return ddbClient;
+  }
+
+  private List<String> lines(String suffix) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(directory)) {
+      files = paths.filter(path -> path.toString().endsWith(suffix)).collect(Collectors.toList());
+    }
+    assertEquals(SEGMENTS, files.size());
+    List<String> lines = new ArrayList<>();
+    for (Path file : files) {
+      // A file of several gzip members is read as one stream
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+          new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+        reader.lines().forEach(lines::add);
+      }
+    }
+    return lines;
+  }
+
+  // Pages of 10 items, and a failure of the scan after a number of pages over all the segments
+  private static final class FailingScans implements DynamoDbClient {
+    private final DynamoDbClient ddbClient;
+    private final int failingScan;
+    private final AtomicInteger scans = new AtomicInteger();
+
+    FailingScans(DynamoDbClient ddbClient, int failingScan) {
+      this.ddbClient = ddbClient;
+      this.failingScan = failingScan;
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+      if (scans.incrementAndGet() == failingScan) {
+        throw DynamoDbException.builder().message("Scan failed").statusCode(500).build();
+      }
+      return ddbClient.scan(request.toBuilder().limit(10).build());
+    }
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+// Measures the initialization of a handler in a fresh JVM, like a Lambda cold start:
+// the time to load the handler class and run its constructor, and optionally the first invocation.
+// It only uses the handler through RequestHandler, so it can measure the jar of any version.
+// Output: jvmStartMillis initMillis firstInvocationMillis loadedClasses
+public class ColdStartProbe {
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws Exception {
+    String handlerClass = args.length > 0 ? args[0] : "software.amazon.samples.lambda.Handler";
+    boolean invoke = args.length > 1 && Boolean.parseBoolean(args[1]);
+    long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    long start = System.nanoTime();
+    RequestHandler<Map<String, String>, String> handler = (RequestHandler<Map<String, String>, String>)
+        Class.forName(handlerClass).getDeclaredConstructor().newInstance();
+    long initNanos = System.nanoTime() - start;
+
+    long invocationNanos = 0;
+    if (invoke) {
+      start = System.nanoTime();
+      handler.handleRequest(Map.of(), context());
+      invocationNanos = System.nanoTime() - start;
+    }
+    System.out.printf("%d %.1f %.1f %d%n", jvmStartMillis, initNanos / 1e6, invocationNanos / 1e6,
+        ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+  }
+
+  private static Context context() {
+    LambdaLogger logger = new LambdaLogger() {
+      @Override
+      public void log(String message) {
+      }
+
+      @Override
+      public void log(byte[] message) {
+      }
+    };
+    return (Context) Proxy.newProxyInstance(Context.class.getClassLoader(), new Class<?>[]{Context.class},
+        (proxy, method, methodArgs) -> {
+          switch (method.getName()) {
+            case "getLogger":
+              return logger;
+            case "getRemainingTimeInMillis":
+              return 30_000;
+            default:
+              return null;
+          }
+        });
+  }
+}
@@ -0,0 +1,44 @@
+#!/bin/bash
+# Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+# SPDX-License-Identifier: MIT-0
+#
+# Measures the cold start of the handler packaged in a jar, over a number of fresh JVMs.
+#
+# Usage: scripts/measure-init.sh <jar> [runs] [invoke]
+#
+# To compare before and after a change, build the jar of each version and run the script on both, e.g.:
+#   git stash && mvn -q package && cp target/lambda-1.0-jar-with-dependencies.jar /tmp/before.jar && git stash pop
+#   mvn -q package && cp target/lambda-1.0-jar-with-dependencies.jar /tmp/after.jar
+#   scripts/measure-init.sh /tmp/before.jar 20 && scripts/measure-init.sh /tmp/after.jar 20
+#
+# With invoke=true, the first invocation is also measured. Start a local DynamoDB-compatible server first,
+# e.g. DynamoDB Local on port 8000, and create the table: DYNAMODB_ENDPOINT is only used by the current version.
+# JAVA_OPTS is passed to the JVM, e.g. JAVA_OPTS="-XX:+TieredCompilation -XX:TieredStopAtLevel=1".
+set -euo pipefail
+
+JAR=${1:?Usage: measure-init.sh <jar> [runs] [invoke]}
+RUNS=${2:-10}
+INVOKE=${3:-false}
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+PROBE_DIR=$(mktemp -d)
+trap 'rm -rf "$PROBE_DIR"' EXIT
+
+javac -cp "$JAR" -d "$PROBE_DIR" "$SCRIPT_DIR/ColdStartProbe.java"
+
+export AWS_REGION=${AWS_REGION:-eu-west-1}
+export TABLE_NAME=${TABLE_NAME:-OnDemandStackMyTable}
+export AWS_ACCESS_KEY_ID=${AWS_ACCESS_KEY_ID:-local}
+export AWS_SECRET_ACCESS_KEY=${AWS_SECRET_ACCESS_KEY:-local}
+export DYNAMODB_ENDPOINT=${DYNAMODB_ENDPOINT:-http://localhost:8000}
+
+echo "jvm_ms init_ms first_invocation_ms loaded_classes"
+for _ in $(seq "$RUNS"); do
+  # shellcheck disable=SC2086
+  java ${JAVA_OPTS:-} -cp "$PROBE_DIR:$JAR" ColdStartProbe software.amazon.samples.lambda.Handler "$INVOKE"
+done | tee "$PROBE_DIR/results.txt"
+
+median() {
+  sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+echo "median init: $(awk '{ print $2 }' "$PROBE_DIR/results.txt" | median) ms," \
+  "median first invocation: $(awk '{ print $3 }' "$PROBE_DIR/results.txt" | median) ms over $RUNS runs"
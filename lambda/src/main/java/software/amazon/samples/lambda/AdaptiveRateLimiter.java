@@ -0,0 +1,135 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+// Token bucket of capacity units whose rate follows the throttling of the table: the rate is cut
+// by BETA on a throttled request, at most once per second since the concurrent requests sent at the
+// old rate are throttled together, and grows back by GROWTH per second without throttling, up
+// to maxRate. The rate only grows while the requests use it up: a rate that is not reached says
+// nothing about the capacity, and the clock keeps running while Lambda freezes the environment
+// between invocations, so an idle limiter would otherwise come back with no limit at all.
+// Like ReadCapacityBudget, the capacity consumed by a request is only known after it completes,
+// so the bucket may be overdrawn by one request and the following ones wait until the
+// debt is paid back. Without any rate yet, the requests are not limited until the first throttle,
+// which sets the rate from the capacity consumed in the last second.
+final class AdaptiveRateLimiter {
+  static final double BETA = 0.7;
+  static final double GROWTH = 0.1;
+  static final double MIN_RATE = 1;
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final double maxRate;
+  private double rate;
+  private double tokens;
+  private long lastRefillNanos = System.nanoTime();
+  // Capacity consumed in the current and the previous second, to set the first rate
+  private long windowStartNanos = lastRefillNanos;
+  private double windowUnits;
+  private double lastWindowUnits;
+  private long throttles;
+  private long lastCutNanos = Long.MIN_VALUE;
+  // True if a request found no token since the last refill
+  private boolean limited;
+
+  // A rate or a maxRate of 0 means none is known
+  AdaptiveRateLimiter(double initialRate, double maxRate) {
+    this.maxRate = maxRate;
+    this.rate = initialRate > 0 ? initialRate : Math.max(maxRate, 0);
+    this.tokens = rate;
+  }
+
+  void acquire() throws InterruptedException {
+    long waitMillis;
+    while ((waitMillis = delayMillis()) > 0) {
+      Thread.sleep(waitMillis);
+    }
+  }
+
+  // How long to wait before the next request, 0 if it can be sent now
+  long delayMillis() {
+    return delayMillis(System.nanoTime());
+  }
+
+  synchronized long delayMillis(long now) {
+    if (rate <= 0) {
+      return 0;
+    }
+    refill(now);
+    if (tokens > 0) {
+      return 0;
+    }
+    limited = true;
+    return Math.max((long) Math.ceil(-tokens * 1000 / rate), 1);
+  }
+
+  void consume(double capacityUnits) {
+    consume(capacityUnits, System.nanoTime());
+  }
+
+  synchronized void consume(double capacityUnits, long now) {
+    measure(now, capacityUnits);
+    if (rate <= 0) {
+      return;
+    }
+    refill(now);
+    tokens -= capacityUnits;
+    if (tokens <= 0) {
+      limited = true;
+    }
+  }
+
+  void onThrottle() {
+    onThrottle(System.nanoTime());
+  }
+
+  synchronized void onThrottle(long now) {
+    throttles++;
+    measure(now, 0);
+    refill(now);
+    if (lastCutNanos != Long.MIN_VALUE && now - lastCutNanos < NANOS_PER_SECOND) {
+      return;
+    }
+    lastCutNanos = now;
+    double current = rate > 0 ? rate : Math.max(lastWindowUnits, windowUnits);
+    rate = Math.max(MIN_RATE, current * BETA);
+    tokens = Math.min(tokens, 0);
+  }
+
+  // Current rate in capacity units per second, 0 if not limited yet
+  synchronized double rate() {
+    return rate;
+  }
+
+  // Throttled requests since the last call
+  synchronized long takeThrottles() {
+    long count = throttles;
+    throttles = 0;
+    return count;
+  }
+
+  private void refill(long now) {
+    if (rate <= 0) {
+      lastRefillNanos = now;
+      return;
+    }
+    double elapsedSeconds = (double) (now - lastRefillNanos) / NANOS_PER_SECOND;
+    lastRefillNanos = now;
+    if (limited) {
+      // At most one second of growth: the requests may have stopped right after running out of tokens
+      double ceiling = maxRate > 0 ? maxRate : Double.MAX_VALUE;
+      rate = Math.min(ceiling, rate + Math.max(MIN_RATE, rate * GROWTH) * Math.min(elapsedSeconds, 1));
+    }
+    tokens = Math.min(rate, tokens + elapsedSeconds * rate);
+    limited = tokens <= 0;
+  }
+
+  private void measure(long now, double capacityUnits) {
+    if (now - windowStartNanos >= NANOS_PER_SECOND) {
+      lastWindowUnits = now - windowStartNanos < 2 * NANOS_PER_SECOND ? windowUnits : 0;
+      windowUnits = 0;
+      windowStartNanos = now;
+    }
+    windowUnits += capacityUnits;
+  }
+}
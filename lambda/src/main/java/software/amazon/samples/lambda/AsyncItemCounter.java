@@ -0,0 +1,17 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Returns the number of items in a table without blocking the calling thread.
+public interface AsyncItemCounter {
+  CompletableFuture<Long> count(String tableName);
+
+  // Runs a blocking counter with the given executor, e.g. Runnable::run to count in the calling thread
+  static AsyncItemCounter of(ItemCounter counter, Executor executor) {
+    return tableName -> CompletableFuture.supplyAsync(() -> counter.count(tableName), executor);
+  }
+}
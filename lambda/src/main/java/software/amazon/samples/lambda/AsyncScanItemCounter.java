@@ -0,0 +1,58 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Same parallel scan as ScanItemCounter, on the asynchronous client: all the segments are
+// in flight at the same time without holding a thread each.
+public class AsyncScanItemCounter implements AsyncItemCounter {
+  private final DynamoDbAsyncClient ddbClient;
+  private final int totalSegments;
+  private final String indexName;
+  private final ReadCapacityBudget budget;
+
+  public AsyncScanItemCounter(DynamoDbAsyncClient ddbClient, int totalSegments, String indexName, double maxRcuPerSecond) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be at least 1: " + totalSegments);
+    }
+    this.ddbClient = ddbClient;
+    this.totalSegments = totalSegments;
+    this.indexName = indexName;
+    this.budget = new ReadCapacityBudget(maxRcuPerSecond);
+  }
+
+  @Override
+  public CompletableFuture<Long> count(String tableName) {
+    CompletableFuture<Long> count = CompletableFuture.completedFuture(0L);
+    for (int segment = 0; segment < totalSegments; segment++) {
+      count = count.thenCombine(countSegment(tableName, segment, null, 0), Long::sum);
+    }
+    return count;
+  }
+
+  private CompletableFuture<Long> countSegment(String tableName, int segment,
+                                               Map<String, AttributeValue> exclusiveStartKey, long count) {
+    long delayMillis = budget.delayMillis();
+    if (delayMillis > 0) {
+      return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS))
+          .thenCompose(ignored -> countSegment(tableName, segment, exclusiveStartKey, count));
+    }
+    return ddbClient.scan(ScanItemCounter.countRequest(tableName, indexName, segment, totalSegments, exclusiveStartKey))
+        .thenCompose(response -> {
+          if (response.consumedCapacity() != null) {
+            budget.consume(response.consumedCapacity().capacityUnits());
+          }
+          long total = count + response.count();
+          return response.hasLastEvaluatedKey()
+              ? countSegment(tableName, segment, response.lastEvaluatedKey(), total)
+              : CompletableFuture.completedFuture(total);
+        });
+  }
+}
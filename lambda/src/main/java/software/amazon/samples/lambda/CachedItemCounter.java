@@ -0,0 +1,69 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Keeps the last count of each table for a given time to live. The cache lives as long as
+// the execution environment, so warm invocations within the TTL do not call DynamoDB.
+public class CachedItemCounter {
+  private final AsyncItemCounter delegate;
+  private final long ttlMillis;
+  private final LongSupplier clock;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  public CachedItemCounter(AsyncItemCounter delegate, long ttlMillis) {
+    this(delegate, ttlMillis, System::currentTimeMillis);
+  }
+
+  CachedItemCounter(AsyncItemCounter delegate, long ttlMillis, LongSupplier clock) {
+    this.delegate = delegate;
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+  }
+
+  public CompletableFuture<ItemCount> count(String tableName) {
+    long now = clock.getAsLong();
+    Entry entry = entries.get(tableName);
+    if (entry != null && now - entry.countedAt < ttlMillis) {
+      return CompletableFuture.completedFuture(new ItemCount(entry.count, now - entry.countedAt));
+    }
+    return delegate.count(tableName).thenApply(count -> {
+      entries.put(tableName, new Entry(count, now));
+      return new ItemCount(count, 0);
+    });
+  }
+
+  private static final class Entry {
+    private final long count;
+    private final long countedAt;
+
+    private Entry(long count, long countedAt) {
+      this.count = count;
+      this.countedAt = countedAt;
+    }
+  }
+
+  // Count of items, and how long ago it was read from DynamoDB
+  public static final class ItemCount {
+    private final long count;
+    private final long ageMillis;
+
+    ItemCount(long count, long ageMillis) {
+      this.count = count;
+      this.ageMillis = ageMillis;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getAgeMillis() {
+      return ageMillis;
+    }
+  }
+}
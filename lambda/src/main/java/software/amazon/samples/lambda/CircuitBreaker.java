@@ -0,0 +1,103 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import java.util.Arrays;
+
+// Circuit breaker over the last calls to a region: it opens when the share of failed calls
+// reaches failureRate, so the calls are sent elsewhere without waiting for the region, then after
+// openMillis lets one trial call through, which closes it again if it succeeds.
+final class CircuitBreaker {
+  enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final boolean[] failures;
+  private final int minCalls;
+  private final double failureRate;
+  private final long openMillis;
+  private State state = State.CLOSED;
+  private int calls;
+  private int next;
+  private int failureCount;
+  private long openUntilMillis;
+  private boolean trialInFlight;
+
+  CircuitBreaker(int windowCalls, int minCalls, double failureRate, long openMillis) {
+    if (minCalls < 1 || minCalls > windowCalls || failureRate <= 0 || failureRate > 1) {
+      throw new IllegalArgumentException("Invalid circuit breaker settings: " + windowCalls + ", " + minCalls + ", "
+          + failureRate);
+    }
+    this.failures = new boolean[windowCalls];
+    this.minCalls = minCalls;
+    this.failureRate = failureRate;
+    this.openMillis = openMillis;
+  }
+
+  synchronized State state() {
+    return state;
+  }
+
+  // False while the breaker is open, or half open with its trial call in flight
+  synchronized boolean allowRequest(long nowMillis) {
+    switch (state) {
+      case OPEN:
+        if (nowMillis < openUntilMillis) {
+          return false;
+        }
+        state = State.HALF_OPEN;
+        trialInFlight = true;
+        return true;
+      case HALF_OPEN:
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+      case CLOSED:
+      default:
+        return true;
+    }
+  }
+
+  synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      close();
+    } else {
+      record(false);
+    }
+  }
+
+  // Returns true if this failure opens the breaker
+  synchronized boolean onFailure(long nowMillis) {
+    if (state == State.HALF_OPEN || (state == State.CLOSED && record(true))) {
+      state = State.OPEN;
+      openUntilMillis = nowMillis + openMillis;
+      trialInFlight = false;
+      return true;
+    }
+    return false;
+  }
+
+  // Records a call in the window, returns true if the failure rate is reached
+  private boolean record(boolean failure) {
+    if (calls == failures.length && failures[next]) {
+      failureCount--;
+    }
+    failures[next] = failure;
+    if (failure) {
+      failureCount++;
+    }
+    next = (next + 1) % failures.length;
+    calls = Math.min(calls + 1, failures.length);
+    return calls >= minCalls && failureCount >= failureRate * calls;
+  }
+
+  private void close() {
+    state = State.CLOSED;
+    trialInFlight = false;
+    calls = 0;
+    next = 0;
+    failureCount = 0;
+    Arrays.fill(failures, false);
+  }
+}
@@ -0,0 +1,62 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Reads the count maintained by StreamCounterHandler: the sum of the counter shards of all
+// the regions, read with BatchGetItem instead of scanning the table.
+public class CounterItemCounter implements ItemCounter {
+  static final int DEFAULT_SHARDS = 10;
+
+  private final DynamoDbClient ddbClient;
+  private final List<String> regions;
+  private final int shards;
+
+  public CounterItemCounter(DynamoDbClient ddbClient, List<String> regions, int shards) {
+    this.ddbClient = ddbClient;
+    this.regions = regions;
+    this.shards = shards;
+  }
+
+  @Override
+  public long count(String tableName) {
+    List<Map<String, AttributeValue>> keys = new ArrayList<>(regions.size() * shards);
+    for (String region : regions) {
+      for (int shard = 0; shard < shards; shard++) {
+        keys.add(ShardedCounter.key(region, shard));
+      }
+    }
+    long count = 0;
+    // BatchGetItem accepts up to 100 keys
+    for (int from = 0; from < keys.size(); from += 100) {
+      Map<String, KeysAndAttributes> requestItems = Map.of(tableName, KeysAndAttributes.builder()
+          .keys(keys.subList(from, Math.min(from + 100, keys.size())))
+          .projectionExpression("#count")
+          .expressionAttributeNames(Map.of("#count", ShardedCounter.COUNT_ATTRIBUTE))
+          .build());
+      while (!requestItems.isEmpty()) {
+        BatchGetItemResponse response = ddbClient.batchGetItem(BatchGetItemRequest.builder()
+            .requestItems(requestItems)
+            .build());
+        for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+          AttributeValue value = item.get(ShardedCounter.COUNT_ATTRIBUTE);
+          if (value != null) {
+            count += Long.parseLong(value.n());
+          }
+        }
+        requestItems = response.unprocessedKeys();
+      }
+    }
+    return count;
+  }
+}
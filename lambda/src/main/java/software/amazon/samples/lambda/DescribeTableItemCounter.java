@@ -0,0 +1,24 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+
+// Approximate count of items from the table metadata. It costs one DescribeTable call
+// whatever the size of the table, and does not consume any read capacity.
+public class DescribeTableItemCounter implements ItemCounter {
+  private final DynamoDbClient ddbClient;
+
+  public DescribeTableItemCounter(DynamoDbClient ddbClient) {
+    this.ddbClient = ddbClient;
+  }
+
+  @Override
+  public long count(String tableName) {
+    return ddbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+        .table()
+        .itemCount();
+  }
+}
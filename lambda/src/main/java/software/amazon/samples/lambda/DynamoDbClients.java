@@ -0,0 +1,105 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+import java.net.URI;
+import java.time.Duration;
+
+// Builds the clients with everything the SDK would otherwise discover at startup:
+// the region, the credentials provider and the HTTP client are given explicitly, which
+// avoids walking the default provider chains and loading the Apache HTTP client.
+final class DynamoDbClients {
+  // Optional endpoint of a local DynamoDB-compatible server, to run the handler locally
+  static final String ENV_DYNAMODB_ENDPOINT = "DYNAMODB_ENDPOINT";
+  // Set by Lambda instead of the credentials themselves for the functions with SnapStart
+  private static final String ENV_CONTAINER_CREDENTIALS_FULL_URI = "AWS_CONTAINER_CREDENTIALS_FULL_URI";
+  // Upper bound of the backoff before the single retry of the failover clients
+  private static final long FAILOVER_BACKOFF_MILLIS = 200;
+
+  private DynamoDbClients() {
+  }
+
+  static DynamoDbClient create(String region) {
+    return create(region, true);
+  }
+
+  // Without retries on throttling, for the clients whose caller retries the throttled requests itself
+  static DynamoDbClient create(String region, boolean retryThrottling) {
+    DynamoDbClientBuilder builder = builder(region);
+    if (!retryThrottling) {
+      RetryCondition defaultCondition = RetryCondition.defaultRetryCondition();
+      builder.overrideConfiguration(configuration -> configuration.retryPolicy(RetryPolicy.builder()
+          .retryCondition(context -> !isThrottling(context.exception()) && defaultCondition.shouldRetry(context))
+          .build()));
+    }
+    return builder.build();
+  }
+
+  // For the writes of WriteFailover: an attempt slower than attemptTimeout fails with an
+  // ApiCallAttemptTimeoutException, and the SDK retries once at most, so a region in a brownout fails
+  // the write in a bounded time, long before the function times out, and the next region is tried
+  static DynamoDbClient createForFailover(String region, Duration attemptTimeout) {
+    DynamoDbClientBuilder builder = builder(region);
+    builder.overrideConfiguration(configuration -> configuration
+        .apiCallAttemptTimeout(attemptTimeout)
+        .apiCallTimeout(attemptTimeout.multipliedBy(2).plusMillis(FAILOVER_BACKOFF_MILLIS))
+        .retryPolicy(RetryPolicy.builder().numRetries(1).build()));
+    return builder.build();
+  }
+
+  private static DynamoDbClientBuilder builder(String region) {
+    DynamoDbClientBuilder builder = DynamoDbClient.builder()
+        .region(Region.of(region))
+        .credentialsProvider(credentialsProvider())
+        .httpClient(UrlConnectionHttpClient.create());
+    String endpoint = Env.string(ENV_DYNAMODB_ENDPOINT, null);
+    if (endpoint != null) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    return builder;
+  }
+
+  // Lambda sets the credentials of the function role in the environment variables, or, with
+  // SnapStart, serves them from a local endpoint so that a restored snapshot does not reuse them
+  private static AwsCredentialsProvider credentialsProvider() {
+    if (Env.string(ENV_CONTAINER_CREDENTIALS_FULL_URI, null) != null) {
+      return ContainerCredentialsProvider.builder().build();
+    }
+    return EnvironmentVariableCredentialsProvider.create();
+  }
+
+  private static boolean isThrottling(SdkException e) {
+    return e instanceof ProvisionedThroughputExceededException || e instanceof RequestLimitExceededException
+        || (e instanceof AwsServiceException && ((AwsServiceException) e).isThrottlingException());
+  }
+
+  static DynamoDbAsyncClient createAsync(String region) {
+    DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder()
+        .region(Region.of(region))
+        .credentialsProvider(credentialsProvider())
+        .httpClientBuilder(NettyNioAsyncHttpClient.builder());
+    String endpoint = Env.string(ENV_DYNAMODB_ENDPOINT, null);
+    if (endpoint != null) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    return builder.build();
+  }
+}
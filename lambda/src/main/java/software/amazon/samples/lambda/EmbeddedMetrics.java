@@ -0,0 +1,98 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Log line in the CloudWatch embedded metric format: CloudWatch Logs extracts the metrics from
+// the log of the function, so they are published without any call to CloudWatch.
+// https://docs.aws.amazon.com/AmazonCloudWatch/latest/monitoring/CloudWatch_Embedded_Metric_Format_Specification.html
+final class EmbeddedMetrics {
+  static final String NAMESPACE = "DynamoDbMigration";
+  // Maximum number of values of a metric in a single log line
+  static final int MAX_VALUES = 100;
+
+  private final Map<String, String> dimensions = new LinkedHashMap<>();
+  // A number, or a list of numbers for the metrics with several samples
+  private final Map<String, Object> values = new LinkedHashMap<>();
+  private final Map<String, String> units = new LinkedHashMap<>();
+
+  EmbeddedMetrics dimension(String name, String value) {
+    dimensions.put(name, value);
+    return this;
+  }
+
+  EmbeddedMetrics milliseconds(String name, long value) {
+    return metric(name, value, "Milliseconds");
+  }
+
+  // Every sample is a value of the metric, so CloudWatch computes the percentiles over all of them
+  EmbeddedMetrics milliseconds(String name, List<Long> values) {
+    if (values.size() > MAX_VALUES) {
+      throw new IllegalArgumentException(name + " has " + values.size() + " values, at most " + MAX_VALUES + " allowed");
+    }
+    return metric(name, List.copyOf(values), "Milliseconds");
+  }
+
+  EmbeddedMetrics count(String name, long value) {
+    return metric(name, value, "Count");
+  }
+
+  EmbeddedMetrics perSecond(String name, double value) {
+    return metric(name, value, "Count/Second");
+  }
+
+  // Capacity units are counted, with fractions for the transactional and eventually consistent units
+  EmbeddedMetrics capacityUnits(String name, double value) {
+    return metric(name, value, "Count");
+  }
+
+  EmbeddedMetrics ratio(String name, double value) {
+    return metric(name, value, "None");
+  }
+
+  String toJson(long timestampMillis) {
+    StringBuilder json = new StringBuilder(256)
+        .append("{\"_aws\":{\"Timestamp\":").append(timestampMillis)
+        .append(",\"CloudWatchMetrics\":[{\"Namespace\":\"").append(NAMESPACE).append("\",\"Dimensions\":[[");
+    String separator = "";
+    for (String name : dimensions.keySet()) {
+      json.append(separator).append('"').append(name).append('"');
+      separator = ",";
+    }
+    json.append("]],\"Metrics\":[");
+    separator = "";
+    for (Map.Entry<String, String> unit : units.entrySet()) {
+      json.append(separator).append("{\"Name\":\"").append(unit.getKey())
+          .append("\",\"Unit\":\"").append(unit.getValue()).append("\"}");
+      separator = ",";
+    }
+    json.append("]}]}");
+    // Names and values are region names and metric names, which need no escaping
+    dimensions.forEach((name, value) -> json.append(",\"").append(name).append("\":\"").append(value).append('"'));
+    for (Map.Entry<String, Object> value : values.entrySet()) {
+      json.append(",\"").append(value.getKey()).append("\":");
+      if (value.getValue() instanceof List) {
+        json.append('[');
+        separator = "";
+        for (Object sample : (List<?>) value.getValue()) {
+          json.append(separator).append(sample);
+          separator = ",";
+        }
+        json.append(']');
+      } else {
+        json.append(value.getValue());
+      }
+    }
+    return json.append('}').toString();
+  }
+
+  private EmbeddedMetrics metric(String name, Object value, String unit) {
+    values.put(name, value);
+    units.put(name, unit);
+    return this;
+  }
+}
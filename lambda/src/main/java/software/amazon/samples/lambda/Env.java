@@ -0,0 +1,35 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+// Reads the optional settings of the function from its environment variables.
+final class Env {
+  private Env() {
+  }
+
+  static String string(String name, String defaultValue) {
+    String value = System.getenv(name);
+    return value == null || value.isBlank() ? defaultValue : value.trim();
+  }
+
+  static int intValue(String name, int defaultValue) {
+    String value = string(name, null);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  static long longValue(String name, long defaultValue) {
+    String value = string(name, null);
+    return value == null ? defaultValue : Long.parseLong(value);
+  }
+
+  static double doubleValue(String name, double defaultValue) {
+    String value = string(name, null);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+
+  static <E extends Enum<E>> E enumValue(String name, Class<E> type, E defaultValue) {
+    String value = string(name, null);
+    return value == null ? defaultValue : Enum.valueOf(type, value.toUpperCase());
+  }
+}
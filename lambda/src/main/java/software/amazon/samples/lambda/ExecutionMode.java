@@ -0,0 +1,11 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+public enum ExecutionMode {
+  // The item is added, and then the items are counted, with the blocking client
+  SYNC,
+  // The item is added while the items are counted, with the asynchronous client
+  ASYNC
+}
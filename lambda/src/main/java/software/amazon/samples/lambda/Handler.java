@@ -6,48 +6,321 @@ package software.amazon.samples.lambda;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.LambdaLogger;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 // This handler is for test purpose only.
 public class Handler implements RequestHandler<Map<String, String>, String> {
   private static final String ENV_TABLE_NAME = "TABLE_NAME";
-  private DynamoDbClient ddbClient = DynamoDbClient.builder()
-      .region(Region.of(System.getenv("AWS_REGION")))
-      .build();
+  private static final String ENV_EXECUTION_MODE = "EXECUTION_MODE";
+  private static final String ENV_PRIMING = "PRIMING";
+  // Optional settings used to count the items
+  private static final String ENV_COUNT_STRATEGY = "COUNT_STRATEGY";
+  private static final String ENV_COUNT_CACHE_TTL_SECONDS = "COUNT_CACHE_TTL_SECONDS";
+  private static final String ENV_COUNT_SEGMENTS = "COUNT_SEGMENTS";
+  private static final String ENV_COUNT_INDEX_NAME = "COUNT_INDEX_NAME";
+  private static final String ENV_COUNT_MAX_RCU_PER_SECOND = "COUNT_MAX_RCU_PER_SECOND";
+  private static final String ENV_COUNT_DEADLINE_MARGIN_MILLIS = "COUNT_DEADLINE_MARGIN_MILLIS";
+  private static final String ENV_COUNTER_REGIONS = "COUNTER_REGIONS";
+  private static final String ENV_COUNTER_SHARDS = "COUNTER_SHARDS";
+  // Optional settings of the keys of the new items
+  private static final String ENV_KEY_DESIGN = "KEY_DESIGN";
+  private static final String ENV_KEY_SHARDS = "KEY_SHARDS";
+  private static final String ENV_KEY_BUCKET_SECONDS = "KEY_BUCKET_SECONDS";
+  private static final String ENV_KEY_MAX_BUCKETS = "KEY_MAX_BUCKETS";
+  private static final String ENV_KEY_READ_CONCURRENCY = "KEY_READ_CONCURRENCY";
+  private static final String ENV_READ_REGIONS = "READ_REGIONS";
+  private static final String ENV_READ_HEDGING = "READ_HEDGING";
+  private static final String ENV_RATE_LIMIT = "RATE_LIMIT";
+  private static final String ENV_RATE_LIMIT_MAX_RCU = "RATE_LIMIT_MAX_RCU";
+  private static final String ENV_RATE_LIMIT_MAX_WCU = "RATE_LIMIT_MAX_WCU";
+  private static final String ENV_WRITE_FAILOVER_REGIONS = "WRITE_FAILOVER_REGIONS";
+  private static final String ENV_WRITE_MAX_ATTEMPTS = "WRITE_MAX_ATTEMPTS";
+  private static final String ENV_WRITE_SLOW_CALL_MILLIS = "WRITE_SLOW_CALL_MILLIS";
+  // Optional fields of the event, to read the items written in a time range instead of adding an item
+  private static final String EVENT_FROM = "from";
+  private static final String EVENT_TO = "to";
+  // Optional fields of the event, to count the items over several invocations instead of adding an item
+  private static final String EVENT_COUNT = "count";
+  private static final String EVENT_CONTINUATION_TOKEN = "continuationToken";
+  private static final int DEFAULT_COUNT_SEGMENTS = 4;
+  private static final int DEFAULT_KEY_SHARDS = 10;
+  private static final long DEFAULT_KEY_BUCKET_SECONDS = 3600;
+  private static final long DEFAULT_KEY_MAX_BUCKETS = 168;
+  private static final int DEFAULT_KEY_READ_CONCURRENCY = 16;
+  private static final long DEFAULT_COUNT_DEADLINE_MARGIN_MILLIS = 5000;
+  private static final int DEFAULT_WRITE_MAX_ATTEMPTS = 3;
+  private static final long DEFAULT_WRITE_SLOW_CALL_MILLIS = 1000;
+
+  private final ExecutionMode executionMode;
+  private final String region;
+  private final DynamoDbClient ddbClient;
+  private final DynamoDbAsyncClient ddbAsyncClient;
+  private final CachedItemCounter itemCounter;
+  private final ResumableScanItemCounter resumableItemCounter;
+  // Only set with KEY_DESIGN=SHARDED_TIME_BUCKET
+  private final TimeBucketKeys timeBucketKeys;
+  private final TimeRangeReader timeRangeReader;
+  // Only set with WRITE_FAILOVER_REGIONS
+  private final WriteFailover writeFailover;
+
+  public Handler() {
+    this(executionMode(), System.getenv("AWS_REGION"));
+    if (Boolean.parseBoolean(Env.string(ENV_PRIMING, "false"))) {
+      prime(System.getenv(ENV_TABLE_NAME));
+    }
+  }
+
+  private Handler(ExecutionMode executionMode, String region) {
+    this(executionMode, region, createClient(region),
+        // Only created in ASYNC mode, so the Netty client is not loaded otherwise
+        executionMode == ExecutionMode.ASYNC ? DynamoDbClients.createAsync(region) : null,
+        Env.enumValue(ENV_COUNT_STRATEGY, ItemCountStrategy.class, ItemCountStrategy.EXACT));
+  }
+
+  // In ASYNC mode, the put and the count of each invocation go through the async client, which READ_REGIONS
+  // does not route, except for the COUNTER strategy: the combination is rejected instead of ignored
+  private static ExecutionMode executionMode() {
+    ExecutionMode executionMode = Env.enumValue(ENV_EXECUTION_MODE, ExecutionMode.class, ExecutionMode.SYNC);
+    if (executionMode == ExecutionMode.ASYNC && Env.string(ENV_READ_REGIONS, null) != null
+        && Env.enumValue(ENV_COUNT_STRATEGY, ItemCountStrategy.class, ItemCountStrategy.EXACT) != ItemCountStrategy.COUNTER) {
+      throw new IllegalArgumentException(ENV_READ_REGIONS + " requires " + ENV_EXECUTION_MODE + "=" + ExecutionMode.SYNC
+          + " or " + ENV_COUNT_STRATEGY + "=" + ItemCountStrategy.COUNTER);
+    }
+    return executionMode;
+  }
+
+  // Used by the benchmarks to run the handler with clients of a local endpoint
+  Handler(ExecutionMode executionMode, String region, DynamoDbClient ddbClient, DynamoDbAsyncClient ddbAsyncClient,
+          ItemCountStrategy countStrategy) {
+    this.executionMode = executionMode;
+    this.region = region;
+    this.ddbClient = ddbClient;
+    this.ddbAsyncClient = ddbAsyncClient;
+    this.itemCounter = new CachedItemCounter(createItemCounter(countStrategy),
+        TimeUnit.SECONDS.toMillis(Env.longValue(ENV_COUNT_CACHE_TTL_SECONDS, 0)));
+    this.resumableItemCounter = new ResumableScanItemCounter(ddbClient,
+        Env.doubleValue(ENV_COUNT_MAX_RCU_PER_SECOND, 0),
+        Env.longValue(ENV_COUNT_DEADLINE_MARGIN_MILLIS, DEFAULT_COUNT_DEADLINE_MARGIN_MILLIS));
+    if (Env.enumValue(ENV_KEY_DESIGN, KeyDesign.class, KeyDesign.TIMESTAMP) == KeyDesign.SHARDED_TIME_BUCKET) {
+      this.timeBucketKeys = new TimeBucketKeys(
+          TimeUnit.SECONDS.toMillis(Env.longValue(ENV_KEY_BUCKET_SECONDS, DEFAULT_KEY_BUCKET_SECONDS)),
+          Env.intValue(ENV_KEY_SHARDS, DEFAULT_KEY_SHARDS),
+          Env.longValue(ENV_KEY_MAX_BUCKETS, DEFAULT_KEY_MAX_BUCKETS));
+      this.timeRangeReader = new TimeRangeReader(ddbClient, timeBucketKeys,
+          Env.intValue(ENV_KEY_READ_CONCURRENCY, DEFAULT_KEY_READ_CONCURRENCY));
+    } else {
+      this.timeBucketKeys = null;
+      this.timeRangeReader = null;
+    }
+    this.writeFailover = createWriteFailover(region);
+  }
+
+  // Client of the home region, or a client that routes the reads to the fastest region of READ_REGIONS,
+  // paced by adaptive rate limiters with RATE_LIMIT=true
+  private static DynamoDbClient createClient(String region) {
+    boolean rateLimit = Boolean.parseBoolean(Env.string(ENV_RATE_LIMIT, "false"));
+    DynamoDbClient client = createRoutingClient(region, !rateLimit);
+    if (!rateLimit) {
+      return client;
+    }
+    RateLimitedClient rateLimitedClient = new RateLimitedClient(client,
+        Env.doubleValue(ENV_RATE_LIMIT_MAX_RCU, 0), Env.doubleValue(ENV_RATE_LIMIT_MAX_WCU, 0));
+    rateLimitedClient.configure(System.getenv(ENV_TABLE_NAME));
+    return rateLimitedClient;
+  }
+
+  private static DynamoDbClient createRoutingClient(String region, boolean retryThrottling) {
+    String readRegions = Env.string(ENV_READ_REGIONS, null);
+    if (readRegions == null) {
+      return DynamoDbClients.create(region, retryThrottling);
+    }
+    Map<String, DynamoDbClient> clients = new LinkedHashMap<>();
+    clients.put(region, DynamoDbClients.create(region, retryThrottling));
+    for (String readRegion : readRegions.split(",")) {
+      clients.computeIfAbsent(readRegion.trim(), name -> DynamoDbClients.create(name, retryThrottling));
+    }
+    ReadRoutingClient client = new ReadRoutingClient(region, clients,
+        Boolean.parseBoolean(Env.string(ENV_READ_HEDGING, "false")));
+    client.warmUp(System.getenv(ENV_TABLE_NAME));
+    return client;
+  }
+
+  // Writes to the home region, or to the regions of WRITE_FAILOVER_REGIONS in order when its circuit breaker is open.
+  // Every region has its own client, the home region too: the attempts time out after WRITE_SLOW_CALL_MILLIS
+  // and are retried once at most, so the writes do not go through the rate limiter of RATE_LIMIT=true.
+  private static WriteFailover createWriteFailover(String region) {
+    String failoverRegions = Env.string(ENV_WRITE_FAILOVER_REGIONS, null);
+    if (failoverRegions == null) {
+      return null;
+    }
+    Duration attemptTimeout = Duration.ofMillis(
+        Env.longValue(ENV_WRITE_SLOW_CALL_MILLIS, DEFAULT_WRITE_SLOW_CALL_MILLIS));
+    Map<String, DynamoDbClient> clients = new LinkedHashMap<>();
+    clients.put(region, DynamoDbClients.createForFailover(region, attemptTimeout));
+    for (String failoverRegion : failoverRegions.split(",")) {
+      clients.computeIfAbsent(failoverRegion.trim(), name -> DynamoDbClients.createForFailover(name, attemptTimeout));
+    }
+    return new WriteFailover(clients, Env.intValue(ENV_WRITE_MAX_ATTEMPTS, DEFAULT_WRITE_MAX_ATTEMPTS),
+        attemptTimeout.toMillis());
+  }
 
   public String handleRequest(Map<String, String> event, Context context) {
     LambdaLogger logger = context.getLogger();
     String response = "200 OK";
     String tableName = System.getenv(ENV_TABLE_NAME);
+    if (event != null && event.containsKey(EVENT_FROM)) {
+      countTimeRange(tableName, event, logger);
+      return response;
+    }
+    if (event != null && (event.containsKey(EVENT_COUNT) || event.containsKey(EVENT_CONTINUATION_TOKEN))) {
+      return resumeCount(tableName, event, context);
+    }
     logger.log("*** Adding new item to " + tableName + " table.\n");
-    addItem(tableName);
-    Integer count = countItems(tableName);
-    logger.log("*** There are " + count + " item(s) in " + tableName + " table.\n");
+    // In ASYNC mode, the put and the count are in flight at the same time, so the count may not include the new item
+    CompletableFuture<?> put = addItem(tableName);
+    CachedItemCounter.ItemCount count = countItems(tableName)
+        .thenCombine(put, (itemCount, ignored) -> itemCount)
+        .join();
+    logger.log("*** There are " + count.getCount() + " item(s) in " + tableName + " table"
+        + " (counted " + count.getAgeMillis() + " ms ago).\n");
+    if (writeFailover != null) {
+      writeFailover.publish(logger);
+    }
+    if (ddbClient instanceof RateLimitedClient) {
+      ((RateLimitedClient) ddbClient).publish(logger);
+    }
     return response;
   }
 
-  private void addItem(String tableName) {
+  // In SYNC mode, the item is written when this method returns. The write failover only applies to the SYNC mode.
+  CompletableFuture<?> addItem(String tableName) {
+    if (executionMode == ExecutionMode.ASYNC) {
+      return ddbAsyncClient.putItem(putItemRequest(tableName));
+    }
+    if (writeFailover != null) {
+      writeFailover.putItem(putItemRequest(tableName));
+    } else {
+      ddbClient.putItem(putItemRequest(tableName));
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
+  CompletableFuture<CachedItemCounter.ItemCount> countItems(String tableName) {
+    return itemCounter.count(tableName);
+  }
+
+  // Event {"from": "2023-03-01T10:00:00Z", "to": "2023-03-01T11:00:00Z"}, "to" defaults to now.
+  // Only the number of items is logged, so the items are counted instead of read.
+  private void countTimeRange(String tableName, Map<String, String> event, LambdaLogger logger) {
+    if (timeRangeReader == null) {
+      throw new IllegalStateException("Reading a time range requires " + ENV_KEY_DESIGN + "=" + KeyDesign.SHARDED_TIME_BUCKET);
+    }
+    long from = Instant.parse(event.get(EVENT_FROM)).toEpochMilli();
+    long to = event.containsKey(EVENT_TO) ? Instant.parse(event.get(EVENT_TO)).toEpochMilli() : System.currentTimeMillis();
+    long count = timeRangeReader.count(tableName, from, to);
+    logger.log("*** Counted " + count + " item(s) written between " + Instant.ofEpochMilli(from)
+        + " and " + Instant.ofEpochMilli(to) + " in " + tableName + " table.\n");
+  }
+
+  // Event {"count": ""} starts a count, {"continuationToken": "..."} resumes it. Returns 200 OK once the
+  // count is complete, or the continuation token to send in the next event.
+  private String resumeCount(String tableName, Map<String, String> event, Context context) {
+    LambdaLogger logger = context.getLogger();
+    ScanContinuation continuation = event.containsKey(EVENT_CONTINUATION_TOKEN)
+        ? ScanContinuation.fromToken(event.get(EVENT_CONTINUATION_TOKEN), tableName)
+        : ScanContinuation.start(tableName, Env.string(ENV_COUNT_INDEX_NAME, null),
+            Env.intValue(ENV_COUNT_SEGMENTS, DEFAULT_COUNT_SEGMENTS));
+    resumableItemCounter.count(tableName, continuation, context::getRemainingTimeInMillis);
+    if (continuation.isComplete()) {
+      logger.log("*** There are " + continuation.count() + " item(s) in " + tableName + " table.\n");
+      return "200 OK";
+    }
+    logger.log("*** Counted " + continuation.count() + " item(s) so far in " + tableName
+        + " table, the count continues with the returned token.\n");
+    return continuation.toToken();
+  }
+
+  // Sends a request during the initialization of the function, so the first invocation does not
+  // pay for loading and initializing the classes of the request path, the TLS handshake and the
+  // first connection. DescribeTable is used because it has no side effect on the table.
+  private void prime(String tableName) {
+    DescribeTableRequest request = DescribeTableRequest.builder().tableName(tableName).build();
+    try {
+      ddbClient.describeTable(request);
+      if (ddbAsyncClient != null) {
+        ddbAsyncClient.describeTable(request).join();
+      }
+    } catch (RuntimeException e) {
+      // Priming is best effort: the invocations report the errors
+    }
+  }
+
+  PutItemRequest putItemRequest(String tableName) {
     long now = System.currentTimeMillis();
-    AttributeValue partitionKeyAttr = AttributeValue.builder().s("pk#" + now).build();
-    AttributeValue sortKeyAttr = AttributeValue.builder().s("sk#" + now ).build();
     Map<String, AttributeValue> attribute = new HashMap<>();
-    attribute.put("PK", partitionKeyAttr);
-    attribute.put("SK", sortKeyAttr);
-    ddbClient.putItem(PutItemRequest.builder()
+    if (timeBucketKeys != null) {
+      attribute.putAll(timeBucketKeys.key(now));
+    } else {
+      AttributeValue partitionKeyAttr = AttributeValue.builder().s("pk#" + now).build();
+      AttributeValue sortKeyAttr = AttributeValue.builder().s("sk#" + now ).build();
+      attribute.put("PK", partitionKeyAttr);
+      attribute.put("SK", sortKeyAttr);
+    }
+    attribute.put(ShardedCounter.ORIGIN_REGION_ATTRIBUTE, AttributeValue.builder().s(region).build());
+    attribute.put(ShardedCounter.ORIGIN_TIME_ATTRIBUTE, AttributeValue.builder().n(Long.toString(now)).build());
+    return PutItemRequest.builder()
         .tableName(tableName)
         .item(attribute)
-        .build()
-    );
+        .build();
+  }
+
+  private AsyncItemCounter createItemCounter(ItemCountStrategy strategy) {
+    if (executionMode == ExecutionMode.ASYNC) {
+      switch (strategy) {
+        case APPROXIMATE:
+          return tableName -> ddbAsyncClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+              .thenApply(describeTable -> describeTable.table().itemCount());
+        case EXACT:
+          return new AsyncScanItemCounter(ddbAsyncClient,
+              Env.intValue(ENV_COUNT_SEGMENTS, DEFAULT_COUNT_SEGMENTS),
+              Env.string(ENV_COUNT_INDEX_NAME, null),
+              Env.doubleValue(ENV_COUNT_MAX_RCU_PER_SECOND, 0));
+        default:
+          // A single BatchGetItem call, run next to the put
+          return AsyncItemCounter.of(createBlockingItemCounter(strategy), ForkJoinPool.commonPool());
+      }
+    }
+    return AsyncItemCounter.of(createBlockingItemCounter(strategy), Runnable::run);
   }
 
-  private Integer countItems(String tableName) {
-    return ddbClient.scan(ScanRequest.builder().tableName(tableName).build()).count();
+  private ItemCounter createBlockingItemCounter(ItemCountStrategy strategy) {
+    switch (strategy) {
+      case APPROXIMATE:
+        return new DescribeTableItemCounter(ddbClient);
+      case COUNTER:
+        return new CounterItemCounter(ddbClient,
+            List.of(Env.string(ENV_COUNTER_REGIONS, region).split(",")),
+            Env.intValue(ENV_COUNTER_SHARDS, CounterItemCounter.DEFAULT_SHARDS));
+      case EXACT:
+      default:
+        return new ScanItemCounter(ddbClient,
+            Env.intValue(ENV_COUNT_SEGMENTS, DEFAULT_COUNT_SEGMENTS),
+            Env.string(ENV_COUNT_INDEX_NAME, null),
+            Env.doubleValue(ENV_COUNT_MAX_RCU_PER_SECOND, 0));
+    }
   }
-}
\ No newline at end of file
+}
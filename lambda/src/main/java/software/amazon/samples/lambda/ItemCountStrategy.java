@@ -0,0 +1,13 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+public enum ItemCountStrategy {
+  // ItemCount returned by DescribeTable, which DynamoDB updates approximately every six hours
+  APPROXIMATE,
+  // Parallel scan of the table or one of its indexes
+  EXACT,
+  // Counter items maintained from the table stream by StreamCounterHandler
+  COUNTER
+}
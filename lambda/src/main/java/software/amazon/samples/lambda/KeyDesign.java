@@ -0,0 +1,11 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+public enum KeyDesign {
+  // PK "pk#<time>" and SK "sk#<time>": the items written in the same millisecond overwrite each other
+  TIMESTAMP,
+  // PK "bucket#<bucket start>#<shard>" and SK "<time>#<random suffix>", see TimeBucketKeys
+  SHARDED_TIME_BUCKET
+}
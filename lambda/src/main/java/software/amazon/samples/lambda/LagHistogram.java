@@ -0,0 +1,75 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import java.util.Arrays;
+
+// Histogram of lags in milliseconds, with the bucket layout of HdrHistogram: exact values below
+// 128 ms, then 64 linear sub-buckets per power of two, so any recorded value is known within
+// 1.6%. Values above one hour are recorded as one hour. Recording does not allocate, and is not
+// thread-safe.
+final class LagHistogram {
+  static final long MAX_VALUE = 3_600_000;
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_VALUES = 2 * SUB_BUCKETS;
+
+  private final long[] counts = new long[index(MAX_VALUE) + 1];
+  private long totalCount;
+  private long max;
+
+  void record(long valueMillis) {
+    long value = Math.min(Math.max(valueMillis, 0), MAX_VALUE);
+    counts[index(value)]++;
+    totalCount++;
+    max = Math.max(max, value);
+  }
+
+  long count() {
+    return totalCount;
+  }
+
+  long max() {
+    return max;
+  }
+
+  // Highest value of the bucket that holds the given percentile, from 0 to 100
+  long valueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+    long seen = 0;
+    for (int index = 0; index < counts.length; index++) {
+      seen += counts[index];
+      if (seen >= rank) {
+        return Math.min(highestValue(index), max);
+      }
+    }
+    return max;
+  }
+
+  void reset() {
+    Arrays.fill(counts, 0);
+    totalCount = 0;
+    max = 0;
+  }
+
+  private static int index(long value) {
+    if (value < LINEAR_VALUES) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return LINEAR_VALUES + (shift - 1) * SUB_BUCKETS + (int) (value >> shift) - SUB_BUCKETS;
+  }
+
+  private static long highestValue(int index) {
+    if (index < LINEAR_VALUES) {
+      return index;
+    }
+    int shift = (index - LINEAR_VALUES) / SUB_BUCKETS + 1;
+    long subBucket = (index - LINEAR_VALUES) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputDescription;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Client that paces PutItem and Scan with one adaptive rate limiter for the write capacity and one
+// for the read capacity. The limiters start from the provisioned capacity of the table and adjust
+// to the capacity consumed by the requests (ReturnConsumedCapacity) and to the throttled requests.
+// A throttled request is retried here, after a backoff with full jitter, rather than by the SDK
+// client, which must be built without retries on throttling so the limiter sees every throttle.
+// Each execution environment has its own limiters, so the throttles share the capacity of the
+// table between the concurrent environments. The other operations go to the delegate without a limit.
+public class RateLimitedClient extends DelegatingDynamoDbClient {
+  static final int MAX_RETRIES = 5;
+  private static final long BASE_BACKOFF_MILLIS = 25;
+  private static final long MAX_BACKOFF_MILLIS = 1000;
+
+  private final double maxReadRate;
+  private final double maxWriteRate;
+  private final WriteAmplification writeAmplification = new WriteAmplification();
+  private volatile AdaptiveRateLimiter readLimiter;
+  private volatile AdaptiveRateLimiter writeLimiter;
+
+  // A maximum rate of 0 means no maximum
+  RateLimitedClient(DynamoDbClient delegate, double maxReadRate, double maxWriteRate) {
+    super(delegate);
+    this.maxReadRate = maxReadRate;
+    this.maxWriteRate = maxWriteRate;
+    this.readLimiter = new AdaptiveRateLimiter(0, maxReadRate);
+    this.writeLimiter = new AdaptiveRateLimiter(0, maxWriteRate);
+  }
+
+  // Starts the limiters from the provisioned capacity of the table, none for an on-demand table. Best effort.
+  void configure(String tableName) {
+    try {
+      ProvisionedThroughputDescription throughput = delegate.describeTable(DescribeTableRequest.builder()
+          .tableName(tableName)
+          .build()).table().provisionedThroughput();
+      if (throughput != null) {
+        readLimiter = new AdaptiveRateLimiter(throughput.readCapacityUnits(), maxReadRate);
+        writeLimiter = new AdaptiveRateLimiter(throughput.writeCapacityUnits(), maxWriteRate);
+      }
+    } catch (SdkException e) {
+      // The invocations report the errors
+    }
+  }
+
+  // Logs the rates of the limiters and the throttled requests since the last call as embedded metrics
+  void publish(LambdaLogger logger) {
+    logger.log(new EmbeddedMetrics()
+        .perSecond("ReadRateLimit", readLimiter.rate())
+        .perSecond("WriteRateLimit", writeLimiter.rate())
+        .count("ReadThrottles", readLimiter.takeThrottles())
+        .count("WriteThrottles", writeLimiter.takeThrottles())
+        .toJson(System.currentTimeMillis()) + "\n");
+    writeAmplification.publish(logger);
+  }
+
+  // The capacity of each index is returned too, for the write amplification of the indexes
+  @Override
+  public PutItemResponse putItem(PutItemRequest request) {
+    PutItemRequest withCapacity = request.returnConsumedCapacity() == null
+        ? request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.INDEXES).build()
+        : request;
+    PutItemResponse response = call(writeLimiter, () -> delegate.putItem(withCapacity),
+        PutItemResponse::consumedCapacity);
+    writeAmplification.record(response.consumedCapacity());
+    return response;
+  }
+
+  @Override
+  public ScanResponse scan(ScanRequest request) {
+    ScanRequest withCapacity = request.returnConsumedCapacity() == null
+        ? request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()
+        : request;
+    return call(readLimiter, () -> delegate.scan(withCapacity), ScanResponse::consumedCapacity);
+  }
+
+  private static <T> T call(AdaptiveRateLimiter limiter, Supplier<T> operation,
+                            Function<T, ConsumedCapacity> consumedCapacity) {
+    for (int attempt = 0; ; attempt++) {
+      try {
+        limiter.acquire();
+        T response = operation.get();
+        ConsumedCapacity capacity = consumedCapacity.apply(response);
+        limiter.consume(tableUnits(capacity));
+        return response;
+      } catch (ProvisionedThroughputExceededException | RequestLimitExceededException e) {
+        limiter.onThrottle();
+        if (attempt == MAX_RETRIES) {
+          throw e;
+        }
+        sleep(backoffMillis(attempt));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for capacity", e);
+      }
+    }
+  }
+
+  // Units of the table only, as the limiters start from its capacity: with INDEXES, the total also
+  // counts the units of the GSIs, which have capacities of their own
+  private static double tableUnits(ConsumedCapacity capacity) {
+    if (capacity == null) {
+      // A local endpoint may not return the consumed capacity
+      return 1;
+    }
+    if (capacity.table() != null && capacity.table().capacityUnits() != null) {
+      return capacity.table().capacityUnits();
+    }
+    return capacity.capacityUnits() != null ? capacity.capacityUnits() : 1;
+  }
+
+  // Full jitter: a random delay up to the exponential backoff, so the retries of concurrent callers spread out
+  static long backoffMillis(int attempt) {
+    long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while backing off", e);
+    }
+  }
+}
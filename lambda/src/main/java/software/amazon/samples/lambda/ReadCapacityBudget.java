@@ -0,0 +1,51 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+// Limits the read capacity units consumed per second by all the workers sharing it.
+// Consumed capacity is only known after a request completes, so a worker may overdraw
+// the budget by one page; the following requests then wait until the debt is paid back.
+class ReadCapacityBudget {
+  private final double maxRcuPerSecond;
+  private double available;
+  private long lastRefillNanos = System.nanoTime();
+
+  ReadCapacityBudget(double maxRcuPerSecond) {
+    this.maxRcuPerSecond = maxRcuPerSecond;
+    this.available = maxRcuPerSecond;
+  }
+
+  void acquire() throws InterruptedException {
+    long waitMillis;
+    while ((waitMillis = delayMillis()) > 0) {
+      Thread.sleep(waitMillis);
+    }
+  }
+
+  // How long to wait before the next request, 0 if it can be sent now
+  synchronized long delayMillis() {
+    if (maxRcuPerSecond <= 0) {
+      return 0;
+    }
+    refill();
+    if (available > 0) {
+      return 0;
+    }
+    return Math.max((long) Math.ceil(-available * 1000 / maxRcuPerSecond), 1);
+  }
+
+  synchronized void consume(double capacityUnits) {
+    if (maxRcuPerSecond <= 0) {
+      return;
+    }
+    refill();
+    available -= capacityUnits;
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    available = Math.min(maxRcuPerSecond, available + (now - lastRefillNanos) * maxRcuPerSecond / 1e9);
+    lastRefillNanos = now;
+  }
+}
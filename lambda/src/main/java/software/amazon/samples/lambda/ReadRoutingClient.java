@@ -0,0 +1,224 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// Client of a global table that sends the eventually consistent reads (GetItem, BatchGetItem,
+// Query) to the replica with the lowest average latency among the healthy ones, and everything
+// else, scans, writes and strongly consistent reads included, to the home region: the pages of a
+// scan segment continue from the ExclusiveStartKey of the previous page, and read from replicas at
+// different points of the replication, a segment could count an item twice or miss it.
+// A read that fails with an error of the region rather than of the request is sent again to the
+// next region.
+// With hedging, a read that has not completed after the p95 latency of its region is also sent
+// to the next region, and the first response wins: this cuts the tail latency for one more read
+// in a few percent of the calls.
+public class ReadRoutingClient extends DelegatingDynamoDbClient {
+  // Share of the reads sent to another healthy region, so the average latency of each region
+  // keeps being measured and a region that was slow for a while gets traffic back
+  private static final double EXPLORATION_RATE = 0.02;
+  // Lower bound of the delay before a hedged call, so a few fast calls do not hedge every read
+  private static final long MIN_HEDGE_DELAY_MILLIS = 10;
+
+  private final String homeRegion;
+  private final Map<String, DynamoDbClient> clients;
+  private final Map<String, RegionLatency> latencies = new LinkedHashMap<>();
+  private final boolean hedging;
+  private final ExecutorService executor;
+
+  // One client per region, the home region included
+  ReadRoutingClient(String homeRegion, Map<String, DynamoDbClient> clients, boolean hedging) {
+    super(homeClient(homeRegion, clients));
+    this.homeRegion = homeRegion;
+    this.clients = clients;
+    this.hedging = hedging;
+    for (String region : clients.keySet()) {
+      latencies.put(region, new RegionLatency(region));
+    }
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "read-routing");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Opens a connection to every region at the same time and measures its first latency,
+  // with DescribeTable because it has no side effect on the table. Best effort.
+  void warmUp(String tableName) {
+    DescribeTableRequest request = DescribeTableRequest.builder().tableName(tableName).build();
+    List<CompletableFuture<?>> calls = new ArrayList<>();
+    for (String region : clients.keySet()) {
+      calls.add(CompletableFuture.runAsync(() -> call(region, client -> client.describeTable(request)), executor));
+    }
+    try {
+      CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      // The invocations report the errors
+    }
+  }
+
+  private static DynamoDbClient homeClient(String homeRegion, Map<String, DynamoDbClient> clients) {
+    if (!clients.containsKey(homeRegion)) {
+      throw new IllegalArgumentException("No client for the home region " + homeRegion + ": " + clients.keySet());
+    }
+    return clients.get(homeRegion);
+  }
+
+  // Healthy regions, fastest first, or the home region if none is healthy
+  List<String> readRegions() {
+    long now = System.currentTimeMillis();
+    List<String> regions = new ArrayList<>();
+    latencies.values().stream()
+        .filter(latency -> latency.isHealthy(now))
+        .sorted(Comparator.comparingDouble(RegionLatency::ewmaMillis))
+        .forEach(latency -> regions.add(latency.region()));
+    return regions.isEmpty() ? List.of(homeRegion) : regions;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    clients.values().forEach(DynamoDbClient::close);
+  }
+
+  @Override
+  public GetItemResponse getItem(GetItemRequest request) {
+    return Boolean.TRUE.equals(request.consistentRead())
+        ? delegate.getItem(request)
+        : read(client -> client.getItem(request));
+  }
+
+  @Override
+  public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+    boolean consistentRead = request.requestItems().values().stream()
+        .anyMatch(keys -> Boolean.TRUE.equals(keys.consistentRead()));
+    return consistentRead
+        ? delegate.batchGetItem(request)
+        : read(client -> client.batchGetItem(request));
+  }
+
+  @Override
+  public QueryResponse query(QueryRequest request) {
+    return Boolean.TRUE.equals(request.consistentRead())
+        ? delegate.query(request)
+        : read(client -> client.query(request));
+  }
+
+  private <T> T read(Function<DynamoDbClient, T> operation) {
+    List<String> regions = readRegions();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (regions.size() > 1 && random.nextDouble() < EXPLORATION_RATE) {
+      Collections.swap(regions, 0, 1 + random.nextInt(regions.size() - 1));
+    }
+    String first = regions.get(0);
+    if (regions.size() < 2) {
+      return call(first, operation);
+    }
+    String second = regions.get(1);
+    if (!hedging) {
+      try {
+        return call(first, operation);
+      } catch (SdkException e) {
+        return fallback(e, second, operation);
+      }
+    }
+    CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> call(first, operation), executor);
+    try {
+      return primary.get(Math.max(MIN_HEDGE_DELAY_MILLIS, latencies.get(first).p95Millis()), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> call(second, operation), executor);
+      return firstSuccess(primary, hedge);
+    } catch (ExecutionException e) {
+      RuntimeException error = unwrap(e.getCause());
+      if (error instanceof SdkException) {
+        return fallback((SdkException) error, second, operation);
+      }
+      throw error;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading", e);
+    }
+  }
+
+  // Sends a failed read to the next region, unless the request itself is wrong: it would fail there too.
+  // The error of the first region is thrown if the next one fails as well.
+  private <T> T fallback(SdkException error, String region, Function<DynamoDbClient, T> operation) {
+    if (!WriteFailover.isRetryable(error)) {
+      throw error;
+    }
+    try {
+      return call(region, operation);
+    } catch (SdkException e) {
+      error.addSuppressed(e);
+      throw error;
+    }
+  }
+
+  private <T> T call(String region, Function<DynamoDbClient, T> operation) {
+    RegionLatency latency = latencies.get(region);
+    long start = System.nanoTime();
+    try {
+      T response = operation.apply(clients.get(region));
+      latency.success(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      return response;
+    } catch (SdkException e) {
+      latency.failure(System.currentTimeMillis());
+      throw e;
+    }
+  }
+
+  // Response of the first call that succeeds, or the error of the primary call if both fail
+  private static <T> T firstSuccess(CompletableFuture<T> primary, CompletableFuture<T> hedge) {
+    CompletableFuture<T> winner = new CompletableFuture<>();
+    primary.whenComplete((response, error) -> {
+      if (error == null) {
+        winner.complete(response);
+      } else {
+        hedge.whenComplete((hedgeResponse, hedgeError) -> {
+          if (hedgeError == null) {
+            winner.complete(hedgeResponse);
+          } else {
+            winner.completeExceptionally(error);
+          }
+        });
+      }
+    });
+    hedge.thenAccept(winner::complete);
+    try {
+      return winner.join();
+    } catch (CompletionException e) {
+      throw unwrap(e.getCause());
+    }
+  }
+
+  private static RuntimeException unwrap(Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    return cause instanceof RuntimeException ? (RuntimeException) cause : new CompletionException(cause);
+  }
+}
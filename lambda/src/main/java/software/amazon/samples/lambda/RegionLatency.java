@@ -0,0 +1,69 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+// Latency and health of the calls to one region: an exponentially weighted moving average of the
+// latency to rank the regions, the p95 of the last window of calls to delay the hedged calls, and
+// the consecutive failures that take the region out of the rotation for a while.
+final class RegionLatency {
+  private static final double EWMA_WEIGHT = 0.2;
+  private static final int WINDOW_CALLS = 1000;
+  private static final int MIN_P95_CALLS = 20;
+  // p95 assumed for a region without any call yet, about a cross-region round trip
+  static final long INITIAL_P95_MILLIS = 100;
+  static final int MAX_CONSECUTIVE_FAILURES = 3;
+  static final long UNHEALTHY_MILLIS = 30_000;
+
+  private final String region;
+  private final LagHistogram window = new LagHistogram();
+  private double ewmaMillis = -1;
+  private long p95Millis = -1;
+  private int consecutiveFailures;
+  private long unhealthyUntilMillis;
+
+  RegionLatency(String region) {
+    this.region = region;
+  }
+
+  String region() {
+    return region;
+  }
+
+  synchronized void success(long latencyMillis) {
+    ewmaMillis = ewmaMillis < 0 ? latencyMillis : EWMA_WEIGHT * latencyMillis + (1 - EWMA_WEIGHT) * ewmaMillis;
+    window.record(latencyMillis);
+    if (window.count() >= WINDOW_CALLS) {
+      p95Millis = window.valueAtPercentile(95);
+      window.reset();
+    }
+    consecutiveFailures = 0;
+  }
+
+  synchronized void failure(long nowMillis) {
+    if (++consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+      unhealthyUntilMillis = nowMillis + UNHEALTHY_MILLIS;
+      consecutiveFailures = 0;
+    }
+  }
+
+  synchronized boolean isHealthy(long nowMillis) {
+    return nowMillis >= unhealthyUntilMillis;
+  }
+
+  // Regions without any call yet rank last
+  synchronized double ewmaMillis() {
+    return ewmaMillis < 0 ? Double.MAX_VALUE : ewmaMillis;
+  }
+
+  // p95 of the last full window, or of the current window, or twice the average until there are enough calls
+  synchronized long p95Millis() {
+    if (p95Millis >= 0) {
+      return p95Millis;
+    }
+    if (window.count() >= MIN_P95_CALLS) {
+      return window.valueAtPercentile(95);
+    }
+    return ewmaMillis < 0 ? INITIAL_P95_MILLIS : (long) (2 * ewmaMillis);
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Measures the replication lag of a global table: writes a marker item in one region, then
+// polls every other region at the same time with strongly consistent reads until the marker
+// appears. The lag is measured from the acknowledgement of the write to the first read that
+// sees the marker, so it is known within the poll interval plus the latency of one read.
+//
+// Each region has a single marker item, overwritten by each probe, so the probes do not grow
+// the table; its partition key starts with PARTITION_KEY_PREFIX and it is not counted.
+public class ReplicationLagProbe {
+  public static final String PARTITION_KEY_PREFIX = "#probe#";
+  private static final String PROBE_ID_ATTRIBUTE = "ProbeId";
+
+  private final Map<String, DynamoDbClient> clients;
+  private final long pollIntervalMillis;
+  private final long timeoutMillis;
+  private final ExecutorService executor;
+
+  // One client per region of the global table
+  ReplicationLagProbe(Map<String, DynamoDbClient> clients, long pollIntervalMillis, long timeoutMillis) {
+    if (clients.size() < 2) {
+      throw new IllegalArgumentException("A global table has at least two regions: " + clients.keySet());
+    }
+    this.clients = clients;
+    this.pollIntervalMillis = pollIntervalMillis;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = Executors.newFixedThreadPool(clients.size() - 1, runnable -> {
+      Thread thread = new Thread(runnable, "replication-lag-probe");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  List<String> regions() {
+    return List.copyOf(clients.keySet());
+  }
+
+  // Lag in milliseconds from sourceRegion to each other region, -1 if the marker did not appear before the timeout
+  public Map<String, Long> probe(String tableName, String sourceRegion) {
+    String probeId = UUID.randomUUID().toString();
+    Map<String, AttributeValue> key = key(sourceRegion);
+    Map<String, AttributeValue> item = new LinkedHashMap<>(key);
+    item.put(PROBE_ID_ATTRIBUTE, AttributeValue.builder().s(probeId).build());
+    item.put(ShardedCounter.ORIGIN_REGION_ATTRIBUTE, AttributeValue.builder().s(sourceRegion).build());
+    item.put(ShardedCounter.ORIGIN_TIME_ATTRIBUTE,
+        AttributeValue.builder().n(Long.toString(System.currentTimeMillis())).build());
+    clients.get(sourceRegion).putItem(PutItemRequest.builder().tableName(tableName).item(item).build());
+    long writtenNanos = System.nanoTime();
+
+    Map<String, Future<Long>> polls = new LinkedHashMap<>();
+    for (Map.Entry<String, DynamoDbClient> target : clients.entrySet()) {
+      if (!target.getKey().equals(sourceRegion)) {
+        polls.put(target.getKey(), executor.submit(() -> poll(target.getValue(), tableName, key, probeId, writtenNanos)));
+      }
+    }
+    Map<String, Long> lags = new LinkedHashMap<>();
+    polls.forEach((targetRegion, poll) -> lags.put(targetRegion, join(poll)));
+    return lags;
+  }
+
+  static Map<String, AttributeValue> key(String sourceRegion) {
+    return Map.of(
+        "PK", AttributeValue.builder().s(PARTITION_KEY_PREFIX + sourceRegion).build(),
+        "SK", AttributeValue.builder().s("marker").build());
+  }
+
+  public static boolean isProbeKey(String partitionKey) {
+    return partitionKey != null && partitionKey.startsWith(PARTITION_KEY_PREFIX);
+  }
+
+  private long poll(DynamoDbClient ddbClient, String tableName, Map<String, AttributeValue> key, String probeId,
+                    long writtenNanos) throws InterruptedException {
+    GetItemRequest request = GetItemRequest.builder()
+        .tableName(tableName)
+        .key(key)
+        .consistentRead(true)
+        .projectionExpression(PROBE_ID_ATTRIBUTE)
+        .build();
+    long deadline = writtenNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (true) {
+      AttributeValue seen = ddbClient.getItem(request).item().get(PROBE_ID_ATTRIBUTE);
+      long now = System.nanoTime();
+      if (seen != null && probeId.equals(seen.s())) {
+        return TimeUnit.NANOSECONDS.toMillis(now - writtenNanos);
+      }
+      if (now >= deadline) {
+        return -1;
+      }
+      Thread.sleep(pollIntervalMillis);
+    }
+  }
+
+  private static long join(Future<Long> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while probing the replication lag", e);
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+  }
+}
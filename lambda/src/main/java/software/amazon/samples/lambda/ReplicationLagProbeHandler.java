@@ -0,0 +1,97 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Scheduled function that probes the replication lag between every pair of regions of the
+// global table, PROBE_ROUNDS times per invocation, and publishes every lag of each pair as a
+// sample of an embedded metric, with the number of probes that timed out. CloudWatch computes the
+// percentiles over all the samples of a period, which a few samples per invocation could not.
+public class ReplicationLagProbeHandler implements RequestHandler<Map<String, Object>, Void> {
+  private static final String ENV_TABLE_NAME = "TABLE_NAME";
+  private static final String ENV_REPLICA_REGIONS = "REPLICA_REGIONS";
+  private static final String ENV_PROBE_ROUNDS = "PROBE_ROUNDS";
+  private static final String ENV_PROBE_POLL_MILLIS = "PROBE_POLL_MILLIS";
+  private static final String ENV_PROBE_TIMEOUT_MILLIS = "PROBE_TIMEOUT_MILLIS";
+  private static final int DEFAULT_PROBE_ROUNDS = 3;
+  private static final long DEFAULT_PROBE_POLL_MILLIS = 20;
+  private static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 5000;
+
+  private final ReplicationLagProbe probe;
+  private final int rounds = Env.intValue(ENV_PROBE_ROUNDS, DEFAULT_PROBE_ROUNDS);
+  // Lags and timeouts per "source>target" pair, cleared after each publication
+  private final Map<String, List<Long>> lags = new LinkedHashMap<>();
+  private final Map<String, Long> timeouts = new LinkedHashMap<>();
+
+  public ReplicationLagProbeHandler() {
+    Map<String, DynamoDbClient> clients = new LinkedHashMap<>();
+    for (String region : Env.string(ENV_REPLICA_REGIONS, "").split(",")) {
+      if (!region.isBlank()) {
+        clients.put(region.trim(), DynamoDbClients.create(region.trim()));
+      }
+    }
+    this.probe = new ReplicationLagProbe(clients,
+        Env.longValue(ENV_PROBE_POLL_MILLIS, DEFAULT_PROBE_POLL_MILLIS),
+        Env.longValue(ENV_PROBE_TIMEOUT_MILLIS, DEFAULT_PROBE_TIMEOUT_MILLIS));
+  }
+
+  public Void handleRequest(Map<String, Object> event, Context context) {
+    String tableName = System.getenv(ENV_TABLE_NAME);
+    List<String> regions = probe.regions();
+    for (int round = 0; round < rounds; round++) {
+      for (String source : regions) {
+        probe.probe(tableName, source).forEach((target, lag) -> record(source + ">" + target, lag));
+      }
+    }
+    publish(context.getLogger());
+    return null;
+  }
+
+  private void record(String pair, long lagMillis) {
+    if (lagMillis < 0) {
+      timeouts.merge(pair, 1L, Long::sum);
+    } else {
+      lags.computeIfAbsent(pair, ignored -> new ArrayList<>()).add(lagMillis);
+    }
+  }
+
+  private void publish(LambdaLogger logger) {
+    long now = System.currentTimeMillis();
+    for (String source : probe.regions()) {
+      for (String target : probe.regions()) {
+        if (source.equals(target)) {
+          continue;
+        }
+        String pair = source + ">" + target;
+        List<Long> pairLags = lags.getOrDefault(pair, List.of());
+        logger.log(new EmbeddedMetrics()
+            .dimension("SourceRegion", source)
+            .dimension("TargetRegion", target)
+            .count("ReplicationLagProbes", pairLags.size())
+            .count("ReplicationLagProbeTimeouts", timeouts.getOrDefault(pair, 0L))
+            .toJson(now) + "\n");
+        // A log line holds a limited number of values per metric
+        for (int from = 0; from < pairLags.size(); from += EmbeddedMetrics.MAX_VALUES) {
+          logger.log(new EmbeddedMetrics()
+              .dimension("SourceRegion", source)
+              .dimension("TargetRegion", target)
+              .milliseconds("ReplicationLag",
+                  pairLags.subList(from, Math.min(from + EmbeddedMetrics.MAX_VALUES, pairLags.size())))
+              .toJson(now) + "\n");
+        }
+      }
+    }
+    lags.clear();
+    timeouts.clear();
+  }
+}
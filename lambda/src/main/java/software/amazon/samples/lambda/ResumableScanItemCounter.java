@@ -0,0 +1,94 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+
+// Parallel scan count that stops before the deadline of the invocation: before each page, a
+// segment checks the remaining time and stops if it is below marginMillis, which must cover the
+// longest page. The returned continuation holds the count so far and the LastEvaluatedKey of each
+// segment, so the next invocation resumes where this one stopped instead of starting over.
+public class ResumableScanItemCounter {
+  private final DynamoDbClient ddbClient;
+  private final ReadCapacityBudget budget;
+  private final long marginMillis;
+  private final ExecutorService executor;
+
+  public ResumableScanItemCounter(DynamoDbClient ddbClient, double maxRcuPerSecond, long marginMillis) {
+    this.ddbClient = ddbClient;
+    this.budget = new ReadCapacityBudget(maxRcuPerSecond);
+    this.marginMillis = marginMillis;
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "scan-segment");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  ScanContinuation count(String tableName, ScanContinuation continuation, LongSupplier remainingMillis) {
+    // Otherwise no segment reads a page, and every invocation returns the same token
+    long remaining = remainingMillis.getAsLong();
+    if (remaining <= marginMillis) {
+      throw new IllegalStateException("The deadline margin of " + marginMillis + " ms is not below the remaining time of "
+          + remaining + " ms: lower COUNT_DEADLINE_MARGIN_MILLIS or raise the timeout of the function");
+    }
+    List<Future<?>> segments = new ArrayList<>(continuation.totalSegments());
+    for (int segment = 0; segment < continuation.totalSegments(); segment++) {
+      if (!continuation.isDone(segment)) {
+        int current = segment;
+        segments.add(executor.submit(() -> {
+          countSegment(tableName, continuation, current, remainingMillis);
+          return null;
+        }));
+      }
+    }
+    for (Future<?> segment : segments) {
+      join(segment);
+    }
+    return continuation;
+  }
+
+  private void countSegment(String tableName, ScanContinuation continuation, int segment,
+                            LongSupplier remainingMillis) throws InterruptedException {
+    long count = continuation.count(segment);
+    Map<String, AttributeValue> exclusiveStartKey = continuation.lastEvaluatedKey(segment);
+    do {
+      if (remainingMillis.getAsLong() < marginMillis) {
+        return;
+      }
+      budget.acquire();
+      ScanResponse response = ddbClient.scan(ScanItemCounter.countRequest(tableName, continuation.indexName(),
+          segment, continuation.totalSegments(), exclusiveStartKey));
+      count += response.count();
+      if (response.consumedCapacity() != null) {
+        budget.consume(response.consumedCapacity().capacityUnits());
+      }
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+      continuation.update(segment, count, exclusiveStartKey);
+    } while (exclusiveStartKey != null);
+  }
+
+  private static void join(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while counting items", e);
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+  }
+}
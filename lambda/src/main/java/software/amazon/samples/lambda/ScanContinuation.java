@@ -0,0 +1,203 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// State of a parallel scan stopped before its end: the table and index scanned, and for each segment, whether
+// it is done, the number of items counted so far and the LastEvaluatedKey to resume from. The token is the state
+// in a compact binary form, encoded in URL-safe Base64, so it fits in the event of the next
+// invocation. Key attributes are strings, numbers or binaries, so only these types are encoded.
+// A token is only accepted for the table it was created for, since its keys mean nothing in another table.
+final class ScanContinuation {
+  private static final int VERSION = 2;
+  // Largest TotalSegments of a Scan
+  private static final int MAX_SEGMENTS = 1_000_000;
+  // A key has a partition key and at most a sort key
+  private static final int MAX_KEY_ATTRIBUTES = 2;
+  // Largest binary key attribute, a partition key
+  private static final int MAX_KEY_BYTES = 2048;
+
+  private final String tableName;
+  private final String indexName;
+  private final boolean[] done;
+  private final long[] counts;
+  private final List<Map<String, AttributeValue>> lastEvaluatedKeys;
+
+  private ScanContinuation(String tableName, String indexName, int totalSegments) {
+    if (totalSegments < 1 || totalSegments > MAX_SEGMENTS) {
+      throw new IllegalArgumentException("totalSegments must be between 1 and " + MAX_SEGMENTS + ": " + totalSegments);
+    }
+    this.tableName = tableName;
+    this.indexName = indexName;
+    this.done = new boolean[totalSegments];
+    this.counts = new long[totalSegments];
+    this.lastEvaluatedKeys = new ArrayList<>(Collections.nCopies(totalSegments, null));
+  }
+
+  static ScanContinuation start(String tableName, String indexName, int totalSegments) {
+    return new ScanContinuation(tableName, indexName, totalSegments);
+  }
+
+  String tableName() {
+    return tableName;
+  }
+
+  String indexName() {
+    return indexName;
+  }
+
+  int totalSegments() {
+    return done.length;
+  }
+
+  boolean isDone(int segment) {
+    return done[segment];
+  }
+
+  boolean isComplete() {
+    for (boolean segmentDone : done) {
+      if (!segmentDone) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  long count(int segment) {
+    return counts[segment];
+  }
+
+  // Items counted so far, the exact count once complete
+  long count() {
+    return Arrays.stream(counts).sum();
+  }
+
+  // Null before the first page of the segment
+  Map<String, AttributeValue> lastEvaluatedKey(int segment) {
+    return lastEvaluatedKeys.get(segment);
+  }
+
+  // Each segment is only updated by its own worker
+  void update(int segment, long count, Map<String, AttributeValue> lastEvaluatedKey) {
+    counts[segment] = count;
+    lastEvaluatedKeys.set(segment, lastEvaluatedKey);
+    done[segment] = lastEvaluatedKey == null;
+  }
+
+  String toToken() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      out.writeUTF(tableName);
+      out.writeBoolean(indexName != null);
+      if (indexName != null) {
+        out.writeUTF(indexName);
+      }
+      out.writeInt(done.length);
+      for (int segment = 0; segment < done.length; segment++) {
+        out.writeBoolean(done[segment]);
+        out.writeLong(counts[segment]);
+        Map<String, AttributeValue> key = lastEvaluatedKeys.get(segment);
+        out.writeInt(key == null ? -1 : key.size());
+        if (key != null) {
+          for (Map.Entry<String, AttributeValue> attribute : key.entrySet()) {
+            out.writeUTF(attribute.getKey());
+            writeValue(out, attribute.getValue());
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+  }
+
+  // Rejects a token created for another table than tableName
+  static ScanContinuation fromToken(String token, String tableName) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+      int version = in.readByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported continuation token version: " + version);
+      }
+      String tokenTableName = in.readUTF();
+      if (!tokenTableName.equals(tableName)) {
+        throw new IllegalArgumentException("Continuation token of table " + tokenTableName + " used for table " + tableName);
+      }
+      String indexName = in.readBoolean() ? in.readUTF() : null;
+      ScanContinuation continuation = new ScanContinuation(tableName, indexName, in.readInt());
+      for (int segment = 0; segment < continuation.totalSegments(); segment++) {
+        continuation.done[segment] = in.readBoolean();
+        continuation.counts[segment] = in.readLong();
+        int attributes = in.readInt();
+        if (attributes < -1 || attributes > MAX_KEY_ATTRIBUTES) {
+          throw new IllegalArgumentException("Invalid continuation token");
+        }
+        if (attributes >= 0) {
+          Map<String, AttributeValue> key = new HashMap<>();
+          for (int attribute = 0; attribute < attributes; attribute++) {
+            key.put(in.readUTF(), readValue(in));
+          }
+          continuation.lastEvaluatedKeys.set(segment, key);
+        }
+      }
+      return continuation;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid continuation token", e);
+    }
+  }
+
+  private static void writeValue(DataOutputStream out, AttributeValue value) throws IOException {
+    if (value.s() != null) {
+      out.writeByte('S');
+      out.writeUTF(value.s());
+    } else if (value.n() != null) {
+      out.writeByte('N');
+      out.writeUTF(value.n());
+    } else if (value.b() != null) {
+      byte[] bytes = value.b().asByteArray();
+      out.writeByte('B');
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } else {
+      throw new IllegalArgumentException("Unsupported key attribute type: " + value.type());
+    }
+  }
+
+  private static AttributeValue readValue(DataInputStream in) throws IOException {
+    int type = in.readByte();
+    switch (type) {
+      case 'S':
+        return AttributeValue.builder().s(in.readUTF()).build();
+      case 'N':
+        return AttributeValue.builder().n(in.readUTF()).build();
+      case 'B':
+        // The length is read from the token, so it is checked before allocating the bytes
+        int length = in.readInt();
+        if (length < 0 || length > MAX_KEY_BYTES) {
+          throw new IllegalArgumentException("Invalid continuation token");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return AttributeValue.builder().b(SdkBytes.fromByteArray(bytes)).build();
+      default:
+        throw new IOException("Unknown key attribute type: " + type);
+    }
+  }
+}
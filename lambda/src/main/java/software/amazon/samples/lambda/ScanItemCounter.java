@@ -0,0 +1,104 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Counts the items of a table (or of one of its indexes) with a parallel scan.
+// Each segment follows LastEvaluatedKey until the end of the segment, and only the
+// number of matching items is returned by DynamoDB (Select.COUNT).
+public class ScanItemCounter implements ItemCounter {
+  private final DynamoDbClient ddbClient;
+  private final ExecutorService executor;
+  private final int totalSegments;
+  private final String indexName;
+  private final ReadCapacityBudget budget;
+
+  public ScanItemCounter(DynamoDbClient ddbClient, int totalSegments, String indexName, double maxRcuPerSecond) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be at least 1: " + totalSegments);
+    }
+    this.ddbClient = ddbClient;
+    this.totalSegments = totalSegments;
+    this.indexName = indexName;
+    this.budget = new ReadCapacityBudget(maxRcuPerSecond);
+    this.executor = Executors.newFixedThreadPool(totalSegments, runnable -> {
+      Thread thread = new Thread(runnable, "scan-segment");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public long count(String tableName) {
+    List<Future<Long>> segments = new ArrayList<>(totalSegments);
+    for (int segment = 0; segment < totalSegments; segment++) {
+      int current = segment;
+      segments.add(executor.submit(() -> countSegment(tableName, current)));
+    }
+    long count = 0;
+    for (Future<Long> segment : segments) {
+      count += join(segment);
+    }
+    return count;
+  }
+
+  private long countSegment(String tableName, int segment) throws InterruptedException {
+    long count = 0;
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      budget.acquire();
+      ScanResponse response = ddbClient.scan(countRequest(tableName, indexName, segment, totalSegments, exclusiveStartKey));
+      count += response.count();
+      if (response.consumedCapacity() != null) {
+        budget.consume(response.consumedCapacity().capacityUnits());
+      }
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+    return count;
+  }
+
+  static ScanRequest countRequest(String tableName, String indexName, int segment, int totalSegments,
+                                  Map<String, AttributeValue> exclusiveStartKey) {
+    return ScanRequest.builder()
+        .tableName(tableName)
+        .indexName(indexName)
+        .select(Select.COUNT)
+        // Do not count the counter items maintained by StreamCounterHandler, nor the probe markers
+        .filterExpression("NOT begins_with(PK, :counterPrefix) AND NOT begins_with(PK, :probePrefix)")
+        .expressionAttributeValues(Map.of(
+            ":counterPrefix", AttributeValue.builder().s(ShardedCounter.PARTITION_KEY_PREFIX).build(),
+            ":probePrefix", AttributeValue.builder().s(ReplicationLagProbe.PARTITION_KEY_PREFIX).build()))
+        .segment(segment)
+        .totalSegments(totalSegments)
+        .exclusiveStartKey(exclusiveStartKey)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .build();
+  }
+
+  private static long join(Future<Long> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while counting items", e);
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+  }
+}
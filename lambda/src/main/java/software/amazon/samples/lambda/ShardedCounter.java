@@ -0,0 +1,45 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+
+// Keys of the counter items stored in the table itself.
+// Each region only updates its own counter items, which are spread over a number of shards
+// to avoid a hot key; the total is the sum of all the shards of all the regions.
+// The prefix of their partition key is public, so the verifiers of the tools module skip them.
+public final class ShardedCounter {
+  public static final String PARTITION_KEY_PREFIX = "#counter#";
+  static final String COUNT_ATTRIBUTE = "ItemCount";
+  // Region where an item was last written, stamped by the writers of the table
+  static final String ORIGIN_REGION_ATTRIBUTE = "OriginRegion";
+  // Time of that write in milliseconds since the epoch, to measure the replication lag
+  static final String ORIGIN_TIME_ATTRIBUTE = "OriginTime";
+
+  private ShardedCounter() {
+  }
+
+  static Map<String, AttributeValue> key(String region, int shard) {
+    return Map.of(
+        "PK", AttributeValue.builder().s(PARTITION_KEY_PREFIX + region).build(),
+        "SK", AttributeValue.builder().s("shard#" + shard).build());
+  }
+
+  static UpdateItemRequest increment(String tableName, String region, int shard, long delta) {
+    return UpdateItemRequest.builder()
+        .tableName(tableName)
+        .key(key(region, shard))
+        .updateExpression("ADD #count :delta")
+        .expressionAttributeNames(Map.of("#count", COUNT_ATTRIBUTE))
+        .expressionAttributeValues(Map.of(":delta", AttributeValue.builder().n(Long.toString(delta)).build()))
+        .build();
+  }
+
+  public static boolean isCounterKey(String partitionKey) {
+    return partitionKey != null && partitionKey.startsWith(PARTITION_KEY_PREFIX);
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the item count of the table up to date from its stream.
+// The net number of inserted and removed items of a batch is added atomically to one of the
+// counter shards of the current region. Writes replicated from another region are ignored,
+// because the function of that region counts them in the counter items of its own region.
+// The same records also give the replication lag of the writes replicated to this region.
+public class StreamCounterHandler implements RequestHandler<DynamodbEvent, Void> {
+  private static final String ENV_TABLE_NAME = "TABLE_NAME";
+  private static final String ENV_COUNTER_SHARDS = "COUNTER_SHARDS";
+  // Region that owns the items written without ORIGIN_REGION_ATTRIBUTE
+  private static final String ENV_COUNTER_HOME_REGION = "COUNTER_HOME_REGION";
+  private static final String ENV_LAG_WINDOW_SECONDS = "LAG_WINDOW_SECONDS";
+  private static final long DEFAULT_LAG_WINDOW_SECONDS = 60;
+  // Set by the global tables version 2017.11.29 on every item
+  private static final String LEGACY_UPDATE_REGION_ATTRIBUTE = "aws:rep:updateregion";
+  // Time of the write in seconds since the epoch, with a fractional part, set by the same version
+  private static final String LEGACY_UPDATE_TIME_ATTRIBUTE = "aws:rep:updatetime";
+
+  private final String region = System.getenv("AWS_REGION");
+  private final String homeRegion = Env.string(ENV_COUNTER_HOME_REGION, region);
+  private final int shards = Env.intValue(ENV_COUNTER_SHARDS, CounterItemCounter.DEFAULT_SHARDS);
+  private final StreamLagRecorder lagRecorder = new StreamLagRecorder(region,
+      TimeUnit.SECONDS.toMillis(Env.longValue(ENV_LAG_WINDOW_SECONDS, DEFAULT_LAG_WINDOW_SECONDS)),
+      System.currentTimeMillis());
+  private DynamoDbClient ddbClient = DynamoDbClients.create(region);
+
+  public Void handleRequest(DynamodbEvent event, Context context) {
+    lagRecorder.flush(System.currentTimeMillis(), context.getLogger());
+    long delta = 0;
+    for (DynamodbEvent.DynamodbStreamRecord record : event.getRecords()) {
+      delta += delta(record);
+      recordLag(record);
+    }
+    if (delta != 0) {
+      // A batch that fails after this update is retried and counted twice: the count is
+      // exact as long as the function does not time out between the update and its return
+      ddbClient.updateItem(ShardedCounter.increment(System.getenv(ENV_TABLE_NAME), region,
+          ThreadLocalRandom.current().nextInt(shards), delta));
+    }
+    context.getLogger().log("*** Applied " + delta + " to the item count from " + event.getRecords().size() + " record(s).\n");
+    return null;
+  }
+
+  private long delta(DynamodbEvent.DynamodbStreamRecord record) {
+    Map<String, AttributeValue> keys = record.getDynamodb().getKeys();
+    String partitionKey = keys != null && keys.containsKey("PK") ? keys.get("PK").getS() : null;
+    if (ShardedCounter.isCounterKey(partitionKey) || ReplicationLagProbe.isProbeKey(partitionKey)) {
+      return 0;
+    }
+    switch (record.getEventName()) {
+      case "INSERT":
+        return isLocal(record.getDynamodb().getNewImage()) ? 1 : 0;
+      case "REMOVE":
+        // The item is uncounted by the region that counted its insert or its last write
+        return isLocal(record.getDynamodb().getOldImage()) ? -1 : 0;
+      default:
+        return 0;
+    }
+  }
+
+  // Records the lag of a write replicated with its origin region and time
+  private void recordLag(DynamodbEvent.DynamodbStreamRecord record) {
+    Map<String, AttributeValue> image = record.getDynamodb().getNewImage();
+    Date streamTime = record.getDynamodb().getApproximateCreationDateTime();
+    if (image == null || streamTime == null) {
+      return;
+    }
+    AttributeValue legacyTime = image.get(LEGACY_UPDATE_TIME_ATTRIBUTE);
+    AttributeValue originTime = image.get(ShardedCounter.ORIGIN_TIME_ATTRIBUTE);
+    long originTimeMillis;
+    if (legacyTime != null && legacyTime.getN() != null) {
+      originTimeMillis = (long) (Double.parseDouble(legacyTime.getN()) * 1000);
+    } else if (originTime != null && originTime.getN() != null) {
+      originTimeMillis = Long.parseLong(originTime.getN());
+    } else {
+      return;
+    }
+    lagRecorder.record(originRegion(image), originTimeMillis, streamTime.getTime());
+  }
+
+  private boolean isLocal(Map<String, AttributeValue> image) {
+    return region.equals(originRegion(image));
+  }
+
+  private String originRegion(Map<String, AttributeValue> image) {
+    if (image != null) {
+      for (String attribute : new String[]{LEGACY_UPDATE_REGION_ATTRIBUTE, ShardedCounter.ORIGIN_REGION_ATTRIBUTE}) {
+        AttributeValue value = image.get(attribute);
+        if (value != null && value.getS() != null) {
+          return value.getS();
+        }
+      }
+    }
+    return homeRegion;
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Replication lag of the writes replicated to the region, measured from the stream of its replica:
+// the time the record was added to the stream minus the time of the write in its origin region.
+// The lags are aggregated per origin region in fixed windows, and each window is published as
+// embedded metrics by the first batch processed after its end. The histograms are reused from
+// one window to the next, so recording a lag does not allocate.
+final class StreamLagRecorder {
+  private final String region;
+  private final long windowMillis;
+  private final Map<String, LagHistogram> histograms = new HashMap<>();
+  private long windowStart;
+
+  StreamLagRecorder(String region, long windowMillis, long nowMillis) {
+    if (windowMillis < 1) {
+      throw new IllegalArgumentException("windowMillis must be at least 1: " + windowMillis);
+    }
+    this.region = region;
+    this.windowMillis = windowMillis;
+    this.windowStart = nowMillis - nowMillis % windowMillis;
+  }
+
+  void record(String originRegion, long originTimeMillis, long streamTimeMillis) {
+    if (region.equals(originRegion)) {
+      return;
+    }
+    LagHistogram histogram = histograms.get(originRegion);
+    if (histogram == null) {
+      histogram = new LagHistogram();
+      histograms.put(originRegion, histogram);
+    }
+    histogram.record(streamTimeMillis - originTimeMillis);
+  }
+
+  // Publishes and resets the current window if it has ended
+  void flush(long nowMillis, LambdaLogger logger) {
+    if (nowMillis < windowStart + windowMillis) {
+      return;
+    }
+    for (Map.Entry<String, LagHistogram> entry : histograms.entrySet()) {
+      LagHistogram histogram = entry.getValue();
+      if (histogram.count() == 0) {
+        continue;
+      }
+      logger.log(new EmbeddedMetrics()
+          .dimension("SourceRegion", entry.getKey())
+          .dimension("TargetRegion", region)
+          .count("StreamReplicatedWrites", histogram.count())
+          .milliseconds("StreamReplicationLagP50", histogram.valueAtPercentile(50))
+          .milliseconds("StreamReplicationLagP99", histogram.valueAtPercentile(99))
+          .milliseconds("StreamReplicationLagMax", histogram.max())
+          .toJson(windowStart) + "\n");
+      histogram.reset();
+    }
+    windowStart = nowMillis - nowMillis % windowMillis;
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Keys of KeyDesign.SHARDED_TIME_BUCKET. The partition key is the start of a time bucket plus
+// a random shard suffix, so the writes of a bucket are spread over several partitions instead of
+// one hot partition. The sort key starts with the zero padded write time, so the items of a
+// partition are sorted by time and a time range is a key condition, and ends with a random suffix,
+// so concurrent writes in the same millisecond do not overwrite each other.
+final class TimeBucketKeys {
+  static final String PARTITION_KEY_PREFIX = "bucket#";
+
+  private final long bucketMillis;
+  private final int shards;
+  private final long maxBuckets;
+
+  // A range read sends one Query per shard of each of its buckets, up to maxBuckets buckets
+  TimeBucketKeys(long bucketMillis, int shards, long maxBuckets) {
+    if (bucketMillis < 1) {
+      throw new IllegalArgumentException("bucketMillis must be at least 1: " + bucketMillis);
+    }
+    if (shards < 1) {
+      throw new IllegalArgumentException("shards must be at least 1: " + shards);
+    }
+    if (maxBuckets < 1) {
+      throw new IllegalArgumentException("maxBuckets must be at least 1: " + maxBuckets);
+    }
+    this.bucketMillis = bucketMillis;
+    this.shards = shards;
+    this.maxBuckets = maxBuckets;
+  }
+
+  Map<String, AttributeValue> key(long timeMillis) {
+    int shard = ThreadLocalRandom.current().nextInt(shards);
+    return Map.of(
+        "PK", AttributeValue.builder().s(partitionKey(bucketStart(timeMillis), shard)).build(),
+        "SK", AttributeValue.builder().s(sortKeyPrefix(timeMillis) + "#" + UUID.randomUUID()).build());
+  }
+
+  // Partition keys of all the shards of all the buckets overlapping [fromMillis, toMillis]
+  List<String> partitionKeys(long fromMillis, long toMillis) {
+    long buckets = toMillis < fromMillis ? 0 : (bucketStart(toMillis) - bucketStart(fromMillis)) / bucketMillis + 1;
+    if (buckets > maxBuckets) {
+      throw new IllegalArgumentException("The range covers " + buckets + " buckets, more than the maximum of "
+          + maxBuckets + ": narrow the range or raise KEY_MAX_BUCKETS");
+    }
+    List<String> partitionKeys = new ArrayList<>();
+    for (long bucket = bucketStart(fromMillis); bucket <= toMillis; bucket += bucketMillis) {
+      for (int shard = 0; shard < shards; shard++) {
+        partitionKeys.add(partitionKey(bucket, shard));
+      }
+    }
+    return partitionKeys;
+  }
+
+  // Lowest sort key of the items written at or after timeMillis
+  static String lowerSortKey(long timeMillis) {
+    return sortKeyPrefix(timeMillis);
+  }
+
+  // Highest sort key of the items written at or before timeMillis: '$' follows the '#' separator
+  static String upperSortKey(long timeMillis) {
+    return sortKeyPrefix(timeMillis) + "$";
+  }
+
+  private long bucketStart(long timeMillis) {
+    return timeMillis - Math.floorMod(timeMillis, bucketMillis);
+  }
+
+  private static String partitionKey(long bucketStart, int shard) {
+    return PARTITION_KEY_PREFIX + bucketStart + "#" + shard;
+  }
+
+  private static String sortKeyPrefix(long timeMillis) {
+    return String.format("%013d", timeMillis);
+  }
+}
@@ -0,0 +1,155 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Reads the items written with KeyDesign.SHARDED_TIME_BUCKET in a time range: one Query per
+// shard of each bucket of the range, all sent at the same time, whose results are already sorted
+// by sort key and are merged in time order. No scan is needed, whatever the size of the table.
+// To only count the items of the range, count() sends the same queries with Select.COUNT, and
+// neither returns nor holds the items.
+public class TimeRangeReader {
+  private static final Comparator<Map<String, AttributeValue>> BY_SORT_KEY =
+      Comparator.comparing(item -> item.get("SK").s());
+
+  private final DynamoDbClient ddbClient;
+  private final TimeBucketKeys keys;
+  private final ExecutorService executor;
+
+  TimeRangeReader(DynamoDbClient ddbClient, TimeBucketKeys keys, int concurrency) {
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be at least 1: " + concurrency);
+    }
+    this.ddbClient = ddbClient;
+    this.keys = keys;
+    this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+      Thread thread = new Thread(runnable, "time-range-query");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Items written between fromMillis and toMillis included, oldest first
+  public List<Map<String, AttributeValue>> read(String tableName, long fromMillis, long toMillis) {
+    List<Future<List<Map<String, AttributeValue>>>> partitions = new ArrayList<>();
+    for (String partitionKey : keys.partitionKeys(fromMillis, toMillis)) {
+      partitions.add(executor.submit(() -> queryPartition(tableName, partitionKey, fromMillis, toMillis)));
+    }
+    List<Iterator<Map<String, AttributeValue>>> sorted = new ArrayList<>(partitions.size());
+    for (Future<List<Map<String, AttributeValue>>> partition : partitions) {
+      sorted.add(join(partition).iterator());
+    }
+    return merge(sorted);
+  }
+
+  // Number of items written between fromMillis and toMillis included
+  public long count(String tableName, long fromMillis, long toMillis) {
+    List<Future<Long>> partitions = new ArrayList<>();
+    for (String partitionKey : keys.partitionKeys(fromMillis, toMillis)) {
+      partitions.add(executor.submit(() -> countPartition(tableName, partitionKey, fromMillis, toMillis)));
+    }
+    long count = 0;
+    for (Future<Long> partition : partitions) {
+      count += join(partition);
+    }
+    return count;
+  }
+
+  private List<Map<String, AttributeValue>> queryPartition(String tableName, String partitionKey,
+                                                           long fromMillis, long toMillis) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      QueryResponse response = ddbClient.query(queryRequest(tableName, partitionKey, fromMillis, toMillis)
+          .exclusiveStartKey(exclusiveStartKey)
+          .build());
+      items.addAll(response.items());
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+    return items;
+  }
+
+  // A page of Select.COUNT still reads up to 1 MB of items, but only returns their number
+  private long countPartition(String tableName, String partitionKey, long fromMillis, long toMillis) {
+    long count = 0;
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      QueryResponse response = ddbClient.query(queryRequest(tableName, partitionKey, fromMillis, toMillis)
+          .select(Select.COUNT)
+          .exclusiveStartKey(exclusiveStartKey)
+          .build());
+      count += response.count();
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+    return count;
+  }
+
+  private static QueryRequest.Builder queryRequest(String tableName, String partitionKey, long fromMillis, long toMillis) {
+    return QueryRequest.builder()
+        .tableName(tableName)
+        .keyConditionExpression("PK = :pk AND SK BETWEEN :from AND :to")
+        .expressionAttributeValues(Map.of(
+            ":pk", AttributeValue.builder().s(partitionKey).build(),
+            ":from", AttributeValue.builder().s(TimeBucketKeys.lowerSortKey(fromMillis)).build(),
+            ":to", AttributeValue.builder().s(TimeBucketKeys.upperSortKey(toMillis)).build()));
+  }
+
+  // k-way merge of lists sorted by sort key
+  private static List<Map<String, AttributeValue>> merge(List<Iterator<Map<String, AttributeValue>>> sorted) {
+    PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(sorted.size(), 1),
+        (left, right) -> BY_SORT_KEY.compare(left.item, right.item));
+    for (Iterator<Map<String, AttributeValue>> iterator : sorted) {
+      if (iterator.hasNext()) {
+        heads.add(new Head(iterator.next(), iterator));
+      }
+    }
+    List<Map<String, AttributeValue>> merged = new ArrayList<>();
+    while (!heads.isEmpty()) {
+      Head head = heads.poll();
+      merged.add(head.item);
+      if (head.rest.hasNext()) {
+        heads.add(new Head(head.rest.next(), head.rest));
+      }
+    }
+    return merged;
+  }
+
+  private static <T> T join(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading items", e);
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+  }
+
+  private static final class Head {
+    private final Map<String, AttributeValue> item;
+    private final Iterator<Map<String, AttributeValue>> rest;
+
+    private Head(Map<String, AttributeValue> item, Iterator<Map<String, AttributeValue>> rest) {
+      this.item = item;
+      this.rest = rest;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+// Write capacity consumed by the table and by each GSI, from the ConsumedCapacity of the writes
+// made with ReturnConsumedCapacity INDEXES. The write amplification of an index, its units per
+// unit of the table, sizes the write capacity of the index from that of the table: it depends on
+// the projection of the index and on the share of the writes that change its key attributes.
+final class WriteAmplification {
+  private final DoubleAdder tableUnits = new DoubleAdder();
+  private final Map<String, DoubleAdder> indexUnits = new ConcurrentHashMap<>();
+
+  void record(ConsumedCapacity capacity) {
+    if (capacity == null || capacity.table() == null) {
+      return;
+    }
+    tableUnits.add(units(capacity.table()));
+    if (capacity.hasGlobalSecondaryIndexes()) {
+      capacity.globalSecondaryIndexes().forEach((index, units) ->
+          indexUnits.computeIfAbsent(index, name -> new DoubleAdder()).add(units(units)));
+    }
+  }
+
+  // Logs the units since the last call and the amplification of each index as embedded metrics
+  void publish(LambdaLogger logger) {
+    double table = tableUnits.sumThenReset();
+    if (table == 0) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    logger.log(new EmbeddedMetrics()
+        .capacityUnits("TableWriteCapacityUnits", table)
+        .toJson(now) + "\n");
+    indexUnits.forEach((index, adder) -> {
+      double units = adder.sumThenReset();
+      logger.log(new EmbeddedMetrics()
+          .dimension("Index", index)
+          .capacityUnits("IndexWriteCapacityUnits", units)
+          .ratio("WriteAmplification", units / table)
+          .toJson(now) + "\n");
+    });
+  }
+
+  private static double units(Capacity capacity) {
+    if (capacity.writeCapacityUnits() != null) {
+      return capacity.writeCapacityUnits();
+    }
+    return capacity.capacityUnits() == null ? 0 : capacity.capacityUnits();
+  }
+}
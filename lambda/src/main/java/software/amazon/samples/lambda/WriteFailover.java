@@ -0,0 +1,157 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes to the home region of the function while it is healthy, and to the next replica region
+// when it is not. Each region has a circuit breaker over its last calls, where throttling, server
+// and network errors, timeouts and calls slower than slowCallMillis count as failures: while the breaker of
+// a region is open, its writes go straight to the next region. A write makes at most maxAttempts
+// attempts, one per region; errors such as a failed condition or a validation error are not
+// retried. If every breaker is open, the home region is tried anyway.
+//
+// The items keep the origin region of the function, so the stream counter of that region still
+// counts them once they are replicated back.
+public class WriteFailover {
+  private static final int WINDOW_CALLS = 20;
+  private static final int MIN_CALLS = 5;
+  private static final double FAILURE_RATE = 0.5;
+  private static final long OPEN_MILLIS = 30_000;
+
+  private final List<Region> regions = new ArrayList<>();
+  private final int maxAttempts;
+  private final long slowCallMillis;
+
+  // One client per region, the home region first
+  WriteFailover(Map<String, DynamoDbClient> clients, int maxAttempts, long slowCallMillis) {
+    if (clients.isEmpty() || maxAttempts < 1) {
+      throw new IllegalArgumentException("At least one region and one attempt are needed: " + clients.keySet()
+          + ", " + maxAttempts);
+    }
+    clients.forEach((region, client) -> regions.add(new Region(region, client)));
+    this.maxAttempts = maxAttempts;
+    this.slowCallMillis = slowCallMillis;
+  }
+
+  public PutItemResponse putItem(PutItemRequest request) {
+    SdkException lastError = null;
+    int attempts = 0;
+    for (Region region : regions) {
+      if (attempts == maxAttempts) {
+        break;
+      }
+      if (!region.breaker.allowRequest(System.currentTimeMillis())) {
+        continue;
+      }
+      attempts++;
+      try {
+        return put(region, request);
+      } catch (SdkException e) {
+        if (!isRetryable(e)) {
+          throw e;
+        }
+        lastError = e;
+      }
+    }
+    if (attempts == 0) {
+      return put(regions.get(0), request);
+    }
+    throw lastError;
+  }
+
+  // Logs the failover events since the last call as embedded metrics, per region
+  void publish(LambdaLogger logger) {
+    long now = System.currentTimeMillis();
+    for (Region region : regions) {
+      long failovers = region.failovers.getAndSet(0);
+      long breakerOpens = region.breakerOpens.getAndSet(0);
+      long failures = region.failures.getAndSet(0);
+      if (failovers + breakerOpens + failures > 0) {
+        logger.log(new EmbeddedMetrics()
+            .dimension("Region", region.name)
+            .count("WriteFailovers", failovers)
+            .count("WriteCircuitBreakerOpens", breakerOpens)
+            .count("WriteFailures", failures)
+            .toJson(now) + "\n");
+      }
+    }
+  }
+
+  private PutItemResponse put(Region region, PutItemRequest request) {
+    long start = System.nanoTime();
+    try {
+      PutItemResponse response = region.client.putItem(request);
+      if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > slowCallMillis) {
+        failure(region);
+      } else {
+        region.breaker.onSuccess();
+      }
+      if (region != regions.get(0)) {
+        region.failovers.incrementAndGet();
+      }
+      return response;
+    } catch (SdkException e) {
+      if (isRetryable(e)) {
+        failure(region);
+      } else {
+        // The region answered, the request is at fault
+        region.breaker.onSuccess();
+      }
+      throw e;
+    } catch (RuntimeException | Error e) {
+      // Recorded too, or the trial call of a half open breaker would never end
+      failure(region);
+      throw e;
+    }
+  }
+
+  private static void failure(Region region) {
+    region.failures.incrementAndGet();
+    if (region.breaker.onFailure(System.currentTimeMillis())) {
+      region.breakerOpens.incrementAndGet();
+    }
+  }
+
+  // Errors of the region rather than of the request. The timeouts of the failover clients
+  // (ApiCallAttemptTimeoutException, ApiCallTimeoutException) are client errors.
+  static boolean isRetryable(SdkException e) {
+    if (e instanceof ProvisionedThroughputExceededException || e instanceof RequestLimitExceededException) {
+      return true;
+    }
+    if (e instanceof AwsServiceException) {
+      AwsServiceException serviceException = (AwsServiceException) e;
+      return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+    }
+    return e instanceof SdkClientException;
+  }
+
+  private static final class Region {
+    private final String name;
+    private final DynamoDbClient client;
+    private final CircuitBreaker breaker = new CircuitBreaker(WINDOW_CALLS, MIN_CALLS, FAILURE_RATE, OPEN_MILLIS);
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong breakerOpens = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private Region(String name, DynamoDbClient client) {
+      this.name = name;
+      this.client = client;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveRateLimiterTest {
+  private static final long SECOND = 1_000_000_000L;
+
+  @Test
+  void requestsAreNotLimitedBeforeTheFirstThrottle() {
+    AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0, 0);
+    long now = System.nanoTime();
+    for (int i = 0; i < 100; i++) {
+      limiter.consume(100, now);
+      assertEquals(0, limiter.delayMillis(now));
+    }
+    assertEquals(0, limiter.rate());
+  }
+
+  @Test
+  void firstThrottleSetsTheRateFromTheConsumedCapacity() {
+    AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(0, 0);
+    long now = System.nanoTime();
+    limiter.consume(60, now);
+    limiter.consume(40, now + SECOND / 4);
+    limiter.onThrottle(now + SECOND / 2);
+
+    assertEquals(100 * AdaptiveRateLimiter.BETA, limiter.rate(), 1e-9);
+    assertEquals(1, limiter.takeThrottles());
+    assertEquals(0, limiter.takeThrottles());
+  }
+
+  @Test
+  void rateIsCutAtMostOncePerSecond() {
+    AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 0);
+    long now = System.nanoTime();
+    limiter.onThrottle(now);
+    limiter.onThrottle(now + SECOND / 2);
+    assertEquals(70, limiter.rate(), 1e-9);
+
+    limiter.onThrottle(now + SECOND + SECOND / 10);
+    assertEquals(49, limiter.rate(), 1e-9);
+  }
+
+  @Test
+  void rateOnlyGrowsWhileTheRequestsAreLimited() {
+    AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 100);
+    long now = System.nanoTime() + 10 * SECOND;
+    // Idle for 10 seconds: the rate does not grow
+    assertEquals(0, limiter.delayMillis(now));
+    assertEquals(10, limiter.rate(), 1e-9);
+
+    limiter.consume(10, now);
+    assertEquals(1, limiter.delayMillis(now));
+    assertEquals(0, limiter.delayMillis(now + SECOND));
+    assertEquals(11, limiter.rate(), 1e-9);
+  }
+
+  @Test
+  void growthStopsAtTheMaximumRate() {
+    AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 100);
+    long now = System.nanoTime();
+    limiter.consume(100, now);
+    limiter.delayMillis(now + SECOND);
+
+    assertEquals(100, limiter.rate(), 1e-9);
+  }
+
+  @Test
+  void overdrawnBucketDelaysUntilTheDebtIsPaidBack() {
+    AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 0);
+    long now = System.nanoTime();
+    limiter.consume(30, now);
+
+    assertEquals(2000, limiter.delayMillis(now));
+  }
+}
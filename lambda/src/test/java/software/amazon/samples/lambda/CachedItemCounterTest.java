@@ -0,0 +1,53 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CachedItemCounterTest {
+  private final AtomicLong clock = new AtomicLong(1000);
+  private final AtomicLong calls = new AtomicLong();
+  private final CachedItemCounter counter = new CachedItemCounter(
+      tableName -> CompletableFuture.completedFuture(tableName.length() * 100 + calls.incrementAndGet()),
+      5000, clock::get);
+
+  @Test
+  void countIsReusedWithinTheTimeToLive() {
+    CachedItemCounter.ItemCount first = counter.count("MyTable").join();
+    clock.addAndGet(4999);
+    CachedItemCounter.ItemCount second = counter.count("MyTable").join();
+
+    assertEquals(701, first.getCount());
+    assertEquals(0, first.getAgeMillis());
+    assertEquals(701, second.getCount());
+    assertEquals(4999, second.getAgeMillis());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void countIsReadAgainOnceExpired() {
+    counter.count("MyTable").join();
+    clock.addAndGet(5000);
+    CachedItemCounter.ItemCount count = counter.count("MyTable").join();
+
+    assertEquals(702, count.getCount());
+    assertEquals(0, count.getAgeMillis());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void eachTableHasItsOwnCount() {
+    counter.count("MyTable").join();
+    CachedItemCounter.ItemCount other = counter.count("OtherTable").join();
+
+    assertEquals(1002, other.getCount());
+    assertEquals(701, counter.count("MyTable").join().getCount());
+    assertEquals(2, calls.get());
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+  @Test
+  void opensOnceTheMinimumCallsReachTheFailureRate() {
+    CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1000);
+
+    assertFalse(breaker.onFailure(0));
+    assertFalse(breaker.onFailure(0));
+    assertFalse(breaker.onFailure(0));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertTrue(breaker.onFailure(0));
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertFalse(breaker.allowRequest(999));
+  }
+
+  @Test
+  void oldCallsLeaveTheWindow() {
+    CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.75, 1000);
+    breaker.onFailure(0);
+    breaker.onFailure(0);
+    breaker.onSuccess();
+    breaker.onSuccess();
+    // The window is now failure, success, success, success
+    breaker.onSuccess();
+
+    assertFalse(breaker.onFailure(0));
+    assertFalse(breaker.onFailure(0));
+    assertTrue(breaker.onFailure(0));
+  }
+
+  @Test
+  void halfOpenLetsOneTrialThroughAndClosesOnItsSuccess() {
+    CircuitBreaker breaker = open();
+
+    assertTrue(breaker.allowRequest(1000));
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    assertFalse(breaker.allowRequest(1000));
+    breaker.onSuccess();
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertTrue(breaker.allowRequest(1000));
+    assertTrue(breaker.allowRequest(1000));
+  }
+
+  @Test
+  void failedTrialOpensAgain() {
+    CircuitBreaker breaker = open();
+    breaker.allowRequest(1000);
+
+    assertTrue(breaker.onFailure(1500));
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertFalse(breaker.allowRequest(2499));
+    assertTrue(breaker.allowRequest(2500));
+  }
+
+  @Test
+  void invalidSettingsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 0, 0.5, 1000));
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 11, 0.5, 1000));
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 5, 0, 1000));
+    assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 5, 1.5, 1000));
+  }
+
+  // Opened at 0 for 1000 ms
+  private static CircuitBreaker open() {
+    CircuitBreaker breaker = new CircuitBreaker(2, 1, 1, 1000);
+    assertTrue(breaker.onFailure(0));
+    return breaker;
+  }
+}
@@ -0,0 +1,38 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EmbeddedMetricsTest {
+  @Test
+  void samplesAreAnArrayOfValues() {
+    String json = new EmbeddedMetrics()
+        .dimension("SourceRegion", "eu-west-1")
+        .count("ReplicationLagProbes", 3)
+        .milliseconds("ReplicationLag", List.of(120L, 85L, 3000L))
+        .toJson(1000);
+
+    assertEquals("{\"_aws\":{\"Timestamp\":1000,\"CloudWatchMetrics\":[{\"Namespace\":\"DynamoDbMigration\","
+        + "\"Dimensions\":[[\"SourceRegion\"]],\"Metrics\":[{\"Name\":\"ReplicationLagProbes\",\"Unit\":\"Count\"},"
+        + "{\"Name\":\"ReplicationLag\",\"Unit\":\"Milliseconds\"}]}]},\"SourceRegion\":\"eu-west-1\","
+        + "\"ReplicationLagProbes\":3,\"ReplicationLag\":[120,85,3000]}", json);
+  }
+
+  @Test
+  void tooManySamplesAreRejected() {
+    List<Long> samples = new ArrayList<>();
+    for (long sample = 0; sample <= EmbeddedMetrics.MAX_VALUES; sample++) {
+      samples.add(sample);
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> new EmbeddedMetrics().milliseconds("ReplicationLag", samples));
+  }
+}
@@ -0,0 +1,59 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LagHistogramTest {
+  @Test
+  void smallValuesAreExact() {
+    LagHistogram histogram = new LagHistogram();
+    for (int value = 1; value <= 100; value++) {
+      histogram.record(value);
+    }
+
+    assertEquals(100, histogram.count());
+    assertEquals(100, histogram.max());
+    assertEquals(50, histogram.valueAtPercentile(50));
+    assertEquals(99, histogram.valueAtPercentile(99));
+    assertEquals(1, histogram.valueAtPercentile(0));
+  }
+
+  @Test
+  void largeValuesAreWithinThePrecision() {
+    for (long value = 128; value < LagHistogram.MAX_VALUE; value = value * 11 / 10 + 1) {
+      LagHistogram histogram = new LagHistogram();
+      histogram.record(value);
+      histogram.record(LagHistogram.MAX_VALUE);
+
+      long bucketValue = histogram.valueAtPercentile(50);
+      assertTrue(bucketValue >= value && bucketValue <= value * 1.016, value + " recorded as " + bucketValue);
+    }
+  }
+
+  @Test
+  void valuesOutOfRangeAreClamped() {
+    LagHistogram histogram = new LagHistogram();
+    histogram.record(-5);
+    histogram.record(2 * LagHistogram.MAX_VALUE);
+
+    assertEquals(0, histogram.valueAtPercentile(50));
+    assertEquals(LagHistogram.MAX_VALUE, histogram.max());
+    assertEquals(LagHistogram.MAX_VALUE, histogram.valueAtPercentile(100));
+  }
+
+  @Test
+  void resetEmptiesTheHistogram() {
+    LagHistogram histogram = new LagHistogram();
+    histogram.record(1000);
+    histogram.reset();
+
+    assertEquals(0, histogram.count());
+    assertEquals(0, histogram.max());
+    assertEquals(0, histogram.valueAtPercentile(99));
+  }
+}
@@ -0,0 +1,168 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReadRoutingClientTest {
+  private static final String TABLE_NAME = "MyTable";
+  private static final GetItemRequest READ = GetItemRequest.builder()
+      .tableName(TABLE_NAME)
+      .key(Map.of("PK", AttributeValue.builder().s("pk#1").build()))
+      .build();
+
+  @Test
+  void failedReadGoesToTheNextRegion() {
+    RegionClient home = new RegionClient("us-east-1", 500);
+    RegionClient replica = new RegionClient("eu-west-1", 0);
+
+    try (ReadRoutingClient client = client(home, replica, false)) {
+      assertEquals("eu-west-1", region(client.getItem(READ)));
+    }
+  }
+
+  @Test
+  void failedReadGoesToTheNextRegionWithHedging() {
+    RegionClient home = new RegionClient("us-east-1", 503);
+    RegionClient replica = new RegionClient("eu-west-1", 0);
+
+    try (ReadRoutingClient client = client(home, replica, true)) {
+      assertEquals("eu-west-1", region(client.getItem(READ)));
+    }
+  }
+
+  @Test
+  void invalidReadIsNotSentAgain() {
+    RegionClient home = new RegionClient("us-east-1", 400);
+    RegionClient replica = new RegionClient("eu-west-1", 400);
+
+    try (ReadRoutingClient client = client(home, replica, false)) {
+      DynamoDbException e = assertThrows(DynamoDbException.class, () -> client.getItem(READ));
+      assertEquals(400, e.statusCode());
+      assertEquals(1, home.reads.get() + replica.reads.get());
+    }
+  }
+
+  @Test
+  void readFailingInEveryRegionThrowsTheFirstError() {
+    RegionClient home = new RegionClient("us-east-1", 500);
+    RegionClient replica = new RegionClient("eu-west-1", 500);
+
+    try (ReadRoutingClient client = client(home, replica, false)) {
+      DynamoDbException e = assertThrows(DynamoDbException.class, () -> client.getItem(READ));
+      assertEquals(1, e.getSuppressed().length);
+      assertEquals(2, home.reads.get() + replica.reads.get());
+    }
+  }
+
+  @Test
+  void otherOperationsGoToTheHomeRegion() {
+    RegionClient home = new RegionClient("us-east-1", 0);
+    RegionClient replica = new RegionClient("eu-west-1", 0);
+
+    try (ReadRoutingClient client = client(home, replica, false)) {
+      client.transactWriteItems(TransactWriteItemsRequest.builder().build());
+      client.scanPaginator(ScanRequest.builder().tableName(TABLE_NAME).build()).forEach(page -> {
+      });
+
+      assertEquals(1, home.transactions.get());
+      assertEquals(RegionClient.PAGES, home.scans.get());
+      assertEquals(0, replica.transactions.get() + replica.scans.get());
+    }
+  }
+
+  // The home region answers the warm-up call and the replica fails it, so the home region ranks first
+  private static ReadRoutingClient client(RegionClient home, RegionClient replica, boolean hedging) {
+    Map<String, DynamoDbClient> clients = new LinkedHashMap<>();
+    clients.put(home.region, home);
+    clients.put(replica.region, replica);
+    replica.failingWarmUp = true;
+    ReadRoutingClient client = new ReadRoutingClient(home.region, clients, hedging);
+    client.warmUp(TABLE_NAME);
+    return client;
+  }
+
+  private static String region(GetItemResponse response) {
+    return response.item().get("Region").s();
+  }
+
+  // Reads that fail with a status code, 0 for none, and scans of a few pages
+  private static final class RegionClient implements DynamoDbClient {
+    static final int PAGES = 3;
+
+    private final String region;
+    private final int failureStatusCode;
+    private final AtomicInteger reads = new AtomicInteger();
+    private final AtomicInteger scans = new AtomicInteger();
+    private final AtomicInteger transactions = new AtomicInteger();
+    private volatile boolean failingWarmUp;
+
+    RegionClient(String region, int failureStatusCode) {
+      this.region = region;
+      this.failureStatusCode = failureStatusCode;
+    }
+
+    @Override
+    public DescribeTableResponse describeTable(DescribeTableRequest request) {
+      if (failingWarmUp) {
+        throw DynamoDbException.builder().message("Warm-up failed").statusCode(500).build();
+      }
+      return DescribeTableResponse.builder().build();
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+      reads.incrementAndGet();
+      if (failureStatusCode != 0) {
+        throw DynamoDbException.builder().message("Read failed in " + region).statusCode(failureStatusCode).build();
+      }
+      return GetItemResponse.builder()
+          .item(Map.of("Region", AttributeValue.builder().s(region).build()))
+          .build();
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+      int page = scans.incrementAndGet();
+      ScanResponse.Builder response = ScanResponse.builder().count(0);
+      if (page < PAGES) {
+        response.lastEvaluatedKey(Map.of("PK", AttributeValue.builder().s("pk#" + page).build()));
+      }
+      return response.build();
+    }
+
+    @Override
+    public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+      transactions.incrementAndGet();
+      return TransactWriteItemsResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
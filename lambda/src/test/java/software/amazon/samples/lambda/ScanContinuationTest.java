@@ -0,0 +1,132 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanContinuationTest {
+  private static final String TABLE_NAME = "MyTable";
+
+  @Test
+  void tokenKeepsTheSegmentsAndTheirKeys() {
+    Map<String, AttributeValue> stringAndNumberKey = Map.of(
+        "PK", AttributeValue.builder().s("pk#1 \u00e9").build(),
+        "SK", AttributeValue.builder().n("-12.5").build());
+    Map<String, AttributeValue> binaryKey = Map.of(
+        "PK", AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[] {0, -1, 42})).build());
+    ScanContinuation continuation = ScanContinuation.start(TABLE_NAME, null, 4);
+    continuation.update(0, 1000, stringAndNumberKey);
+    continuation.update(1, 250, null);
+    continuation.update(2, 7, binaryKey);
+
+    ScanContinuation resumed = ScanContinuation.fromToken(continuation.toToken(), TABLE_NAME);
+
+    assertEquals(TABLE_NAME, resumed.tableName());
+    assertNull(resumed.indexName());
+    assertEquals(4, resumed.totalSegments());
+    assertEquals(stringAndNumberKey, resumed.lastEvaluatedKey(0));
+    assertEquals(binaryKey, resumed.lastEvaluatedKey(2));
+    assertNull(resumed.lastEvaluatedKey(3));
+    assertFalse(resumed.isDone(0));
+    assertTrue(resumed.isDone(1));
+    assertFalse(resumed.isDone(3));
+    assertEquals(1000, resumed.count(0));
+    assertEquals(1257, resumed.count());
+    assertFalse(resumed.isComplete());
+  }
+
+  @Test
+  void tokenKeepsTheIndexName() {
+    ScanContinuation continuation = ScanContinuation.start(TABLE_NAME, "MyGsi", 1);
+    continuation.update(0, 3, null);
+
+    ScanContinuation resumed = ScanContinuation.fromToken(continuation.toToken(), TABLE_NAME);
+
+    assertEquals("MyGsi", resumed.indexName());
+    assertTrue(resumed.isComplete());
+    assertEquals(3, resumed.count());
+  }
+
+  @Test
+  void tokenOfAnotherTableIsRejected() {
+    String token = ScanContinuation.start("OtherTable", null, 2).toToken();
+
+    assertThrows(IllegalArgumentException.class, () -> ScanContinuation.fromToken(token, TABLE_NAME));
+  }
+
+  @Test
+  void invalidTokensAreRejected() {
+    String token = ScanContinuation.start(TABLE_NAME, null, 2).toToken();
+
+    assertThrows(IllegalArgumentException.class, () -> ScanContinuation.fromToken("not a token!", TABLE_NAME));
+    assertThrows(IllegalArgumentException.class,
+        () -> ScanContinuation.fromToken(token.substring(0, token.length() - 4), TABLE_NAME));
+    assertThrows(IllegalArgumentException.class, () -> ScanContinuation.start(TABLE_NAME, null, 0));
+  }
+
+  @Test
+  void forgedLengthsAreRejected() throws IOException {
+    // One segment whose key has too many attributes, or a binary attribute of 2 GB
+    String tooManyAttributes = token(out -> out.writeInt(1000));
+    String tooLargeBinary = token(out -> {
+      out.writeInt(1);
+      out.writeUTF("PK");
+      out.writeByte('B');
+      out.writeInt(Integer.MAX_VALUE);
+    });
+    String negativeBinary = token(out -> {
+      out.writeInt(1);
+      out.writeUTF("PK");
+      out.writeByte('B');
+      out.writeInt(-1);
+    });
+
+    for (String token : new String[] {tooManyAttributes, tooLargeBinary, negativeBinary}) {
+      IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+          () -> ScanContinuation.fromToken(token, TABLE_NAME));
+      assertEquals("Invalid continuation token", e.getMessage());
+    }
+  }
+
+  @Test
+  void onlyKeyAttributeTypesAreEncoded() {
+    ScanContinuation continuation = ScanContinuation.start(TABLE_NAME, null, 1);
+    continuation.update(0, 1, Map.of("PK", AttributeValue.builder().bool(true).build()));
+
+    assertThrows(IllegalArgumentException.class, continuation::toToken);
+  }
+
+  private interface KeyWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  // Token of version 2 for a single segment of TABLE_NAME, whose key is written by keyWriter
+  private static String token(KeyWriter keyWriter) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(2);
+      out.writeUTF(TABLE_NAME);
+      out.writeBoolean(false);
+      out.writeInt(1);
+      out.writeBoolean(false);
+      out.writeLong(0);
+      keyWriter.write(out);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+  }
+}
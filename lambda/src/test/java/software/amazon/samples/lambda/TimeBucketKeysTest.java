@@ -0,0 +1,67 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.lambda;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeBucketKeysTest {
+  @Test
+  void rangeCoversEveryShardOfEveryOverlappingBucket() {
+    TimeBucketKeys keys = new TimeBucketKeys(1000, 4, 10);
+
+    List<String> partitionKeys = keys.partitionKeys(1500, 3200);
+
+    assertEquals(12, partitionKeys.size());
+    assertEquals("bucket#1000#0", partitionKeys.get(0));
+    assertEquals("bucket#3000#3", partitionKeys.get(11));
+    assertEquals(4, keys.partitionKeys(2000, 2999).size());
+    assertEquals(List.of(), keys.partitionKeys(3000, 2000));
+  }
+
+  @Test
+  void rangeOverTheMaximumBucketsIsRejected() {
+    TimeBucketKeys keys = new TimeBucketKeys(1000, 4, 3);
+
+    assertEquals(12, keys.partitionKeys(0, 2999).size());
+    assertThrows(IllegalArgumentException.class, () -> keys.partitionKeys(0, 3000));
+  }
+
+  @Test
+  void keyIsInItsBucketAndSortedByTime() {
+    TimeBucketKeys keys = new TimeBucketKeys(60_000, 8, 10);
+    long now = 1_677_664_800_123L;
+
+    Map<String, AttributeValue> key = keys.key(now);
+    String sortKey = key.get("SK").s();
+
+    assertTrue(keys.partitionKeys(now, now).contains(key.get("PK").s()));
+    assertTrue(TimeBucketKeys.lowerSortKey(now).compareTo(sortKey) <= 0);
+    assertTrue(sortKey.compareTo(TimeBucketKeys.upperSortKey(now)) < 0);
+    assertTrue(TimeBucketKeys.upperSortKey(now).compareTo(TimeBucketKeys.lowerSortKey(now + 1)) < 0);
+    assertTrue(TimeBucketKeys.upperSortKey(999).compareTo(TimeBucketKeys.lowerSortKey(1000)) < 0);
+  }
+
+  @Test
+  void writesInTheSameMillisecondHaveDifferentKeys() {
+    TimeBucketKeys keys = new TimeBucketKeys(60_000, 1, 10);
+
+    assertNotEquals(keys.key(1000), keys.key(1000));
+  }
+
+  @Test
+  void invalidSettingsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new TimeBucketKeys(0, 4, 10));
+    assertThrows(IllegalArgumentException.class, () -> new TimeBucketKeys(1000, 0, 10));
+    assertThrows(IllegalArgumentException.class, () -> new TimeBucketKeys(1000, 4, 0));
+  }
+}
@@ -0,0 +1,243 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.ondemand;
+
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.lambda.Alias;
+import software.amazon.awscdk.services.lambda.Architecture;
+import software.amazon.awscdk.services.lambda.AutoScalingOptions;
+import software.amazon.awscdk.services.lambda.CfnFunction;
+import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.lambda.FunctionProps;
+import software.amazon.awscdk.services.lambda.Runtime;
+import software.amazon.awscdk.services.lambda.RuntimeFamily;
+import software.amazon.awscdk.services.lambda.UtilizationScalingOptions;
+import software.constructs.Construct;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static software.amazon.samples.ondemand.StepConfig.*;
+
+// Performance settings shared by the functions of all the steps.
+// The profile is selected with "cdk deploy -c functionProfile=<name>", the default profile keeps
+// the settings of the original steps.
+public final class FunctionProfile {
+  public static final Runtime JAVA_17 = new Runtime("java17", RuntimeFamily.JAVA);
+
+  public static final FunctionProfile DEFAULT = builder().build();
+
+  // Provisioned concurrency on Graviton, scaled on its utilization
+  public static final FunctionProfile LOW_LATENCY = builder()
+      .runtime(JAVA_17)
+      .architecture(Architecture.ARM_64)
+      .memorySize(2048)
+      .javaToolOptions("-XX:+TieredCompilation -XX:TieredStopAtLevel=1")
+      .provisionedConcurrency(1, 10, 0.7)
+      .build();
+
+  // Small memory and SnapStart on Graviton, with a cap on the concurrency
+  public static final FunctionProfile LOW_COST = builder()
+      .architecture(Architecture.ARM_64)
+      .memorySize(512)
+      .snapStart(true)
+      .javaToolOptions("-XX:+TieredCompilation -XX:TieredStopAtLevel=1 -XX:+UseSerialGC")
+      .reservedConcurrency(10)
+      .build();
+
+  private static final Map<String, FunctionProfile> PROFILES = Map.of(
+      "default", DEFAULT,
+      "lowLatency", LOW_LATENCY,
+      "lowCost", LOW_COST);
+
+  private final Runtime runtime;
+  private final Architecture architecture;
+  private final int memorySize;
+  private final Duration timeout;
+  private final boolean snapStart;
+  private final String javaToolOptions;
+  private final Integer reservedConcurrency;
+  private final int minProvisionedConcurrency;
+  private final int maxProvisionedConcurrency;
+  private final double provisionedUtilizationTarget;
+
+  private FunctionProfile(Builder builder) {
+    this.runtime = builder.runtime;
+    this.architecture = builder.architecture;
+    this.memorySize = builder.memorySize;
+    this.timeout = builder.timeout;
+    this.snapStart = builder.snapStart;
+    this.javaToolOptions = builder.javaToolOptions;
+    this.reservedConcurrency = builder.reservedConcurrency;
+    this.minProvisionedConcurrency = builder.minProvisionedConcurrency;
+    this.maxProvisionedConcurrency = builder.maxProvisionedConcurrency;
+    this.provisionedUtilizationTarget = builder.provisionedUtilizationTarget;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  // Profile selected by the functionProfile context
+  public static FunctionProfile of(Construct scope) {
+    Object name = scope.getNode().tryGetContext(FUNCTION_PROFILE_CONTEXT_KEY);
+    if (name == null) {
+      return DEFAULT;
+    }
+    FunctionProfile profile = PROFILES.get(name.toString());
+    if (profile == null) {
+      throw new IllegalArgumentException("Unknown function profile " + name + ", expected one of " + PROFILES.keySet());
+    }
+    return profile;
+  }
+
+  // Same profile without concurrency settings, for a function invoked by an event source mapping:
+  // the mapping invokes the unqualified function, so provisioned concurrency on an alias would not be used
+  public FunctionProfile forEventSource() {
+    return toBuilder()
+        .reservedConcurrency(null)
+        .provisionedConcurrency(0, 0, provisionedUtilizationTarget)
+        .build();
+  }
+
+  public Builder toBuilder() {
+    return builder()
+        .runtime(runtime)
+        .architecture(architecture)
+        .memorySize(memorySize)
+        .timeout(timeout)
+        .snapStart(snapStart)
+        .javaToolOptions(javaToolOptions)
+        .reservedConcurrency(reservedConcurrency)
+        .provisionedConcurrency(minProvisionedConcurrency, maxProvisionedConcurrency, provisionedUtilizationTarget);
+  }
+
+  public Function createFunction(Construct scope, String id, String functionName, String handler,
+                                 Map<String, String> environment) {
+    boolean isNative = FunctionPackage.isNative(scope);
+    Map<String, String> withOptions = new HashMap<>(environment);
+    if (!isNative && javaToolOptions != null) {
+      withOptions.put("JAVA_TOOL_OPTIONS", javaToolOptions);
+    }
+
+    Function lambda = new Function(scope, id, FunctionProps.builder()
+        .code(FunctionPackage.code(scope))
+        .handler(handler)
+        .runtime(isNative ? FunctionPackage.runtime(scope) : runtime)
+        .architecture(architecture)
+        .environment(withOptions)
+        .timeout(timeout)
+        .memorySize(memorySize)
+        .reservedConcurrentExecutions(reservedConcurrency)
+        .functionName(functionName)
+        .build());
+
+    // SnapStart only applies to the Java runtimes, and to published versions
+    boolean withSnapStart = snapStart && !isNative;
+    if (withSnapStart) {
+      ((CfnFunction) lambda.getNode().getDefaultChild())
+          .addPropertyOverride("SnapStart", Map.of("ApplyOn", "PublishedVersions"));
+    }
+    if (withSnapStart || minProvisionedConcurrency > 0) {
+      // Invoke the alias, e.g. <function name>:live, to use the published version
+      Alias alias = Alias.Builder.create(scope, id + "Alias")
+          .aliasName(FUNCTION_ALIAS_NAME)
+          .version(lambda.getCurrentVersion())
+          .provisionedConcurrentExecutions(minProvisionedConcurrency > 0 ? minProvisionedConcurrency : null)
+          .build();
+      if (maxProvisionedConcurrency > minProvisionedConcurrency) {
+        alias.addAutoScaling(AutoScalingOptions.builder()
+                .minCapacity(minProvisionedConcurrency)
+                .maxCapacity(maxProvisionedConcurrency)
+                .build())
+            .scaleOnUtilization(UtilizationScalingOptions.builder()
+                .utilizationTarget(provisionedUtilizationTarget)
+                .build());
+      }
+    }
+    return lambda;
+  }
+
+  public static final class Builder {
+    private Runtime runtime = Runtime.JAVA_11;
+    private Architecture architecture = Architecture.X86_64;
+    private int memorySize = 1024;
+    private Duration timeout = Duration.seconds(30);
+    private boolean snapStart;
+    private String javaToolOptions;
+    private Integer reservedConcurrency;
+    private int minProvisionedConcurrency;
+    private int maxProvisionedConcurrency;
+    private double provisionedUtilizationTarget = 0.7;
+
+    private Builder() {
+    }
+
+    // Java runtime, the native executable always runs on provided.al2023
+    public Builder runtime(Runtime runtime) {
+      this.runtime = runtime;
+      return this;
+    }
+
+    // The native executable must be built for the same architecture
+    public Builder architecture(Architecture architecture) {
+      this.architecture = architecture;
+      return this;
+    }
+
+    public Builder memorySize(int memorySize) {
+      this.memorySize = memorySize;
+      return this;
+    }
+
+    public Builder timeout(Duration timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    public Builder snapStart(boolean snapStart) {
+      this.snapStart = snapStart;
+      return this;
+    }
+
+    public Builder javaToolOptions(String javaToolOptions) {
+      this.javaToolOptions = javaToolOptions;
+      return this;
+    }
+
+    // null to use the unreserved concurrency of the account
+    public Builder reservedConcurrency(Integer reservedConcurrency) {
+      this.reservedConcurrency = reservedConcurrency;
+      return this;
+    }
+
+    // Provisioned concurrency of the alias, scaled between min and max to keep the utilization near the target
+    public Builder provisionedConcurrency(int min, int max, double utilizationTarget) {
+      this.minProvisionedConcurrency = min;
+      this.maxProvisionedConcurrency = max;
+      this.provisionedUtilizationTarget = utilizationTarget;
+      return this;
+    }
+
+    public FunctionProfile build() {
+      if (memorySize < 128 || memorySize > 10240) {
+        throw new IllegalArgumentException("memorySize must be between 128 and 10240 MB: " + memorySize);
+      }
+      if (minProvisionedConcurrency < 0 || maxProvisionedConcurrency < minProvisionedConcurrency) {
+        throw new IllegalArgumentException("Invalid provisioned concurrency: min " + minProvisionedConcurrency
+            + ", max " + maxProvisionedConcurrency);
+      }
+      if (provisionedUtilizationTarget <= 0 || provisionedUtilizationTarget > 1) {
+        throw new IllegalArgumentException("utilizationTarget must be in (0, 1]: " + provisionedUtilizationTarget);
+      }
+      if (snapStart && minProvisionedConcurrency > 0) {
+        throw new IllegalArgumentException("SnapStart cannot be used with provisioned concurrency");
+      }
+      if (reservedConcurrency != null && reservedConcurrency < maxProvisionedConcurrency) {
+        throw new IllegalArgumentException("reservedConcurrency must be at least the max provisioned concurrency");
+      }
+      return new FunctionProfile(this);
+    }
+  }
+}
@@ -6,7 +6,7 @@ package software.amazon.samples.ondemand;
 import software.amazon.awscdk.App;
 import software.amazon.awscdk.StackProps;
 
-import static software.amazon.samples.ondemand.StepConfig.STACK_NAME;
+import static software.amazon.samples.ondemand.StepConfig.*;
 
 public final class OnDemandApp {
   public static void main(final String[] args) {
@@ -19,6 +19,14 @@ public final class OnDemandApp {
     new OnDemandStack4(app, STACK_NAME + 4, myStackProps);
     new OnDemandStack5(app, STACK_NAME + 5, myStackProps);
     new OnDemandStack6(app, STACK_NAME + 6, myStackProps);
+    // Stream counter of each replica, deployed with "cdk deploy OnDemandStackStreamCounter-<region> -c countStrategy=COUNTER"
+    if (StreamCounter.isSelected(app)) {
+      for (String region : DEFAULT_AND_TWO_REPLICA_REGIONS) {
+        if (!region.equals(AWS_DEFAULT_REGION)) {
+          new StreamCounterReplicaStack(app, STACK_NAME + "StreamCounter-" + region, region, DEFAULT_AND_TWO_REPLICA_REGIONS);
+        }
+      }
+    }
     app.synth();
   }
 }
\ No newline at end of file
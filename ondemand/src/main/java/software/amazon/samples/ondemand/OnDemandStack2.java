@@ -6,10 +6,7 @@ package software.amazon.samples.ondemand;
 import software.amazon.awscdk.*;
 import software.amazon.awscdk.customresources.*;
 import software.amazon.awscdk.services.dynamodb.*;
-import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
-import software.amazon.awscdk.services.lambda.FunctionProps;
-import software.amazon.awscdk.services.lambda.Runtime;
 import software.constructs.Construct;
 
 import java.util.List;
@@ -81,16 +78,9 @@ public class OnDemandStack2 extends Stack {
 
   // Using ITable instead of Table
   private void createFunction(ITable table) {
-    Function lambda = new Function(this, "MyFunction", FunctionProps.builder()
-        .code(Code.fromAsset(FUNCTION_PATH))
-        .handler(FUNCTION_HANDLER)
-        .runtime(Runtime.JAVA_11)
-        .environment(Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()))
-        .timeout(Duration.seconds(30))
-        .memorySize(1024)
-        .functionName(FUNCTION_NAME)
-        .build());
-    table.grant(lambda, "dynamodb:PutItem", "dynamodb:Scan");
+    Function lambda = FunctionProfile.of(this)
+        .createFunction(this, "MyFunction", FUNCTION_NAME, FUNCTION_HANDLER, Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()));
+    table.grant(lambda, "dynamodb:PutItem", "dynamodb:Scan", "dynamodb:Query", "dynamodb:DescribeTable");
   }
 
   /*
@@ -8,10 +8,7 @@ import software.amazon.awscdk.customresources.*;
 import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
 import software.amazon.awscdk.services.dynamodb.ITable;
 import software.amazon.awscdk.services.dynamodb.Table;
-import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
-import software.amazon.awscdk.services.lambda.FunctionProps;
-import software.amazon.awscdk.services.lambda.Runtime;
 import software.constructs.Construct;
 
 import java.util.List;
@@ -48,16 +45,9 @@ public class OnDemandStack4 extends Stack {
 
   // Using ITable instead of Table
   private void createFunction(ITable table) {
-    Function lambda = new Function(this, "MyFunction", FunctionProps.builder()
-        .code(Code.fromAsset(FUNCTION_PATH))
-        .handler(FUNCTION_HANDLER)
-        .runtime(Runtime.JAVA_11)
-        .environment(Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()))
-        .timeout(Duration.seconds(30))
-        .memorySize(1024)
-        .functionName(FUNCTION_NAME)
-        .build());
-    table.grant(lambda, "dynamodb:PutItem", "dynamodb:Scan");
+    Function lambda = FunctionProfile.of(this)
+        .createFunction(this, "MyFunction", FUNCTION_NAME, FUNCTION_HANDLER, Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()));
+    table.grant(lambda, "dynamodb:PutItem", "dynamodb:Scan", "dynamodb:Query", "dynamodb:DescribeTable");
   }
 
   private void outputTableStreamArn(String tableStreamArn) {
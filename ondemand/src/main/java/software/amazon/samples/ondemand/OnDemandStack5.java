@@ -7,12 +7,10 @@ import software.amazon.awscdk.*;
 import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
 import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
-import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
-import software.amazon.awscdk.services.lambda.FunctionProps;
-import software.amazon.awscdk.services.lambda.Runtime;
 import software.constructs.Construct;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -37,8 +35,13 @@ public class OnDemandStack5 extends Stack {
     // CfnGlobalTable
     CfnGlobalTable globalTable = createGlobalTable();
 
+    // Item count maintained from the table stream, with -c countStrategy=COUNTER
+    StreamCounter streamCounter = StreamCounter.isSelected(this)
+        ? new StreamCounter(this, "MyStreamCounter", globalTable, DEFAULT_AND_ONE_REPLICA_REGION)
+        : null;
+
     // Lambda
-    createFunction(globalTable);
+    createFunction(globalTable, streamCounter);
 
     // Output
 
@@ -51,23 +54,24 @@ public class OnDemandStack5 extends Stack {
   }
 
   // Using CfnGlobalTable instead of ITable
-  private void createFunction(CfnGlobalTable table) {
-    Function lambda = new Function(this, "MyFunction", FunctionProps.builder()
-        .code(Code.fromAsset(FUNCTION_PATH))
-        .handler(FUNCTION_HANDLER)
-        .runtime(Runtime.JAVA_11)
-        .environment(Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()))
-        .timeout(Duration.seconds(30))
-        .memorySize(1024)
-        .functionName(FUNCTION_NAME)
-        .build());
+  private void createFunction(CfnGlobalTable table, StreamCounter streamCounter) {
+    Map<String, String> environment = new HashMap<>(streamCounter != null
+        ? streamCounter.readerEnvironment()
+        : StreamCounter.countStrategyEnvironment(this));
+    environment.put(FUNCTION_ENV_VARIABLE, table.getTableName());
+    Function lambda = FunctionProfile.of(this)
+        .createFunction(this, "MyFunction", FUNCTION_NAME, FUNCTION_HANDLER, environment);
 
     lambda.getRole()
         .addToPrincipalPolicy(PolicyStatement.Builder.create()
-            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan"))
-            .resources(List.of(table.getAttrArn()))
+            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan", "dynamodb:Query", "dynamodb:DescribeTable"))
+            // The indexes, for the counts of COUNT_INDEX_NAME
+            .resources(List.of(table.getAttrArn(), table.getAttrArn() + "/index/*"))
             .effect(Effect.ALLOW)
             .build());
+    if (streamCounter != null) {
+      streamCounter.grantRead(lambda);
+    }
   }
 
   private CfnGlobalTable createGlobalTable() {
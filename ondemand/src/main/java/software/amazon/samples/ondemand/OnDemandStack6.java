@@ -7,12 +7,10 @@ import software.amazon.awscdk.*;
 import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
 import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
-import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
-import software.amazon.awscdk.services.lambda.FunctionProps;
-import software.amazon.awscdk.services.lambda.Runtime;
 import software.constructs.Construct;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -34,8 +32,18 @@ public class OnDemandStack6 extends Stack {
     // CfnGlobalTable
     CfnGlobalTable globalTable = createGlobalTable();
 
+    // Item count maintained from the table stream, with -c countStrategy=COUNTER
+    StreamCounter streamCounter = StreamCounter.isSelected(this)
+        ? new StreamCounter(this, "MyStreamCounter", globalTable, DEFAULT_AND_TWO_REPLICA_REGIONS)
+        : null;
+
     // Lambda
-    createFunction(globalTable);
+    createFunction(globalTable, streamCounter);
+
+    // Replication lag between the replicas, with -c replicationLagProbe=true
+    if (isEnabled(REPLICATION_LAG_PROBE_CONTEXT_KEY)) {
+      new ReplicationLagProbe(this, "MyReplicationLagProbe", globalTable, DEFAULT_AND_TWO_REPLICA_REGIONS);
+    }
 
     // Output
     outputTableStreamArn(globalTable);
@@ -45,23 +53,70 @@ public class OnDemandStack6 extends Stack {
     new CfnOutput(this, "TableStreamArn", CfnOutputProps.builder().value(table.getAttrStreamArn()).build());
   }
 
-  private void createFunction(CfnGlobalTable table) {
-    Function lambda = new Function(this, "MyFunction", FunctionProps.builder()
-        .code(Code.fromAsset(FUNCTION_PATH))
-        .handler(FUNCTION_HANDLER)
-        .runtime(Runtime.JAVA_11)
-        .environment(Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()))
-        .timeout(Duration.seconds(30))
-        .memorySize(1024)
-        .functionName(FUNCTION_NAME)
-        .build());
+  private void createFunction(CfnGlobalTable table, StreamCounter streamCounter) {
+    Map<String, String> environment = new HashMap<>(streamCounter != null
+        ? streamCounter.readerEnvironment()
+        : StreamCounter.countStrategyEnvironment(this));
+    environment.put(FUNCTION_ENV_VARIABLE, table.getTableName());
+    // Eventually consistent reads go to the fastest replica with -c readRouting=true
+    boolean readRouting = isEnabled(READ_ROUTING_CONTEXT_KEY);
+    if (readRouting) {
+      environment.put("READ_REGIONS", String.join(",", DEFAULT_AND_TWO_REPLICA_REGIONS));
+    }
+    // Writes go to the next replica while the circuit breaker of the default region is open with
+    // -c writeFailover=true, otherwise through the client of the default region with its default retries
+    boolean writeFailover = isEnabled(WRITE_FAILOVER_CONTEXT_KEY);
+    List<String> failoverRegions = DEFAULT_AND_TWO_REPLICA_REGIONS.stream()
+        .filter(region -> !region.equals(AWS_DEFAULT_REGION))
+        .collect(Collectors.toList());
+    if (writeFailover) {
+      environment.put("WRITE_FAILOVER_REGIONS", String.join(",", failoverRegions));
+    }
+    Function lambda = FunctionProfile.of(this)
+        .createFunction(this, "MyFunction", FUNCTION_NAME, FUNCTION_HANDLER, environment);
 
     lambda.getRole()
         .addToPrincipalPolicy(PolicyStatement.Builder.create()
-            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan"))
-            .resources(List.of(table.getAttrArn()))
+            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan", "dynamodb:Query", "dynamodb:DescribeTable"))
+            // The indexes, for the counts of COUNT_INDEX_NAME
+            .resources(List.of(table.getAttrArn(), table.getAttrArn() + "/index/*"))
             .effect(Effect.ALLOW)
             .build());
+    if (streamCounter != null) {
+      streamCounter.grantRead(lambda);
+    }
+    if (readRouting) {
+      lambda.getRole()
+          .addToPrincipalPolicy(PolicyStatement.Builder.create()
+              .actions(List.of("dynamodb:Scan", "dynamodb:Query", "dynamodb:GetItem", "dynamodb:BatchGetItem",
+                  "dynamodb:DescribeTable"))
+              .resources(replicaTableArns(table, DEFAULT_AND_TWO_REPLICA_REGIONS))
+              .effect(Effect.ALLOW)
+              .build());
+    }
+    if (writeFailover) {
+      lambda.getRole()
+          .addToPrincipalPolicy(PolicyStatement.Builder.create()
+              .actions(List.of("dynamodb:PutItem"))
+              .resources(replicaTableArns(table, failoverRegions))
+              .effect(Effect.ALLOW)
+              .build());
+    }
+  }
+
+  private boolean isEnabled(String contextKey) {
+    return Boolean.parseBoolean(String.valueOf(getNode().tryGetContext(contextKey)));
+  }
+
+  private List<String> replicaTableArns(CfnGlobalTable table, List<String> regions) {
+    return regions.stream()
+        .map(region -> formatArn(ArnComponents.builder()
+            .service("dynamodb")
+            .region(region)
+            .resource("table")
+            .resourceName(table.getTableName())
+            .build()))
+        .collect(Collectors.toList());
   }
 
   private CfnGlobalTable createGlobalTable() {
@@ -0,0 +1,61 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.ondemand;
+
+import software.amazon.awscdk.ArnComponents;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
+import software.amazon.awscdk.services.events.Rule;
+import software.amazon.awscdk.services.events.Schedule;
+import software.amazon.awscdk.services.events.targets.LambdaFunction;
+import software.amazon.awscdk.services.iam.Effect;
+import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.amazon.awscdk.services.lambda.Function;
+import software.constructs.Construct;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static software.amazon.samples.ondemand.StepConfig.*;
+
+// Measures the replication lag between every pair of regions of the global table: a scheduled
+// function writes a marker item in each region and reads it in the other regions until it
+// appears, then publishes the p50, p99 and max lag of each pair as CloudWatch metrics.
+public class ReplicationLagProbe extends Construct {
+
+  public ReplicationLagProbe(final Construct scope, final String id, final CfnGlobalTable table, final List<String> regions) {
+    super(scope, id);
+
+    // Each invocation probes for up to PROBE_ROUNDS * regions * PROBE_TIMEOUT_MILLIS
+    Function lambda = FunctionProfile.of(this).forEventSource().toBuilder()
+        .timeout(Duration.minutes(REPLICATION_LAG_PROBE_RATE_MINUTES))
+        .build()
+        .createFunction(this, "MyReplicationLagProbeFunction", REPLICATION_LAG_PROBE_FUNCTION_NAME,
+            REPLICATION_LAG_PROBE_FUNCTION_HANDLER, Map.of(
+                FUNCTION_ENV_VARIABLE, table.getTableName(),
+                "REPLICA_REGIONS", String.join(",", regions)));
+
+    List<String> replicaArns = regions.stream()
+        .map(region -> Stack.of(this).formatArn(ArnComponents.builder()
+            .service("dynamodb")
+            .region(region)
+            .resource("table")
+            .resourceName(table.getTableName())
+            .build()))
+        .collect(Collectors.toList());
+    lambda.getRole()
+        .addToPrincipalPolicy(PolicyStatement.Builder.create()
+            .actions(List.of("dynamodb:PutItem", "dynamodb:GetItem"))
+            .resources(replicaArns)
+            .effect(Effect.ALLOW)
+            .build());
+
+    Rule.Builder.create(this, "MyReplicationLagProbeSchedule")
+        .schedule(Schedule.rate(Duration.minutes(REPLICATION_LAG_PROBE_RATE_MINUTES)))
+        .targets(List.of(new LambdaFunction(lambda)))
+        .build();
+  }
+}
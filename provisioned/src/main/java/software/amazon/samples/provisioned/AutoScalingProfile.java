@@ -0,0 +1,105 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.provisioned;
+
+import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
+import software.constructs.Construct;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static software.amazon.samples.provisioned.StepConfig.*;
+
+// Auto scaling settings of the capacity of the CfnGlobalTable.
+// The defaults are those of StepConfig. They are replaced with the settings recommended by the
+// AutoScalingSimulator tool, either with
+// "cdk deploy -c writeAutoScaling=minCapacity=7,maxCapacity=46,targetValue=90,seedCapacity=7",
+// or with an object of the same keys under "writeAutoScaling" in the context of cdk.json.
+// Likewise for the read capacity with "readAutoScaling". The capacity of a GSI has its own
+// settings under "writeAutoScaling.<index name>" and "readAutoScaling.<index name>", the write
+// ones sized from the write amplification of the index, and otherwise those of the table.
+public final class AutoScalingProfile {
+  private final int minCapacity;
+  private final int maxCapacity;
+  private final int targetValue;
+  private final int seedCapacity;
+
+  AutoScalingProfile(int minCapacity, int maxCapacity, int targetValue, int seedCapacity) {
+    if (minCapacity < 1 || maxCapacity < minCapacity || targetValue < 20 || targetValue > 90
+        || seedCapacity < minCapacity || seedCapacity > maxCapacity) {
+      throw new IllegalArgumentException("Invalid auto scaling settings: min " + minCapacity + ", max " + maxCapacity
+          + ", target " + targetValue + ", seed " + seedCapacity);
+    }
+    this.minCapacity = minCapacity;
+    this.maxCapacity = maxCapacity;
+    this.targetValue = targetValue;
+    this.seedCapacity = seedCapacity;
+  }
+
+  public static AutoScalingProfile write(Construct scope) {
+    return of(scope, WRITE_AUTO_SCALING_CONTEXT_KEY, new AutoScalingProfile(WRITE_AUTO_SCALING_MIN,
+        WRITE_AUTO_SCALING_MAX, WRITE_AUTO_SCALING_UTILIZATION_TARGET, WRITE_AUTO_SCALING_MIN));
+  }
+
+  public static AutoScalingProfile write(Construct scope, String indexName) {
+    return of(scope, WRITE_AUTO_SCALING_CONTEXT_KEY + "." + indexName, write(scope));
+  }
+
+  public static AutoScalingProfile read(Construct scope) {
+    return of(scope, READ_AUTO_SCALING_CONTEXT_KEY, new AutoScalingProfile(READ_AUTO_SCALING_MIN,
+        READ_AUTO_SCALING_MAX, READ_AUTO_SCALING_UTILIZATION_TARGET, READ_AUTO_SCALING_MIN));
+  }
+
+  public static AutoScalingProfile read(Construct scope, String indexName) {
+    return of(scope, READ_AUTO_SCALING_CONTEXT_KEY + "." + indexName, read(scope));
+  }
+
+  // Settings of the context key, the keys it leaves out keep their default
+  static AutoScalingProfile of(Construct scope, String contextKey, AutoScalingProfile defaults) {
+    Object context = scope.getNode().tryGetContext(contextKey);
+    if (context == null) {
+      return defaults;
+    }
+    Map<String, Object> settings = new HashMap<>();
+    if (context instanceof Map) {
+      ((Map<?, ?>) context).forEach((key, value) -> settings.put(String.valueOf(key), value));
+    } else {
+      for (String setting : context.toString().split(",")) {
+        String[] keyValue = setting.split("=", 2);
+        if (keyValue.length != 2) {
+          throw new IllegalArgumentException("Expected key=value in " + contextKey + ": " + setting);
+        }
+        settings.put(keyValue[0].trim(), keyValue[1].trim());
+      }
+    }
+    int minCapacity = intValue(settings, "minCapacity", defaults.minCapacity);
+    return new AutoScalingProfile(minCapacity,
+        intValue(settings, "maxCapacity", defaults.maxCapacity),
+        intValue(settings, "targetValue", defaults.targetValue),
+        intValue(settings, "seedCapacity", minCapacity));
+  }
+
+  public int getMaxCapacity() {
+    return maxCapacity;
+  }
+
+  public CfnGlobalTable.CapacityAutoScalingSettingsProperty settings() {
+    return CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
+        .maxCapacity(maxCapacity)
+        .minCapacity(minCapacity)
+        .seedCapacity(seedCapacity)
+        .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
+            .targetValue(targetValue)
+            .build())
+        .build();
+  }
+
+  private static int intValue(Map<String, Object> settings, String key, int defaultValue) {
+    Object value = settings.get(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+  }
+}
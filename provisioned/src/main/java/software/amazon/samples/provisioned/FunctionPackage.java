@@ -0,0 +1,41 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.provisioned;
+
+import software.amazon.awscdk.services.lambda.Code;
+import software.amazon.awscdk.services.lambda.Runtime;
+import software.amazon.awscdk.services.lambda.RuntimeFamily;
+import software.constructs.Construct;
+
+import static software.amazon.samples.provisioned.StepConfig.*;
+
+// Code and runtime of the lambda functions.
+// By default the functions run the jar on the Java runtime. With "cdk deploy -c nativeFunction=true",
+// they run the native executable built with "mvn -Pnative package" on the provided.al2023 runtime.
+// With "cdk deploy -c minimizedJar=true", they run the jar built with "mvn -Pminimized package" on the Java runtime.
+public final class FunctionPackage {
+  private static final Runtime PROVIDED_AL2023 = new Runtime("provided.al2023", RuntimeFamily.OTHER);
+
+  private FunctionPackage() {
+  }
+
+  public static boolean isNative(Construct scope) {
+    return Boolean.parseBoolean(String.valueOf(scope.getNode().tryGetContext(NATIVE_FUNCTION_CONTEXT_KEY)));
+  }
+
+  public static boolean isMinimizedJar(Construct scope) {
+    return !isNative(scope) && Boolean.parseBoolean(String.valueOf(scope.getNode().tryGetContext(MINIMIZED_JAR_CONTEXT_KEY)));
+  }
+
+  public static Code code(Construct scope) {
+    if (isNative(scope)) {
+      return Code.fromAsset(FUNCTION_NATIVE_PATH);
+    }
+    return Code.fromAsset(isMinimizedJar(scope) ? FUNCTION_MINIMIZED_PATH : FUNCTION_PATH);
+  }
+
+  public static Runtime runtime(Construct scope) {
+    return isNative(scope) ? PROVIDED_AL2023 : Runtime.JAVA_11;
+  }
+}
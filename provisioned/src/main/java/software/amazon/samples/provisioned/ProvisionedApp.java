@@ -6,7 +6,7 @@ package software.amazon.samples.provisioned;
 import software.amazon.awscdk.App;
 import software.amazon.awscdk.StackProps;
 
-import static software.amazon.samples.provisioned.StepConfig.STACK_NAME;
+import static software.amazon.samples.provisioned.StepConfig.*;
 
 public final class ProvisionedApp {
   public static void main(final String[] args) {
@@ -21,6 +21,14 @@ public final class ProvisionedApp {
     new ProvisionedStack6(app, STACK_NAME + 6, myStackProps);
     new ProvisionedStack7(app, STACK_NAME + 7, myStackProps);
     new ProvisionedStack8(app, STACK_NAME + 8, myStackProps);
+    // Stream counter of each replica, deployed with "cdk deploy ProvisionedStackStreamCounter-<region> -c countStrategy=COUNTER"
+    if (StreamCounter.isSelected(app)) {
+      for (String region : DEFAULT_AND_ONE_REPLICA_REGION) {
+        if (!region.equals(AWS_DEFAULT_REGION)) {
+          new StreamCounterReplicaStack(app, STACK_NAME + "StreamCounter-" + region, region, DEFAULT_AND_ONE_REPLICA_REGION);
+        }
+      }
+    }
     app.synth();
   }
 }
\ No newline at end of file
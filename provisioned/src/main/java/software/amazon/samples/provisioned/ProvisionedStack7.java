@@ -7,12 +7,10 @@ import software.amazon.awscdk.*;
 import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
 import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
-import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
-import software.amazon.awscdk.services.lambda.FunctionProps;
-import software.amazon.awscdk.services.lambda.Runtime;
 import software.constructs.Construct;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -34,8 +32,13 @@ public class ProvisionedStack7 extends Stack {
     // CfnGlobalTable
     CfnGlobalTable globalTable = createGlobalTable();
 
+    // Item count maintained from the table stream, with -c countStrategy=COUNTER
+    StreamCounter streamCounter = StreamCounter.isSelected(this)
+        ? new StreamCounter(this, "MyStreamCounter", globalTable, DEFAULT_AND_ONE_REPLICA_REGION)
+        : null;
+
     // Lambda
-    createFunction(globalTable);
+    createFunction(globalTable, streamCounter);
 
     // Output
     outputTableStreamArn(globalTable);
@@ -45,26 +48,30 @@ public class ProvisionedStack7 extends Stack {
     new CfnOutput(this, "TableStreamArn", CfnOutputProps.builder().value(table.getAttrStreamArn()).build());
   }
 
-  private void createFunction(CfnGlobalTable table) {
-    Function lambda = new Function(this, "MyFunction", FunctionProps.builder()
-        .code(Code.fromAsset(FUNCTION_PATH))
-        .handler(FUNCTION_HANDLER)
-        .runtime(Runtime.JAVA_11)
-        .environment(Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()))
-        .timeout(Duration.seconds(30))
-        .memorySize(1024)
-        .functionName(FUNCTION_NAME)
-        .build());
+  private void createFunction(CfnGlobalTable table, StreamCounter streamCounter) {
+    Map<String, String> environment = new HashMap<>(streamCounter != null
+        ? streamCounter.readerEnvironment()
+        : StreamCounter.countStrategyEnvironment(this));
+    environment.put(FUNCTION_ENV_VARIABLE, table.getTableName());
+    Function lambda = FunctionProfile.of(this)
+        .createFunction(this, "MyFunction", FUNCTION_NAME, FUNCTION_HANDLER, environment);
 
     lambda.getRole()
         .addToPrincipalPolicy(PolicyStatement.Builder.create()
-            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan"))
-            .resources(List.of(table.getAttrArn()))
+            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan", "dynamodb:Query", "dynamodb:DescribeTable"))
+            // The indexes, for the counts of COUNT_INDEX_NAME
+            .resources(List.of(table.getAttrArn(), table.getAttrArn() + "/index/*"))
             .effect(Effect.ALLOW)
             .build());
+    if (streamCounter != null) {
+      streamCounter.grantRead(lambda);
+    }
   }
 
   private CfnGlobalTable createGlobalTable() {
+    AutoScalingProfile writeAutoScaling = AutoScalingProfile.write(this);
+    AutoScalingProfile readAutoScaling = AutoScalingProfile.read(this);
+
     List<CfnGlobalTable.AttributeDefinitionProperty> attributeDefinitions = List.of(CfnGlobalTable.AttributeDefinitionProperty.builder()
             .attributeName("PK")
             .attributeType("S")
@@ -88,14 +95,7 @@ public class ProvisionedStack7 extends Stack {
         .build();
 
     CfnGlobalTable.WriteProvisionedThroughputSettingsProperty writeProvisionedThroughputSettings = CfnGlobalTable.WriteProvisionedThroughputSettingsProperty.builder()
-        .writeCapacityAutoScalingSettings(CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
-            .maxCapacity(WRITE_AUTO_SCALING_MAX)
-            .minCapacity(WRITE_AUTO_SCALING_MIN)
-            .seedCapacity(WRITE_AUTO_SCALING_MIN)
-            .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
-                .targetValue(WRITE_AUTO_SCALING_UTILIZATION_TARGET)
-                .build())
-            .build())
+        .writeCapacityAutoScalingSettings(writeAutoScaling.settings())
         .build();
 
     List<CfnGlobalTable.GlobalSecondaryIndexProperty> indexes = List.of(CfnGlobalTable.GlobalSecondaryIndexProperty.builder()
@@ -120,14 +120,7 @@ public class ProvisionedStack7 extends Stack {
           .globalSecondaryIndexes(List.of(CfnGlobalTable.ReplicaGlobalSecondaryIndexSpecificationProperty.builder()
               .indexName(GSI_NAME)
               .readProvisionedThroughputSettings(CfnGlobalTable.ReadProvisionedThroughputSettingsProperty.builder()
-                  .readCapacityAutoScalingSettings(CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
-                      .maxCapacity(READ_AUTO_SCALING_MAX)
-                      .minCapacity(READ_AUTO_SCALING_MIN)
-                      .seedCapacity(READ_AUTO_SCALING_MIN)
-                      .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
-                          .targetValue(READ_AUTO_SCALING_UTILIZATION_TARGET)
-                          .build())
-                      .build())
+                  .readCapacityAutoScalingSettings(readAutoScaling.settings())
                   .build())
               .build()))
           // Enable PiTR for the table
@@ -135,14 +128,7 @@ public class ProvisionedStack7 extends Stack {
               .pointInTimeRecoveryEnabled(Boolean.TRUE)
               .build())
           .readProvisionedThroughputSettings(CfnGlobalTable.ReadProvisionedThroughputSettingsProperty.builder()
-              .readCapacityAutoScalingSettings(CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
-                  .maxCapacity(READ_AUTO_SCALING_MAX)
-                  .minCapacity(READ_AUTO_SCALING_MIN)
-                  .seedCapacity(READ_AUTO_SCALING_MIN)
-                  .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
-                      .targetValue(READ_AUTO_SCALING_UTILIZATION_TARGET)
-                      .build())
-                  .build())
+              .readCapacityAutoScalingSettings(readAutoScaling.settings())
               .build())
           .build();
     }).collect(Collectors.toList());
@@ -7,12 +7,10 @@ import software.amazon.awscdk.*;
 import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
 import software.amazon.awscdk.services.iam.Effect;
 import software.amazon.awscdk.services.iam.PolicyStatement;
-import software.amazon.awscdk.services.lambda.Code;
 import software.amazon.awscdk.services.lambda.Function;
-import software.amazon.awscdk.services.lambda.FunctionProps;
-import software.amazon.awscdk.services.lambda.Runtime;
 import software.constructs.Construct;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -34,8 +32,18 @@ public class ProvisionedStack8 extends Stack {
     // CfnGlobalTable
     CfnGlobalTable globalTable = createGlobalTable();
 
+    // Item count maintained from the table stream, with -c countStrategy=COUNTER
+    StreamCounter streamCounter = StreamCounter.isSelected(this)
+        ? new StreamCounter(this, "MyStreamCounter", globalTable, DEFAULT_AND_ONE_REPLICA_REGION)
+        : null;
+
     // Lambda
-    createFunction(globalTable);
+    createFunction(globalTable, streamCounter);
+
+    // Replication lag between the replicas, with -c replicationLagProbe=true
+    if (isEnabled(REPLICATION_LAG_PROBE_CONTEXT_KEY)) {
+      new ReplicationLagProbe(this, "MyReplicationLagProbe", globalTable, DEFAULT_AND_ONE_REPLICA_REGION);
+    }
 
     // Output
     outputTableStreamArn(globalTable);
@@ -45,26 +53,41 @@ public class ProvisionedStack8 extends Stack {
     new CfnOutput(this, "TableStreamArn", CfnOutputProps.builder().value(table.getAttrStreamArn()).build());
   }
 
-  private void createFunction(CfnGlobalTable table) {
-    Function lambda = new Function(this, "MyFunction", FunctionProps.builder()
-        .code(Code.fromAsset(FUNCTION_PATH))
-        .handler(FUNCTION_HANDLER)
-        .runtime(Runtime.JAVA_11)
-        .environment(Map.of(FUNCTION_ENV_VARIABLE, table.getTableName()))
-        .timeout(Duration.seconds(30))
-        .memorySize(1024)
-        .functionName(FUNCTION_NAME)
-        .build());
+  private void createFunction(CfnGlobalTable table, StreamCounter streamCounter) {
+    Map<String, String> environment = new HashMap<>(streamCounter != null
+        ? streamCounter.readerEnvironment()
+        : StreamCounter.countStrategyEnvironment(this));
+    environment.put(FUNCTION_ENV_VARIABLE, table.getTableName());
+    // Client-side rate limiting up to the maximum capacity of the auto scaling, instead of retrying the throttles,
+    // with -c rateLimit=true. The write amplification of the GSIs is only logged by the rate limiter.
+    if (isEnabled(RATE_LIMIT_CONTEXT_KEY)) {
+      environment.put("RATE_LIMIT", "true");
+      environment.put("RATE_LIMIT_MAX_RCU", Integer.toString(AutoScalingProfile.read(this).getMaxCapacity()));
+      environment.put("RATE_LIMIT_MAX_WCU", Integer.toString(AutoScalingProfile.write(this).getMaxCapacity()));
+    }
+    Function lambda = FunctionProfile.of(this)
+        .createFunction(this, "MyFunction", FUNCTION_NAME, FUNCTION_HANDLER, environment);
 
     lambda.getRole()
         .addToPrincipalPolicy(PolicyStatement.Builder.create()
-            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan"))
-            .resources(List.of(table.getAttrArn()))
+            .actions(List.of("dynamodb:PutItem", "dynamodb:Scan", "dynamodb:Query", "dynamodb:DescribeTable"))
+            // The indexes, for the counts of COUNT_INDEX_NAME
+            .resources(List.of(table.getAttrArn(), table.getAttrArn() + "/index/*"))
             .effect(Effect.ALLOW)
             .build());
+    if (streamCounter != null) {
+      streamCounter.grantRead(lambda);
+    }
+  }
+
+  private boolean isEnabled(String contextKey) {
+    return Boolean.parseBoolean(String.valueOf(getNode().tryGetContext(contextKey)));
   }
 
   private CfnGlobalTable createGlobalTable() {
+    AutoScalingProfile writeAutoScaling = AutoScalingProfile.write(this);
+    AutoScalingProfile readAutoScaling = AutoScalingProfile.read(this);
+
     List<CfnGlobalTable.AttributeDefinitionProperty> attributeDefinitions = List.of(CfnGlobalTable.AttributeDefinitionProperty.builder()
             .attributeName("PK")
             .attributeType("S")
@@ -87,16 +110,7 @@ public class ProvisionedStack8 extends Stack {
         .streamViewType("NEW_AND_OLD_IMAGES")
         .build();
 
-    CfnGlobalTable.WriteProvisionedThroughputSettingsProperty writeProvisionedThroughputSettings = CfnGlobalTable.WriteProvisionedThroughputSettingsProperty.builder()
-        .writeCapacityAutoScalingSettings(CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
-            .maxCapacity(WRITE_AUTO_SCALING_MAX)
-            .minCapacity(WRITE_AUTO_SCALING_MIN)
-            .seedCapacity(WRITE_AUTO_SCALING_MIN)
-            .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
-                .targetValue(WRITE_AUTO_SCALING_UTILIZATION_TARGET)
-                .build())
-            .build())
-        .build();
+    CfnGlobalTable.WriteProvisionedThroughputSettingsProperty writeProvisionedThroughputSettings = writeProvisionedThroughputSettings(writeAutoScaling);
 
     List<CfnGlobalTable.GlobalSecondaryIndexProperty> indexes = List.of(
         CfnGlobalTable.GlobalSecondaryIndexProperty.builder()
@@ -111,7 +125,8 @@ public class ProvisionedStack8 extends Stack {
             .projection(CfnGlobalTable.ProjectionProperty.builder()
                 .projectionType("KEYS_ONLY")
                 .build())
-            .writeProvisionedThroughputSettings(writeProvisionedThroughputSettings)
+            // Each GSI scales its write capacity on its own, as its writes are not those of the table
+            .writeProvisionedThroughputSettings(writeProvisionedThroughputSettings(AutoScalingProfile.write(this, GSI_NAME)))
             .build(),
         // Adding a new GSI as an example
         CfnGlobalTable.GlobalSecondaryIndexProperty.builder()
@@ -123,7 +138,7 @@ public class ProvisionedStack8 extends Stack {
             .projection(CfnGlobalTable.ProjectionProperty.builder()
                 .projectionType("KEYS_ONLY")
                 .build())
-            .writeProvisionedThroughputSettings(writeProvisionedThroughputSettings)
+            .writeProvisionedThroughputSettings(writeProvisionedThroughputSettings(AutoScalingProfile.write(this, SECOND_GSI_NAME)))
             .build()
     );
 
@@ -134,28 +149,14 @@ public class ProvisionedStack8 extends Stack {
               CfnGlobalTable.ReplicaGlobalSecondaryIndexSpecificationProperty.builder()
                   .indexName(GSI_NAME)
                   .readProvisionedThroughputSettings(CfnGlobalTable.ReadProvisionedThroughputSettingsProperty.builder()
-                      .readCapacityAutoScalingSettings(CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
-                          .maxCapacity(READ_AUTO_SCALING_MAX)
-                          .minCapacity(READ_AUTO_SCALING_MIN)
-                          .seedCapacity(READ_AUTO_SCALING_MIN)
-                          .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
-                              .targetValue(READ_AUTO_SCALING_UTILIZATION_TARGET)
-                              .build())
-                          .build())
+                      .readCapacityAutoScalingSettings(AutoScalingProfile.read(this, GSI_NAME).settings())
                       .build())
                   .build(),
               // Adding a new GSI
               CfnGlobalTable.ReplicaGlobalSecondaryIndexSpecificationProperty.builder()
                   .indexName(SECOND_GSI_NAME)
                   .readProvisionedThroughputSettings(CfnGlobalTable.ReadProvisionedThroughputSettingsProperty.builder()
-                      .readCapacityAutoScalingSettings(CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
-                          .maxCapacity(READ_AUTO_SCALING_MAX)
-                          .minCapacity(READ_AUTO_SCALING_MIN)
-                          .seedCapacity(READ_AUTO_SCALING_MIN)
-                          .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
-                              .targetValue(READ_AUTO_SCALING_UTILIZATION_TARGET)
-                              .build())
-                          .build())
+                      .readCapacityAutoScalingSettings(AutoScalingProfile.read(this, SECOND_GSI_NAME).settings())
                       .build())
                   .build()))
           // Enable PiTR for the table
@@ -163,14 +164,7 @@ public class ProvisionedStack8 extends Stack {
               .pointInTimeRecoveryEnabled(Boolean.TRUE)
               .build())
           .readProvisionedThroughputSettings(CfnGlobalTable.ReadProvisionedThroughputSettingsProperty.builder()
-              .readCapacityAutoScalingSettings(CfnGlobalTable.CapacityAutoScalingSettingsProperty.builder()
-                  .maxCapacity(READ_AUTO_SCALING_MAX)
-                  .minCapacity(READ_AUTO_SCALING_MIN)
-                  .seedCapacity(READ_AUTO_SCALING_MIN)
-                  .targetTrackingScalingPolicyConfiguration(CfnGlobalTable.TargetTrackingScalingPolicyConfigurationProperty.builder()
-                      .targetValue(READ_AUTO_SCALING_UTILIZATION_TARGET)
-                      .build())
-                  .build())
+              .readCapacityAutoScalingSettings(readAutoScaling.settings())
               .build())
           .build();
     }).collect(Collectors.toList());
@@ -191,4 +185,10 @@ public class ProvisionedStack8 extends Stack {
     table.applyRemovalPolicy(RemovalPolicy.RETAIN);
     return table;
   }
+
+  private static CfnGlobalTable.WriteProvisionedThroughputSettingsProperty writeProvisionedThroughputSettings(AutoScalingProfile writeAutoScaling) {
+    return CfnGlobalTable.WriteProvisionedThroughputSettingsProperty.builder()
+        .writeCapacityAutoScalingSettings(writeAutoScaling.settings())
+        .build();
+  }
 }
\ No newline at end of file
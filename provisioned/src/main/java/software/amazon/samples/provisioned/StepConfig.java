@@ -17,7 +17,24 @@ public class StepConfig {
   public static final String FUNCTION_NAME = STACK_NAME + "MyFunction";
   public static final String FUNCTION_HANDLER = "software.amazon.samples.lambda.Handler";
   public static final String FUNCTION_PATH = "../lambda/target/lambda-1.0-jar-with-dependencies.jar";
+  public static final String FUNCTION_NATIVE_PATH = "../lambda/target/lambda-1.0-native.zip";
+  public static final String NATIVE_FUNCTION_CONTEXT_KEY = "nativeFunction";
+  public static final String FUNCTION_MINIMIZED_PATH = "../lambda/target/lambda-1.0-minimized.jar";
+  public static final String MINIMIZED_JAR_CONTEXT_KEY = "minimizedJar";
   public static final String FUNCTION_ENV_VARIABLE = "TABLE_NAME";
+  public static final String FUNCTION_PROFILE_CONTEXT_KEY = "functionProfile";
+  public static final String COUNT_STRATEGY_CONTEXT_KEY = "countStrategy";
+  public static final String RATE_LIMIT_CONTEXT_KEY = "rateLimit";
+  public static final String REPLICATION_LAG_PROBE_CONTEXT_KEY = "replicationLagProbe";
+  public static final String FUNCTION_ALIAS_NAME = "live";
+
+  public static final String STREAM_COUNTER_FUNCTION_NAME = STACK_NAME + "MyStreamCounterFunction";
+  public static final String STREAM_COUNTER_FUNCTION_HANDLER = "software.amazon.samples.lambda.StreamCounterHandler";
+  public static final Integer COUNTER_SHARDS = 10;
+
+  public static final String REPLICATION_LAG_PROBE_FUNCTION_NAME = STACK_NAME + "MyReplicationLagProbeFunction";
+  public static final String REPLICATION_LAG_PROBE_FUNCTION_HANDLER = "software.amazon.samples.lambda.ReplicationLagProbeHandler";
+  public static final Integer REPLICATION_LAG_PROBE_RATE_MINUTES = 1;
 
   public static final Integer WRITE_AUTO_SCALING_MIN = 5;
   public static final Integer READ_AUTO_SCALING_MIN = 5;
@@ -25,4 +42,6 @@ public class StepConfig {
   public static final Integer READ_AUTO_SCALING_MAX = 10;
   public static final Integer WRITE_AUTO_SCALING_UTILIZATION_TARGET = 70;
   public static final Integer READ_AUTO_SCALING_UTILIZATION_TARGET = 70;
+  public static final String WRITE_AUTO_SCALING_CONTEXT_KEY = "writeAutoScaling";
+  public static final String READ_AUTO_SCALING_CONTEXT_KEY = "readAutoScaling";
 }
\ No newline at end of file
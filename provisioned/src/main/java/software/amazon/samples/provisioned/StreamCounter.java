@@ -0,0 +1,101 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.provisioned;
+
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.dynamodb.CfnGlobalTable;
+import software.amazon.awscdk.services.iam.Effect;
+import software.amazon.awscdk.services.iam.IGrantable;
+import software.amazon.awscdk.services.iam.PolicyStatement;
+import software.amazon.awscdk.services.lambda.EventSourceMapping;
+import software.amazon.awscdk.services.lambda.EventSourceMappingProps;
+import software.amazon.awscdk.services.lambda.Function;
+import software.amazon.awscdk.services.lambda.StartingPosition;
+import software.constructs.Construct;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static software.amazon.samples.provisioned.StepConfig.*;
+
+// Keeps a sharded item counter up to date in the table by processing its stream,
+// so the item count can be read with a few reads instead of scanning the table.
+// Each region counts the writes made in that region only, and measures the lag of the writes replicated
+// to it: StreamCounterReplicaStack deploys the same function next to each replica.
+public class StreamCounter extends Construct {
+  private final String tableArn;
+  private final List<String> regions;
+
+  public StreamCounter(final Construct scope, final String id, final CfnGlobalTable table, final List<String> regions) {
+    this(scope, id, table.getTableName(), table.getAttrArn(), table.getAttrStreamArn(), regions);
+  }
+
+  public StreamCounter(final Construct scope, final String id, final String tableName, final String tableArn,
+                       final String streamArn, final List<String> regions) {
+    super(scope, id);
+    this.tableArn = tableArn;
+    this.regions = regions;
+
+    Function lambda = FunctionProfile.of(this).forEventSource()
+        .createFunction(this, "MyStreamCounterFunction", STREAM_COUNTER_FUNCTION_NAME, STREAM_COUNTER_FUNCTION_HANDLER, Map.of(
+            FUNCTION_ENV_VARIABLE, tableName,
+            "COUNTER_SHARDS", COUNTER_SHARDS.toString(),
+            "COUNTER_HOME_REGION", AWS_DEFAULT_REGION));
+
+    lambda.getRole()
+        .addToPrincipalPolicy(PolicyStatement.Builder.create()
+            .actions(List.of("dynamodb:UpdateItem"))
+            .resources(List.of(tableArn))
+            .effect(Effect.ALLOW)
+            .build());
+    lambda.getRole()
+        .addToPrincipalPolicy(PolicyStatement.Builder.create()
+            .actions(List.of("dynamodb:DescribeStream", "dynamodb:GetRecords", "dynamodb:GetShardIterator", "dynamodb:ListStreams"))
+            .resources(List.of(streamArn))
+            .effect(Effect.ALLOW)
+            .build());
+
+    // Start from the latest record: the items that exist before the function is deployed
+    // must be added once to the counter, see the documentation of the lambda module
+    new EventSourceMapping(this, "MyStreamCounterEventSource", EventSourceMappingProps.builder()
+        .target(lambda)
+        .eventSourceArn(streamArn)
+        .startingPosition(StartingPosition.LATEST)
+        .batchSize(1000)
+        .maxBatchingWindow(Duration.seconds(1))
+        .build());
+  }
+
+  // The counter is only deployed when the countStrategy context selects COUNTER, the other
+  // strategies count the items without it
+  public static boolean isSelected(Construct scope) {
+    return "COUNTER".equalsIgnoreCase(String.valueOf(scope.getNode().tryGetContext(COUNT_STRATEGY_CONTEXT_KEY)));
+  }
+
+  // COUNT_STRATEGY of the countStrategy context, if any, for a function that counts the items
+  public static Map<String, String> countStrategyEnvironment(Construct scope) {
+    Object countStrategy = scope.getNode().tryGetContext(COUNT_STRATEGY_CONTEXT_KEY);
+    return countStrategy == null ? Map.of() : Map.of("COUNT_STRATEGY", countStrategy.toString().toUpperCase());
+  }
+
+  // Environment variables for a function that reads the count with CounterItemCounter. The counter
+  // only counts the items written after its deployment, so it must be seeded once deployed.
+  public Map<String, String> readerEnvironment() {
+    Map<String, String> environment = new HashMap<>(Map.of(
+        "COUNTER_REGIONS", String.join(",", regions),
+        "COUNTER_SHARDS", COUNTER_SHARDS.toString()));
+    environment.putAll(countStrategyEnvironment(this));
+    return environment;
+  }
+
+  public void grantRead(IGrantable grantee) {
+    grantee.getGrantPrincipal()
+        .addToPrincipalPolicy(PolicyStatement.Builder.create()
+            .actions(List.of("dynamodb:BatchGetItem", "dynamodb:GetItem"))
+            .resources(List.of(tableArn))
+            .effect(Effect.ALLOW)
+            .build());
+  }
+}
@@ -0,0 +1,55 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.provisioned;
+
+import software.amazon.awscdk.*;
+import software.amazon.awscdk.customresources.*;
+import software.constructs.Construct;
+
+import java.util.List;
+import java.util.Map;
+
+import static software.amazon.samples.provisioned.StepConfig.*;
+
+// Stream counter of a replica region, deployed after the step that adds the replica to the global table.
+// The stream of a replica is not an attribute of CfnGlobalTable, so it is read with DescribeTable in the
+// region of the stack. The counter counts the writes made in this region, and measures the lag of the
+// writes replicated to it from the other regions.
+public class StreamCounterReplicaStack extends Stack {
+
+  public StreamCounterReplicaStack(final Construct parent, final String id, final String replicaRegion,
+                                   final List<String> regions) {
+    super(parent, id, StackProps.builder()
+        .stackName(STACK_NAME + "StreamCounter")
+        .env(Environment.builder().region(replicaRegion).build())
+        .analyticsReporting(false)
+        .build());
+
+    String tableArn = formatArn(ArnComponents.builder()
+        .service("dynamodb")
+        .resource("table")
+        .resourceName(TABLE_NAME)
+        .build());
+    new StreamCounter(this, "MyStreamCounter", TABLE_NAME, tableArn, getTableStreamArn(tableArn), regions);
+  }
+
+  private String getTableStreamArn(String tableArn) {
+    AwsSdkCall describeTable = AwsSdkCall.builder()
+        .service("DynamoDB")
+        .action("describeTable")
+        .parameters(Map.of("TableName", TABLE_NAME))
+        .outputPaths(List.of("Table.LatestStreamArn"))
+        .physicalResourceId(PhysicalResourceId.of(TABLE_NAME)).build();
+    AwsCustomResource describeTableCustomResource = AwsCustomResource.Builder.create(this, "MyTableDescribeTable")
+        .onCreate(describeTable)
+        .onUpdate(describeTable)
+        .installLatestAwsSdk(false)
+        .policy(AwsCustomResourcePolicy.fromSdkCalls(SdkCallsPolicyOptions.builder()
+            .resources(List.of(tableArn))
+            .build()))
+        .build();
+
+    return describeTableCustomResource.getResponseField("Table.LatestStreamArn");
+  }
+}
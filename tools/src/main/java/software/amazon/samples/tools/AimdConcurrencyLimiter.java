@@ -0,0 +1,58 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+// Additive-increase, multiplicative-decrease limit of the number of requests in flight.
+// Each successful request adds 1/limit, so the limit grows by about one request per round trip.
+// A congested request, throttled, failed with a server error or with unprocessed items, halves the
+// limit, at most once per round trip so that all the requests hit by the same overload count as one
+// signal. The limit stays between minLimit and maxLimit.
+final class AimdConcurrencyLimiter {
+  private final int minLimit;
+  private final int maxLimit;
+  private double limit;
+  private int inFlight;
+  // The origin of System.nanoTime() is arbitrary: start long enough before now, and compare the
+  // difference of two times, not the times themselves
+  private long lastDecreaseNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+  private long congestions;
+
+  AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+  }
+
+  // Returns the time the permit was acquired, to pass to release()
+  synchronized long acquire() throws InterruptedException {
+    while (inFlight >= (int) limit) {
+      wait();
+    }
+    inFlight++;
+    return System.nanoTime();
+  }
+
+  synchronized void release(long acquiredNanos, boolean congested) {
+    inFlight--;
+    if (congested) {
+      congestions++;
+      // Requests sent before the last decrease reflect the previous limit
+      if (acquiredNanos - lastDecreaseNanos > 0) {
+        limit = Math.max(minLimit, limit / 2);
+        lastDecreaseNanos = System.nanoTime();
+      }
+    } else {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+    notifyAll();
+  }
+
+  synchronized int limit() {
+    return (int) limit;
+  }
+
+  synchronized long congestions() {
+    return congestions;
+  }
+}
@@ -0,0 +1,54 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Command line options of the tools, given as --name value.
+final class Arguments {
+  private final Map<String, String> values = new HashMap<>();
+
+  Arguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+      }
+      String name = args[i].substring(2);
+      boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+      values.put(name, hasValue ? args[++i] : "true");
+    }
+  }
+
+  String required(String name) {
+    String value = values.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing required option --" + name);
+    }
+    return value;
+  }
+
+  String string(String name, String defaultValue) {
+    return values.getOrDefault(name, defaultValue);
+  }
+
+  int intValue(String name, int defaultValue) {
+    String value = values.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  long longValue(String name, long defaultValue) {
+    String value = values.get(name);
+    return value == null ? defaultValue : Long.parseLong(value);
+  }
+
+  double doubleValue(String name, double defaultValue) {
+    String value = values.get(name);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+
+  boolean flag(String name) {
+    return Boolean.parseBoolean(values.getOrDefault(name, "false"));
+  }
+}
@@ -0,0 +1,455 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.protocols.jsoncore.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Replays a trace of consumed capacity, one line per minute, through a model of the target
+// tracking auto scaling of DynamoDB and of its burst capacity, to predict the throttling and the
+// unused capacity of auto scaling settings before they are deployed, e.g. the 5/10/70% of
+// StepConfig used by ProvisionedStack7 and ProvisionedStack8. With --recommend, it searches the
+// settings of the lowest provisioned capacity that keep the throttled share of the demand under
+// the SLO, and prints them as the context the provisioned stacks read. Each GSI gets settings of
+// its own, from its column of the trace or from the table demand scaled by its write amplification.
+// The consumed capacity of a throttled table is capped by its provisioned capacity: the throttled
+// requests of a <column>:throttled column are added to the demand, and the minutes that reach the
+// capacity of a <column>:provisioned column are reported, since their demand is unknown.
+//
+// mvn compile exec:java -Dexec.mainClass=software.amazon.samples.tools.AutoScalingSimulator \
+//   -Dexec.args="--trace consumed-wcu.csv --recommend"
+public final class AutoScalingSimulator {
+  // Defaults of StepConfig in the provisioned module
+  private static final int DEFAULT_MIN = 5;
+  private static final int DEFAULT_MAX = 10;
+  private static final int DEFAULT_TARGET = 70;
+  // Unused capacity is kept for up to 5 minutes as burst capacity
+  private static final int BURST_SECONDS = 300;
+  // The alarm of the scaling policy scales out after 2 minutes above the target, and in after 15
+  // minutes 20 points below it
+  private static final int SCALE_OUT_MINUTES = 2;
+  private static final int SCALE_IN_MINUTES = 15;
+  private static final int SCALE_IN_MARGIN = 20;
+  // Time for a new capacity to apply once the alarm fires
+  private static final int UPDATE_MINUTES = 2;
+  // Decreases per UTC day allowed at any time, then one per hour after the last one
+  private static final int FREE_DECREASES_PER_DAY = 4;
+  private static final int MINUTES_BETWEEN_DECREASES = 60;
+  private static final int MIN_TARGET = 20;
+  private static final int MAX_TARGET = 90;
+
+  // Demand of each minute, in capacity units per second
+  private final double[] demand;
+  // UTC day of each minute
+  private final long[] days;
+  private final double unitsPerRequest;
+
+  AutoScalingSimulator(double[] demand, long[] days, double unitsPerRequest) {
+    if (demand.length == 0) {
+      throw new IllegalArgumentException("The trace is empty");
+    }
+    this.demand = demand;
+    this.days = days;
+    this.unitsPerRequest = unitsPerRequest;
+  }
+
+  public static void main(String[] args) throws IOException {
+    Arguments arguments = new Arguments(args);
+    String capacity = arguments.string("capacity", "write");
+    if (!capacity.equals("write") && !capacity.equals("read")) {
+      throw new IllegalArgumentException("Unknown --capacity: " + capacity);
+    }
+    double unitsPerRequest = arguments.doubleValue("units-per-request", 1);
+    Trace trace = Trace.read(Path.of(arguments.required("trace")), arguments.flag("per-second"), unitsPerRequest);
+    trace.throttled.forEach(name -> System.out.printf("%s: the throttled requests are added to the demand%n", name));
+    trace.saturatedMinutes.forEach((name, minutes) -> System.out.printf("Warning: %s consumed its provisioned capacity "
+        + "in %d minute(s), whose demand is underestimated without a %s%s column%n", name, minutes, name,
+        Trace.THROTTLED_SUFFIX));
+    AutoScalingSimulator simulator = new AutoScalingSimulator(trace.columns.get(0), trace.days, unitsPerRequest);
+    Settings current = new Settings(arguments.intValue("min", DEFAULT_MIN), arguments.intValue("max", DEFAULT_MAX),
+        arguments.intValue("target", DEFAULT_TARGET), arguments.intValue("seed", arguments.intValue("min", DEFAULT_MIN)));
+    Result result = simulator.simulate(current);
+    System.out.printf("%d minute(s), peak demand %.1f units/s%n", simulator.demand.length, simulator.peak());
+    System.out.println("Settings:    " + current + "\n  " + result);
+    if (!arguments.flag("recommend")) {
+      return;
+    }
+    double slo = arguments.doubleValue("max-throttled-fraction", 0.001);
+    String contextKey = capacity + "AutoScaling";
+    Map<String, Settings> recommendations = new LinkedHashMap<>();
+    recommendations.put(contextKey, simulator.recommend("Table", slo));
+    // The indexes of the trace, then those sized from the table with an amplification
+    Map<String, AutoScalingSimulator> indexes = new LinkedHashMap<>();
+    for (int column = 1; column < trace.columns.size(); column++) {
+      indexes.put(trace.names.get(column), new AutoScalingSimulator(trace.columns.get(column), trace.days,
+          unitsPerRequest));
+    }
+    String amplifications = arguments.string("amplification", null);
+    if (amplifications != null) {
+      for (String amplification : amplifications.split(",")) {
+        String[] indexAndRatio = amplification.split("=", 2);
+        if (indexAndRatio.length != 2 || indexAndRatio[0].isBlank()) {
+          throw new IllegalArgumentException("Expected index=ratio in --amplification: " + amplification);
+        }
+        double ratio = Double.parseDouble(indexAndRatio[1].trim());
+        if (!(ratio > 0)) {
+          throw new IllegalArgumentException("The ratio of --amplification must be positive: " + amplification);
+        }
+        double[] demand = Arrays.stream(simulator.demand).map(units -> units * ratio).toArray();
+        indexes.put(indexAndRatio[0].trim(), new AutoScalingSimulator(demand, trace.days, unitsPerRequest));
+      }
+    }
+    indexes.forEach((index, indexSimulator) ->
+        recommendations.put(contextKey + "." + index, indexSimulator.recommend("Index " + index, slo)));
+    StringBuilder deploy = new StringBuilder("cdk deploy");
+    recommendations.forEach((key, settings) -> deploy.append(" -c ").append(key).append('=').append(settings.toContext()));
+    System.out.println(deploy.append(" ProvisionedStack8"));
+    String output = arguments.string("output", null);
+    if (output != null) {
+      Files.write(Path.of(output), Settings.toJson(recommendations));
+      System.out.println("Context written to " + output + ", to merge into the context of cdk.json");
+    }
+  }
+
+  private static Instant timestamp(String value) {
+    return value.chars().allMatch(Character::isDigit) ? Instant.ofEpochSecond(Long.parseLong(value)) : Instant.parse(value);
+  }
+
+  Result simulate(Settings settings) {
+    Result result = new Result();
+    double provisioned = settings.seed;
+    double burst = 0;
+    int minutesAbove = 0;
+    int minutesBelow = 0;
+    // Capacity decided by the last alarm, and the minute it applies
+    double pending = 0;
+    int pendingAt = -1;
+    int lastDecrease = -MINUTES_BETWEEN_DECREASES;
+    long day = days[0];
+    int decreasesToday = 0;
+    double target = settings.target / 100.0;
+    for (int minute = 0; minute < demand.length; minute++) {
+      if (minute == pendingAt) {
+        if (pending < provisioned) {
+          result.scaleIns++;
+        } else {
+          result.scaleOuts++;
+        }
+        provisioned = pending;
+        pendingAt = -1;
+      }
+      if (days[minute] != day) {
+        day = days[minute];
+        decreasesToday = 0;
+      }
+      // Throttled when the demand is above the capacity and the burst capacity is spent
+      double served = Math.min(demand[minute], provisioned + burst / 60);
+      burst = Math.max(0, Math.min(BURST_SECONDS * provisioned, burst + (provisioned - served) * 60));
+      result.demandUnits += demand[minute] * 60;
+      result.throttledUnits += (demand[minute] - served) * 60;
+      if (served < demand[minute]) {
+        result.throttledMinutes++;
+      }
+      result.provisionedHours += provisioned / 60;
+      result.overProvisionedHours += Math.max(0, provisioned - demand[minute]) / 60;
+      result.maxProvisioned = Math.max(result.maxProvisioned, provisioned);
+      // The alarms see the consumed capacity, not the throttled demand
+      double utilization = 100 * served / provisioned;
+      minutesAbove = utilization > settings.target ? minutesAbove + 1 : 0;
+      minutesBelow = utilization < settings.target - SCALE_IN_MARGIN ? minutesBelow + 1 : 0;
+      if (pendingAt >= 0) {
+        continue;
+      }
+      double wanted = Math.ceil(served / target);
+      if (minutesAbove >= SCALE_OUT_MINUTES && provisioned < settings.max) {
+        pending = Math.min(settings.max, Math.max(wanted, provisioned + 1));
+        pendingAt = minute + UPDATE_MINUTES;
+        minutesAbove = 0;
+      } else if (minutesBelow >= SCALE_IN_MINUTES && provisioned > settings.min
+          && (decreasesToday < FREE_DECREASES_PER_DAY || minute - lastDecrease >= MINUTES_BETWEEN_DECREASES)) {
+        pending = Math.max(settings.min, wanted);
+        pendingAt = minute + UPDATE_MINUTES;
+        minutesBelow = 0;
+        decreasesToday++;
+        lastDecrease = minute;
+      }
+    }
+    result.unitsPerRequest = unitsPerRequest;
+    return result;
+  }
+
+  // Prints and returns the recommended settings
+  private Settings recommend(String label, double maxThrottledFraction) {
+    Settings recommended = recommend(maxThrottledFraction);
+    Result result = simulate(recommended);
+    System.out.printf("%s, peak demand %.1f units/s, recommended: %s%n  %s%n", label, peak(), recommended, result);
+    if (result.throttledFraction() > maxThrottledFraction) {
+      System.out.printf("  No settings keep the throttled share under %.4f%%, these throttle the least%n",
+          100 * maxThrottledFraction);
+    }
+    return recommended;
+  }
+
+  // Settings of the lowest provisioned capacity-hours within the SLO, or of the least throttling
+  // if none is within it
+  Settings recommend(double maxThrottledFraction) {
+    double peak = peak();
+    Settings best = null;
+    Result bestResult = null;
+    for (int target = MIN_TARGET; target <= MAX_TARGET; target += 5) {
+      int peakCapacity = (int) Math.max(1, Math.ceil(peak * 100 / target));
+      for (int min : candidates(peakCapacity)) {
+        for (double headroom : new double[] {1, 1.25, 1.5, 2}) {
+          int max = Math.max(min, (int) Math.ceil(peakCapacity * headroom));
+          Settings settings = new Settings(min, max, target, seed(min, max, target));
+          Result result = simulate(settings);
+          if (bestResult == null || better(result, bestResult, maxThrottledFraction)) {
+            best = settings;
+            bestResult = result;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private static boolean better(Result result, Result best, double maxThrottledFraction) {
+    boolean within = result.throttledFraction() <= maxThrottledFraction;
+    boolean bestWithin = best.throttledFraction() <= maxThrottledFraction;
+    if (within != bestWithin) {
+      return within;
+    }
+    if (!within) {
+      return result.throttledUnits < best.throttledUnits;
+    }
+    return result.provisionedHours < best.provisionedHours;
+  }
+
+  // Minimum capacities from 1 to the peak, about 25% apart
+  private static TreeSet<Integer> candidates(int peakCapacity) {
+    TreeSet<Integer> candidates = new TreeSet<>();
+    for (double min = 1; min < peakCapacity * 1.25; min *= 1.25) {
+      candidates.add((int) Math.min(Math.ceil(min), peakCapacity));
+    }
+    return candidates;
+  }
+
+  // Capacity when the table is created: enough for the first hour of the trace
+  private int seed(int min, int max, int target) {
+    double firstHour = 0;
+    for (int minute = 0; minute < Math.min(60, demand.length); minute++) {
+      firstHour = Math.max(firstHour, demand[minute]);
+    }
+    return (int) Math.max(min, Math.min(max, Math.ceil(firstHour * 100 / target)));
+  }
+
+  private double peak() {
+    double peak = 0;
+    for (double units : demand) {
+      peak = Math.max(peak, units);
+    }
+    return peak;
+  }
+
+  // Demand per minute of the table, then of each index with a column in the trace
+  static final class Trace {
+    static final String THROTTLED_SUFFIX = ":throttled";
+    static final String PROVISIONED_SUFFIX = ":provisioned";
+    // Share of the provisioned capacity above which a minute is taken as capped by it
+    static final double SATURATED_UTILIZATION = 0.95;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<double[]> columns = new ArrayList<>();
+    private long[] days;
+    // Columns whose throttled requests are in the demand
+    private final List<String> throttled = new ArrayList<>();
+    // Minutes at the provisioned capacity of each column that has one
+    private final Map<String, Integer> saturatedMinutes = new LinkedHashMap<>();
+
+    // CSV lines of timestamp,table[,index...]: the timestamp is ISO-8601 or epoch seconds, the
+    // consumed capacity is the sum of the minute, as CloudWatch reports ConsumedWriteCapacityUnits
+    // with a period of 60 seconds, or an average per second with perSecond. The header line names
+    // the indexes, e.g. timestamp,table,MyGsi,MySecondGsi. A column named <column>:throttled holds
+    // the throttle events of that column, e.g. WriteThrottleEvents, summed like the consumed
+    // capacity, and <column>:provisioned its provisioned capacity per second.
+    static Trace read(Path path, boolean perSecond, double unitsPerRequest) throws IOException {
+      Trace trace = new Trace();
+      List<String> names = new ArrayList<>();
+      List<List<Double>> columns = new ArrayList<>();
+      List<Long> days = new ArrayList<>();
+      try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String[] fields = line.trim().split(",");
+          if (fields.length < 2 || fields[0].isEmpty()) {
+            continue;
+          }
+          if (!Character.isDigit(fields[0].charAt(0))) {
+            names.clear();
+            Arrays.stream(fields).skip(1).map(String::trim).forEach(names::add);
+            continue;
+          }
+          for (int column = 1; column < fields.length; column++) {
+            if (columns.size() < column) {
+              columns.add(new ArrayList<>());
+            }
+            double value = Double.parseDouble(fields[column].trim());
+            boolean provisioned = column <= names.size() && names.get(column - 1).endsWith(PROVISIONED_SUFFIX);
+            columns.get(column - 1).add(perSecond || provisioned ? value : value / 60);
+          }
+          days.add(Math.floorDiv(timestamp(fields[0].trim()).getEpochSecond(), 86_400L));
+        }
+      }
+      while (names.size() < columns.size()) {
+        names.add("column" + (names.size() + 1));
+      }
+      Map<String, double[]> values = new LinkedHashMap<>();
+      for (int column = 0; column < columns.size(); column++) {
+        if (columns.get(column).size() != days.size()) {
+          throw new IllegalArgumentException("Every line of " + path + " must have the same columns");
+        }
+        values.put(names.get(column), columns.get(column).stream().mapToDouble(Double::doubleValue).toArray());
+      }
+      values.forEach((name, consumed) -> {
+        if (!name.endsWith(THROTTLED_SUFFIX) && !name.endsWith(PROVISIONED_SUFFIX)) {
+          trace.names.add(name);
+          trace.columns.add(consumed);
+        }
+      });
+      if (trace.columns.isEmpty()) {
+        throw new IllegalArgumentException("The trace is empty");
+      }
+      for (String name : values.keySet()) {
+        String suffix = name.endsWith(THROTTLED_SUFFIX) ? THROTTLED_SUFFIX
+            : name.endsWith(PROVISIONED_SUFFIX) ? PROVISIONED_SUFFIX : "";
+        String column = name.substring(0, name.length() - suffix.length());
+        if (!trace.names.contains(column)) {
+          throw new IllegalArgumentException("No column " + column + " for the column " + name + " of " + path);
+        }
+      }
+      for (int column = 0; column < trace.columns.size(); column++) {
+        String name = trace.names.get(column);
+        double[] consumed = trace.columns.get(column);
+        double[] provisioned = values.get(name + PROVISIONED_SUFFIX);
+        if (provisioned != null) {
+          int saturated = 0;
+          for (int minute = 0; minute < consumed.length; minute++) {
+            if (provisioned[minute] > 0 && consumed[minute] >= SATURATED_UTILIZATION * provisioned[minute]) {
+              saturated++;
+            }
+          }
+          if (saturated > 0) {
+            trace.saturatedMinutes.put(name, saturated);
+          }
+        }
+        double[] throttleEvents = values.get(name + THROTTLED_SUFFIX);
+        if (throttleEvents != null) {
+          trace.throttled.add(name);
+          trace.saturatedMinutes.remove(name);
+          for (int minute = 0; minute < consumed.length; minute++) {
+            consumed[minute] += throttleEvents[minute] * unitsPerRequest;
+          }
+        }
+      }
+      trace.days = days.stream().mapToLong(Long::longValue).toArray();
+      return trace;
+    }
+
+    double[] demand(int column) {
+      return columns.get(column);
+    }
+
+    List<String> names() {
+      return names;
+    }
+
+    List<String> throttled() {
+      return throttled;
+    }
+
+    Map<String, Integer> saturatedMinutes() {
+      return saturatedMinutes;
+    }
+  }
+
+  static final class Settings {
+    private final int min;
+    private final int max;
+    private final int target;
+    private final int seed;
+
+    Settings(int min, int max, int target, int seed) {
+      if (min < 1 || max < min || target < MIN_TARGET || target > MAX_TARGET || seed < min || seed > max) {
+        throw new IllegalArgumentException("Invalid auto scaling settings: " + min + ", " + max + ", " + target + ", "
+            + seed);
+      }
+      this.min = min;
+      this.max = max;
+      this.target = target;
+      this.seed = seed;
+    }
+
+    // Value of the context key of the provisioned stacks
+    String toContext() {
+      return String.format("minCapacity=%d,maxCapacity=%d,targetValue=%d,seedCapacity=%d", min, max, target, seed);
+    }
+
+    // Context of cdk.json, one object per context key
+    static byte[] toJson(Map<String, Settings> contexts) {
+      JsonWriter writer = JsonWriter.create();
+      writer.writeStartObject();
+      contexts.forEach((contextKey, settings) -> {
+        writer.writeFieldName(contextKey).writeStartObject();
+        writer.writeFieldName("minCapacity").writeValue(settings.min);
+        writer.writeFieldName("maxCapacity").writeValue(settings.max);
+        writer.writeFieldName("targetValue").writeValue(settings.target);
+        writer.writeFieldName("seedCapacity").writeValue(settings.seed);
+        writer.writeEndObject();
+      });
+      writer.writeEndObject();
+      return writer.getBytes();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("min %d, max %d, target %d%%, seed %d", min, max, target, seed);
+    }
+  }
+
+  static final class Result {
+    private double demandUnits;
+    private double throttledUnits;
+    private int throttledMinutes;
+    private double provisionedHours;
+    private double overProvisionedHours;
+    private double maxProvisioned;
+    private int scaleOuts;
+    private int scaleIns;
+    private double unitsPerRequest;
+
+    double throttledFraction() {
+      return demandUnits == 0 ? 0 : throttledUnits / demandUnits;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%.0f throttled request(s) (%.4f%% of the demand) in %d minute(s), "
+              + "%.1f capacity-hours provisioned, %.1f unused, up to %.0f units, %d scale out(s), %d scale in(s)",
+          throttledUnits / unitsPerRequest, 100 * throttledFraction(), throttledMinutes, provisionedHours,
+          overProvisionedHours, maxProvisioned, scaleOuts, scaleIns);
+    }
+  }
+}
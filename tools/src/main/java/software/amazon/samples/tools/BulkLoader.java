@@ -0,0 +1,204 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Loads the items of a local NDJSON or CSV file into a table with BatchWriteItem.
+// Items are packed into batches of up to 25 items, at most 10 MB of items of 400 KB, below the 16 MB
+// of a request, and the number of batches in flight is adjusted by AimdConcurrencyLimiter: it grows
+// while the table accepts the writes, and halves on throttling, server errors or unprocessed items,
+// so the load runs at the capacity of the table.
+//
+// mvn compile exec:java -Dexec.args="--table OnDemandStackMyTable --file items.ndjson"
+public final class BulkLoader {
+  private static final int MAX_BATCH_ITEMS = 25;
+  private static final int MAX_ATTEMPTS = 10;
+  private static final long BASE_BACKOFF_MILLIS = 25;
+  private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+  private final DynamoDbClient ddbClient;
+  private final String tableName;
+  private final List<String> keyNames;
+  private final AimdConcurrencyLimiter limiter;
+  private final ExecutorService workers;
+  private final Semaphore queuedBatches;
+  private final LongAdder itemsWritten = new LongAdder();
+  private final DoubleAdder capacityUnits = new DoubleAdder();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  BulkLoader(DynamoDbClient ddbClient, String tableName, int initialConcurrency, int maxConcurrency) {
+    this.ddbClient = ddbClient;
+    this.tableName = tableName;
+    this.keyNames = DynamoDbClients.keyAttributeNames(ddbClient, tableName);
+    this.limiter = new AimdConcurrencyLimiter(initialConcurrency, 1, maxConcurrency);
+    this.workers = Executors.newFixedThreadPool(maxConcurrency);
+    // Bounds the batches read ahead of the writers, so the memory does not depend on the file size
+    this.queuedBatches = new Semaphore(maxConcurrency * 2);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Arguments arguments = new Arguments(args);
+    Path file = Path.of(arguments.required("file"));
+    try (DynamoDbClient ddbClient = DynamoDbClients.create(arguments, false);
+         ItemFileReader reader = new ItemFileReader(file,
+             arguments.string("format", ItemFileReader.formatOf(file)),
+             !arguments.flag("plain-json"))) {
+      BulkLoader loader = new BulkLoader(ddbClient, arguments.required("table"),
+          arguments.intValue("initial-concurrency", 4),
+          arguments.intValue("max-concurrency", 64));
+      loader.load(reader, arguments.intValue("report-seconds", 5));
+    }
+  }
+
+  void load(ItemFileReader reader, int reportSeconds) throws Exception {
+    long start = System.nanoTime();
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    reporter.scheduleAtFixedRate(new Reporter(), reportSeconds, reportSeconds, TimeUnit.SECONDS);
+    try {
+      List<WriteRequest> batch = new ArrayList<>(MAX_BATCH_ITEMS);
+      Set<List<AttributeValue>> batchKeys = new HashSet<>();
+      Map<String, AttributeValue> item;
+      while (failure.get() == null && (item = reader.next()) != null) {
+        if (ItemSizes.itemSize(item) > ItemSizes.MAX_ITEM_SIZE) {
+          throw new IllegalArgumentException("Item larger than 400 KB: " + key(item));
+        }
+        List<AttributeValue> key = key(item);
+        // A batch cannot contain the same key twice
+        if (batch.size() == MAX_BATCH_ITEMS || batchKeys.contains(key)) {
+          submit(batch);
+          batch = new ArrayList<>(MAX_BATCH_ITEMS);
+          batchKeys.clear();
+        }
+        batch.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+        batchKeys.add(key);
+      }
+      if (!batch.isEmpty()) {
+        submit(batch);
+      }
+      workers.shutdown();
+      workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } finally {
+      workers.shutdownNow();
+      reporter.shutdownNow();
+    }
+    if (failure.get() != null) {
+      throw new IllegalStateException("Load failed after " + itemsWritten.sum() + " item(s)", failure.get());
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("Loaded %d item(s) in %.1f s: %.0f items/s, %.0f WCU/s, %d congested request(s)%n",
+        itemsWritten.sum(), seconds, itemsWritten.sum() / seconds, capacityUnits.sum() / seconds, limiter.congestions());
+  }
+
+  private List<AttributeValue> key(Map<String, AttributeValue> item) {
+    List<AttributeValue> key = new ArrayList<>(keyNames.size());
+    for (String keyName : keyNames) {
+      AttributeValue value = item.get(keyName);
+      if (value == null) {
+        throw new IllegalArgumentException("Item without key attribute " + keyName + ": " + item.keySet());
+      }
+      key.add(value);
+    }
+    return key;
+  }
+
+  private void submit(List<WriteRequest> batch) throws InterruptedException {
+    queuedBatches.acquire();
+    workers.execute(() -> {
+      try {
+        write(batch);
+      } catch (Throwable e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        queuedBatches.release();
+      }
+    });
+  }
+
+  private void write(List<WriteRequest> batch) throws InterruptedException {
+    List<WriteRequest> pending = batch;
+    int attempt = 0;
+    while (!pending.isEmpty() && failure.get() == null) {
+      long acquired = limiter.acquire();
+      boolean congested = false;
+      int before = pending.size();
+      try {
+        BatchWriteItemResponse response = ddbClient.batchWriteItem(BatchWriteItemRequest.builder()
+            .requestItems(Map.of(tableName, pending))
+            .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+            .build());
+        for (ConsumedCapacity consumed : response.consumedCapacity()) {
+          capacityUnits.add(consumed.capacityUnits());
+        }
+        pending = response.unprocessedItems().getOrDefault(tableName, List.of());
+        itemsWritten.add(before - pending.size());
+        congested = !pending.isEmpty();
+      } catch (DynamoDbException e) {
+        if (!e.isThrottlingException() && e.statusCode() < 500) {
+          throw e;
+        }
+        // Throttling and server errors are both signs of an overloaded table
+        congested = true;
+      } finally {
+        limiter.release(acquired, congested);
+      }
+      if (!pending.isEmpty()) {
+        attempt = pending.size() < before ? 1 : attempt + 1;
+        if (attempt >= MAX_ATTEMPTS) {
+          throw new IllegalStateException(pending.size() + " item(s) not written after " + attempt + " attempts");
+        }
+        Thread.sleep(backoffMillis(attempt));
+      }
+    }
+  }
+
+  // Exponential backoff with full jitter
+  private static long backoffMillis(int attempt) {
+    long max = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 20));
+    return ThreadLocalRandom.current().nextLong(max + 1);
+  }
+
+  private final class Reporter implements Runnable {
+    private long lastNanos = System.nanoTime();
+    private long lastItems;
+    private double lastCapacityUnits;
+
+    @Override
+    public void run() {
+      long now = System.nanoTime();
+      long items = itemsWritten.sum();
+      double units = capacityUnits.sum();
+      double seconds = (now - lastNanos) / 1e9;
+      System.out.printf("%d item(s) written, %.0f items/s, %.0f WCU/s, concurrency %d, %d congested request(s)%n",
+          items, (items - lastItems) / seconds, (units - lastCapacityUnits) / seconds, limiter.limit(), limiter.congestions());
+      lastNanos = now;
+      lastItems = items;
+      lastCapacityUnits = units;
+    }
+  }
+}
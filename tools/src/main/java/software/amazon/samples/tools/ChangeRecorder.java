@@ -0,0 +1,307 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.ExpiredIteratorException;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.StreamDescription;
+import software.amazon.awssdk.services.dynamodb.model.TrimmedDataAccessException;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+// Records the keys of the items written to a table during a time window, e.g. while the table is
+// out of the stack between OnDemandStack3 and OnDemandStack4, by reading its stream. The keys are
+// kept in KeyRuns, and ChangedKeysVerifier then reads only these keys in every region.
+// The position in each shard is saved with each run, so the recorder can be stopped and started
+// again without losing keys: it resumes after the last record of the last run.
+//
+// mvn compile exec:java -Dexec.mainClass=software.amazon.samples.tools.ChangeRecorder \
+//   -Dexec.args="--table OnDemandStackMyTable --to-time 2023-03-01T12:00:00Z"
+public final class ChangeRecorder {
+  private static final String CHECKPOINT_FILE = "shards.checkpoint";
+  // Saved for the shards whose records are all in the runs
+  private static final String CLOSED = "closed";
+  private static final int MAX_RECORDS = 1000;
+  private static final long IDLE_MILLIS = 1000;
+  private static final long DESCRIBE_MILLIS = 10_000;
+  // The creation time of the records is approximate: an open shard without records a minute after
+  // --to-time has passed it
+  private static final long TO_TIME_MARGIN_MILLIS = 60_000;
+
+  private final DynamoDbStreamsClient streamsClient;
+  private final String streamArn;
+  private final Path directory;
+  private final KeyRuns runs;
+  private final boolean fromTrimHorizon;
+  private final Instant fromTime;
+  private final Instant toTime;
+  // Shard id to the sequence number of its last record read, or CLOSED once it is read to its end
+  private final Map<String, String> positions = new HashMap<>();
+  private final Map<String, String> iterators = new LinkedHashMap<>();
+  // Shards not read any further, as their next records are after --to-time
+  private final Set<String> passed = new HashSet<>();
+  private volatile boolean stopped;
+  private long keysRecorded;
+
+  ChangeRecorder(DynamoDbStreamsClient streamsClient, String streamArn, Path directory, int runKeys,
+                 boolean fromTrimHorizon, Instant fromTime, Instant toTime) throws IOException {
+    this.streamsClient = streamsClient;
+    this.streamArn = streamArn;
+    this.directory = directory;
+    this.runs = new KeyRuns(directory, runKeys);
+    this.fromTrimHorizon = fromTrimHorizon;
+    this.fromTime = fromTime;
+    this.toTime = toTime;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Arguments arguments = new Arguments(args);
+    String from = arguments.string("from", "latest");
+    if (!from.equals("latest") && !from.equals("trim-horizon")) {
+      throw new IllegalArgumentException("Unknown --from: " + from);
+    }
+    String fromTime = arguments.string("from-time", null);
+    String toTime = arguments.string("to-time", null);
+    String tableName = arguments.required("table");
+    String streamArn;
+    try (DynamoDbClient ddbClient = DynamoDbClients.create(arguments, true)) {
+      streamArn = ddbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+          .table()
+          .latestStreamArn();
+    }
+    if (streamArn == null) {
+      throw new IllegalArgumentException("The stream of " + tableName + " is not enabled");
+    }
+    try (DynamoDbStreamsClient streamsClient = DynamoDbClients.createStreams(arguments)) {
+      ChangeRecorder recorder = new ChangeRecorder(streamsClient, streamArn,
+          Path.of(arguments.string("dir", tableName + "-changes")),
+          arguments.intValue("run-keys", 100_000),
+          from.equals("trim-horizon"),
+          fromTime == null ? null : Instant.parse(fromTime),
+          toTime == null ? null : Instant.parse(toTime));
+      // Ctrl-C writes the keys in memory and the positions before exiting
+      CountDownLatch done = new CountDownLatch(1);
+      Thread main = Thread.currentThread();
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        recorder.stopped = true;
+        main.interrupt();
+        try {
+          done.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }));
+      try {
+        recorder.record();
+      } finally {
+        done.countDown();
+      }
+    }
+  }
+
+  void record() throws IOException {
+    boolean resumed = loadCheckpoint();
+    long lastDescribe = 0;
+    try {
+      while (!stopped) {
+        if (System.currentTimeMillis() - lastDescribe >= DESCRIBE_MILLIS) {
+          addShards(resumed);
+          lastDescribe = System.currentTimeMillis();
+          if (!resumed) {
+            // The shards skipped at the first start are not read after a restart either
+            saveCheckpoint();
+            resumed = true;
+          }
+        }
+        boolean idle = true;
+        for (String shardId : new ArrayList<>(iterators.keySet())) {
+          idle &= !readShard(shardId);
+        }
+        if (toTime != null && iterators.isEmpty() && Instant.now().isAfter(toTime)) {
+          // Done once the children of the shards read to their end are read too
+          addShards(true);
+          lastDescribe = System.currentTimeMillis();
+          if (iterators.isEmpty()) {
+            break;
+          }
+        }
+        if (idle) {
+          Thread.sleep(IDLE_MILLIS);
+        }
+      }
+    } catch (InterruptedException e) {
+      // Stopped with Ctrl-C
+    } catch (AbortedException e) {
+      // Stopped with Ctrl-C during a call
+      if (!stopped) {
+        throw e;
+      }
+    } finally {
+      runs.flush();
+      saveCheckpoint();
+      System.out.printf("%d key(s) recorded in %s%n", keysRecorded, directory);
+    }
+  }
+
+  // Starts reading the shards not read yet, once their parent shard is done
+  private void addShards(boolean resumed) {
+    List<Shard> shards = new ArrayList<>();
+    String exclusiveStartShardId = null;
+    do {
+      StreamDescription stream = streamsClient.describeStream(DescribeStreamRequest.builder()
+          .streamArn(streamArn)
+          .exclusiveStartShardId(exclusiveStartShardId)
+          .build()).streamDescription();
+      shards.addAll(stream.shards());
+      exclusiveStartShardId = stream.lastEvaluatedShardId();
+    } while (exclusiveStartShardId != null);
+    Map<String, Shard> byId = new HashMap<>();
+    shards.forEach(shard -> byId.put(shard.shardId(), shard));
+    for (Shard shard : shards) {
+      String shardId = shard.shardId();
+      if (positions.containsKey(shardId) || iterators.containsKey(shardId) || passed.contains(shardId)) {
+        continue;
+      }
+      String parent = shard.parentShardId();
+      if (parent != null && passed.contains(parent)) {
+        // The records of the children of a shard are after its own
+        passed.add(shardId);
+        continue;
+      }
+      if (parent != null && byId.containsKey(parent) && !CLOSED.equals(positions.get(parent))) {
+        // The records of a key are in order only if the parent shard is read first
+        continue;
+      }
+      boolean closed = shard.sequenceNumberRange().endingSequenceNumber() != null;
+      if (!resumed && !fromTrimHorizon && closed) {
+        // With --from latest, the records of the shards closed before the start are not in the window
+        positions.put(shardId, CLOSED);
+      } else {
+        // New shards after the first start are read from their first record
+        ShardIteratorType type = !resumed && !fromTrimHorizon ? ShardIteratorType.LATEST : ShardIteratorType.TRIM_HORIZON;
+        iterators.put(shardId, iterator(shardId, type, null));
+      }
+    }
+  }
+
+  // Returns true if the shard had records
+  private boolean readShard(String shardId) throws IOException {
+    long requestedAt = System.currentTimeMillis();
+    GetRecordsResponse response;
+    try {
+      response = streamsClient.getRecords(GetRecordsRequest.builder()
+          .shardIterator(iterators.get(shardId))
+          .limit(MAX_RECORDS)
+          .build());
+    } catch (ExpiredIteratorException e) {
+      // Iterators expire after 15 minutes
+      String position = positions.get(shardId);
+      iterators.put(shardId, position == null
+          ? iterator(shardId, ShardIteratorType.TRIM_HORIZON, null)
+          : iterator(shardId, ShardIteratorType.AFTER_SEQUENCE_NUMBER, position));
+      return true;
+    } catch (TrimmedDataAccessException e) {
+      throw new IllegalStateException("Records of " + shardId + " were trimmed before they were read: keys are lost", e);
+    }
+    for (Record record : response.records()) {
+      Instant created = record.dynamodb().approximateCreationDateTime();
+      if (toTime != null && created.isAfter(toTime)) {
+        // The records of a shard are in order: the rest of the shard is after --to-time too
+        iterators.remove(shardId);
+        passed.add(shardId);
+        return true;
+      }
+      if (fromTime == null || !created.isBefore(fromTime)) {
+        keysRecorded++;
+        if (runs.add(record.dynamodb().keys())) {
+          // The keys up to this record are now on disk
+          positions.put(shardId, record.dynamodb().sequenceNumber());
+          saveCheckpoint();
+          continue;
+        }
+      }
+      positions.put(shardId, record.dynamodb().sequenceNumber());
+    }
+    if (response.nextShardIterator() == null) {
+      iterators.remove(shardId);
+      positions.put(shardId, CLOSED);
+    } else if (toTime != null && response.records().isEmpty()
+        && requestedAt - toTime.toEpochMilli() >= TO_TIME_MARGIN_MILLIS) {
+      // At the end of an open shard, its next records are written after --to-time
+      iterators.remove(shardId);
+      passed.add(shardId);
+    } else {
+      iterators.put(shardId, response.nextShardIterator());
+    }
+    return !response.records().isEmpty();
+  }
+
+  private String iterator(String shardId, ShardIteratorType type, String sequenceNumber) {
+    return streamsClient.getShardIterator(GetShardIteratorRequest.builder()
+        .streamArn(streamArn)
+        .shardId(shardId)
+        .shardIteratorType(type)
+        .sequenceNumber(sequenceNumber)
+        .build()).shardIterator();
+  }
+
+  // Returns true if the recorder was started before with this directory
+  private boolean loadCheckpoint() throws IOException {
+    Path path = directory.resolve(CHECKPOINT_FILE);
+    if (!Files.exists(path)) {
+      return false;
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    for (String shardId : properties.stringPropertyNames()) {
+      String position = properties.getProperty(shardId);
+      positions.put(shardId, position);
+      if (!CLOSED.equals(position)) {
+        iterators.put(shardId, iterator(shardId, ShardIteratorType.AFTER_SEQUENCE_NUMBER, position));
+      }
+    }
+    return true;
+  }
+
+  // Called once the keys of the records read are on disk: if the recorder is killed, the keys
+  // still in memory are lost, and their records are read again at the next start
+  private void saveCheckpoint() throws IOException {
+    Properties properties = new Properties();
+    properties.putAll(positions);
+    Path path = directory.resolve(CHECKPOINT_FILE);
+    Path temporary = path.resolveSibling(CHECKPOINT_FILE + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+      properties.store(writer, streamArn);
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
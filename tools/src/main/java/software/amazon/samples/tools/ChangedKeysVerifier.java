@@ -0,0 +1,260 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.Collectors;
+
+// Verifies the items whose keys were recorded by ChangeRecorder, in every region of a global
+// table, instead of the whole table: the keys are read in order from the runs, in batches of
+// BatchGetItem, and the digests of the items are compared with those of the first region.
+// Replication is asynchronous, so the keys that differ are read again once after recheckSeconds
+// before they are reported.
+//
+// mvn compile exec:java -Dexec.mainClass=software.amazon.samples.tools.ChangedKeysVerifier \
+//   -Dexec.args="--table OnDemandStackMyTable --dir OnDemandStackMyTable-changes --regions eu-west-1,eu-north-1"
+public final class ChangedKeysVerifier {
+  private static final int MAX_BATCH_KEYS = 100;
+  private static final int MAX_ATTEMPTS = 10;
+  private static final long BASE_BACKOFF_MILLIS = 25;
+  private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+  private final Map<String, DynamoDbClient> clients;
+  private final String tableName;
+  private final int batchSize;
+  private final int concurrency;
+  private final boolean consistentRead;
+  private final ExecutorService workers;
+  private final DoubleAdder capacityUnits = new DoubleAdder();
+  private long keysChecked;
+  private long keysDeleted;
+
+  // One client per region, the reference region first
+  ChangedKeysVerifier(Map<String, DynamoDbClient> clients, String tableName, int batchSize, int concurrency,
+                      boolean consistentRead) {
+    if (batchSize < 1 || batchSize > MAX_BATCH_KEYS) {
+      throw new IllegalArgumentException("The batch size must be between 1 and " + MAX_BATCH_KEYS + ": " + batchSize);
+    }
+    this.clients = clients;
+    this.tableName = tableName;
+    this.batchSize = batchSize;
+    this.concurrency = concurrency;
+    this.consistentRead = consistentRead;
+    this.workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+      Thread thread = new Thread(runnable, "verify-keys");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public static void main(String[] args) throws Exception {
+    Arguments arguments = new Arguments(args);
+    String tableName = arguments.required("table");
+    String endpoint = arguments.string("endpoint", null);
+    List<String> regions = Arrays.asList(arguments.required("regions").split(","));
+    Map<String, DynamoDbClient> clients = new LinkedHashMap<>();
+    regions.forEach(region -> clients.put(region, DynamoDbClients.create(region, endpoint, true)));
+    long start = System.nanoTime();
+    try {
+      ChangedKeysVerifier verifier = new ChangedKeysVerifier(clients, tableName,
+          arguments.intValue("batch-size", MAX_BATCH_KEYS),
+          arguments.intValue("concurrency", 8),
+          arguments.flag("consistent-read"));
+      List<KeyDiff> diffs = verifier.verify(Path.of(arguments.string("dir", tableName + "-changes")),
+          arguments.intValue("recheck-seconds", 5));
+      verifier.report(diffs, arguments.intValue("max-report", 20));
+      System.out.printf("Verified in %.1f s, %.0f RCU consumed%n", (System.nanoTime() - start) / 1e9,
+          verifier.capacityUnits.sum());
+    } finally {
+      clients.values().forEach(DynamoDbClient::close);
+    }
+  }
+
+  List<KeyDiff> verify(Path directory, int recheckSeconds) throws Exception {
+    List<KeyDiff> diffs = new ArrayList<>();
+    ArrayDeque<Future<List<KeyDiff>>> inFlight = new ArrayDeque<>();
+    try (KeyRuns.Reader reader = KeyRuns.read(directory)) {
+      List<Map<String, AttributeValue>> batch = new ArrayList<>(batchSize);
+      Map<String, AttributeValue> key;
+      do {
+        key = reader.next();
+        if (key != null && ItemDigest.isVerified(key)) {
+          batch.add(key);
+        }
+        if (batch.size() == batchSize || (key == null && !batch.isEmpty())) {
+          List<Map<String, AttributeValue>> keys = batch;
+          inFlight.add(workers.submit(() -> compare(keys)));
+          batch = new ArrayList<>(batchSize);
+          // Only concurrency batches are in memory, whatever the number of keys
+          if (inFlight.size() == concurrency) {
+            diffs.addAll(join(inFlight.poll()));
+          }
+        }
+      } while (key != null);
+    }
+    while (!inFlight.isEmpty()) {
+      diffs.addAll(join(inFlight.poll()));
+    }
+    if (diffs.isEmpty() || recheckSeconds == 0) {
+      return diffs;
+    }
+    System.out.printf("%d key(s) differ, reading them again in %d s%n", diffs.size(), recheckSeconds);
+    Thread.sleep(recheckSeconds * 1000L);
+    List<KeyDiff> rechecked = new ArrayList<>();
+    keysChecked -= diffs.size();
+    for (int i = 0; i < diffs.size(); i += batchSize) {
+      List<Map<String, AttributeValue>> keys = diffs.subList(i, Math.min(i + batchSize, diffs.size())).stream()
+          .map(diff -> diff.key)
+          .collect(Collectors.toList());
+      inFlight.add(workers.submit(() -> compare(keys)));
+    }
+    while (!inFlight.isEmpty()) {
+      rechecked.addAll(join(inFlight.poll()));
+    }
+    return rechecked;
+  }
+
+  void report(List<KeyDiff> diffs, int maxReport) {
+    List<String> regions = new ArrayList<>(clients.keySet());
+    List<KeyDiff> missing = diffs.stream().filter(diff -> diff.digests.contains(null)).collect(Collectors.toList());
+    List<KeyDiff> different = diffs.stream().filter(diff -> !diff.digests.contains(null)).collect(Collectors.toList());
+    System.out.printf("%d changed key(s) checked in %s: %d consistent, %d of them deleted everywhere%n", keysChecked,
+        regions, keysChecked - diffs.size(), keysDeleted);
+    System.out.printf("%d item(s) missing in some regions%n", missing.size());
+    missing.stream().limit(maxReport).forEach(diff -> System.out.printf("  %s missing in %s%n",
+        ItemJson.toDynamoDbJson(diff.key), diff.regions(regions, true)));
+    System.out.printf("%d item(s) different%n", different.size());
+    different.stream().limit(maxReport).forEach(diff -> System.out.printf("  %s differs in %s%n",
+        ItemJson.toDynamoDbJson(diff.key), diff.regions(regions, false)));
+  }
+
+  // Reads the keys in every region, returns those that are not the same everywhere
+  private List<KeyDiff> compare(List<Map<String, AttributeValue>> keys) throws InterruptedException {
+    List<Map<String, Long>> digests = new ArrayList<>();
+    for (DynamoDbClient client : clients.values()) {
+      digests.add(batchGet(client, keys));
+    }
+    List<KeyDiff> diffs = new ArrayList<>();
+    int deleted = 0;
+    for (Map<String, AttributeValue> key : keys) {
+      String id = id(key);
+      List<Long> keyDigests = digests.stream().map(regionDigests -> regionDigests.get(id)).collect(Collectors.toList());
+      if (keyDigests.stream().allMatch(digest -> digest == null)) {
+        deleted++;
+      } else if (keyDigests.stream().distinct().count() > 1) {
+        diffs.add(new KeyDiff(key, keyDigests));
+      }
+    }
+    synchronized (this) {
+      keysChecked += keys.size();
+      keysDeleted += deleted;
+    }
+    return diffs;
+  }
+
+  // Digests of the items found, by key
+  private Map<String, Long> batchGet(DynamoDbClient client, List<Map<String, AttributeValue>> keys)
+      throws InterruptedException {
+    Map<String, Long> digests = new HashMap<>();
+    List<Map<String, AttributeValue>> pending = keys;
+    int attempt = 0;
+    while (!pending.isEmpty()) {
+      BatchGetItemResponse response = client.batchGetItem(BatchGetItemRequest.builder()
+          .requestItems(Map.of(tableName, KeysAndAttributes.builder()
+              .keys(pending)
+              .consistentRead(consistentRead)
+              .build()))
+          .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+          .build());
+      for (ConsumedCapacity consumed : response.consumedCapacity()) {
+        capacityUnits.add(consumed.capacityUnits());
+      }
+      List<String> keyNames = new ArrayList<>(pending.get(0).keySet());
+      for (Map<String, AttributeValue> item : response.responses().getOrDefault(tableName, List.of())) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        keyNames.forEach(name -> key.put(name, item.get(name)));
+        digests.put(id(key), ItemDigest.of(item));
+      }
+      KeysAndAttributes unprocessed = response.unprocessedKeys().get(tableName);
+      int before = pending.size();
+      pending = unprocessed == null ? List.of() : unprocessed.keys();
+      if (!pending.isEmpty()) {
+        attempt = pending.size() < before ? 1 : attempt + 1;
+        if (attempt >= MAX_ATTEMPTS) {
+          throw new IllegalStateException(pending.size() + " key(s) not read after " + attempt + " attempts");
+        }
+        Thread.sleep(backoffMillis(attempt));
+      }
+    }
+    return digests;
+  }
+
+  // Sorted attribute names, so the same key is always the same string
+  private static String id(Map<String, AttributeValue> key) {
+    return ItemJson.toDynamoDbJson(new TreeMap<>(key));
+  }
+
+  // Exponential backoff with full jitter
+  private static long backoffMillis(int attempt) {
+    long max = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 20));
+    return ThreadLocalRandom.current().nextLong(max + 1);
+  }
+
+  private static <T> T join(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while verifying", e);
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+  }
+
+  static final class KeyDiff {
+    private final Map<String, AttributeValue> key;
+    // Per region, in the order of the clients, null where the item is absent
+    private final List<Long> digests;
+
+    private KeyDiff(Map<String, AttributeValue> key, List<Long> digests) {
+      this.key = key;
+      this.digests = digests;
+    }
+
+    // Regions where the item is absent, or where it differs from the first region
+    private List<String> regions(List<String> names, boolean absent) {
+      List<String> regions = new ArrayList<>();
+      for (int i = 0; i < names.size(); i++) {
+        Long digest = digests.get(i);
+        if (absent ? digest == null : !digest.equals(digests.get(0))) {
+          regions.add(names.get(i));
+        }
+      }
+      return regions;
+    }
+  }
+}
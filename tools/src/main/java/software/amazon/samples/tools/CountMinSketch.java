@@ -0,0 +1,68 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+// Counts per value in depth rows of width counters, whatever the number of values: the count of
+// a value is the smallest of its counters, one per row, and is never below its true count. It
+// is above by at most e / width of the total count with a probability of 1 - e^-depth.
+final class CountMinSketch {
+  private final int width;
+  private final long[][] counters;
+  private long total;
+
+  CountMinSketch(int width, int depth) {
+    if (width < 1 || depth < 1) {
+      throw new IllegalArgumentException("The width and the depth must be at least 1: " + width + ", " + depth);
+    }
+    this.width = width;
+    this.counters = new long[depth][width];
+  }
+
+  // Adds count to the value of this hash, returns the new estimate of its count
+  long add(long hash, long count) {
+    total += count;
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < counters.length; row++) {
+      int column = column(hash, row);
+      counters[row][column] += count;
+      estimate = Math.min(estimate, counters[row][column]);
+    }
+    return estimate;
+  }
+
+  long estimate(long hash) {
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < counters.length; row++) {
+      estimate = Math.min(estimate, counters[row][column(hash, row)]);
+    }
+    return estimate;
+  }
+
+  void merge(CountMinSketch other) {
+    if (other.width != width || other.counters.length != counters.length) {
+      throw new IllegalArgumentException("Different sketch sizes");
+    }
+    for (int row = 0; row < counters.length; row++) {
+      for (int column = 0; column < width; column++) {
+        counters[row][column] += other.counters[row][column];
+      }
+    }
+    total += other.total;
+  }
+
+  long total() {
+    return total;
+  }
+
+  // Largest overestimate with a probability of 1 - e^-depth
+  long errorBound() {
+    return (long) Math.ceil(Math.E / width * total);
+  }
+
+  // Row hashes derived from the two halves of one 64-bit hash (Kirsch and Mitzenmacher)
+  private int column(long hash, int row) {
+    int combined = (int) hash + row * (int) (hash >>> 32);
+    return Math.floorMod(combined, width);
+  }
+}
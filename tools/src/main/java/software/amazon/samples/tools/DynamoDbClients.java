@@ -0,0 +1,64 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClientBuilder;
+
+import java.net.URI;
+import java.util.List;
+import java.util.stream.Collectors;
+
+final class DynamoDbClients {
+  private DynamoDbClients() {
+  }
+
+  // --region and the optional --endpoint of a local DynamoDB-compatible endpoint.
+  // The SDK retries are disabled when the tool handles throttling itself.
+  static DynamoDbClient create(Arguments arguments, boolean sdkRetries) {
+    return create(arguments.string("region", "eu-west-1"), arguments.string("endpoint", null), sdkRetries);
+  }
+
+  static DynamoDbClient create(String region, String endpoint, boolean sdkRetries) {
+    DynamoDbClientBuilder builder = DynamoDbClient.builder()
+        .region(Region.of(region));
+    if (endpoint != null) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    if (!sdkRetries) {
+      builder.overrideConfiguration(ClientOverrideConfiguration.builder()
+          .retryPolicy(RetryPolicy.none())
+          .build());
+    }
+    return builder.build();
+  }
+
+  static DynamoDbStreamsClient createStreams(Arguments arguments) {
+    DynamoDbStreamsClientBuilder builder = DynamoDbStreamsClient.builder()
+        .region(Region.of(arguments.string("region", "eu-west-1")));
+    String endpoint = arguments.string("endpoint", null);
+    if (endpoint != null) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    return builder.build();
+  }
+
+  // Names of the partition key and the sort key, if any, of the table
+  static List<String> keyAttributeNames(DynamoDbClient ddbClient, String tableName) {
+    return ddbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+        .table()
+        .keySchema()
+        .stream()
+        .sorted((a, b) -> a.keyType().compareTo(b.keyType()))
+        .map(KeySchemaElement::attributeName)
+        .collect(Collectors.toList());
+  }
+}
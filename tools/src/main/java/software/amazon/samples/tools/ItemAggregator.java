@@ -0,0 +1,24 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.protocols.jsoncore.JsonWriter;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+// Streaming statistic of the items of a table, in a memory that does not depend on the number of
+// items. Each segment of a scan has its own aggregators, merged into the first one at the end.
+interface ItemAggregator {
+  // Name of the section of the report
+  String name();
+
+  void add(Map<String, AttributeValue> item);
+
+  // The other aggregator is of the same class and settings
+  void merge(ItemAggregator other);
+
+  // Writes the section of the report, a JSON object
+  void write(JsonWriter writer);
+}
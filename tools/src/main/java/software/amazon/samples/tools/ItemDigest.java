@@ -0,0 +1,136 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.samples.lambda.ReplicationLagProbe;
+import software.amazon.samples.lambda.ShardedCounter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// 64-bit digest of the content of an item, the same whatever the order of its attributes and of
+// the elements of its sets. The attributes added by the replication of the 2017 version of global
+// tables (aws:rep:*) differ between the replicas, so they are left out.
+final class ItemDigest {
+  private static final String REPLICATION_ATTRIBUTE_PREFIX = "aws:rep:";
+  private static final String PARTITION_KEY_ATTRIBUTE = "PK";
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(ItemDigest::sha256);
+
+  private ItemDigest() {
+  }
+
+  static long of(Map<String, AttributeValue> item) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    Map<String, AttributeValue> sorted = new TreeMap<>(item);
+    for (Map.Entry<String, AttributeValue> attribute : sorted.entrySet()) {
+      if (!attribute.getKey().startsWith(REPLICATION_ATTRIBUTE_PREFIX)) {
+        writeString(bytes, attribute.getKey());
+        writeValue(bytes, attribute.getValue());
+      }
+    }
+    byte[] hash = SHA_256.get().digest(bytes.toByteArray());
+    long digest = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      digest = digest << 8 | (hash[i] & 0xff);
+    }
+    return digest;
+  }
+
+  // The counter items of the stream counter and the markers of the replication lag probe are updated in
+  // each region on its own, so they differ between the copies; the verifiers skip them like the count
+  // of the Lambda function does, from the same partition key prefixes.
+  static boolean isVerified(Map<String, AttributeValue> item) {
+    AttributeValue partitionKey = item.get(PARTITION_KEY_ATTRIBUTE);
+    String value = partitionKey == null ? null : partitionKey.s();
+    return !ShardedCounter.isCounterKey(value) && !ReplicationLagProbe.isProbeKey(value);
+  }
+
+  static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // Type, then length prefixed values, so two different items cannot have the same encoding
+  private static void writeValue(ByteArrayOutputStream bytes, AttributeValue value) {
+    bytes.write(value.type().ordinal());
+    switch (value.type()) {
+      case S:
+        writeString(bytes, value.s());
+        break;
+      case N:
+        writeString(bytes, value.n());
+        break;
+      case B:
+        writeBytes(bytes, value.b().asByteArrayUnsafe());
+        break;
+      case BOOL:
+        bytes.write(value.bool() ? 1 : 0);
+        break;
+      case NUL:
+        break;
+      case SS:
+        writeSet(bytes, value.ss());
+        break;
+      case NS:
+        writeSet(bytes, value.ns());
+        break;
+      case BS: {
+        List<String> encoded = new ArrayList<>();
+        for (SdkBytes element : value.bs()) {
+          encoded.add(Base64.getEncoder().encodeToString(element.asByteArrayUnsafe()));
+        }
+        writeSet(bytes, encoded);
+        break;
+      }
+      case L:
+        writeLength(bytes, value.l().size());
+        value.l().forEach(element -> writeValue(bytes, element));
+        break;
+      case M:
+        writeLength(bytes, value.m().size());
+        new TreeMap<>(value.m()).forEach((name, element) -> {
+          writeString(bytes, name);
+          writeValue(bytes, element);
+        });
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown attribute type: " + value.type());
+    }
+  }
+
+  private static void writeSet(ByteArrayOutputStream bytes, List<String> elements) {
+    List<String> sorted = new ArrayList<>(elements);
+    sorted.sort(null);
+    writeLength(bytes, sorted.size());
+    sorted.forEach(element -> writeString(bytes, element));
+  }
+
+  private static void writeString(ByteArrayOutputStream bytes, String value) {
+    writeBytes(bytes, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void writeBytes(ByteArrayOutputStream bytes, byte[] value) {
+    writeLength(bytes, value.length);
+    bytes.write(value, 0, value.length);
+  }
+
+  private static void writeLength(ByteArrayOutputStream bytes, int length) {
+    bytes.write(length >>> 24);
+    bytes.write(length >>> 16);
+    bytes.write(length >>> 8);
+    bytes.write(length);
+  }
+}
@@ -0,0 +1,102 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// Reads the items of a local file one at a time, so the file can be larger than the memory.
+// Supported formats:
+// - ndjson: one DynamoDB JSON item per line, or one plain JSON item per line with --plain-json
+// - csv: a header with the attribute names, e.g. PK,SK,count:N, then one item per line.
+//   Attributes are strings unless their name ends with :N; empty values are skipped.
+//   Values cannot contain commas.
+// Files ending with .gz are decompressed.
+final class ItemFileReader implements Closeable {
+  private final BufferedReader reader;
+  private final boolean csv;
+  private final boolean dynamoDbJson;
+  private final List<String> columns = new ArrayList<>();
+  private final List<Boolean> numberColumns = new ArrayList<>();
+  private long lineNumber;
+
+  ItemFileReader(Path path, String format, boolean dynamoDbJson) throws IOException {
+    InputStream input = Files.newInputStream(path);
+    if (path.toString().endsWith(".gz")) {
+      input = new GZIPInputStream(input, 64 * 1024);
+    }
+    this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+    this.csv = "csv".equalsIgnoreCase(format);
+    this.dynamoDbJson = dynamoDbJson;
+    if (csv) {
+      readHeader();
+    }
+  }
+
+  static String formatOf(Path path) {
+    String name = path.getFileName().toString().replace(".gz", "");
+    return name.endsWith(".csv") ? "csv" : "ndjson";
+  }
+
+  // Next item, or null at the end of the file
+  Map<String, AttributeValue> next() throws IOException {
+    String line;
+    do {
+      line = reader.readLine();
+      lineNumber++;
+      if (line == null) {
+        return null;
+      }
+    } while (line.isBlank());
+    try {
+      return csv ? parseCsv(line) : ItemJson.parse(line, dynamoDbJson);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid item at line " + lineNumber + ": " + e.getMessage(), e);
+    }
+  }
+
+  private void readHeader() throws IOException {
+    String header = reader.readLine();
+    lineNumber++;
+    if (header == null) {
+      throw new IllegalArgumentException("Missing CSV header");
+    }
+    for (String column : header.split(",")) {
+      boolean number = column.endsWith(":N");
+      columns.add(number ? column.substring(0, column.length() - 2).trim() : column.trim());
+      numberColumns.add(number);
+    }
+  }
+
+  private Map<String, AttributeValue> parseCsv(String line) {
+    String[] values = line.split(",", -1);
+    Map<String, AttributeValue> item = new LinkedHashMap<>();
+    for (int i = 0; i < columns.size() && i < values.length; i++) {
+      if (!values[i].isEmpty()) {
+        item.put(columns.get(i), numberColumns.get(i)
+            ? AttributeValue.builder().n(values[i].trim()).build()
+            : AttributeValue.builder().s(values[i]).build());
+      }
+    }
+    return item;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
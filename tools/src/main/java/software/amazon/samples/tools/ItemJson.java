@@ -0,0 +1,163 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.protocols.jsoncore.JsonNode;
+import software.amazon.awssdk.protocols.jsoncore.JsonNodeParser;
+import software.amazon.awssdk.protocols.jsoncore.JsonWriter;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Conversion of items from and to one JSON document per line.
+// Items are written in DynamoDB JSON, e.g. {"PK":{"S":"pk#1"}}, like the DynamoDB export to S3.
+// Plain JSON, e.g. {"PK":"pk#1","count":1}, can also be read.
+final class ItemJson {
+  private static final JsonNodeParser PARSER = JsonNode.parser();
+
+  private ItemJson() {
+  }
+
+  static Map<String, AttributeValue> parse(String line, boolean dynamoDbJson) {
+    Map<String, JsonNode> fields = PARSER.parse(line).asObject();
+    Map<String, AttributeValue> item = new LinkedHashMap<>();
+    for (Map.Entry<String, JsonNode> field : fields.entrySet()) {
+      item.put(field.getKey(), dynamoDbJson ? fromDynamoDbJson(field.getValue()) : fromPlainJson(field.getValue()));
+    }
+    return item;
+  }
+
+  static String toDynamoDbJson(Map<String, AttributeValue> item) {
+    JsonWriter writer = JsonWriter.create();
+    writeMap(writer, item);
+    return new String(writer.getBytes(), StandardCharsets.UTF_8);
+  }
+
+  private static AttributeValue fromPlainJson(JsonNode node) {
+    if (node.isString()) {
+      return AttributeValue.builder().s(node.asString()).build();
+    } else if (node.isNumber()) {
+      return AttributeValue.builder().n(node.asNumber()).build();
+    } else if (node.isBoolean()) {
+      return AttributeValue.builder().bool(node.asBoolean()).build();
+    } else if (node.isNull()) {
+      return AttributeValue.builder().nul(true).build();
+    } else if (node.isArray()) {
+      List<AttributeValue> values = new ArrayList<>();
+      node.asArray().forEach(element -> values.add(fromPlainJson(element)));
+      return AttributeValue.builder().l(values).build();
+    }
+    Map<String, AttributeValue> values = new LinkedHashMap<>();
+    node.asObject().forEach((name, value) -> values.put(name, fromPlainJson(value)));
+    return AttributeValue.builder().m(values).build();
+  }
+
+  private static AttributeValue fromDynamoDbJson(JsonNode node) {
+    Map.Entry<String, JsonNode> typed = node.asObject().entrySet().iterator().next();
+    JsonNode value = typed.getValue();
+    switch (typed.getKey()) {
+      case "S":
+        return AttributeValue.builder().s(value.asString()).build();
+      case "N":
+        return AttributeValue.builder().n(value.isNumber() ? value.asNumber() : value.asString()).build();
+      case "B":
+        return AttributeValue.builder().b(SdkBytes.fromByteArray(Base64.getDecoder().decode(value.asString()))).build();
+      case "BOOL":
+        return AttributeValue.builder().bool(value.asBoolean()).build();
+      case "NULL":
+        return AttributeValue.builder().nul(true).build();
+      case "SS":
+        return AttributeValue.builder().ss(strings(value)).build();
+      case "NS":
+        return AttributeValue.builder().ns(strings(value)).build();
+      case "BS": {
+        List<SdkBytes> values = new ArrayList<>();
+        strings(value).forEach(element -> values.add(SdkBytes.fromByteArray(Base64.getDecoder().decode(element))));
+        return AttributeValue.builder().bs(values).build();
+      }
+      case "L": {
+        List<AttributeValue> values = new ArrayList<>();
+        value.asArray().forEach(element -> values.add(fromDynamoDbJson(element)));
+        return AttributeValue.builder().l(values).build();
+      }
+      case "M": {
+        Map<String, AttributeValue> values = new LinkedHashMap<>();
+        value.asObject().forEach((name, element) -> values.put(name, fromDynamoDbJson(element)));
+        return AttributeValue.builder().m(values).build();
+      }
+      default:
+        throw new IllegalArgumentException("Unknown attribute type: " + typed.getKey());
+    }
+  }
+
+  private static List<String> strings(JsonNode array) {
+    List<String> values = new ArrayList<>();
+    array.asArray().forEach(element -> values.add(element.isNumber() ? element.asNumber() : element.asString()));
+    return values;
+  }
+
+  private static void writeMap(JsonWriter writer, Map<String, AttributeValue> values) {
+    writer.writeStartObject();
+    for (Map.Entry<String, AttributeValue> entry : values.entrySet()) {
+      writer.writeFieldName(entry.getKey());
+      writeValue(writer, entry.getValue());
+    }
+    writer.writeEndObject();
+  }
+
+  private static void writeValue(JsonWriter writer, AttributeValue value) {
+    writer.writeStartObject();
+    switch (value.type()) {
+      case S:
+        writer.writeFieldName("S").writeValue(value.s());
+        break;
+      case N:
+        writer.writeFieldName("N").writeValue(value.n());
+        break;
+      case B:
+        writer.writeFieldName("B").writeValue(Base64.getEncoder().encodeToString(value.b().asByteArrayUnsafe()));
+        break;
+      case BOOL:
+        writer.writeFieldName("BOOL").writeValue(value.bool());
+        break;
+      case NUL:
+        writer.writeFieldName("NULL").writeValue(true);
+        break;
+      case SS:
+        writeStrings(writer.writeFieldName("SS"), value.ss());
+        break;
+      case NS:
+        writeStrings(writer.writeFieldName("NS"), value.ns());
+        break;
+      case BS:
+        writer.writeFieldName("BS").writeStartArray();
+        value.bs().forEach(bytes -> writer.writeValue(Base64.getEncoder().encodeToString(bytes.asByteArrayUnsafe())));
+        writer.writeEndArray();
+        break;
+      case L:
+        writer.writeFieldName("L").writeStartArray();
+        value.l().forEach(element -> writeValue(writer, element));
+        writer.writeEndArray();
+        break;
+      case M:
+        writeMap(writer.writeFieldName("M"), value.m());
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown attribute type: " + value.type());
+    }
+    writer.writeEndObject();
+  }
+
+  private static void writeStrings(JsonWriter writer, List<String> values) {
+    writer.writeStartArray();
+    values.forEach(writer::writeValue);
+    writer.writeEndArray();
+  }
+}
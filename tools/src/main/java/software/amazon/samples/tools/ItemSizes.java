@@ -0,0 +1,97 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// Item sizes as DynamoDB computes them to charge read and write capacity units.
+// See https://docs.aws.amazon.com/amazondynamodb/latest/developerguide/CapacityUnitCalculations.html
+// Also used by the in-memory DynamoDB client of the benchmark module.
+public final class ItemSizes {
+  public static final int MAX_ITEM_SIZE = 400 * 1024;
+
+  private ItemSizes() {
+  }
+
+  public static int itemSize(Map<String, AttributeValue> item) {
+    int size = 0;
+    for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+      size += utf8Length(attribute.getKey()) + valueSize(attribute.getValue());
+    }
+    return size;
+  }
+
+  // Write capacity units of a standard write, rounded up to the next 1 KB
+  public static int writeCapacityUnits(int itemSize) {
+    return Math.max(1, (itemSize + 1023) / 1024);
+  }
+
+  // Read capacity units of a read of itemSize bytes, rounded up to the next 4 KB,
+  // and halved for an eventually consistent read
+  public static double readCapacityUnits(long itemSize, boolean consistentRead) {
+    long units = Math.max(1, (itemSize + 4095) / 4096);
+    return consistentRead ? units : units / 2.0;
+  }
+
+  public static int valueSize(AttributeValue value) {
+    switch (value.type()) {
+      case S:
+        return utf8Length(value.s());
+      case N:
+        return numberSize(value.n());
+      case B:
+        return value.b().asByteArrayUnsafe().length;
+      case BOOL:
+      case NUL:
+        return 1;
+      case SS:
+        return value.ss().stream().mapToInt(ItemSizes::utf8Length).sum();
+      case NS:
+        return value.ns().stream().mapToInt(ItemSizes::numberSize).sum();
+      case BS:
+        return value.bs().stream().mapToInt(bytes -> bytes.asByteArrayUnsafe().length).sum();
+      case L:
+        return 3 + listSize(value.l());
+      case M:
+        return 3 + mapSize(value.m());
+      default:
+        return 0;
+    }
+  }
+
+  private static int listSize(List<AttributeValue> values) {
+    int size = 0;
+    for (AttributeValue element : values) {
+      size += 1 + valueSize(element);
+    }
+    return size;
+  }
+
+  private static int mapSize(Map<String, AttributeValue> values) {
+    int size = 0;
+    for (Map.Entry<String, AttributeValue> entry : values.entrySet()) {
+      size += 1 + utf8Length(entry.getKey()) + valueSize(entry.getValue());
+    }
+    return size;
+  }
+
+  // Numbers are stored with up to 38 significant digits, 2 digits per byte, plus one byte
+  private static int numberSize(String number) {
+    int digits = 0;
+    for (int i = 0; i < number.length(); i++) {
+      if (Character.isDigit(number.charAt(i))) {
+        digits++;
+      }
+    }
+    return (digits + 1) / 2 + 1;
+  }
+
+  public static int utf8Length(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+}
@@ -0,0 +1,148 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Set of item keys kept on disk as sorted runs: the keys are collected in memory without
+// duplicates, and written as a sorted, gzip compressed run of one DynamoDB JSON key per line when
+// there are maxKeys of them. Reading merges the runs, so each key is read once whatever the number
+// of runs it is in, and only one line per run is in memory.
+final class KeyRuns {
+  private static final String RUN_PREFIX = "run-";
+  private static final String RUN_SUFFIX = ".keys.gz";
+  private static final int BUFFER_BYTES = 64 * 1024;
+
+  private final Path directory;
+  private final int maxKeys;
+  private final TreeSet<String> keys = new TreeSet<>();
+  private int runs;
+
+  KeyRuns(Path directory, int maxKeys) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.maxKeys = maxKeys;
+    this.runs = runFiles(directory).size();
+  }
+
+  // Returns true if the keys in memory were written as a new run
+  boolean add(Map<String, AttributeValue> key) throws IOException {
+    // Sorted attribute names, so the same key is always the same line
+    keys.add(ItemJson.toDynamoDbJson(new TreeMap<>(key)));
+    if (keys.size() < maxKeys) {
+      return false;
+    }
+    flush();
+    return true;
+  }
+
+  void flush() throws IOException {
+    if (keys.isEmpty()) {
+      return;
+    }
+    Path run = directory.resolve(String.format("%s%06d%s", RUN_PREFIX, runs, RUN_SUFFIX));
+    Path temporary = run.resolveSibling(run.getFileName() + ".tmp");
+    try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+        new GZIPOutputStream(Files.newOutputStream(temporary), BUFFER_BYTES), StandardCharsets.UTF_8))) {
+      for (String key : keys) {
+        writer.write(key);
+        writer.newLine();
+      }
+    }
+    Files.move(temporary, run);
+    runs++;
+    keys.clear();
+  }
+
+  // Keys of all the runs of the directory, in order and without duplicates
+  static Reader read(Path directory) throws IOException {
+    return new Reader(runFiles(directory));
+  }
+
+  private static List<Path> runFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().startsWith(RUN_PREFIX)
+              && file.getFileName().toString().endsWith(RUN_SUFFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  static final class Reader implements Closeable {
+    private final List<BufferedReader> readers = new ArrayList<>();
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing((Head head) -> head.line));
+    private String last;
+
+    private Reader(List<Path> runs) throws IOException {
+      for (Path run : runs) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(run), BUFFER_BYTES), StandardCharsets.UTF_8));
+        readers.add(reader);
+        advance(reader);
+      }
+    }
+
+    // Next key, or null after the last one
+    Map<String, AttributeValue> next() throws IOException {
+      while (!heads.isEmpty()) {
+        Head head = heads.poll();
+        advance(head.reader);
+        if (!head.line.equals(last)) {
+          last = head.line;
+          return ItemJson.parse(head.line, true);
+        }
+      }
+      return null;
+    }
+
+    private void advance(BufferedReader reader) throws IOException {
+      String line = reader.readLine();
+      if (line != null) {
+        heads.add(new Head(line, reader));
+      }
+    }
+
+    @Override
+    public void close() {
+      for (BufferedReader reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  private static final class Head {
+    private final String line;
+    private final BufferedReader reader;
+
+    private Head(String line, BufferedReader reader) {
+      this.line = line;
+      this.reader = reader;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Merkle tree over the segments of a parallel scan. DynamoDB splits the table into segments by
+// ranges of the hash of the partition key, so each leaf covers one range of partition key hashes.
+// A leaf holds the number of items of its segment and the sum of their digests, which does not
+// depend on the order of the items in the scan; each inner node is the SHA-256 of its children.
+// Two trees are compared from the root down, only into the children whose hashes differ, so the
+// segments that differ are found with a few hash comparisons.
+final class MerkleTree {
+  private final long[] counts;
+  private final long[] sums;
+  private byte[][] nodes;
+
+  MerkleTree(int leaves) {
+    if (leaves < 1) {
+      throw new IllegalArgumentException("leaves must be at least 1: " + leaves);
+    }
+    this.counts = new long[leaves];
+    this.sums = new long[leaves];
+  }
+
+  int leaves() {
+    return counts.length;
+  }
+
+  // Each leaf is only set by the worker of its segment
+  void setLeaf(int leaf, long count, long digestSum) {
+    counts[leaf] = count;
+    sums[leaf] = digestSum;
+    nodes = null;
+  }
+
+  long count(int leaf) {
+    return counts[leaf];
+  }
+
+  long count() {
+    return Arrays.stream(counts).sum();
+  }
+
+  String rootHash() {
+    StringBuilder hex = new StringBuilder();
+    for (byte b : nodes()[1]) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  // Leaves whose content differs from the same leaf of the other tree
+  List<Integer> diff(MerkleTree other) {
+    if (other.leaves() != leaves()) {
+      throw new IllegalArgumentException("Trees of " + leaves() + " and " + other.leaves() + " segments");
+    }
+    List<Integer> leaves = new ArrayList<>();
+    diff(other, 1, leaves);
+    return leaves;
+  }
+
+  // One line per leaf: segment, number of items and sum of the digests
+  void save(Path path) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      for (int leaf = 0; leaf < leaves(); leaf++) {
+        writer.write(leaf + " " + counts[leaf] + " " + Long.toHexString(sums[leaf]));
+        writer.newLine();
+      }
+    }
+  }
+
+  static MerkleTree load(Path path) throws IOException {
+    List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+    MerkleTree tree = new MerkleTree(lines.size());
+    for (String line : lines) {
+      String[] fields = line.split(" ");
+      tree.setLeaf(Integer.parseInt(fields[0]), Long.parseLong(fields[1]), Long.parseUnsignedLong(fields[2], 16));
+    }
+    return tree;
+  }
+
+  private void diff(MerkleTree other, int node, List<Integer> leaves) {
+    byte[][] mine = nodes();
+    byte[][] theirs = other.nodes();
+    if (Arrays.equals(mine[node], theirs[node])) {
+      return;
+    }
+    int firstLeafNode = mine.length / 2;
+    if (node >= firstLeafNode) {
+      leaves.add(node - firstLeafNode);
+      return;
+    }
+    diff(other, 2 * node, leaves);
+    diff(other, 2 * node + 1, leaves);
+  }
+
+  // Heap layout: node i has the children 2i and 2i+1, the leaves are padded to a power of two
+  private synchronized byte[][] nodes() {
+    if (nodes != null) {
+      return nodes;
+    }
+    int width = Integer.highestOneBit(leaves());
+    width = width < leaves() ? width * 2 : width;
+    byte[][] tree = new byte[2 * width][];
+    MessageDigest sha256 = ItemDigest.sha256();
+    for (int leaf = 0; leaf < width; leaf++) {
+      ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+      if (leaf < leaves()) {
+        buffer.putLong(counts[leaf]).putLong(sums[leaf]);
+      }
+      tree[width + leaf] = sha256.digest(buffer.array());
+    }
+    for (int node = width - 1; node >= 1; node--) {
+      sha256.update(tree[2 * node]);
+      tree[node] = sha256.digest(tree[2 * node + 1]);
+    }
+    nodes = tree;
+    return tree;
+  }
+}
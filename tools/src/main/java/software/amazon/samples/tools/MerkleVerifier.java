@@ -0,0 +1,230 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Consumer;
+
+// Verifies that two copies of a table hold the same items: the table before and after a migration
+// step, the table and one of its replicas, or the table and a table it was imported into.
+// Each copy is read once with a parallel scan into a MerkleTree of its segments; the trees are
+// compared, and only the segments that differ are scanned again, in both copies, to list the
+// items that are missing or different. A tree can be saved, to compare the table with itself at
+// a later point in time, e.g. before OnDemandStack3 and after OnDemandStack4; the saved tree only
+// tells which segments differ, since the earlier items cannot be read again.
+//
+// mvn compile exec:java -Dexec.mainClass=software.amazon.samples.tools.MerkleVerifier \
+//   -Dexec.args="--table OnDemandStackMyTable --target-region eu-north-1"
+public final class MerkleVerifier {
+  private final int totalSegments;
+  private final boolean consistentRead;
+  private final ExecutorService workers;
+  private final DoubleAdder capacityUnits = new DoubleAdder();
+
+  MerkleVerifier(int totalSegments, int concurrency, boolean consistentRead) {
+    this.totalSegments = totalSegments;
+    this.consistentRead = consistentRead;
+    this.workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+      Thread thread = new Thread(runnable, "verify-segment");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public static void main(String[] args) throws Exception {
+    Arguments arguments = new Arguments(args);
+    String tableName = arguments.required("table");
+    String region = arguments.string("region", "eu-west-1");
+    String endpoint = arguments.string("endpoint", null);
+    String compareTo = arguments.string("compare-to", null);
+    String targetTable = arguments.string("target-table", tableName);
+    String targetRegion = arguments.string("target-region", region);
+    String save = arguments.string("save", null);
+    int maxReport = arguments.intValue("max-report", 20);
+    MerkleVerifier verifier = new MerkleVerifier(arguments.intValue("segments", 1024),
+        arguments.intValue("concurrency", 32), arguments.flag("consistent-read"));
+    long start = System.nanoTime();
+    try (DynamoDbClient source = DynamoDbClients.create(region, endpoint, true)) {
+      MerkleTree sourceTree = verifier.build(source, tableName);
+      System.out.printf("%s in %s: %d item(s), root %s%n", tableName, region, sourceTree.count(), sourceTree.rootHash());
+      if (save != null) {
+        sourceTree.save(Path.of(save));
+      }
+      if (compareTo != null) {
+        MerkleTree savedTree = MerkleTree.load(Path.of(compareTo));
+        System.out.printf("%s: %d item(s), root %s%n", compareTo, savedTree.count(), savedTree.rootHash());
+        verifier.report(sourceTree.diff(savedTree), sourceTree, savedTree);
+      } else if (!targetTable.equals(tableName) || !targetRegion.equals(region)) {
+        try (DynamoDbClient target = DynamoDbClients.create(targetRegion, endpoint, true)) {
+          MerkleTree targetTree = verifier.build(target, targetTable);
+          System.out.printf("%s in %s: %d item(s), root %s%n", targetTable, targetRegion, targetTree.count(),
+              targetTree.rootHash());
+          List<Integer> segments = sourceTree.diff(targetTree);
+          verifier.report(segments, sourceTree, targetTree);
+          verifier.compareItems(segments, source, tableName, target, targetTable, maxReport);
+        }
+      }
+    }
+    System.out.printf("Verified in %.1f s, %.0f RCU consumed%n", (System.nanoTime() - start) / 1e9,
+        verifier.capacityUnits.sum());
+  }
+
+  // One scan of all the segments in parallel
+  MerkleTree build(DynamoDbClient ddbClient, String tableName) {
+    MerkleTree tree = new MerkleTree(totalSegments);
+    List<Future<?>> segments = new ArrayList<>(totalSegments);
+    for (int segment = 0; segment < totalSegments; segment++) {
+      int current = segment;
+      segments.add(workers.submit(() -> {
+        long[] countAndSum = new long[2];
+        scanSegment(ddbClient, tableName, current, item -> {
+          countAndSum[0]++;
+          countAndSum[1] += ItemDigest.of(item);
+        });
+        tree.setLeaf(current, countAndSum[0], countAndSum[1]);
+      }));
+    }
+    segments.forEach(MerkleVerifier::join);
+    return tree;
+  }
+
+  void report(List<Integer> segments, MerkleTree source, MerkleTree target) {
+    if (segments.isEmpty()) {
+      System.out.println("Identical: the roots are equal");
+      return;
+    }
+    System.out.printf("%d of %d segment(s) differ%n", segments.size(), totalSegments);
+    for (int segment : segments) {
+      System.out.printf("segment %d: %d item(s) in the source, %d in the target%n", segment, source.count(segment),
+          target.count(segment));
+    }
+  }
+
+  // Scans the segments that differ again, in both copies, and lists the items that differ
+  void compareItems(List<Integer> segments, DynamoDbClient source, String sourceTable, DynamoDbClient target,
+                    String targetTable, int maxReport) {
+    List<String> keyNames = DynamoDbClients.keyAttributeNames(source, sourceTable);
+    List<Future<SegmentDiff>> diffs = new ArrayList<>();
+    for (int segment : segments) {
+      diffs.add(workers.submit(() -> {
+        Map<Map<String, AttributeValue>, Long> sourceDigests = digests(source, sourceTable, segment, keyNames);
+        Map<Map<String, AttributeValue>, Long> targetDigests = digests(target, targetTable, segment, keyNames);
+        SegmentDiff diff = new SegmentDiff();
+        sourceDigests.forEach((key, digest) -> {
+          Long targetDigest = targetDigests.remove(key);
+          if (targetDigest == null) {
+            // The segments of two tables may not split the keys the same way: read the item itself
+            Map<String, AttributeValue> item = getItem(target, targetTable, key);
+            if (item == null) {
+              diff.missing.add(key);
+            } else if (ItemDigest.of(item) != digest) {
+              diff.different.add(key);
+            }
+          } else if (!targetDigest.equals(digest)) {
+            diff.different.add(key);
+          }
+        });
+        targetDigests.forEach((key, digest) -> {
+          if (getItem(source, sourceTable, key) == null) {
+            diff.extra.add(key);
+          }
+        });
+        return diff;
+      }));
+    }
+    SegmentDiff total = new SegmentDiff();
+    for (Future<SegmentDiff> diff : diffs) {
+      SegmentDiff segmentDiff = join(diff);
+      total.missing.addAll(segmentDiff.missing);
+      total.extra.addAll(segmentDiff.extra);
+      total.different.addAll(segmentDiff.different);
+    }
+    print("missing in the target", total.missing, maxReport);
+    print("only in the target", total.extra, maxReport);
+    print("different", total.different, maxReport);
+  }
+
+  private Map<Map<String, AttributeValue>, Long> digests(DynamoDbClient ddbClient, String tableName, int segment,
+                                                         List<String> keyNames) {
+    Map<Map<String, AttributeValue>, Long> digests = new HashMap<>();
+    scanSegment(ddbClient, tableName, segment, item -> digests.put(key(item, keyNames), ItemDigest.of(item)));
+    return digests;
+  }
+
+  private void scanSegment(DynamoDbClient ddbClient, String tableName, int segment,
+                           Consumer<Map<String, AttributeValue>> consumer) {
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      ScanResponse response = ddbClient.scan(ScanRequest.builder()
+          .tableName(tableName)
+          .segment(segment)
+          .totalSegments(totalSegments)
+          .exclusiveStartKey(exclusiveStartKey)
+          .consistentRead(consistentRead)
+          .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+          .build());
+      if (response.consumedCapacity() != null) {
+        capacityUnits.add(response.consumedCapacity().capacityUnits());
+      }
+      response.items().stream().filter(ItemDigest::isVerified).forEach(consumer);
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+  }
+
+  private Map<String, AttributeValue> getItem(DynamoDbClient ddbClient, String tableName,
+                                              Map<String, AttributeValue> key) {
+    Map<String, AttributeValue> item = ddbClient.getItem(GetItemRequest.builder()
+        .tableName(tableName)
+        .key(key)
+        .consistentRead(consistentRead)
+        .build()).item();
+    return item == null || item.isEmpty() ? null : item;
+  }
+
+  private static Map<String, AttributeValue> key(Map<String, AttributeValue> item, List<String> keyNames) {
+    Map<String, AttributeValue> key = new LinkedHashMap<>();
+    keyNames.forEach(name -> key.put(name, item.get(name)));
+    return key;
+  }
+
+  private static void print(String kind, List<Map<String, AttributeValue>> keys, int maxReport) {
+    System.out.printf("%d item(s) %s%n", keys.size(), kind);
+    keys.stream().limit(maxReport).forEach(key -> System.out.println("  " + ItemJson.toDynamoDbJson(key)));
+  }
+
+  private static <T> T join(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while verifying", e);
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+  }
+
+  private static final class SegmentDiff {
+    private final List<Map<String, AttributeValue>> missing = new ArrayList<>();
+    private final List<Map<String, AttributeValue>> extra = new ArrayList<>();
+    private final List<Map<String, AttributeValue>> different = new ArrayList<>();
+  }
+}
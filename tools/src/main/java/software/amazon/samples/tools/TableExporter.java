@@ -0,0 +1,415 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Exports the items of a table to local NDJSON files, one per segment of a parallel scan, in
+// DynamoDB JSON and gzip compressed by default, so the files can be loaded back with BulkLoader.
+// Each segment has a scanner and a writer thread, with at most pagesInFlight pages between them:
+// the memory depends on the number of segments, not on the size of the table.
+// Every checkpointPages pages, the writer ends the current gzip member, syncs the file and saves
+// its length and the LastEvaluatedKey of the last page written in a checkpoint file. A new run
+// with the same directory truncates each file to its checkpoint and resumes the scan from there,
+// with the same segments and compression, which the checkpoint records.
+//
+// mvn compile exec:java -Dexec.mainClass=software.amazon.samples.tools.TableExporter \
+//   -Dexec.args="--table OnDemandStackMyTable --dir export"
+public final class TableExporter {
+  private static final int BUFFER_BYTES = 256 * 1024;
+  // Marks the end of the scan of a segment in its queue
+  private static final ScanResponse END = ScanResponse.builder().build();
+
+  private final DynamoDbClient ddbClient;
+  private final String tableName;
+  private final Path directory;
+  private final int totalSegments;
+  private final int pagesInFlight;
+  private final int checkpointPages;
+  private final boolean gzip;
+  private final boolean consistentRead;
+  private final LongAdder itemsWritten = new LongAdder();
+  // UTF-8 bytes of the JSON lines, and bytes written to the files once compressed
+  private final LongAdder jsonBytes = new LongAdder();
+  private final LongAdder fileBytes = new LongAdder();
+  private final DoubleAdder capacityUnits = new DoubleAdder();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  TableExporter(DynamoDbClient ddbClient, String tableName, Path directory, int totalSegments, int pagesInFlight,
+                int checkpointPages, boolean gzip, boolean consistentRead) {
+    if (totalSegments < 1 || pagesInFlight < 1 || checkpointPages < 1) {
+      throw new IllegalArgumentException("Segments, pages in flight and checkpoint pages must be at least 1");
+    }
+    this.ddbClient = ddbClient;
+    this.tableName = tableName;
+    this.directory = directory;
+    this.totalSegments = totalSegments;
+    this.pagesInFlight = pagesInFlight;
+    this.checkpointPages = checkpointPages;
+    this.gzip = gzip;
+    this.consistentRead = consistentRead;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Arguments arguments = new Arguments(args);
+    String tableName = arguments.required("table");
+    String compression = arguments.string("compression", "gzip");
+    if (!compression.equals("gzip") && !compression.equals("none")) {
+      throw new IllegalArgumentException("Unknown compression: " + compression);
+    }
+    try (DynamoDbClient ddbClient = DynamoDbClients.create(arguments, true)) {
+      new TableExporter(ddbClient, tableName,
+          Path.of(arguments.string("dir", tableName + "-export")),
+          arguments.intValue("segments", 8),
+          arguments.intValue("pages-in-flight", 2),
+          arguments.intValue("checkpoint-pages", 100),
+          compression.equals("gzip"),
+          arguments.flag("consistent-read"))
+          .export(arguments.intValue("report-seconds", 5));
+    }
+  }
+
+  void export(int reportSeconds) throws Exception {
+    Files.createDirectories(directory);
+    long start = System.nanoTime();
+    ExecutorService threads = Executors.newFixedThreadPool(2 * totalSegments);
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    try {
+      for (int segment = 0; segment < totalSegments; segment++) {
+        Checkpoint checkpoint = Checkpoint.load(checkpointPath(segment), totalSegments, compression());
+        itemsWritten.add(checkpoint.items);
+        if (checkpoint.done) {
+          continue;
+        }
+        BlockingQueue<ScanResponse> pages = new ArrayBlockingQueue<>(pagesInFlight);
+        int current = segment;
+        threads.execute(() -> run(() -> scan(current, checkpoint.lastEvaluatedKey, pages)));
+        threads.execute(() -> run(() -> write(current, checkpoint, pages)));
+      }
+      reporter.scheduleAtFixedRate(new Reporter(), reportSeconds, reportSeconds, TimeUnit.SECONDS);
+      threads.shutdown();
+      threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } finally {
+      threads.shutdownNow();
+      reporter.shutdownNow();
+    }
+    if (failure.get() != null) {
+      throw new IllegalStateException("Export failed, run it again to resume from the checkpoints", failure.get());
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("Exported %d item(s) to %s in %.1f s: %.0f items/s, %.1f MB/s of JSON, %.1f MB/s written, "
+            + "%.0f RCU/s%n", itemsWritten.sum(), directory, seconds, itemsWritten.sum() / seconds,
+        jsonBytes.sum() / seconds / 1e6, fileBytes.sum() / seconds / 1e6, capacityUnits.sum() / seconds);
+  }
+
+  private void scan(int segment, Map<String, AttributeValue> exclusiveStartKey, BlockingQueue<ScanResponse> pages)
+      throws InterruptedException {
+    Map<String, AttributeValue> startKey = exclusiveStartKey;
+    try {
+      do {
+        ScanResponse page = ddbClient.scan(ScanRequest.builder()
+            .tableName(tableName)
+            .segment(segment)
+            .totalSegments(totalSegments)
+            .exclusiveStartKey(startKey)
+            .consistentRead(consistentRead)
+            .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+            .build());
+        if (page.consumedCapacity() != null) {
+          capacityUnits.add(page.consumedCapacity().capacityUnits());
+        }
+        if (!put(pages, page)) {
+          return;
+        }
+        startKey = page.hasLastEvaluatedKey() ? page.lastEvaluatedKey() : null;
+      } while (startKey != null && failure.get() == null);
+    } finally {
+      // Lets the writer end even if the scan failed
+      put(pages, END);
+    }
+  }
+
+  // Blocks while the writer is pagesInFlight pages behind, returns false if the export failed meanwhile
+  private boolean put(BlockingQueue<ScanResponse> pages, ScanResponse page) throws InterruptedException {
+    while (!pages.offer(page, 100, TimeUnit.MILLISECONDS)) {
+      if (failure.get() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void write(int segment, Checkpoint checkpoint, BlockingQueue<ScanResponse> pages)
+      throws IOException, InterruptedException {
+    Path checkpointPath = checkpointPath(segment);
+    try (SegmentWriter writer = new SegmentWriter(dataPath(segment), checkpoint.length, gzip, jsonBytes, fileBytes)) {
+      int pagesSinceCheckpoint = 0;
+      boolean lastPage = false;
+      ScanResponse page;
+      while ((page = take(pages)) != END) {
+        for (Map<String, AttributeValue> item : page.items()) {
+          writer.writeLine(ItemJson.toDynamoDbJson(item));
+        }
+        itemsWritten.add(page.items().size());
+        checkpoint.items += page.items().size();
+        checkpoint.lastEvaluatedKey = page.hasLastEvaluatedKey() ? page.lastEvaluatedKey() : null;
+        lastPage = checkpoint.lastEvaluatedKey == null;
+        if (++pagesSinceCheckpoint == checkpointPages && checkpoint.lastEvaluatedKey != null) {
+          checkpoint.length = writer.sync();
+          checkpoint.save(checkpointPath);
+          pagesSinceCheckpoint = 0;
+        }
+      }
+      if (!lastPage) {
+        // The scan failed: the items after the last checkpoint are exported again by the next run
+        return;
+      }
+      checkpoint.length = writer.sync();
+    }
+    checkpoint.done = true;
+    checkpoint.save(checkpointPath);
+  }
+
+  // Next page, or END once the scan is over or the export failed
+  private ScanResponse take(BlockingQueue<ScanResponse> pages) throws InterruptedException {
+    ScanResponse page;
+    while ((page = pages.poll(100, TimeUnit.MILLISECONDS)) == null) {
+      if (failure.get() != null) {
+        return END;
+      }
+    }
+    return page;
+  }
+
+  private void run(Task task) {
+    try {
+      task.run();
+    } catch (Throwable e) {
+      failure.compareAndSet(null, e);
+    }
+  }
+
+  private Path dataPath(int segment) {
+    return directory.resolve(String.format("segment-%05d.ndjson%s", segment, gzip ? ".gz" : ""));
+  }
+
+  private String compression() {
+    return gzip ? "gzip" : "none";
+  }
+
+  private Path checkpointPath(int segment) {
+    return directory.resolve(String.format("segment-%05d.checkpoint", segment));
+  }
+
+  private interface Task {
+    void run() throws Exception;
+  }
+
+  private final class Reporter implements Runnable {
+    private long lastNanos = System.nanoTime();
+    private long lastItems = itemsWritten.sum();
+    private long lastJsonBytes;
+    private long lastFileBytes;
+    private double lastCapacityUnits;
+
+    @Override
+    public void run() {
+      long now = System.nanoTime();
+      long items = itemsWritten.sum();
+      long json = jsonBytes.sum();
+      long written = fileBytes.sum();
+      double units = capacityUnits.sum();
+      double seconds = (now - lastNanos) / 1e9;
+      System.out.printf("%d item(s) exported, %.0f items/s, %.1f MB/s of JSON, %.1f MB/s written, %.0f RCU/s%n",
+          items, (items - lastItems) / seconds, (json - lastJsonBytes) / seconds / 1e6,
+          (written - lastFileBytes) / seconds / 1e6, (units - lastCapacityUnits) / seconds);
+      lastNanos = now;
+      lastItems = items;
+      lastJsonBytes = json;
+      lastFileBytes = written;
+      lastCapacityUnits = units;
+    }
+  }
+
+  // NDJSON file of a segment. With gzip, the file is a series of gzip members, one per checkpoint,
+  // which GZIPInputStream and gunzip read as a single stream.
+  private static final class SegmentWriter implements Closeable {
+    private final FileOutputStream file;
+    private final OutputStream buffered;
+    private final OutputStream counted;
+    private final boolean gzip;
+    private final LongAdder jsonBytes;
+    private MemberWriter writer;
+
+    SegmentWriter(Path path, long length, boolean gzip, LongAdder jsonBytes, LongAdder fileBytes) throws IOException {
+      // Drops what was written after the last checkpoint of a previous run
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        channel.truncate(length);
+      }
+      this.file = new FileOutputStream(path.toFile(), true);
+      this.buffered = new BufferedOutputStream(file, BUFFER_BYTES);
+      this.counted = new CountingOutputStream(buffered, fileBytes);
+      this.gzip = gzip;
+      this.jsonBytes = jsonBytes;
+      startMember();
+    }
+
+    void writeLine(String line) throws IOException {
+      writer.write(line);
+      writer.write('\n');
+    }
+
+    // Ends the current gzip member and flushes the file to the disk, returns its length
+    long sync() throws IOException {
+      writer.flush();
+      if (gzip) {
+        ((GZIPOutputStream) writer.member).finish();
+      }
+      buffered.flush();
+      file.getChannel().force(false);
+      long length = file.getChannel().size();
+      startMember();
+      return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+
+    private void startMember() throws IOException {
+      OutputStream member = gzip ? new FastGzipOutputStream(counted) : counted;
+      writer = new MemberWriter(member, new CountingOutputStream(member, jsonBytes));
+    }
+
+    // UTF-8 writer that keeps its stream, to end a gzip member without closing the file
+    private static final class MemberWriter extends BufferedWriter {
+      private final OutputStream member;
+
+      private MemberWriter(OutputStream member, OutputStream counted) {
+        super(new OutputStreamWriter(counted, StandardCharsets.UTF_8), BUFFER_BYTES);
+        this.member = member;
+      }
+    }
+  }
+
+  // Counts the bytes written through it, the encoded or compressed bytes rather than the characters
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private final LongAdder count;
+
+    private CountingOutputStream(OutputStream out, LongAdder count) {
+      super(out);
+      this.count = count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count.increment();
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      count.add(length);
+    }
+  }
+
+  // The fastest compression level: the export is bound by the compression before the scan
+  private static final class FastGzipOutputStream extends GZIPOutputStream {
+    private FastGzipOutputStream(OutputStream out) throws IOException {
+      super(out, BUFFER_BYTES);
+      def.setLevel(Deflater.BEST_SPEED);
+    }
+  }
+
+  // Progress of a segment, saved after each synced gzip member
+  private static final class Checkpoint {
+    private int totalSegments;
+    private String compression;
+    private long items;
+    private long length;
+    private boolean done;
+    private Map<String, AttributeValue> lastEvaluatedKey;
+
+    static Checkpoint load(Path path, int totalSegments, String compression) throws IOException {
+      Checkpoint checkpoint = new Checkpoint();
+      checkpoint.totalSegments = totalSegments;
+      checkpoint.compression = compression;
+      if (!Files.exists(path)) {
+        return checkpoint;
+      }
+      Properties properties = new Properties();
+      try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+      if (Integer.parseInt(properties.getProperty("totalSegments")) != totalSegments) {
+        throw new IllegalArgumentException(path + " was written with --segments "
+            + properties.getProperty("totalSegments"));
+      }
+      // The file is truncated to the length of the checkpoint and appended to, in the compression of the file
+      if (!compression.equals(properties.getProperty("compression"))) {
+        throw new IllegalArgumentException(path + " was written with --compression "
+            + properties.getProperty("compression"));
+      }
+      checkpoint.items = Long.parseLong(properties.getProperty("items"));
+      checkpoint.length = Long.parseLong(properties.getProperty("length"));
+      checkpoint.done = Boolean.parseBoolean(properties.getProperty("done"));
+      String key = properties.getProperty("lastEvaluatedKey");
+      checkpoint.lastEvaluatedKey = key == null ? null : ItemJson.parse(key, true);
+      return checkpoint;
+    }
+
+    // Replaces the previous checkpoint atomically
+    void save(Path path) throws IOException {
+      Properties properties = new Properties();
+      properties.setProperty("totalSegments", Integer.toString(totalSegments));
+      properties.setProperty("compression", compression);
+      properties.setProperty("items", Long.toString(items));
+      properties.setProperty("length", Long.toString(length));
+      properties.setProperty("done", Boolean.toString(done));
+      if (lastEvaluatedKey != null && !done) {
+        properties.setProperty("lastEvaluatedKey", ItemJson.toDynamoDbJson(lastEvaluatedKey));
+      }
+      Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        properties.store(writer, null);
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+}
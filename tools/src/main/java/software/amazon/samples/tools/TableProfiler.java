@@ -0,0 +1,552 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import software.amazon.awssdk.protocols.jsoncore.JsonWriter;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Profiles the items of a table with a parallel scan, to size the capacity of the table and of
+// its indexes before a migration step, e.g. of the CfnGlobalTable of ProvisionedStack7 and
+// ProvisionedStack8: the sizes of the items in write capacity units, the number of distinct
+// partition keys, the partition keys with the most items, and the size of the items projected
+// in each GSI. Each statistic is an ItemAggregator of bounded memory, and each worker thread has
+// its own aggregators, merged at the end: the memory depends on the concurrency, not on the size
+// of the table. The report is written as one JSON document.
+//
+// mvn compile exec:java -Dexec.mainClass=software.amazon.samples.tools.TableProfiler \
+//   -Dexec.args="--table ProvisionedStackMyTable"
+public final class TableProfiler {
+  private final DynamoDbClient ddbClient;
+  private final String tableName;
+  private final int totalSegments;
+  private final int concurrency;
+  private final boolean consistentRead;
+  private final List<Supplier<ItemAggregator>> aggregators;
+  private final LongAdder itemsScanned = new LongAdder();
+  private final DoubleAdder capacityUnits = new DoubleAdder();
+
+  TableProfiler(DynamoDbClient ddbClient, String tableName, int totalSegments, int concurrency, boolean consistentRead,
+                List<Supplier<ItemAggregator>> aggregators) {
+    if (totalSegments < 1 || concurrency < 1) {
+      throw new IllegalArgumentException("Segments and concurrency must be at least 1");
+    }
+    this.ddbClient = ddbClient;
+    this.tableName = tableName;
+    this.totalSegments = totalSegments;
+    this.concurrency = Math.min(concurrency, totalSegments);
+    this.consistentRead = consistentRead;
+    this.aggregators = aggregators;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Arguments arguments = new Arguments(args);
+    String tableName = arguments.required("table");
+    int precision = arguments.intValue("precision", 14);
+    int top = arguments.intValue("top", 20);
+    int sketchWidth = arguments.intValue("sketch-width", 4096);
+    int sketchDepth = arguments.intValue("sketch-depth", 5);
+    try (DynamoDbClient ddbClient = DynamoDbClients.create(arguments, true)) {
+      TableDescription table = ddbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build())
+          .table();
+      String partitionKey = keyAttribute(table.keySchema(), KeyType.HASH);
+      List<Supplier<ItemAggregator>> aggregators = new ArrayList<>();
+      aggregators.add(SizeHistogram::new);
+      aggregators.add(() -> new KeyCardinality(partitionKey, precision));
+      aggregators.add(() -> new HotKeys(partitionKey, top, sketchWidth, sketchDepth));
+      if (table.hasGlobalSecondaryIndexes()) {
+        aggregators.add(() -> new IndexSizes(table.keySchema(), table.globalSecondaryIndexes()));
+      }
+      TableProfiler profiler = new TableProfiler(ddbClient, tableName, arguments.intValue("segments", 64),
+          arguments.intValue("concurrency", 16), arguments.flag("consistent-read"), aggregators);
+      Path output = Path.of(arguments.string("output", tableName + "-profile.json"));
+      profiler.profile(output, arguments.intValue("report-seconds", 10));
+    }
+  }
+
+  void profile(Path output, int reportSeconds) throws Exception {
+    long start = System.nanoTime();
+    // One set of aggregators per worker, taken by a segment for the time of its scan
+    BlockingQueue<List<ItemAggregator>> sets = new ArrayBlockingQueue<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      sets.add(aggregators.stream().map(Supplier::get).collect(Collectors.toList()));
+    }
+    ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+      Thread thread = new Thread(runnable, "profile-segment");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "profile-reporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      reporter.scheduleAtFixedRate(new Reporter(), reportSeconds, reportSeconds, TimeUnit.SECONDS);
+      List<Future<?>> segments = new ArrayList<>(totalSegments);
+      for (int segment = 0; segment < totalSegments; segment++) {
+        int current = segment;
+        segments.add(workers.submit(() -> {
+          List<ItemAggregator> set = sets.take();
+          try {
+            scanSegment(current, set);
+          } finally {
+            sets.add(set);
+          }
+          return null;
+        }));
+      }
+      segments.forEach(TableProfiler::join);
+    } finally {
+      workers.shutdownNow();
+      reporter.shutdownNow();
+    }
+    List<ItemAggregator> merged = sets.poll();
+    for (List<ItemAggregator> set : sets) {
+      for (int i = 0; i < merged.size(); i++) {
+        merged.get(i).merge(set.get(i));
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    Files.write(output, report(merged, seconds));
+    System.out.printf("Profiled %d item(s) of %s in %.1f s, %.0f RCU consumed, report in %s%n", itemsScanned.sum(),
+        tableName, seconds, capacityUnits.sum(), output);
+  }
+
+  private void scanSegment(int segment, List<ItemAggregator> set) {
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      ScanResponse response = ddbClient.scan(ScanRequest.builder()
+          .tableName(tableName)
+          .segment(segment)
+          .totalSegments(totalSegments)
+          .exclusiveStartKey(exclusiveStartKey)
+          .consistentRead(consistentRead)
+          .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+          .build());
+      if (response.consumedCapacity() != null) {
+        capacityUnits.add(response.consumedCapacity().capacityUnits());
+      }
+      for (Map<String, AttributeValue> item : response.items()) {
+        for (ItemAggregator aggregator : set) {
+          aggregator.add(item);
+        }
+      }
+      itemsScanned.add(response.items().size());
+      exclusiveStartKey = response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+  }
+
+  private byte[] report(List<ItemAggregator> merged, double seconds) {
+    JsonWriter writer = JsonWriter.create();
+    writer.writeStartObject();
+    writer.writeFieldName("table").writeValue(tableName);
+    writer.writeFieldName("profiledAt").writeValue(Instant.now().toString());
+    writer.writeFieldName("items").writeValue(itemsScanned.sum());
+    writer.writeFieldName("seconds").writeValue(Math.round(seconds * 10) / 10.0);
+    writer.writeFieldName("readCapacityUnits").writeValue(Math.round(capacityUnits.sum()));
+    for (ItemAggregator aggregator : merged) {
+      writer.writeFieldName(aggregator.name());
+      aggregator.write(writer);
+    }
+    writer.writeEndObject();
+    return writer.getBytes();
+  }
+
+  private static String keyAttribute(List<KeySchemaElement> keySchema, KeyType keyType) {
+    return keySchema.stream()
+        .filter(element -> element.keyType() == keyType)
+        .map(KeySchemaElement::attributeName)
+        .findFirst()
+        .orElse(null);
+  }
+
+  // Bytes of a key value, to hash it
+  private static byte[] keyBytes(AttributeValue value) {
+    switch (value.type()) {
+      case B:
+        return value.b().asByteArrayUnsafe();
+      case N:
+        return value.n().getBytes(StandardCharsets.UTF_8);
+      default:
+        return value.s().getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  // Key value as a JSON string, Base64 for binary keys
+  private static String keyString(AttributeValue value) {
+    switch (value.type()) {
+      case B:
+        return Base64.getEncoder().encodeToString(value.b().asByteArrayUnsafe());
+      case N:
+        return value.n();
+      default:
+        return value.s();
+    }
+  }
+
+  private static <T> T join(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while profiling", e);
+    } catch (ExecutionException e) {
+      throw new CompletionException(e.getCause());
+    }
+  }
+
+  private final class Reporter implements Runnable {
+    private long lastNanos = System.nanoTime();
+    private long lastItems;
+
+    @Override
+    public void run() {
+      long now = System.nanoTime();
+      long items = itemsScanned.sum();
+      System.out.printf("%d item(s) profiled, %.0f items/s, %.0f RCU consumed%n", items,
+          (items - lastItems) / ((now - lastNanos) / 1e9), capacityUnits.sum());
+      lastNanos = now;
+      lastItems = items;
+    }
+  }
+
+  // Number of items per size in write capacity units, from 1 to 400 KB
+  static final class SizeHistogram implements ItemAggregator {
+    private final long[] items = new long[ItemSizes.MAX_ITEM_SIZE / 1024 + 1];
+    private long count;
+    private long bytes;
+    private int maxBytes;
+
+    @Override
+    public String name() {
+      return "itemSizes";
+    }
+
+    @Override
+    public void add(Map<String, AttributeValue> item) {
+      int size = ItemSizes.itemSize(item);
+      items[Math.min(ItemSizes.writeCapacityUnits(size), items.length - 1)]++;
+      count++;
+      bytes += size;
+      maxBytes = Math.max(maxBytes, size);
+    }
+
+    @Override
+    public void merge(ItemAggregator other) {
+      SizeHistogram histogram = (SizeHistogram) other;
+      for (int i = 0; i < items.length; i++) {
+        items[i] += histogram.items[i];
+      }
+      count += histogram.count;
+      bytes += histogram.bytes;
+      maxBytes = Math.max(maxBytes, histogram.maxBytes);
+    }
+
+    @Override
+    public void write(JsonWriter writer) {
+      writer.writeStartObject();
+      writer.writeFieldName("bytes").writeValue(bytes);
+      writer.writeFieldName("averageBytes").writeValue(count == 0 ? 0 : bytes / count);
+      writer.writeFieldName("maxBytes").writeValue(maxBytes);
+      long writeUnits = 0;
+      for (int units = 1; units < items.length; units++) {
+        writeUnits += units * items[units];
+      }
+      // Write capacity units to write all the items once, e.g. to load them into a new table
+      writer.writeFieldName("writeCapacityUnits").writeValue(writeUnits);
+      writer.writeFieldName("p50WriteCapacityUnits").writeValue(percentile(0.5));
+      writer.writeFieldName("p90WriteCapacityUnits").writeValue(percentile(0.9));
+      writer.writeFieldName("p99WriteCapacityUnits").writeValue(percentile(0.99));
+      writer.writeFieldName("histogram").writeStartArray();
+      for (int units = 1; units < items.length; units++) {
+        if (items[units] > 0) {
+          writer.writeStartObject();
+          writer.writeFieldName("writeCapacityUnits").writeValue(units);
+          writer.writeFieldName("items").writeValue(items[units]);
+          writer.writeEndObject();
+        }
+      }
+      writer.writeEndArray();
+      writer.writeEndObject();
+    }
+
+    private int percentile(double fraction) {
+      long rank = (long) Math.ceil(fraction * count);
+      long seen = 0;
+      for (int units = 1; units < items.length; units++) {
+        seen += items[units];
+        if (seen >= rank && seen > 0) {
+          return units;
+        }
+      }
+      return 0;
+    }
+  }
+
+  // Estimate of the number of distinct partition keys
+  static final class KeyCardinality implements ItemAggregator {
+    private final String partitionKey;
+    private final HyperLogLog partitionKeys;
+
+    KeyCardinality(String partitionKey, int precision) {
+      this.partitionKey = partitionKey;
+      this.partitionKeys = new HyperLogLog(precision);
+    }
+
+    @Override
+    public String name() {
+      return "partitionKeys";
+    }
+
+    @Override
+    public void add(Map<String, AttributeValue> item) {
+      partitionKeys.add(HyperLogLog.hash64(keyBytes(item.get(partitionKey))));
+    }
+
+    @Override
+    public void merge(ItemAggregator other) {
+      partitionKeys.merge(((KeyCardinality) other).partitionKeys);
+    }
+
+    @Override
+    public void write(JsonWriter writer) {
+      writer.writeStartObject();
+      writer.writeFieldName("attribute").writeValue(partitionKey);
+      writer.writeFieldName("distinct").writeValue(partitionKeys.estimate());
+      writer.writeFieldName("standardError").writeValue(Math.round(partitionKeys.standardError() * 10000) / 10000.0);
+      writer.writeEndObject();
+    }
+  }
+
+  // The partition keys with the most items: a count-min sketch counts the items of every key, and
+  // the top keys by their estimate are kept as candidates
+  static final class HotKeys implements ItemAggregator {
+    private final String partitionKey;
+    private final int top;
+    private final CountMinSketch sketch;
+    // Candidates by hash, with their key value
+    private final Map<Long, AttributeValue> candidates = new HashMap<>();
+    private long minCandidate = Long.MAX_VALUE;
+
+    HotKeys(String partitionKey, int top, int width, int depth) {
+      if (top < 1) {
+        throw new IllegalArgumentException("top must be at least 1: " + top);
+      }
+      this.partitionKey = partitionKey;
+      this.top = top;
+      this.sketch = new CountMinSketch(width, depth);
+    }
+
+    @Override
+    public String name() {
+      return "hotPartitionKeys";
+    }
+
+    @Override
+    public void add(Map<String, AttributeValue> item) {
+      AttributeValue key = item.get(partitionKey);
+      long hash = HyperLogLog.hash64(keyBytes(key));
+      long estimate = sketch.add(hash, 1);
+      if (candidates.containsKey(hash)) {
+        return;
+      }
+      if (candidates.size() < top) {
+        candidates.put(hash, key);
+        minCandidate = Math.min(minCandidate, estimate);
+      } else if (estimate > minCandidate) {
+        candidates.put(hash, key);
+        evict();
+      }
+    }
+
+    @Override
+    public void merge(ItemAggregator other) {
+      HotKeys hotKeys = (HotKeys) other;
+      sketch.merge(hotKeys.sketch);
+      candidates.putAll(hotKeys.candidates);
+      while (candidates.size() > top) {
+        evict();
+      }
+      // The estimates of the candidates now include the items of the other sketch
+      List<Long> hashes = sorted();
+      minCandidate = hashes.isEmpty() ? Long.MAX_VALUE : sketch.estimate(hashes.get(hashes.size() - 1));
+    }
+
+    @Override
+    public void write(JsonWriter writer) {
+      writer.writeStartObject();
+      writer.writeFieldName("attribute").writeValue(partitionKey);
+      // The counts may be above the true counts by up to this number of items
+      writer.writeFieldName("errorBound").writeValue(sketch.errorBound());
+      writer.writeFieldName("keys").writeStartArray();
+      for (Long hash : sorted()) {
+        writer.writeStartObject();
+        writer.writeFieldName("key").writeValue(keyString(candidates.get(hash)));
+        writer.writeFieldName("items").writeValue(sketch.estimate(hash));
+        writer.writeFieldName("share").writeValue(Math.round(10000.0 * sketch.estimate(hash) / sketch.total()) / 10000.0);
+        writer.writeEndObject();
+      }
+      writer.writeEndArray();
+      writer.writeEndObject();
+    }
+
+    // Removes the candidate with the lowest estimate
+    private void evict() {
+      List<Long> hashes = sorted();
+      candidates.remove(hashes.get(hashes.size() - 1));
+      minCandidate = sketch.estimate(hashes.get(hashes.size() - 2));
+    }
+
+    private List<Long> sorted() {
+      List<Long> hashes = new ArrayList<>(candidates.keySet());
+      hashes.sort(Comparator.comparingLong(sketch::estimate).reversed());
+      return hashes;
+    }
+  }
+
+  // Number and size of the items projected in each GSI, as DynamoDB counts them: the projected
+  // attributes plus 100 bytes of overhead. An item without the key attributes of an index is not
+  // in the index.
+  static final class IndexSizes implements ItemAggregator {
+    private static final int INDEX_ITEM_OVERHEAD = 100;
+
+    private final List<Index> indexes = new ArrayList<>();
+
+    IndexSizes(List<KeySchemaElement> tableKeySchema, List<GlobalSecondaryIndexDescription> indexes) {
+      for (GlobalSecondaryIndexDescription index : indexes) {
+        this.indexes.add(new Index(index, tableKeySchema));
+      }
+    }
+
+    @Override
+    public String name() {
+      return "globalSecondaryIndexes";
+    }
+
+    @Override
+    public void add(Map<String, AttributeValue> item) {
+      for (Index index : indexes) {
+        index.add(item);
+      }
+    }
+
+    @Override
+    public void merge(ItemAggregator other) {
+      List<Index> others = ((IndexSizes) other).indexes;
+      for (int i = 0; i < indexes.size(); i++) {
+        indexes.get(i).merge(others.get(i));
+      }
+    }
+
+    @Override
+    public void write(JsonWriter writer) {
+      writer.writeStartObject();
+      for (Index index : indexes) {
+        writer.writeFieldName(index.name);
+        index.write(writer);
+      }
+      writer.writeEndObject();
+    }
+
+    private static final class Index {
+      private final String name;
+      private final List<String> keyAttributes = new ArrayList<>();
+      // Projected attributes besides the keys, null for ALL
+      private final Set<String> projected;
+      private long items;
+      private long bytes;
+      private long writeUnits;
+      private int maxBytes;
+
+      private Index(GlobalSecondaryIndexDescription index, List<KeySchemaElement> tableKeySchema) {
+        this.name = index.indexName();
+        index.keySchema().forEach(element -> keyAttributes.add(element.attributeName()));
+        Set<String> attributes = new LinkedHashSet<>(keyAttributes);
+        tableKeySchema.forEach(element -> attributes.add(element.attributeName()));
+        ProjectionType type = index.projection().projectionType();
+        if (type == ProjectionType.ALL) {
+          this.projected = null;
+        } else {
+          if (type == ProjectionType.INCLUDE) {
+            attributes.addAll(index.projection().nonKeyAttributes());
+          }
+          this.projected = new HashSet<>(attributes);
+        }
+      }
+
+      private void add(Map<String, AttributeValue> item) {
+        for (String attribute : keyAttributes) {
+          if (!item.containsKey(attribute)) {
+            return;
+          }
+        }
+        int size = INDEX_ITEM_OVERHEAD;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+          if (projected == null || projected.contains(attribute.getKey())) {
+            size += ItemSizes.utf8Length(attribute.getKey()) + ItemSizes.valueSize(attribute.getValue());
+          }
+        }
+        items++;
+        bytes += size;
+        writeUnits += ItemSizes.writeCapacityUnits(size);
+        maxBytes = Math.max(maxBytes, size);
+      }
+
+      private void merge(Index other) {
+        items += other.items;
+        bytes += other.bytes;
+        writeUnits += other.writeUnits;
+        maxBytes = Math.max(maxBytes, other.maxBytes);
+      }
+
+      private void write(JsonWriter writer) {
+        writer.writeStartObject();
+        writer.writeFieldName("items").writeValue(items);
+        writer.writeFieldName("bytes").writeValue(bytes);
+        writer.writeFieldName("averageBytes").writeValue(items == 0 ? 0 : bytes / items);
+        writer.writeFieldName("maxBytes").writeValue(maxBytes);
+        // Write capacity units of the index to write all the items once
+        writer.writeFieldName("writeCapacityUnits").writeValue(writeUnits);
+        writer.writeEndObject();
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AimdConcurrencyLimiterTest {
+  @Test
+  void limitGrowsByAboutOnePerRoundTrip() throws InterruptedException {
+    AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 64);
+
+    // 1/4 + 1/4.25 + ... reaches 5 after 5 successful requests
+    for (int i = 0; i < 5; i++) {
+      limiter.release(limiter.acquire(), false);
+    }
+
+    assertEquals(5, limiter.limit());
+    assertEquals(0, limiter.congestions());
+  }
+
+  @Test
+  void congestionHalvesTheLimitOncePerRoundTrip() throws InterruptedException {
+    AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(16, 1, 64);
+    long first = limiter.acquire();
+    long second = limiter.acquire();
+
+    limiter.release(first, true);
+    // Sent before the decrease: the same overload
+    limiter.release(second, true);
+    assertEquals(8, limiter.limit());
+
+    Thread.sleep(1);
+    limiter.release(limiter.acquire(), true);
+    assertEquals(4, limiter.limit());
+    assertEquals(3, limiter.congestions());
+  }
+
+  @Test
+  void limitStaysBetweenTheFloorAndTheCeiling() throws InterruptedException {
+    assertEquals(8, new AimdConcurrencyLimiter(100, 1, 8).limit());
+    assertEquals(2, new AimdConcurrencyLimiter(0, 2, 8).limit());
+
+    AimdConcurrencyLimiter floor = new AimdConcurrencyLimiter(2, 1, 8);
+    for (int i = 0; i < 3; i++) {
+      Thread.sleep(1);
+      floor.release(floor.acquire(), true);
+    }
+    assertEquals(1, floor.limit());
+
+    AimdConcurrencyLimiter ceiling = new AimdConcurrencyLimiter(4, 1, 6);
+    for (int i = 0; i < 100; i++) {
+      ceiling.release(ceiling.acquire(), false);
+    }
+    assertEquals(6, ceiling.limit());
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AutoScalingSimulatorTest {
+  @Test
+  void throttledRequestsAreAddedToTheDemand() throws IOException {
+    AutoScalingSimulator.Trace trace = read(2,
+        "timestamp,table,table:throttled,MyGsi",
+        "2023-03-01T00:00:00Z,600,0,300",
+        "2023-03-01T00:01:00Z,600,120,300");
+
+    assertEquals(List.of("table", "MyGsi"), trace.names());
+    assertArrayEquals(new double[] {10, 14}, trace.demand(0), 1e-9);
+    assertArrayEquals(new double[] {5, 5}, trace.demand(1), 1e-9);
+    assertEquals(List.of("table"), trace.throttled());
+  }
+
+  @Test
+  void minutesAtTheProvisionedCapacityAreReported() throws IOException {
+    AutoScalingSimulator.Trace trace = read(1,
+        "timestamp,table,table:provisioned,MyGsi,MyGsi:provisioned,MyGsi:throttled",
+        "1677628800,300,10,600,10,0",
+        "1677628860,597,10,600,10,60",
+        "1677628920,600,10,300,10,0");
+
+    // The throttled requests of the index give its demand, its capacity does not matter
+    assertEquals(Map.of("table", 2), trace.saturatedMinutes());
+    assertArrayEquals(new double[] {5, 9.95, 10}, trace.demand(0), 1e-9);
+    assertArrayEquals(new double[] {10, 11, 5}, trace.demand(1), 1e-9);
+  }
+
+  @Test
+  void auxiliaryColumnNeedsItsColumn() {
+    assertThrows(IllegalArgumentException.class, () -> read(1,
+        "timestamp,table,MyGsi:throttled",
+        "2023-03-01T00:00:00Z,600,10"));
+  }
+
+  @Test
+  void throttledDemandIsSimulated() throws IOException {
+    AutoScalingSimulator.Trace trace = read(1,
+        "timestamp,table,table:throttled",
+        "2023-03-01T00:00:00Z,600,600",
+        "2023-03-01T00:01:00Z,600,600");
+    AutoScalingSimulator simulator = new AutoScalingSimulator(trace.demand(0), new long[] {0, 0}, 1);
+
+    AutoScalingSimulator.Result result = simulator.simulate(new AutoScalingSimulator.Settings(10, 10, 70, 10));
+
+    assertEquals(0.5, result.throttledFraction(), 0.05);
+  }
+
+  private static AutoScalingSimulator.Trace read(double unitsPerRequest, String... lines) throws IOException {
+    Path path = Files.createTempFile("trace", ".csv");
+    try {
+      Files.write(path, List.of(lines), StandardCharsets.UTF_8);
+      return AutoScalingSimulator.Trace.read(path, false, unitsPerRequest);
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+  @Test
+  void estimatesAreNeverBelowTheCountsAndWithinTheBound() {
+    CountMinSketch sketch = new CountMinSketch(1024, 5);
+    for (int i = 0; i < 20_000; i++) {
+      sketch.add(hash("key" + i), 1);
+    }
+    sketch.add(hash("hot"), 5000);
+
+    assertEquals(25_000, sketch.total());
+    long hot = sketch.estimate(hash("hot"));
+    assertTrue(hot >= 5000 && hot <= 5000 + sketch.errorBound(), "hot key estimate " + hot);
+    for (int i = 0; i < 20_000; i++) {
+      long estimate = sketch.estimate(hash("key" + i));
+      assertTrue(estimate >= 1, "key" + i + " estimate " + estimate);
+    }
+  }
+
+  @Test
+  void mergeEqualsOneSketchOfAllCounts() {
+    CountMinSketch all = new CountMinSketch(256, 4);
+    CountMinSketch first = new CountMinSketch(256, 4);
+    CountMinSketch second = new CountMinSketch(256, 4);
+    for (int i = 0; i < 5000; i++) {
+      all.add(hash("key" + i % 700), 1);
+      (i % 2 == 0 ? first : second).add(hash("key" + i % 700), 1);
+    }
+
+    first.merge(second);
+
+    assertEquals(all.total(), first.total());
+    for (int i = 0; i < 700; i++) {
+      assertEquals(all.estimate(hash("key" + i)), first.estimate(hash("key" + i)));
+    }
+  }
+
+  private static long hash(String key) {
+    return HyperLogLog.hash64(key.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,88 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+  @Test
+  void estimateIsWithinThreeStandardErrors() {
+    HyperLogLog sketch = new HyperLogLog(14);
+    int distinct = 100_000;
+    for (int i = 0; i < distinct; i++) {
+      sketch.add(hash("key" + i));
+    }
+
+    assertWithinThreeStandardErrors(distinct, sketch);
+  }
+
+  @Test
+  void smallCardinalityUsesLinearCounting() {
+    HyperLogLog sketch = new HyperLogLog(14);
+    for (int i = 0; i < 1000; i++) {
+      sketch.add(hash("key" + i));
+    }
+
+    assertWithinThreeStandardErrors(1000, sketch);
+  }
+
+  @Test
+  void duplicatesDoNotCount() {
+    HyperLogLog once = new HyperLogLog(12);
+    HyperLogLog twice = new HyperLogLog(12);
+    for (int i = 0; i < 10_000; i++) {
+      once.add(hash("key" + i));
+      twice.add(hash("key" + i));
+      twice.add(hash("key" + i));
+    }
+
+    assertEquals(once.estimate(), twice.estimate());
+  }
+
+  @Test
+  void mergeEqualsOneSketchOfAllKeys() {
+    HyperLogLog all = new HyperLogLog(14);
+    HyperLogLog first = new HyperLogLog(14);
+    HyperLogLog second = new HyperLogLog(14);
+    for (int i = 0; i < 50_000; i++) {
+      all.add(hash("key" + i));
+      (i % 2 == 0 ? first : second).add(hash("key" + i));
+    }
+
+    first.merge(second);
+
+    assertEquals(all.estimate(), first.estimate());
+  }
+
+  @Test
+  void hashesWithoutOneBitAfterTheRegisterAreCounted() {
+    // The rank of the bits after the register is bounded by a sentinel bit
+    HyperLogLog sketch = new HyperLogLog(4);
+    sketch.add(0);
+    sketch.add(Long.MIN_VALUE >>> 3);
+
+    assertEquals(2, sketch.estimate());
+  }
+
+  @Test
+  void precisionIsChecked() {
+    assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+    assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(14).merge(new HyperLogLog(12)));
+  }
+
+  private static void assertWithinThreeStandardErrors(long distinct, HyperLogLog sketch) {
+    double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+    assertTrue(error <= 3 * sketch.standardError(), "estimate " + sketch.estimate() + " of " + distinct + " keys");
+  }
+
+  private static long hash(String key) {
+    return HyperLogLog.hash64(key.getBytes(StandardCharsets.UTF_8));
+  }
+}
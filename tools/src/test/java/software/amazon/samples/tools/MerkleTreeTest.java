@@ -0,0 +1,140 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MerkleTreeTest {
+  // Not a power of two, so the tree has padded leaves
+  private static final int SEGMENTS = 13;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void identicalTablesHaveNoDiff() {
+    MerkleTree source = build(items(1000));
+    MerkleTree target = build(items(1000));
+
+    assertEquals(source.rootHash(), target.rootHash());
+    assertTrue(source.diff(target).isEmpty());
+    assertEquals(1000, source.count());
+  }
+
+  @Test
+  void changedItemIsInExactlyItsSegment() {
+    List<Map<String, AttributeValue>> changed = items(1000);
+    Map<String, AttributeValue> item = new HashMap<>(changed.get(42));
+    item.put("value", AttributeValue.builder().s("changed").build());
+    changed.set(42, item);
+
+    MerkleTree source = build(items(1000));
+    MerkleTree target = build(changed);
+
+    assertNotEquals(source.rootHash(), target.rootHash());
+    assertEquals(List.of(segment(item)), source.diff(target));
+  }
+
+  @Test
+  void missingItemIsInExactlyItsSegment() {
+    List<Map<String, AttributeValue>> missing = items(1000);
+    Map<String, AttributeValue> item = missing.remove(7);
+
+    List<Integer> diff = build(items(1000)).diff(build(missing));
+
+    assertEquals(List.of(segment(item)), diff);
+  }
+
+  @Test
+  void counterAndProbeItemsAreSkipped() {
+    List<Map<String, AttributeValue>> withMarkers = items(1000);
+    for (String partitionKey : List.of("#counter#eu-west-1", "#probe#eu-north-1")) {
+      withMarkers.add(Map.of(
+          "PK", AttributeValue.builder().s(partitionKey).build(),
+          "SK", AttributeValue.builder().s("shard#0").build(),
+          "ItemCount", AttributeValue.builder().n("12").build()));
+    }
+
+    MerkleTree source = build(items(1000));
+    MerkleTree target = build(withMarkers);
+
+    assertEquals(1000, target.count());
+    assertEquals(source.rootHash(), target.rootHash());
+  }
+
+  @Test
+  void savedTreeComparesEqual() throws Exception {
+    MerkleTree tree = build(items(500));
+    Path path = directory.resolve("tree.txt");
+    tree.save(path);
+
+    MerkleTree loaded = MerkleTree.load(path);
+
+    assertEquals(tree.rootHash(), loaded.rootHash());
+    assertTrue(tree.diff(loaded).isEmpty());
+  }
+
+  private static List<Map<String, AttributeValue>> items(int count) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      items.add(Map.of(
+          "PK", AttributeValue.builder().s("p" + i).build(),
+          "SK", AttributeValue.builder().s("s" + i).build(),
+          "value", AttributeValue.builder().n(Integer.toString(i)).build()));
+    }
+    return items;
+  }
+
+  private static MerkleTree build(List<Map<String, AttributeValue>> items) {
+    return new MerkleVerifier(SEGMENTS, 4, false).build(new SegmentedTable(items), "T");
+  }
+
+  // Segment of an item by the hash of its partition key, as DynamoDB splits a parallel scan
+  private static int segment(Map<String, AttributeValue> item) {
+    return Math.floorMod(HyperLogLog.hash64(item.get("PK").s().getBytes(StandardCharsets.UTF_8)), SEGMENTS);
+  }
+
+  // Parallel scan of a list of items, one page per segment
+  private static final class SegmentedTable implements DynamoDbClient {
+    private final List<Map<String, AttributeValue>> items;
+
+    SegmentedTable(List<Map<String, AttributeValue>> items) {
+      this.items = items;
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest request) {
+      List<Map<String, AttributeValue>> segment = items.stream()
+          .filter(item -> segment(item) == request.segment())
+          .collect(Collectors.toList());
+      return ScanResponse.builder().items(segment).count(segment.size()).build();
+    }
+
+    @Override
+    public String serviceName() {
+      return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
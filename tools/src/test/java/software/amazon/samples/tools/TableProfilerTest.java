@@ -0,0 +1,89 @@
+// Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+// SPDX-License-Identifier: MIT-0
+
+package software.amazon.samples.tools;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.protocols.jsoncore.JsonWriter;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TableProfilerTest {
+  private static final Pattern KEY = Pattern.compile("\"key\":\"([^\"]*)\"");
+
+  @Test
+  void hotKeysAreTheMostFrequentKeys() {
+    TableProfiler.HotKeys hotKeys = new TableProfiler.HotKeys("PK", 2, 4096, 5);
+    items(0, 1).forEach(hotKeys::add);
+
+    assertEquals(List.of("p7", "p42"), keys(hotKeys));
+  }
+
+  @Test
+  void singleHotKeyReplacesTheFirstCandidate() {
+    TableProfiler.HotKeys hotKeys = new TableProfiler.HotKeys("PK", 1, 4096, 5);
+    items(0, 1).forEach(hotKeys::add);
+
+    assertEquals(List.of("p7"), keys(hotKeys));
+  }
+
+  @Test
+  void mergedSegmentsFindTheSameHotKeys() {
+    TableProfiler.HotKeys first = new TableProfiler.HotKeys("PK", 2, 4096, 5);
+    TableProfiler.HotKeys second = new TableProfiler.HotKeys("PK", 2, 4096, 5);
+    items(0, 2).forEach(first::add);
+    items(1, 2).forEach(second::add);
+
+    first.merge(second);
+
+    assertEquals(List.of("p7", "p42"), keys(first));
+  }
+
+  @Test
+  void topIsChecked() {
+    assertThrows(IllegalArgumentException.class, () -> new TableProfiler.HotKeys("PK", 0, 4096, 5));
+  }
+
+  // 5000 keys of one item each, plus 1000 items of p7 and 500 of p42 spread over the scan.
+  // Returns one item of every step, starting at first.
+  private static List<Map<String, AttributeValue>> items(int first, int step) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      items.add(item("p" + i));
+      if (i % 10 == 0) {
+        items.add(item("p7"));
+        items.add(item("p42"));
+        items.add(item("p7"));
+      }
+    }
+    List<Map<String, AttributeValue>> selected = new ArrayList<>();
+    for (int i = first; i < items.size(); i += step) {
+      selected.add(items.get(i));
+    }
+    return selected;
+  }
+
+  private static Map<String, AttributeValue> item(String partitionKey) {
+    return Map.of("PK", AttributeValue.builder().s(partitionKey).build());
+  }
+
+  private static List<String> keys(TableProfiler.HotKeys hotKeys) {
+    JsonWriter writer = JsonWriter.create();
+    hotKeys.write(writer);
+    Matcher matcher = KEY.matcher(new String(writer.getBytes(), StandardCharsets.UTF_8));
+    List<String> keys = new ArrayList<>();
+    while (matcher.find()) {
+      keys.add(matcher.group(1));
+    }
+    return keys;
+  }
+}